@@ -0,0 +1,21 @@
+package com.sis;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Wakes of the automatic check-in schedule (ScheduledCheckIns' alarm), and boot / app update,
+ * after which the alarm is gone and has to be set again.
+ */
+public class CheckInAlarmReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (ScheduledCheckIns.ACTION_WAKE.equals(action) || Intent.ACTION_BOOT_COMPLETED.equals(action)
+                || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            ScheduledCheckIns.onWake(context, goAsync());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.sis;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Running broadcast check-ins. SisterLocationRecorder offers every received reply here; each
+ * batch is expired by one timer task at its deadline and dropped once complete.
+ */
+public final class CheckIns {
+    private static final CopyOnWriteArrayList<CheckInBatch> active = new CopyOnWriteArrayList<>();
+    private static volatile ScheduledExecutorService timer;
+
+    private CheckIns() {}
+
+    /** Track {@code batch} until it completes; it must already be started. */
+    static void register(CheckInBatch batch) {
+        if (batch.isComplete()) return;
+        active.add(batch);
+        long delay = Math.max(0, batch.getDeadlineMillis() - System.currentTimeMillis());
+        timer().schedule(() -> {
+            batch.expire(System.currentTimeMillis());
+            active.remove(batch);
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /** A reply was recorded; settles the matching entry of every running batch. */
+    static void onUpdate(LocationUpdates.Update update) {
+        if (active.isEmpty() || update.key.length() == 0) return;
+        for (CheckInBatch batch : active) {
+            batch.onReply(update.key, update.timestampMillis, update.parsed, update.latitude, update.longitude, update.mapUrl);
+            if (batch.isComplete()) active.remove(batch);
+        }
+    }
+
+    static int activeCount() {
+        return active.size();
+    }
+
+    private static ScheduledExecutorService timer() {
+        ScheduledExecutorService current = timer;
+        if (current == null) {
+            synchronized (CheckIns.class) {
+                current = timer;
+                if (current == null) {
+                    current = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "check-in-timer");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    timer = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sis;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.location.Location;
+import android.util.Log;
+
+import com.google.android.gms.location.CurrentLocationRequest;
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+/** LocationProvider backed by the fused location provider of Play services. */
+final class FusedLocationProvider implements LocationProvider {
+    private static final String TAG = "FusedLocationProvider";
+
+    private final FusedLocationProviderClient client;
+
+    FusedLocationProvider(Context context) {
+        client = LocationServices.getFusedLocationProviderClient(context.getApplicationContext());
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void lastKnown(Callback callback) {
+        try {
+            client.getLastLocation()
+                    .addOnSuccessListener(location -> callback.onResult(toFix(location, LocationFix.Source.LAST_KNOWN)))
+                    .addOnFailureListener(e -> {
+                        Log.w(TAG, "getLastLocation failed: " + e.getMessage());
+                        callback.onResult(null);
+                    });
+        } catch (SecurityException e) {
+            Log.e(TAG, "Location permission missing", e);
+            callback.onResult(null);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void current(Accuracy accuracy, long timeoutMillis, Callback callback) {
+        boolean high = accuracy == Accuracy.HIGH;
+        CurrentLocationRequest request = new CurrentLocationRequest.Builder()
+                .setPriority(high ? Priority.PRIORITY_HIGH_ACCURACY : Priority.PRIORITY_BALANCED_POWER_ACCURACY)
+                .setDurationMillis(Math.max(1, timeoutMillis))
+                .build();
+        LocationFix.Source source = high ? LocationFix.Source.HIGH_ACCURACY : LocationFix.Source.BALANCED;
+        try {
+            client.getCurrentLocation(request, null)
+                    .addOnSuccessListener(location -> callback.onResult(toFix(location, source)))
+                    .addOnFailureListener(e -> {
+                        Log.w(TAG, "getCurrentLocation(" + accuracy + ") failed: " + e.getMessage());
+                        callback.onResult(null);
+                    });
+        } catch (SecurityException e) {
+            Log.e(TAG, "Location permission missing", e);
+            callback.onResult(null);
+        }
+    }
+
+    private static LocationFix toFix(Location location, LocationFix.Source source) {
+        if (location == null) return null;
+        return new LocationFix(location.getLatitude(), location.getLongitude(),
+                location.hasAccuracy() ? location.getAccuracy() : Float.NaN, location.getTime(), source);
+    }
+}
@@ -0,0 +1,37 @@
+package com.sis;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.location.Location;
+
+import com.google.android.gms.location.LocationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Location updates requested by Geofences (PendingIntent broadcasts, delivered even when the
+ * process is not running), and boot / app update, after which the request must be made again.
+ */
+public class GeofenceReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action) || Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
+            Geofences.restore(context, goAsync());
+            return;
+        }
+        if (!Geofences.ACTION_LOCATION.equals(action) || !LocationResult.hasResult(intent)) return;
+        LocationResult result = LocationResult.extractResult(intent);
+        if (result == null) return;
+        List<LocationFix> fixes = new ArrayList<>();
+        for (Location location : result.getLocations()) {
+            fixes.add(new LocationFix(location.getLatitude(), location.getLongitude(),
+                    location.hasAccuracy() ? location.getAccuracy() : Float.NaN, location.getTime(),
+                    LocationFix.Source.BALANCED));
+        }
+        if (!fixes.isEmpty()) Geofences.onFixes(context, fixes, goAsync());
+    }
+}
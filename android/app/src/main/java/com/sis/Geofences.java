@@ -0,0 +1,165 @@
+package com.sis;
+
+import android.annotation.SuppressLint;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.location.Priority;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Safe-zone alerts: GeofenceMonitor fed with low-power location updates, an SMS to the zone's
+ * contact on each arrival / departure instead of the contact polling with keyword messages.
+ * - zones live in "ResponderSettings" / geofences (written by SettingsModule, format:
+ *   GeofenceIndex.fromJson); the zones the phone is known to be in and out of are kept in
+ *   geofences_state ({"inside":[ids],"outside":[ids]}, saved whenever one settles) so a process
+ *   restart neither loses them nor alerts for zones that never had a fix
+ * - updates come as broadcasts to GeofenceReceiver (PendingIntent, so they survive the process),
+ *   requested while at least one zone is configured; TrackingService samples are fed in too
+ * - evaluation runs on one background thread, in arrival order
+ */
+final class Geofences {
+    private static final String TAG = "Geofences";
+    private static final String PREFS_NAME = "ResponderSettings";
+    private static final String KEY_GEOFENCES = "geofences";
+    private static final String KEY_STATE = "geofences_state";
+    static final String ACTION_LOCATION = "com.sis.GEOFENCE_LOCATION";
+    static final long UPDATE_INTERVAL_MS = 5 * 60_000;
+    static final long MIN_UPDATE_INTERVAL_MS = 60_000;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        r.run();
+    }, "geofence"));
+    private static GeofenceMonitor monitor; // worker thread only
+
+    private Geofences() {}
+
+    /** Take the list SettingsModule just saved (null clears it) and (un)register location updates. */
+    static void onListChanged(Context context, String jsonList) {
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            GeofenceMonitor m = monitor(app);
+            m.setIndex(buildIndex(jsonList));
+            saveState(app, m);
+            register(app, !m.getIndex().isEmpty());
+        });
+    }
+
+    /** Re-request updates after a reboot or app update (they do not survive either). */
+    static void restore(Context context, BroadcastReceiver.PendingResult pending) {
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            try {
+                register(app, !monitor(app).getIndex().isEmpty());
+            } finally {
+                if (pending != null) pending.finish();
+            }
+        });
+    }
+
+    /** Evaluate fixes (oldest first) and send the resulting alerts; {@code pending} (may be null) is finished after. */
+    static void onFixes(Context context, List<LocationFix> fixes, BroadcastReceiver.PendingResult pending) {
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            try {
+                GeofenceMonitor m = monitor(app);
+                long changes = m.stateChanges();
+                List<GeofenceMonitor.Transition> transitions = new ArrayList<>();
+                for (LocationFix fix : fixes) transitions.addAll(m.onFix(fix));
+                if (m.stateChanges() != changes) saveState(app, m);
+                for (GeofenceMonitor.Transition t : transitions) {
+                    if (BuildConfig.DEBUG) Log.d(TAG, (t.arrived ? "Arrived at " : "Left ") + t.fence);
+                    SmsOutbox.queue(app).enqueue(t.fence.phone, t.message(), null);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Geofence evaluation failed", e);
+            } finally {
+                if (pending != null) pending.finish();
+            }
+        });
+    }
+
+    private static GeofenceMonitor monitor(Context context) {
+        if (monitor == null) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            GeofenceMonitor m = new GeofenceMonitor();
+            m.setIndex(buildIndex(prefs.getString(KEY_GEOFENCES, null)));
+            String saved = prefs.getString(KEY_STATE, null);
+            if (saved != null) {
+                try {
+                    JSONObject obj = new JSONObject(saved);
+                    m.restore(ids(obj.optJSONArray("inside")), ids(obj.optJSONArray("outside")));
+                } catch (JSONException e) {
+                    Log.w(TAG, "Invalid saved geofence state", e);
+                }
+            }
+            monitor = m;
+        }
+        return monitor;
+    }
+
+    private static List<String> ids(JSONArray arr) {
+        List<String> ids = new ArrayList<>();
+        if (arr != null) for (int i = 0; i < arr.length(); i++) ids.add(arr.optString(i));
+        return ids;
+    }
+
+    private static void saveState(Context context, GeofenceMonitor m) {
+        try {
+            JSONObject obj = new JSONObject()
+                    .put("inside", new JSONArray(m.insideIds()))
+                    .put("outside", new JSONArray(m.outsideIds()));
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putString(KEY_STATE, obj.toString())
+                    .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Saving geofence state failed", e);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private static void register(Context context, boolean on) {
+        PendingIntent intent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, GeofenceReceiver.class).setAction(ACTION_LOCATION),
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_MUTABLE);
+        try {
+            if (on) {
+                LocationRequest request = new LocationRequest.Builder(Priority.PRIORITY_LOW_POWER, UPDATE_INTERVAL_MS)
+                        .setMinUpdateIntervalMillis(MIN_UPDATE_INTERVAL_MS) // fixes other apps asked for
+                        .setMaxUpdateDelayMillis(UPDATE_INTERVAL_MS)
+                        .build();
+                LocationServices.getFusedLocationProviderClient(context).requestLocationUpdates(request, intent);
+            } else {
+                LocationServices.getFusedLocationProviderClient(context).removeLocationUpdates(intent);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Background location permission missing, geofences inactive", e);
+        }
+    }
+
+    // `jsonList` is the geofence list JSON array string (format: GeofenceIndex.fromJson)
+    static GeofenceIndex buildIndex(String jsonList) {
+        try {
+            return GeofenceIndex.fromJson(jsonList);
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid geofence list JSON", e);
+            return GeofenceIndex.EMPTY;
+        }
+    }
+}
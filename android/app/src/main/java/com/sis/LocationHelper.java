@@ -1,58 +1,76 @@
 package com.sis;
 
 import android.Manifest;
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.pm.PackageManager;
-import android.telephony.SmsManager;
 import android.util.Log;
 import androidx.core.app.ActivityCompat;
-import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
-import com.google.android.gms.location.Priority;
-import java.util.ArrayList;
 
+/**
+ * Replies to a trusted contact with the current location.
+ * Fixes come from one process-wide LocationService (cache + coalescing + fallback ladder), so
+ * several contacts asking at once share a single GPS session.
+ */
 public class LocationHelper {
     private static final String TAG = "LocationHelper";
 
-    @SuppressLint("MissingPermission")
+    private static volatile LocationService service;
+
     public static void sendCurrentLocation(Context context, String recipientPhoneNumber) {
+        sendCurrentLocation(context, recipientPhoneNumber, LocationService.DEFAULT_MAX_AGE_MS, false, null);
+    }
+
+    /**
+     * @param maxAgeMillis oldest cached fix that may be sent instead of acquiring a new one
+     * @param compact reply with a single-segment LocationToken (the recipient's app decodes it)
+     *                instead of a maps URL
+     * @param request the message asking for the location, for receive-to-reply timing (may be null)
+     */
+    public static void sendCurrentLocation(Context context, String recipientPhoneNumber, long maxAgeMillis,
+                                           boolean compact, InboundSms request) {
         // First, check if we have location permission
         if (ActivityCompat.checkSelfPermission(context, Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
             Log.e(TAG, "Location permission not granted. Cannot send location.");
             return;
         }
 
-        FusedLocationProviderClient fusedLocationClient = LocationServices.getFusedLocationProviderClient(context);
-
-        fusedLocationClient.getCurrentLocation(Priority.PRIORITY_HIGH_ACCURACY, null)
-            .addOnSuccessListener(location -> {
-                if (location != null) {
-                    double lat = location.getLatitude();
-                    double lon = location.getLongitude();
-                    String mapUrl = "https://maps.google.com/?q=" + lat + "," + lon;
-                    String message = "Here is my current location: " + mapUrl;
-                    sendSms(recipientPhoneNumber, message);
-                } else {
-                    Log.e(TAG, "Could not get location. GPS might be off.");
-                    sendSms(recipientPhoneNumber, "Could not get location. Please ensure GPS is enabled.");
+        service(context).request(maxAgeMillis, fix -> {
+            if (fix != null) {
+                sendSms(context, recipientPhoneNumber,
+                        TrustedResponder.locationReply(fix, maxAgeMillis, compact, System.currentTimeMillis()), request);
+            } else {
+                Log.e(TAG, "Could not get location. GPS might be off.");
+                sendSms(context, recipientPhoneNumber, "Could not get location. Please ensure GPS is enabled.", request);
+            }
+        });
+    }
+
+    static LocationService service(Context context) {
+        LocationService current = service;
+        if (current == null) {
+            synchronized (LocationHelper.class) {
+                current = service;
+                if (current == null) {
+                    current = new LocationService(new FusedLocationProvider(context),
+                            System::currentTimeMillis, LocationService.DEFAULT_BUDGET_MS);
+                    service = current;
                 }
-            })
-            .addOnFailureListener(e -> {
-                Log.e(TAG, "Failed to get location: " + e.getMessage());
-                sendSms(recipientPhoneNumber, "Failed to get location due to an error.");
-            });
+            }
+        }
+        return current;
     }
 
-    // Internal SMS sending function
-    private static void sendSms(String phoneNumber, String message) {
+    // Internal SMS sending function: queued, so a reply survives a radio blip or a process restart
+    private static void sendSms(Context context, String phoneNumber, String message, InboundSms request) {
         try {
-            SmsManager smsManager = SmsManager.getDefault();
-            ArrayList<String> parts = smsManager.divideMessage(message);
-            smsManager.sendMultipartTextMessage(phoneNumber, null, parts, null, null);
-            Log.d(TAG, "Reply SMS sent to " + phoneNumber);
+            long id = SmsOutbox.queue(context).enqueue(phoneNumber, message, null);
+            if (request != null) {
+                SmsMetrics.since(request.isColdStart() ? SmsMetrics.Stage.REPLY_COLD : SmsMetrics.Stage.REPLY_WARM,
+                        request.getReceivedAtNanos());
+            }
+            if (BuildConfig.DEBUG) Log.d(TAG, "Reply SMS " + id + " queued for " + phoneNumber);
         } catch (Exception e) {
-            Log.e(TAG, "Failed to send reply SMS", e);
+            Log.e(TAG, "Failed to queue reply SMS", e);
         }
     }
 }
@@ -0,0 +1,147 @@
+package com.sis;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Push delivery of received locations to JS subscribers (see SisterSettingsModule.subscribeLocation).
+ * - subscriptions are keyed by the digits of the sister phone (canonical phone when the sender
+ *   is a known sister, sender digits otherwise), so any variant of a number subscribes the same key
+ * - one "SisterLocationUpdate" event per matching subscription, with a structured payload
+ * - while no React context is attached (app in background / JS not running) updates are queued
+ *   (bounded, for {@link #PENDING_TTL_MS}) and replayed when a subscription for the phone is made
+ */
+public final class LocationUpdates {
+    private static final String TAG = "LocationUpdates";
+    public static final String EVENT_NAME = "SisterLocationUpdate";
+    static final int MAX_PENDING = 32;
+    static final long PENDING_TTL_MS = 10 * 60 * 1000;
+
+    private static final Object LOCK = new Object();
+    private static ReactApplicationContext attached;                          // guarded by LOCK
+    private static final Map<String, String> subscriptions = new LinkedHashMap<>(); // id -> key, guarded by LOCK
+    private static final ArrayDeque<Update> pending = new ArrayDeque<>();    // guarded by LOCK
+
+    private LocationUpdates() {}
+
+    /** One received location (or raw message) for a phone. lat/lon are NaN when not parsed. */
+    public static final class Update {
+        final String key;
+        final String phone;
+        final String from;
+        final long timestampMillis;
+        final boolean parsed;
+        final double latitude;
+        final double longitude;
+        final String mapUrl;
+        final String rawMessage;
+
+        public Update(String phone, String from, long timestampMillis, ParsedLocation location, String rawMessage) {
+            this.key = PhoneNumbers.normalize(phone);
+            this.phone = phone;
+            this.from = from;
+            this.timestampMillis = timestampMillis;
+            this.parsed = location != null;
+            this.latitude = location != null && location.hasCoordinates() ? location.getLatitude() : Double.NaN;
+            this.longitude = location != null && location.hasCoordinates() ? location.getLongitude() : Double.NaN;
+            this.mapUrl = location != null ? location.getMapUrl() : null;
+            this.rawMessage = rawMessage != null ? rawMessage : "";
+        }
+    }
+
+    /** Called when the JS runtime (SisterSettingsModule) comes up. */
+    static void attach(ReactApplicationContext context) {
+        synchronized (LOCK) {
+            attached = context;
+            subscriptions.clear(); // subscriptions belong to the previous JS instance
+        }
+    }
+
+    static void detach(ReactApplicationContext context) {
+        synchronized (LOCK) {
+            if (attached == context) attached = null;
+            subscriptions.clear();
+        }
+    }
+
+    /**
+     * The attached React context if its JS instance is running, else null. Lets the SMS path talk
+     * to JS without asking the ReactHost for a context, which would start React in a cold process.
+     */
+    static ReactApplicationContext activeContext() {
+        synchronized (LOCK) {
+            return attached != null && attached.hasActiveReactInstance() ? attached : null;
+        }
+    }
+
+    /** Subscribe {@code subscriptionId} to updates for {@code phone}; replays queued updates for it. */
+    static void subscribe(String subscriptionId, String phone) {
+        String key = PhoneNumbers.normalize(phone);
+        if (subscriptionId == null || key.length() == 0) return;
+        synchronized (LOCK) {
+            subscriptions.put(subscriptionId, key);
+            if (attached == null) return;
+            long now = System.currentTimeMillis();
+            for (Iterator<Update> it = pending.iterator(); it.hasNext(); ) {
+                Update u = it.next();
+                if (now - u.timestampMillis > PENDING_TTL_MS) {
+                    it.remove();
+                } else if (u.key.equals(key)) {
+                    it.remove();
+                    emit(attached, subscriptionId, u, true);
+                }
+            }
+        }
+    }
+
+    static void unsubscribe(String subscriptionId) {
+        synchronized (LOCK) {
+            subscriptions.remove(subscriptionId);
+        }
+    }
+
+    /** Deliver to the subscribers of the update's phone, or queue it while JS is not attached. */
+    public static void publish(Update update) {
+        if (update.key.length() == 0) return;
+        synchronized (LOCK) {
+            if (attached == null || !attached.hasActiveReactInstance()) {
+                if (pending.size() == MAX_PENDING) pending.removeFirst();
+                pending.addLast(update);
+                return;
+            }
+            for (Map.Entry<String, String> s : subscriptions.entrySet()) {
+                if (s.getValue().equals(update.key)) emit(attached, s.getKey(), update, false);
+            }
+        }
+    }
+
+    private static void emit(ReactApplicationContext context, String subscriptionId, Update u, boolean replayed) {
+        try {
+            WritableMap map = Arguments.createMap();
+            map.putString("subscriptionId", subscriptionId);
+            map.putString("phone", u.phone);
+            map.putString("from", u.from != null ? u.from : "");
+            map.putDouble("timestamp", u.timestampMillis);
+            map.putBoolean("parsed", u.parsed);
+            if (u.mapUrl != null) map.putString("mapUrl", u.mapUrl);
+            if (!Double.isNaN(u.latitude)) {
+                map.putDouble("latitude", u.latitude);
+                map.putDouble("longitude", u.longitude);
+            }
+            map.putString("rawMessage", u.rawMessage);
+            map.putBoolean("replayed", replayed);
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(EVENT_NAME, map);
+        } catch (Exception e) {
+            Log.w(TAG, "Emitting " + EVENT_NAME + " failed", e);
+        }
+    }
+}
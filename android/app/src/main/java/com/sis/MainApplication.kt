@@ -39,6 +39,8 @@ class MainApplication : Application(), ReactApplication {
 
   override fun onCreate() {
     super.onCreate()
+    SmsMetrics.setEnabled(BuildConfig.DEBUG)
+    ProcessWarmup.onCreate(this)
     loadReactNative(this)
   }
 }
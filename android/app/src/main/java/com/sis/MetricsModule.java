@@ -0,0 +1,56 @@
+package com.sis;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+
+import org.json.JSONObject;
+
+/**
+ * JS access to SmsMetrics: switch recording on/off (on by default in debug builds only), read a
+ * snapshot of the stage latencies (count, mean, p50/p90/p99, max in microseconds) and event
+ * counters, or export it as a JSON string.
+ */
+public class MetricsModule extends ReactContextBaseJavaModule {
+    static final String NAME = "MetricsModule";
+
+    public MetricsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @ReactMethod
+    public void setEnabled(boolean on) {
+        SmsMetrics.setEnabled(on);
+    }
+
+    /** { enabled, stages: [{ stage, count, meanUs, p50Us, p90Us, p99Us, maxUs }], counters: { received, ... } } */
+    @ReactMethod
+    public void getMetrics(Promise p) {
+        try {
+            p.resolve(ReactMaps.fromJson(new JSONObject(SmsMetrics.snapshot().toJson())));
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /** Same snapshot as a JSON string, for sharing or attaching to a bug report. */
+    @ReactMethod
+    public void exportMetrics(Promise p) {
+        try {
+            p.resolve(SmsMetrics.snapshot().toJson());
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    @ReactMethod
+    public void resetMetrics() {
+        SmsMetrics.reset();
+    }
+}
@@ -0,0 +1,51 @@
+package com.sis;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Startup work that keeps the SMS path off React and off cold disk reads:
+ * - records STARTUP (process start -> Application.onCreate) in SmsMetrics
+ * - on one background-priority thread, loads what the first received message needs: the sister
+ *   and trusted indexes (and with them their prefs files), the location store, the journal, the
+ *   outbox, the dedup cache and the parser classes; records PREWARM
+ * A message that arrives first simply loads the same things itself; all of them are lazy,
+ * idempotent and thread-safe.
+ */
+final class ProcessWarmup {
+    private static final String TAG = "ProcessWarmup";
+
+    private ProcessWarmup() {}
+
+    /** Call from Application.onCreate, before React is loaded. */
+    static void onCreate(Application app) {
+        SmsMetrics.record(SmsMetrics.Stage.STARTUP,
+                (SystemClock.uptimeMillis() - Process.getStartUptimeMillis()) * 1_000_000L);
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            warm(app);
+        }, "sms-prewarm");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void warm(Context context) {
+        long start = SmsMetrics.start();
+        try {
+            SisterLocationRecorder.sisterIndex(context);
+            TrustedKeywordResponder.index(context);
+            SisterLocationRecorder.recorder(context);
+            SisterStorage.locations(context).getLastLocation("");
+            SisterStorage.journal(context);
+            SmsOutbox.queue(context);
+            SmsDispatchReceiver.dedup(context);
+            LocationExtractor.extractOrAnyUrl("");
+        } catch (Exception e) {
+            Log.w(TAG, "Warm-up failed", e);
+        }
+        SmsMetrics.since(SmsMetrics.Stage.PREWARM, start);
+    }
+}
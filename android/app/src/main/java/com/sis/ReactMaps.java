@@ -0,0 +1,78 @@
+package com.sis;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Iterator;
+
+/**
+ * org.json -> WritableMap/WritableArray, for values that are stored as JSON (prefs records)
+ * but returned to JS as typed structures. Numbers become JS doubles.
+ * The bridge collections come from a {@link Factory}: {@link #NATIVE} in the app, JavaOnlyMap /
+ * JavaOnlyArray in JVM tests (Arguments needs the native runtime).
+ */
+final class ReactMaps {
+
+    interface Factory {
+        WritableMap createMap();
+
+        WritableArray createArray();
+    }
+
+    static final Factory NATIVE = new Factory() {
+        @Override
+        public WritableMap createMap() {
+            return Arguments.createMap();
+        }
+
+        @Override
+        public WritableArray createArray() {
+            return Arguments.createArray();
+        }
+    };
+
+    private ReactMaps() {}
+
+    static WritableMap fromJson(JSONObject obj) {
+        return fromJson(obj, NATIVE);
+    }
+
+    static WritableArray fromJson(JSONArray arr) {
+        return fromJson(arr, NATIVE);
+    }
+
+    static WritableMap fromJson(JSONObject obj, Factory factory) {
+        WritableMap map = factory.createMap();
+        for (Iterator<String> keys = obj.keys(); keys.hasNext(); ) {
+            String key = keys.next();
+            Object v = obj.opt(key);
+            if (v == null || v == JSONObject.NULL) map.putNull(key);
+            else if (v instanceof String) map.putString(key, (String) v);
+            else if (v instanceof Boolean) map.putBoolean(key, (Boolean) v);
+            else if (v instanceof Number) map.putDouble(key, ((Number) v).doubleValue());
+            else if (v instanceof JSONObject) map.putMap(key, fromJson((JSONObject) v, factory));
+            else if (v instanceof JSONArray) map.putArray(key, fromJson((JSONArray) v, factory));
+            else map.putString(key, v.toString());
+        }
+        return map;
+    }
+
+    static WritableArray fromJson(JSONArray arr, Factory factory) {
+        WritableArray out = factory.createArray();
+        for (int i = 0; i < arr.length(); i++) {
+            Object v = arr.opt(i);
+            if (v == null || v == JSONObject.NULL) out.pushNull();
+            else if (v instanceof String) out.pushString((String) v);
+            else if (v instanceof Boolean) out.pushBoolean((Boolean) v);
+            else if (v instanceof Number) out.pushDouble(((Number) v).doubleValue());
+            else if (v instanceof JSONObject) out.pushMap(fromJson((JSONObject) v, factory));
+            else if (v instanceof JSONArray) out.pushArray(fromJson((JSONArray) v, factory));
+            else out.pushString(v.toString());
+        }
+        return out;
+    }
+}
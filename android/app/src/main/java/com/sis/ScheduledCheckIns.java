@@ -0,0 +1,189 @@
+package com.sis;
+
+import android.Manifest;
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+import androidx.core.app.NotificationCompat;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.json.JSONException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Automatic check-ins: a CheckInSchedule over the sisters in "SisterPrefs" / sister_list that
+ * have checkInMinutes set, run without the React runtime.
+ * - one inexact AlarmManager wake (allowed while idle) at the schedule's next window; each wake
+ *   queues the due check codes through SmsOutbox and re-arms the alarm
+ * - replies come from SisterLocationRecorder; the schedule state lives in check_in_schedule so
+ *   a process death or reboot (CheckInAlarmReceiver re-arms) keeps it
+ * - an escalation posts a notification and, if JS is running, a "SisterCheckInEscalation" event
+ *   { phone, name, missed, lastReplyAt }
+ * Everything runs on one background thread, in arrival order.
+ */
+final class ScheduledCheckIns {
+    private static final String TAG = "ScheduledCheckIns";
+    private static final String PREFS_NAME = "SisterPrefs";
+    private static final String KEY_SISTER_LIST = "sister_list";
+    private static final String KEY_STATE = "check_in_schedule";
+    static final String ACTION_WAKE = "com.sis.CHECK_IN_WAKE";
+    static final String ESCALATION_EVENT = "SisterCheckInEscalation";
+    private static final String CHANNEL_ID = "check_in_alerts";
+    private static final int NOTIFICATION_BASE_ID = 2000;
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> new Thread(() -> {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        r.run();
+    }, "check-in-schedule"));
+    private static CheckInSchedule schedule; // worker thread only
+
+    private ScheduledCheckIns() {}
+
+    /** Take the list SisterSettingsModule just saved (null clears it) and re-arm the wake. */
+    static void onSisterListChanged(Context context, String jsonList) {
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            CheckInSchedule s = schedule(app);
+            s.configure(sisters(jsonList), System.currentTimeMillis());
+            save(app, s);
+            arm(app, s.nextWakeAt());
+        });
+    }
+
+    /** Alarm, boot or app update: run what is due, re-arm; {@code pending} (may be null) is finished after. */
+    static void onWake(Context context, BroadcastReceiver.PendingResult pending) {
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            try {
+                CheckInSchedule s = schedule(app);
+                CheckInSchedule.Tick tick = s.tick(System.currentTimeMillis());
+                save(app, s);
+                arm(app, tick.nextWakeAtMillis);
+                for (CheckInSchedule.Check check : tick.checks) {
+                    if (BuildConfig.DEBUG) Log.d(TAG, "Scheduled check-in for " + check.phone);
+                    SmsOutbox.queue(app).enqueue(check.phone, check.code, null);
+                }
+                for (CheckInSchedule.Escalation escalation : tick.escalations) escalate(app, escalation);
+            } catch (Exception e) {
+                Log.e(TAG, "Scheduled check-in failed", e);
+            } finally {
+                if (pending != null) pending.finish();
+            }
+        });
+    }
+
+    /** A message from a sister was recorded (SisterLocationRecorder). */
+    static void onUpdate(Context context, LocationUpdates.Update update) {
+        if (update.key.length() == 0) return;
+        Context app = context.getApplicationContext();
+        WORKER.execute(() -> {
+            CheckInSchedule s = schedule(app);
+            if (s.onReply(update.key, update.timestampMillis)) {
+                save(app, s);
+                arm(app, s.nextWakeAt());
+            }
+        });
+    }
+
+    /** Current schedule per sister, read on the worker thread. */
+    static List<CheckInSchedule.Status> status(Context context) throws Exception {
+        Context app = context.getApplicationContext();
+        return WORKER.submit(() -> schedule(app).status()).get();
+    }
+
+    private static CheckInSchedule schedule(Context context) {
+        if (schedule == null) {
+            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            CheckInSchedule s = CheckInSchedule.restore(prefs.getString(KEY_STATE, null), new Random().nextLong());
+            s.configure(sisters(prefs.getString(KEY_SISTER_LIST, null)), System.currentTimeMillis());
+            schedule = s;
+        }
+        return schedule;
+    }
+
+    private static List<CheckInSchedule.Sister> sisters(String jsonList) {
+        try {
+            return CheckInSchedule.sistersFromJson(jsonList);
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid sister list JSON", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static void save(Context context, CheckInSchedule s) {
+        try {
+            context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE).edit()
+                    .putString(KEY_STATE, s.toJson())
+                    .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Saving check-in schedule failed", e);
+        }
+    }
+
+    // inexact: the platform may batch it further with other apps' alarms, which is the point
+    private static void arm(Context context, long wakeAtMillis) {
+        PendingIntent intent = PendingIntent.getBroadcast(context, 0,
+                new Intent(context, CheckInAlarmReceiver.class).setAction(ACTION_WAKE),
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        AlarmManager alarms = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        if (wakeAtMillis == Long.MAX_VALUE) alarms.cancel(intent);
+        else alarms.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, wakeAtMillis, intent);
+    }
+
+    private static void escalate(Context context, CheckInSchedule.Escalation escalation) {
+        Log.w(TAG, "Check-in escalation: " + escalation.missed + " missed");
+        notify(context, escalation);
+        ReactApplicationContext react = LocationUpdates.activeContext();
+        if (react == null) return;
+        try {
+            WritableMap map = Arguments.createMap();
+            map.putString("phone", escalation.phone);
+            map.putString("name", escalation.name);
+            map.putInt("missed", escalation.missed);
+            if (escalation.lastReplyAtMillis > 0) map.putDouble("lastReplyAt", escalation.lastReplyAtMillis);
+            react.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(ESCALATION_EVENT, map);
+        } catch (Exception e) {
+            Log.w(TAG, "Emitting " + ESCALATION_EVENT + " failed", e);
+        }
+    }
+
+    private static void notify(Context context, CheckInSchedule.Escalation escalation) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU && ActivityCompat.checkSelfPermission(context,
+                Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        NotificationManager nm = (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Missed check-ins",
+                    NotificationManager.IMPORTANCE_HIGH));
+        }
+        android.app.Notification notification = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setContentTitle("No reply from " + escalation.name)
+                .setContentText(escalation.message())
+                .setSmallIcon(android.R.drawable.stat_notify_error)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setAutoCancel(true)
+                .build();
+        // one notification per sister, replaced by her next escalation
+        nm.notify(NOTIFICATION_BASE_ID + (PhoneNumbers.normalize(escalation.phone).hashCode() & 0xfff), notification);
+    }
+}
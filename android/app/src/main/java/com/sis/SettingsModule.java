@@ -3,37 +3,100 @@ package com.sis;
 
 import android.content.SharedPreferences;
 import android.content.Context;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableMap;
 
 public class SettingsModule extends ReactContextBaseJavaModule {
     private static final String PREFS_NAME = "ResponderSettings";
     private static final String KEY_TRUSTED_LIST = "trusted_list"; // JSON array string
-    private final SharedPreferences prefs;
+    private static final String KEY_GEOFENCES = "geofences";         // JSON array string
+    static final String NAME = "SettingsModule";
 
     public SettingsModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        prefs = reactContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     @Override
     public String getName() {
-        return "SettingsModule";
+        return NAME;
+    }
+
+    // opened on first call, not when the module is created
+    private SharedPreferences prefs() {
+        return getReactApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
     }
 
     /**
      * Replace the whole trusted list. `jsonList` should be a JSON array string
      * like: [{"phone":"+9112345","keyword":"CODE1"},{"phone":"+9199999","keyword":"SIS"}]
+     * Optional per entry: maxAgeSec, compact, replyBurst and replyEverySec (ReplyLimiter bucket,
+     * default 3 replies, one more every 300 s; replyEverySec 0 lifts the per-contact limit).
      */
     @ReactMethod
     public void setTrustedList(String jsonList) {
-        prefs.edit().putString(KEY_TRUSTED_LIST, jsonList).apply();
+        prefs().edit().putString(KEY_TRUSTED_LIST, jsonList).apply();
+        TrustedKeywordResponder.onTrustedListChanged(jsonList);
     }
 
     // Optional helper methods (not required by JS, but kept for completeness)
     @ReactMethod
     public void clearTrustedList() {
-        prefs.edit().remove(KEY_TRUSTED_LIST).apply();
+        prefs().edit().remove(KEY_TRUSTED_LIST).apply();
+        TrustedKeywordResponder.onTrustedListChanged(null);
+    }
+
+    /**
+     * Location replies and TRACK requests since process start (STOP is never limited):
+     * { sent, deferred, coalesced, dropped } (see ReplyLimiter).
+     */
+    @ReactMethod
+    public void getReplyLimiterStats(Promise p) {
+        try {
+            ReplyLimiter limiter = TrustedKeywordResponder.LIMITER;
+            WritableMap out = Arguments.createMap();
+            out.putDouble("sent", limiter.sentCount());
+            out.putDouble("deferred", limiter.deferredCount());
+            out.putDouble("coalesced", limiter.coalescedCount());
+            out.putDouble("dropped", limiter.droppedCount());
+            p.resolve(out);
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Repeated deliveries of an already handled SMS dropped since the dedup cache was loaded:
+     * { suppressed } (see InboundDedup). Counted whether or not metrics are enabled.
+     */
+    @ReactMethod
+    public void getInboundDedupStats(Promise p) {
+        try {
+            WritableMap out = Arguments.createMap();
+            out.putDouble("suppressed", SmsDispatchReceiver.dedup(getReactApplicationContext()).suppressedCount());
+            p.resolve(out);
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Replace the safe zones (see Geofences). `jsonList` is a JSON array string like:
+     * [{"id":"home","phone":"+9112345","name":"Home","latitude":12.97,"longitude":77.59,"radius":200,"dwellSeconds":120}]
+     * Location updates are requested while at least one zone is set (needs background location).
+     */
+    @ReactMethod
+    public void setGeofences(String jsonList) {
+        prefs().edit().putString(KEY_GEOFENCES, jsonList).apply();
+        Geofences.onListChanged(getReactApplicationContext(), jsonList);
+    }
+
+    @ReactMethod
+    public void clearGeofences() {
+        prefs().edit().remove(KEY_GEOFENCES).apply();
+        Geofences.onListChanged(getReactApplicationContext(), null);
     }
 }
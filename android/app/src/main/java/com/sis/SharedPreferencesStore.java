@@ -0,0 +1,28 @@
+package com.sis;
+
+import android.content.SharedPreferences;
+
+import java.util.Map;
+
+/** KeyValueStore over one SharedPreferences file; putAll is a single editor apply(). */
+public final class SharedPreferencesStore implements KeyValueStore {
+    private final SharedPreferences prefs;
+
+    public SharedPreferencesStore(SharedPreferences prefs) {
+        this.prefs = prefs;
+    }
+
+    @Override
+    public String get(String key) {
+        return prefs.getString(key, null);
+    }
+
+    @Override
+    public void putAll(Map<String, String> entries) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            editor.putString(e.getKey(), e.getValue());
+        }
+        editor.apply();
+    }
+}
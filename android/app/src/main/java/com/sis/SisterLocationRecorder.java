@@ -0,0 +1,139 @@
+package com.sis; // <<-- REPLACE with your actual package name
+
+import android.content.Context;
+import android.util.Log;
+import android.content.SharedPreferences;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+/**
+ * SisterLocationRecorder (SmsHandler, formerly SisterSmsReceiver): Android adapter of LocationRecorder.
+ * - DOES NOT ignore messages when sister list is missing.
+ * - Always saves incoming SMS (rawMessage) under sender keys.
+ * - Resolves the canonical sister phone through SisterIndex (if sister_list exists) and also saves under that key.
+ * - Saves go through LocationStore (one serialisation, one coalesced prefs commit).
+ * - Parsed coordinates are appended to LocationJournal (history).
+ * - Pushes a structured update to LocationUpdates subscribers (queued while JS is not attached).
+ * - Emits SisterLocationReceived event (typed map) always with rawMessage and parsed flag.
+ * Parsing, matching and storing happen in LocationRecorder; this class wires in the platform.
+ */
+public class SisterLocationRecorder implements SmsHandler {
+    private static final String TAG = "SisterLocationRecorder";
+    private static final String PREFS_NAME = "SisterPrefs";
+    private static final String KEY_SISTER_LIST = "sister_list";
+    private static final String EVENT_NAME = "SisterLocationReceived";
+
+    private static final Object INDEX_LOCK = new Object();
+    private static volatile SisterIndex sisters; // null until first use
+    private static volatile LocationRecorder recorder;
+
+    @Override
+    public void onSms(Context context, InboundSms sms) {
+        String sender = sms.getSender();
+        String body = sms.getBody();
+        try {
+            // bodies are never logged; senders only in debug builds
+            if (BuildConfig.DEBUG) Log.d(TAG, "onSms sender=" + sender + " chars=" + body.length());
+
+            LocationRecorder.Recorded r = recorder(context).record(sms, System.currentTimeMillis());
+            if (BuildConfig.DEBUG && r.canonical != null) {
+                Log.d(TAG, "Matched canonical sister phone=" + r.canonical + " for sender=" + sender);
+            }
+            if (r.storeFailure != null) Log.w(TAG, "Saving last location failed", r.storeFailure);
+            if (r.historyFailure != null) Log.w(TAG, "Appending to location journal failed", r.historyFailure);
+
+            // Push to JS subscribers of this sister (queued while JS is not running) and settle
+            // any running broadcast or scheduled check-in waiting for her
+            LocationUpdates.Update update = new LocationUpdates.Update(r.key(), sender, r.timestampMillis, r.location, body);
+            LocationUpdates.publish(update);
+            CheckIns.onUpdate(update);
+            if (r.canonical != null) ScheduledCheckIns.onUpdate(context, update);
+
+            // Emit to JS: always emit rawMessage and parsed flag and parsed fields if available
+            long emitStart = SmsMetrics.start();
+            try {
+                // only a JS instance that is already running; never start React from here
+                ReactContext reactContext = LocationUpdates.activeContext();
+
+                if (reactContext != null) {
+                    WritableMap emitObj = Arguments.createMap();
+                    emitObj.putString("from", sender != null ? sender : "");
+                    if (r.canonical != null) emitObj.putString("canonicalPhone", r.canonical);
+                    emitObj.putString("rawMessage", body);
+                    emitObj.putDouble("timestamp", r.timestampMillis);
+                    emitObj.putBoolean("parsed", r.isParsed());
+                    if (r.isParsed()) {
+                        emitObj.putString("mapUrl", r.location.getMapUrl());
+                        if (r.location.hasCoordinates()) {
+                            emitObj.putDouble("latitude", r.location.getLatitude());
+                            emitObj.putDouble("longitude", r.location.getLongitude());
+                        }
+                    }
+                    reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                            .emit(EVENT_NAME, emitObj);
+                    SmsMetrics.increment(SmsMetrics.Counter.EMITTED);
+                    if (BuildConfig.DEBUG) Log.d(TAG, "Emitted " + EVENT_NAME + " for " + sender + " parsed=" + r.isParsed());
+                } else {
+                    SmsMetrics.increment(SmsMetrics.Counter.EMIT_SKIPPED);
+                    if (BuildConfig.DEBUG) {
+                        Log.d(TAG, "ReactContext null - saved to prefs only for " + sender + " parsed=" + r.isParsed());
+                    }
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Emit to JS failed", e);
+            }
+            SmsMetrics.since(SmsMetrics.Stage.EMIT, emitStart);
+        } catch (Exception e) {
+            Log.e(TAG, "SisterLocationRecorder onSms exception", e);
+        }
+    }
+
+    static LocationRecorder recorder(Context context) {
+        LocationRecorder current = recorder;
+        if (current == null) {
+            synchronized (SisterLocationRecorder.class) {
+                current = recorder;
+                if (current == null) {
+                    Context app = context.getApplicationContext();
+                    current = new LocationRecorder(SisterStorage.locations(app), SisterStorage.history(app),
+                            () -> sisterIndex(app));
+                    recorder = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** Rebuild the sister index from the list SisterSettingsModule just saved (null clears it). */
+    public static void onSisterListChanged(String jsonList) {
+        sisters = buildIndex(jsonList);
+    }
+
+    /** Current sister index, loaded from prefs on first use in this process. */
+    public static SisterIndex sisterIndex(Context context) {
+        SisterIndex current = sisters;
+        if (current == null) {
+            synchronized (INDEX_LOCK) {
+                current = sisters;
+                if (current == null) {
+                    SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                    current = buildIndex(prefs.getString(KEY_SISTER_LIST, null));
+                    sisters = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    static SisterIndex buildIndex(String jsonList) {
+        try {
+            return SisterIndex.fromJson(jsonList);
+        } catch (Exception e) {
+            Log.w(TAG, "Invalid sister list JSON", e);
+            return SisterIndex.EMPTY;
+        }
+    }
+}
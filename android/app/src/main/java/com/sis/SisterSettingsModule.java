@@ -5,45 +5,123 @@ import android.content.SharedPreferences;
 import android.content.Context;
 import androidx.annotation.NonNull;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Separate prefs namespace for sister-specific data so original SettingsModule stays untouched.
  * Prefs name: "SisterPrefs"
- * - sister_list  : JSON array string of { phone, name, ... }
- * - lastLocation_<phone> : JSON string saved by receiver
+ * - sister_list  : JSON array string of { phone, name, code?, checkInMinutes?, escalateAfter? }
+ * - check_in_schedule : automatic check-in state (ScheduledCheckIns)
+ * - lastLocation_<phone> : JSON string saved by receiver (read/written through LocationStore)
+ * Location history (coordinates only) lives in LocationJournal, keyed by sister phone digits.
+ * Reads resolve typed maps/arrays (not JSON strings), so JS does not parse them again.
  */
 public class SisterSettingsModule extends ReactContextBaseJavaModule {
     private static final String PREFS_NAME = "SisterPrefs";
     private static final String KEY_SISTER_LIST = "sister_list";
-    private static final String KEY_PREFIX_LAST_LOCATION = "lastLocation_";
+    public static final String CHECK_IN_EVENT = "SisterCheckInProgress";
+    static final long DEFAULT_CHECK_IN_TIMEOUT_MS = 60_000;
+    private static final AtomicLong checkInSeq = new AtomicLong();
 
-    private final SharedPreferences prefs;
+    static final String NAME = "SisterSettingsModule";
 
+    // Created eagerly (it attaches LocationUpdates), so the constructor only attaches; prefs and
+    // the location store are opened on first use (usually already loaded by ProcessWarmup).
     public SisterSettingsModule(ReactApplicationContext reactContext) {
         super(reactContext);
-        prefs = reactContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        LocationUpdates.attach(reactContext);
+    }
+
+    private SharedPreferences prefs() {
+        return getReactApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    private LocationStore locations() {
+        return SisterStorage.locations(getReactApplicationContext());
+    }
+
+    @Override
+    public void invalidate() {
+        LocationUpdates.detach(getReactApplicationContext());
+        super.invalidate();
     }
 
     @NonNull
     @Override
     public String getName() {
-        return "SisterSettingsModule";
+        return NAME;
     }
 
     @ReactMethod
     public void setSisterList(String jsonList) {
-        prefs.edit().putString(KEY_SISTER_LIST, jsonList).apply();
+        prefs().edit().putString(KEY_SISTER_LIST, jsonList).apply();
+        SisterLocationRecorder.onSisterListChanged(jsonList);
+        ScheduledCheckIns.onSisterListChanged(getReactApplicationContext(), jsonList);
     }
 
+    /**
+     * Automatic check-ins (sisters with a code and checkInMinutes in sister_list) as an array of
+     * { phone, name, nextDueAt, awaitingSince?, missed, lastReplyAt? }. Escalations after
+     * escalateAfter missed replies in a row come as "SisterCheckInEscalation" events
+     * { phone, name, missed, lastReplyAt? } plus a notification.
+     */
+    @ReactMethod
+    public void getCheckInSchedule(Promise p) {
+        try {
+            WritableArray arr = Arguments.createArray();
+            for (CheckInSchedule.Status s : ScheduledCheckIns.status(getReactApplicationContext())) {
+                WritableMap map = Arguments.createMap();
+                map.putString("phone", s.phone);
+                map.putString("name", s.name);
+                map.putDouble("nextDueAt", s.nextDueAtMillis);
+                if (s.awaitingSinceMillis > 0) map.putDouble("awaitingSince", s.awaitingSinceMillis);
+                map.putInt("missed", s.missed);
+                if (s.lastReplyAtMillis > 0) map.putDouble("lastReplyAt", s.lastReplyAtMillis);
+                arr.pushMap(map);
+            }
+            p.resolve(arr);
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Resolve any phone variant ("+91 98765 43210", "919876543210", "9876543210")
+     * to the canonical sister phone as saved in sister_list; resolves null if not a sister.
+     */
+    @ReactMethod
+    public void resolveSister(String phone, Promise p) {
+        try {
+            if (phone == null) { p.resolve(null); return; }
+            p.resolve(SisterLocationRecorder.sisterIndex(getReactApplicationContext()).resolve(phone));
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /** sister_list as an array of { phone, name, ... } (null when never set). */
     @ReactMethod
     public void getSisterList(Promise p) {
         try {
-            String v = prefs.getString(KEY_SISTER_LIST, null);
-            p.resolve(v);
+            String v = prefs().getString(KEY_SISTER_LIST, null);
+            p.resolve(v != null ? ReactMaps.fromJson(new JSONArray(v)) : null);
         } catch (Exception e) {
             p.reject("ERR", e);
         }
@@ -52,17 +130,247 @@ public class SisterSettingsModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void setLastLocation(String phone, String json) {
         if (phone == null) return;
-        prefs.edit().putString(KEY_PREFIX_LAST_LOCATION + phone, json).apply();
+        locations().putLastLocation(json, phone);
+        locations().flush();
     }
 
+    /**
+     * Last location of `phone` as { rawMessage, timestamp, parsed, mapUrl?, latitude?, longitude? }.
+     * Any variant of a sister's number works: the exact key is tried first, then the canonical
+     * sister phone and the digits-only forms.
+     */
     @ReactMethod
     public void getLastLocation(String phone, Promise p) {
         try {
             if (phone == null) { p.resolve(null); return; }
-            String v = prefs.getString(KEY_PREFIX_LAST_LOCATION + phone, null);
-            p.resolve(v);
+            p.resolve(lastLocation(phone));
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Last locations for several phones in one call (dashboard refresh):
+     * { [phone]: location | null } with the same shape as getLastLocation.
+     */
+    @ReactMethod
+    public void getLastLocations(ReadableArray phones, Promise p) {
+        try {
+            WritableMap out = Arguments.createMap();
+            if (phones != null) {
+                for (int i = 0; i < phones.size(); i++) {
+                    if (phones.isNull(i)) continue;
+                    String phone = phones.getString(i);
+                    WritableMap loc = lastLocation(phone);
+                    if (loc != null) out.putMap(phone, loc); else out.putNull(phone);
+                }
+            }
+            p.resolve(out);
         } catch (Exception e) {
             p.reject("ERR", e);
         }
     }
+
+    /**
+     * Push updates for `phone` (any variant of a sister's number) as "SisterLocationUpdate"
+     * events carrying `subscriptionId`. Updates received while JS was not running are replayed.
+     * The id is chosen by JS so events replayed during this call can already be matched.
+     */
+    @ReactMethod
+    public void subscribeLocation(String subscriptionId, String phone) {
+        if (phone == null) return;
+        LocationUpdates.subscribe(subscriptionId, journalKey(phone));
+    }
+
+    @ReactMethod
+    public void unsubscribeLocation(String subscriptionId) {
+        LocationUpdates.unsubscribe(subscriptionId);
+    }
+
+    /**
+     * Broadcast check-in: send each sister's check code (from sister_list) through the paced
+     * outbound queue and match the replies as the receiver records them.
+     * - progress: one "SisterCheckInProgress" event per state change
+     *   { batchId, phone, status, elapsedMs, remaining, latitude?, longitude?, mapUrl?, error? }
+     * - resolves once every sister replied / failed, or at timeoutMs (<= 0: 60 s), with
+     *   { batchId, elapsedMs, located, results: [ same shape as the events ] }
+     * status: queued | sent | located | no_fix | no_code | send_failed | timed_out
+     */
+    @ReactMethod
+    public void checkAll(ReadableArray phones, double timeoutMs, Promise p) {
+        try {
+            ReactApplicationContext context = getReactApplicationContext();
+            long timeout = timeoutMs > 0 ? (long) timeoutMs : DEFAULT_CHECK_IN_TIMEOUT_MS;
+            String batchId = "checkin-" + checkInSeq.incrementAndGet();
+            CheckInBatch batch = new CheckInBatch(batchId, System.currentTimeMillis(), timeout, new CheckInBatch.Listener() {
+                @Override
+                public void onProgress(CheckInBatch b, CheckInBatch.Entry entry) {
+                    emitCheckIn(b, entry);
+                }
+
+                @Override
+                public void onComplete(CheckInBatch b) {
+                    p.resolve(checkInResult(b));
+                }
+            });
+
+            Map<String, String> codes = checkCodes();
+            SisterIndex index = SisterLocationRecorder.sisterIndex(context);
+            if (phones != null) {
+                for (int i = 0; i < phones.size(); i++) {
+                    if (phones.isNull(i)) continue;
+                    String phone = phones.getString(i);
+                    String canonical = index.resolve(phone);
+                    String key = PhoneNumbers.normalize(canonical != null ? canonical : phone);
+                    batch.add(phone, key, codes.get(key));
+                }
+            }
+
+            List<CheckInBatch.Entry> toSend = batch.start();
+            CheckIns.register(batch);
+            OutboundSmsQueue queue = SmsOutbox.queue(context);
+            for (CheckInBatch.Entry entry : toSend) {
+                queue.enqueue(entry.getPhone(), entry.getCode(), new OutboundSmsQueue.Listener() {
+                    @Override
+                    public void onSent(long id) {
+                        batch.onSent(entry.getKey(), System.currentTimeMillis());
+                    }
+
+                    @Override
+                    public void onDelivered(long id, boolean confirmed) {}
+
+                    @Override
+                    public void onFailed(long id, String reason) {
+                        batch.onSendFailed(entry.getKey(), System.currentTimeMillis(), reason);
+                    }
+                });
+            }
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Location history of a sister (any phone variant) as an array of
+     * { timestamp, latitude, longitude, accuracy? }, oldest first, for fromMillis..toMillis.
+     * limit > 0 keeps only the newest `limit` points of the range.
+     */
+    @ReactMethod
+    public void getLocationHistory(String phone, double fromMillis, double toMillis, int limit, Promise p) {
+        try {
+            WritableArray arr = Arguments.createArray();
+            if (phone != null) {
+                List<LocationJournal.Point> points = SisterStorage.journal(getReactApplicationContext())
+                        .history(journalKey(phone), (long) fromMillis, (long) toMillis, limit);
+                for (LocationJournal.Point point : points) arr.pushMap(toMap(point));
+            }
+            p.resolve(arr);
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    // The prefs record keeps rawMessage and link-only locations; the journal is written per message
+    // while prefs writes are coalesced, so after a crash the journal can hold the newer point.
+    private WritableMap lastLocation(String phone) throws Exception {
+        return lastLocation(readLastLocation(phone),
+                SisterStorage.journal(getReactApplicationContext()).latest(journalKey(phone)), ReactMaps.NATIVE);
+    }
+
+    /** getLastLocations entry from the prefs record and the journal's latest point (either may be null). */
+    static WritableMap lastLocation(String record, LocationJournal.Point latest, ReactMaps.Factory maps)
+            throws JSONException {
+        JSONObject obj = record != null ? new JSONObject(record) : null;
+        if (latest != null && (obj == null || obj.optLong("timestamp", 0) < latest.getTimestampMillis())) {
+            WritableMap map = toMap(latest, maps);
+            map.putString("rawMessage", "");
+            map.putBoolean("parsed", true);
+            map.putString("mapUrl", ParsedLocation.ofCoordinates(latest.getLatitude(), latest.getLongitude()).getMapUrl());
+            return map;
+        }
+        return obj != null ? ReactMaps.fromJson(obj, maps) : null;
+    }
+
+    private static WritableMap toMap(LocationJournal.Point point) {
+        return toMap(point, ReactMaps.NATIVE);
+    }
+
+    private static WritableMap toMap(LocationJournal.Point point, ReactMaps.Factory maps) {
+        WritableMap map = maps.createMap();
+        map.putDouble("timestamp", point.getTimestampMillis());
+        map.putDouble("latitude", point.getLatitude());
+        map.putDouble("longitude", point.getLongitude());
+        if (!Float.isNaN(point.getAccuracy())) map.putDouble("accuracy", point.getAccuracy());
+        return map;
+    }
+
+    // sister_list codes by phone digits
+    private Map<String, String> checkCodes() throws Exception {
+        Map<String, String> codes = new HashMap<>();
+        String v = prefs().getString(KEY_SISTER_LIST, null);
+        if (v == null) return codes;
+        JSONArray arr = new JSONArray(v);
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject s = arr.optJSONObject(i);
+            if (s == null) continue;
+            String code = s.optString("code", "").trim();
+            if (code.length() > 0) codes.put(PhoneNumbers.normalize(s.optString("phone", "")), code);
+        }
+        return codes;
+    }
+
+    private void emitCheckIn(CheckInBatch batch, CheckInBatch.Entry entry) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (!context.hasActiveReactInstance()) return;
+        WritableMap map = toMap(batch, entry);
+        map.putString("batchId", batch.getId());
+        map.putInt("remaining", batch.remaining());
+        context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(CHECK_IN_EVENT, map);
+    }
+
+    private static WritableMap checkInResult(CheckInBatch batch) {
+        WritableMap out = Arguments.createMap();
+        out.putString("batchId", batch.getId());
+        out.putDouble("elapsedMs", batch.elapsedMillis(System.currentTimeMillis()));
+        out.putInt("located", batch.count(CheckInBatch.Status.LOCATED));
+        WritableArray results = Arguments.createArray();
+        for (CheckInBatch.Entry entry : batch.entries()) results.pushMap(toMap(batch, entry));
+        out.putArray("results", results);
+        return out;
+    }
+
+    private static WritableMap toMap(CheckInBatch batch, CheckInBatch.Entry entry) {
+        WritableMap map = Arguments.createMap();
+        map.putString("phone", entry.getPhone());
+        map.putString("status", entry.getStatus().name().toLowerCase());
+        long at = entry.getRepliedAtMillis() > 0 ? entry.getRepliedAtMillis() : System.currentTimeMillis();
+        map.putDouble("elapsedMs", Math.max(0, at - batch.getStartedAtMillis()));
+        if (!Double.isNaN(entry.getLatitude())) {
+            map.putDouble("latitude", entry.getLatitude());
+            map.putDouble("longitude", entry.getLongitude());
+        }
+        if (entry.getMapUrl() != null) map.putString("mapUrl", entry.getMapUrl());
+        if (entry.getError() != null) map.putString("error", entry.getError());
+        return map;
+    }
+
+    // Journal entries are keyed by the canonical sister phone (sender digits for non-sisters)
+    private String journalKey(String phone) {
+        String canonical = SisterLocationRecorder.sisterIndex(getReactApplicationContext()).resolve(phone);
+        return canonical != null ? canonical : phone;
+    }
+
+    private String readLastLocation(String phone) {
+        String v = locations().getLastLocation(phone);
+        if (v != null) return v;
+        String canonical = SisterLocationRecorder.sisterIndex(getReactApplicationContext()).resolve(phone);
+        if (canonical != null && !canonical.equals(phone)) {
+            v = locations().getLastLocation(canonical);
+            if (v != null) return v;
+            v = locations().getLastLocation(PhoneNumbers.normalize(canonical));
+            if (v != null) return v;
+        }
+        String digits = PhoneNumbers.normalize(phone);
+        return digits.equals(phone) ? null : locations().getLastLocation(digits);
+    }
 }
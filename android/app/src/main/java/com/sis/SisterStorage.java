@@ -0,0 +1,59 @@
+package com.sis;
+
+import android.content.Context;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Process-wide storage of received locations, opened on first use:
+ * - last location records in "SisterPrefs" (LocationStore, flushed whenever SmsWorkQueue drains)
+ * - the coordinate history in files/location_journal.bin (LocationJournal)
+ */
+public final class SisterStorage {
+    private static final String PREFS_NAME = "SisterPrefs";
+
+    private static volatile LocationStore locations;
+    private static volatile LocationJournal journal;
+
+    private SisterStorage() {}
+
+    public static LocationStore locations(Context context) {
+        LocationStore current = locations;
+        if (current == null) {
+            synchronized (SisterStorage.class) {
+                current = locations;
+                if (current == null) {
+                    current = new LocationStore(new SharedPreferencesStore(context.getApplicationContext()
+                            .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)));
+                    SmsWorkQueue.addIdleListener(current::flush);
+                    locations = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** The journal, opened (and recovered) on first use. */
+    public static LocationJournal journal(Context context) throws IOException {
+        LocationJournal current = journal;
+        if (current == null) {
+            synchronized (SisterStorage.class) {
+                current = journal;
+                if (current == null) {
+                    current = new LocationJournal(new File(context.getApplicationContext().getFilesDir(),
+                            LocationJournal.FILE_NAME));
+                    journal = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /** History view that opens the journal on the first append (an open failure fails that append). */
+    public static LocationHistory history(Context context) {
+        Context app = context.getApplicationContext();
+        return (phone, timestampMillis, latitude, longitude, accuracy) ->
+                journal(app).append(phone, timestampMillis, latitude, longitude, accuracy);
+    }
+}
@@ -0,0 +1,138 @@
+package com.sis;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Process;
+import android.os.SystemClock;
+import android.provider.Telephony;
+import android.telephony.SmsMessage;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The only SMS_RECEIVED receiver.
+ * - decodes the intent's PDUs once and reassembles multipart messages per sender
+ * - drops repeated deliveries of a message already handled (InboundDedup, files/inbound_dedup.bin,
+ *   saved whenever SmsWorkQueue drains)
+ * - runs every registered SmsHandler for each message on the sender's SmsWorkQueue lane
+ * Default handlers: TrustedKeywordResponder (replies with location) and
+ * SisterLocationRecorder (stores/emits locations received from sisters).
+ * Nothing on this path starts React: a message that cold-starts the process is handled with the
+ * stores and indexes ProcessWarmup loads in the background, and JS only hears about it if it is
+ * already running.
+ */
+public class SmsDispatchReceiver extends BroadcastReceiver {
+    private static final String TAG = "SmsDispatchReceiver";
+    /** A first message this soon after process start is the one that started it. */
+    static final long COLD_START_WINDOW_MS = 10_000;
+
+    private static final AtomicBoolean received = new AtomicBoolean();
+    private static volatile InboundDedup dedup;
+
+    private static final List<SmsHandler> HANDLERS = new CopyOnWriteArrayList<>(Arrays.asList(
+            new TrustedKeywordResponder(),
+            new SisterLocationRecorder()));
+
+    /** Plug an extra handler into the pipeline (runs after the built-in ones). */
+    public static void addHandler(SmsHandler handler) {
+        if (handler != null) HANDLERS.add(handler);
+    }
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (!Telephony.Sms.Intents.SMS_RECEIVED_ACTION.equals(intent.getAction())) return;
+        final long receivedAt = SmsMetrics.start();
+        boolean coldStart = !received.getAndSet(true)
+                && SystemClock.uptimeMillis() - Process.getStartUptimeMillis() < COLD_START_WINDOW_MS;
+
+        long decodeStart = receivedAt;
+        final List<InboundSms> batch = decode(intent, receivedAt, coldStart);
+        SmsMetrics.since(SmsMetrics.Stage.DECODE, decodeStart);
+        if (batch.isEmpty()) {
+            if (BuildConfig.DEBUG) Log.d(TAG, "No SMS messages parsed from intent");
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        SmsWorkQueue.execute(goAsync(), batch.get(0).getSender(), receivedAt,
+                () -> dispatch(appContext, batch));
+    }
+
+    /** Decode all PDUs once; parts from the same sender are concatenated (InboundSms.fromParts). */
+    static List<InboundSms> decode(Intent intent, long receivedAtNanos, boolean coldStart) {
+        SmsMessage[] messages;
+        try {
+            messages = Telephony.Sms.Intents.getMessagesFromIntent(intent);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not decode PDUs", e);
+            return Collections.emptyList();
+        }
+        if (messages == null || messages.length == 0) return Collections.emptyList();
+
+        String[] senders = new String[messages.length];
+        String[] bodies = new String[messages.length];
+        long[] timestamps = new long[messages.length];
+        int count = 0;
+        for (SmsMessage m : messages) {
+            if (m == null) continue;
+            senders[count] = m.getOriginatingAddress();
+            bodies[count] = m.getMessageBody();
+            timestamps[count] = m.getTimestampMillis();
+            count++;
+        }
+        return InboundSms.fromParts(senders, bodies, timestamps, count, receivedAtNanos, coldStart);
+    }
+
+    private static void dispatch(Context context, List<InboundSms> batch) {
+        InboundDedup seen = dedup(context);
+        for (InboundSms sms : batch) {
+            if (!seen.firstSeen(sms, System.currentTimeMillis())) {
+                SmsMetrics.increment(SmsMetrics.Counter.DUPLICATE);
+                if (BuildConfig.DEBUG) Log.d(TAG, "Duplicate SMS from " + sms.getSender() + " dropped");
+                continue;
+            }
+            SmsMetrics.increment(SmsMetrics.Counter.RECEIVED);
+            for (SmsHandler handler : HANDLERS) {
+                try {
+                    handler.onSms(context, sms);
+                } catch (Exception e) {
+                    SmsMetrics.increment(SmsMetrics.Counter.HANDLER_FAILED);
+                    Log.e(TAG, "Handler " + handler.getClass().getSimpleName() + " failed", e);
+                }
+            }
+        }
+    }
+
+    /** The process's dedup cache, loaded from its file on first use. */
+    static InboundDedup dedup(Context context) {
+        InboundDedup current = dedup;
+        if (current == null) {
+            synchronized (SmsDispatchReceiver.class) {
+                current = dedup;
+                if (current == null) {
+                    File file = new File(context.getApplicationContext().getFilesDir(), InboundDedup.FILE_NAME);
+                    current = InboundDedup.load(file, InboundDedup.DEFAULT_CAPACITY,
+                            InboundDedup.DEFAULT_WINDOW_MS, System.currentTimeMillis());
+                    final InboundDedup saved = current;
+                    SmsWorkQueue.addIdleListener(() -> {
+                        try {
+                            saved.save(file, System.currentTimeMillis());
+                        } catch (IOException e) {
+                            Log.w(TAG, "Saving dedup cache failed", e);
+                        }
+                    });
+                    dedup = current;
+                }
+            }
+        }
+        return current;
+    }
+}
@@ -0,0 +1,12 @@
+package com.sis;
+
+import android.content.Context;
+
+/**
+ * Consumer of decoded incoming messages, registered with {@link SmsDispatchReceiver}.
+ * Called on an SmsWorkQueue lane (never the main thread); messages from one sender
+ * arrive in order. Implementations should not throw.
+ */
+public interface SmsHandler {
+    void onSms(Context context, InboundSms sms);
+}
@@ -0,0 +1,76 @@
+package com.sis;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.telephony.SmsManager;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SmsTransport over the platform SmsManager. Every part gets a sent and a delivery PendingIntent
+ * addressed to SmsStatusReceiver, carrying the message id, attempt and part index.
+ * Sends through the SIM the queue picked (OutboundSms.getSubscriptionId); one SmsManager per
+ * subscription is created on first use and kept.
+ */
+final class SmsManagerTransport implements SmsTransport {
+    private static final int MAX_PARTS = 64; // request codes are id * MAX_PARTS + part (x2 for sent/delivered)
+
+    private final Context context;
+    private final ConcurrentHashMap<Integer, SmsManager> managers = new ConcurrentHashMap<>();
+
+    SmsManagerTransport(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public int send(OutboundSms sms) throws Exception {
+        SmsManager smsManager = manager(sms.getSubscriptionId());
+        ArrayList<String> parts = smsManager.divideMessage(sms.body);
+        if (parts == null || parts.isEmpty()) {
+            parts = new ArrayList<>(1);
+            parts.add(sms.body);
+        }
+        ArrayList<PendingIntent> sentIntents = new ArrayList<>(parts.size());
+        ArrayList<PendingIntent> deliveryIntents = new ArrayList<>(parts.size());
+        for (int part = 0; part < parts.size(); part++) {
+            sentIntents.add(statusIntent(SmsStatusReceiver.ACTION_SENT, sms, part));
+            deliveryIntents.add(statusIntent(SmsStatusReceiver.ACTION_DELIVERED, sms, part));
+        }
+        if (parts.size() > 1) {
+            smsManager.sendMultipartTextMessage(sms.to, null, parts, sentIntents, deliveryIntents);
+        } else {
+            smsManager.sendTextMessage(sms.to, null, parts.get(0), sentIntents.get(0), deliveryIntents.get(0));
+        }
+        return parts.size();
+    }
+
+    private SmsManager manager(int subscriptionId) {
+        SmsManager manager = managers.get(subscriptionId);
+        if (manager == null) {
+            if (subscriptionId == SimPool.DEFAULT_SUBSCRIPTION) {
+                manager = SmsManager.getDefault(); // follows the user's default SMS SIM
+            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                manager = context.getSystemService(SmsManager.class).createForSubscriptionId(subscriptionId);
+            } else {
+                manager = SmsManager.getSmsManagerForSubscriptionId(subscriptionId);
+            }
+            managers.put(subscriptionId, manager);
+        }
+        return manager;
+    }
+
+    private PendingIntent statusIntent(String action, OutboundSms sms, int part) {
+        Intent intent = new Intent(context, SmsStatusReceiver.class)
+                .setAction(action)
+                .putExtra(SmsStatusReceiver.EXTRA_ID, sms.id)
+                .putExtra(SmsStatusReceiver.EXTRA_ATTEMPT, sms.attempts)
+                .putExtra(SmsStatusReceiver.EXTRA_PART, part);
+        int requestCode = (int) ((sms.id * MAX_PARTS + (part % MAX_PARTS)) * 2
+                + (SmsStatusReceiver.ACTION_SENT.equals(action) ? 0 : 1));
+        return PendingIntent.getBroadcast(context, requestCode, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+    }
+}
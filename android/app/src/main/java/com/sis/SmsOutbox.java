@@ -0,0 +1,33 @@
+package com.sis;
+
+import android.content.Context;
+
+import java.io.File;
+
+/**
+ * Process-wide outbound SMS queue: SmsManager transport over every active SIM, JSON file store,
+ * started on first use.
+ */
+public final class SmsOutbox {
+    private static volatile OutboundSmsQueue queue;
+
+    private SmsOutbox() {}
+
+    public static OutboundSmsQueue queue(Context context) {
+        OutboundSmsQueue current = queue;
+        if (current == null) {
+            synchronized (SmsOutbox.class) {
+                current = queue;
+                if (current == null) {
+                    Context app = context.getApplicationContext();
+                    current = new OutboundSmsQueue(new SmsManagerTransport(app),
+                            new FileOutboundSmsStore(new File(app.getFilesDir(), FileOutboundSmsStore.FILE_NAME)),
+                            System::currentTimeMillis, new SubscriptionSimPool(app));
+                    current.start();
+                    queue = current;
+                }
+            }
+        }
+        return current;
+    }
+}
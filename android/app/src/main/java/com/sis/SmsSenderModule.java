@@ -1,15 +1,22 @@
 package com.sis; // <-- REPLACE with your real package
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
-import android.telephony.SmsManager;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
 import android.util.Log;
-import java.util.ArrayList;
 
+/**
+ * Outbound SMS for JS. Messages go through the persistent SmsOutbox queue (rate limited, retried
+ * on transient radio errors, tracked to delivery); the bridge thread never blocks on SmsManager.
+ */
 public class SmsSenderModule extends ReactContextBaseJavaModule {
     private static final String TAG = "SmsSenderModule";
+    static final String NAME = "SmsSender";
 
     public SmsSenderModule(ReactApplicationContext reactContext) {
         super(reactContext);
@@ -17,24 +24,106 @@ public class SmsSenderModule extends ReactContextBaseJavaModule {
 
     @Override
     public String getName() {
-        return "SmsSender";
+        return NAME;
     }
 
+    /** Legacy callback API: success once the network accepted the message, error if it failed for good. */
     @ReactMethod
     public void sendSMS(String phoneNumber, String message, Callback successCallback, Callback errorCallback) {
         try {
-            SmsManager smsManager = SmsManager.getDefault();
-            // handle long message by splitting
-            ArrayList<String> parts = smsManager.divideMessage(message);
-            if (parts.size() > 1) {
-                smsManager.sendMultipartTextMessage(phoneNumber, null, parts, null, null);
-            } else {
-                smsManager.sendTextMessage(phoneNumber, null, message, null, null);
-            }
-            successCallback.invoke(true);
+            SmsOutbox.queue(getReactApplicationContext()).enqueue(phoneNumber, message, new OutboundSmsQueue.Listener() {
+                private boolean answered; // a callback may be invoked only once
+
+                @Override
+                public synchronized void onSent(long id) {
+                    if (answered) return;
+                    answered = true;
+                    successCallback.invoke(true);
+                }
+
+                @Override
+                public void onDelivered(long id, boolean confirmed) {}
+
+                @Override
+                public synchronized void onFailed(long id, String reason) {
+                    if (answered) return;
+                    answered = true;
+                    errorCallback.invoke(reason);
+                }
+            });
         } catch (Exception e) {
             Log.e(TAG, "sendSMS error", e);
             errorCallback.invoke(e.getMessage());
         }
     }
+
+    /**
+     * Queue a message. Resolves {id, status, latencyMs} with status "sent" when the network
+     * accepted it, or - with {@code waitForDelivery} - "delivered" / "unconfirmed" once the
+     * delivery reports arrived or timed out. Rejects when the message failed for good.
+     */
+    @ReactMethod
+    public void send(String phoneNumber, String message, boolean waitForDelivery, Promise p) {
+        try {
+            long enqueuedAt = System.currentTimeMillis();
+            SmsOutbox.queue(getReactApplicationContext()).enqueue(phoneNumber, message, new OutboundSmsQueue.Listener() {
+                @Override
+                public void onSent(long id) {
+                    if (!waitForDelivery) p.resolve(result(id, "sent", enqueuedAt));
+                }
+
+                @Override
+                public void onDelivered(long id, boolean confirmed) {
+                    if (waitForDelivery) p.resolve(result(id, confirmed ? "delivered" : "unconfirmed", enqueuedAt));
+                }
+
+                @Override
+                public void onFailed(long id, String reason) {
+                    p.reject("SEND_FAILED", reason);
+                }
+            });
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    /**
+     * Queue depth and lifetime counters of the outbox, plus per SIM
+     * sims: [{ subscriptionId (-1: default SIM), active, sent, failed, recentSends (last 30 min), coolingDown }].
+     */
+    @ReactMethod
+    public void getQueueStats(Promise p) {
+        try {
+            OutboundSmsQueue queue = SmsOutbox.queue(getReactApplicationContext());
+            WritableMap out = Arguments.createMap();
+            out.putInt("depth", queue.depth());
+            out.putDouble("sent", queue.sentCount());
+            out.putDouble("delivered", queue.deliveredCount());
+            out.putDouble("failed", queue.failedCount());
+            out.putDouble("retries", queue.retryCount());
+            WritableArray sims = Arguments.createArray();
+            for (OutboundSmsQueue.SimStats sim : queue.simStats()) {
+                WritableMap s = Arguments.createMap();
+                s.putInt("subscriptionId", sim.subscriptionId);
+                s.putBoolean("active", sim.active);
+                s.putDouble("sent", sim.sent);
+                s.putDouble("failed", sim.failed);
+                s.putInt("recentSends", sim.recentSends);
+                s.putBoolean("coolingDown", sim.coolingDown);
+                sims.pushMap(s);
+            }
+            out.putArray("sims", sims);
+            p.resolve(out);
+        } catch (Exception e) {
+            p.reject("ERR", e);
+        }
+    }
+
+    private static WritableMap result(long id, String status, long enqueuedAt) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("id", id);
+        map.putString("status", status);
+        map.putDouble("latencyMs", System.currentTimeMillis() - enqueuedAt);
+        return map;
+    }
 }
@@ -1,29 +1,59 @@
 package com.sis;
-import com.facebook.react.ReactPackage;
+
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
 
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class SmsSenderPackage implements ReactPackage {
+/**
+ * Native modules of the app, created lazily: React only instantiates a module the first time JS
+ * asks for it. SisterSettingsModule is the exception (eager) because it attaches LocationUpdates
+ * for JS; its constructor does nothing else.
+ */
+public class SmsSenderPackage extends BaseReactPackage {
 
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new SmsSenderModule(reactContext));
-        // ADD THIS LINE
-        modules.add(new SettingsModule(reactContext)); 
-        // inside createNativeModules (or getPackages), add:
-        modules.add(new SisterSettingsModule(reactContext));
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        switch (name) {
+            case SmsSenderModule.NAME:
+                return new SmsSenderModule(reactContext);
+            case SettingsModule.NAME:
+                return new SettingsModule(reactContext);
+            case SisterSettingsModule.NAME:
+                return new SisterSettingsModule(reactContext);
+            case MetricsModule.NAME:
+                return new MetricsModule(reactContext);
+            default:
+                return null;
+        }
+    }
 
-        return modules;
+    @Override
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> infos = new HashMap<>();
+            put(infos, SmsSenderModule.NAME, SmsSenderModule.class, false);
+            put(infos, SettingsModule.NAME, SettingsModule.class, false);
+            put(infos, SisterSettingsModule.NAME, SisterSettingsModule.class, true);
+            put(infos, MetricsModule.NAME, MetricsModule.class, false);
+            return infos;
+        };
     }
 
     @Override
     public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
         return Collections.emptyList();
     }
+
+    // legacy (non-Turbo) Java modules that may not be overridden
+    private static void put(Map<String, ReactModuleInfo> infos, String name, Class<?> type, boolean eager) {
+        infos.put(name, new ReactModuleInfo(name, type.getName(), false, eager, false, false));
+    }
 }
@@ -0,0 +1,69 @@
+package com.sis;
+
+import android.app.Activity;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.telephony.SmsManager;
+import android.telephony.SmsMessage;
+import android.util.Log;
+
+/**
+ * Sent / delivery results of the parts sent by SmsManagerTransport, forwarded to the outbox queue.
+ * Not exported: only our own PendingIntents reach it.
+ */
+public class SmsStatusReceiver extends BroadcastReceiver {
+    private static final String TAG = "SmsStatusReceiver";
+    static final String ACTION_SENT = "com.sis.SMS_SENT";
+    static final String ACTION_DELIVERED = "com.sis.SMS_DELIVERED";
+    static final String EXTRA_ID = "outboxId";
+    static final String EXTRA_ATTEMPT = "outboxAttempt";
+    static final String EXTRA_PART = "outboxPart";
+
+    // TP-Status ranges (3GPP TS 23.040): 0x00-0x1f completed, 0x20-0x3f still trying, 0x40+ failed
+    private static final int STATUS_PENDING = 0x20;
+    private static final int STATUS_FAILED = 0x40;
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        long id = intent.getLongExtra(EXTRA_ID, -1);
+        int attempt = intent.getIntExtra(EXTRA_ATTEMPT, -1);
+        if (id < 0 || attempt < 0) return;
+        OutboundSmsQueue queue = SmsOutbox.queue(context);
+
+        if (ACTION_SENT.equals(intent.getAction())) {
+            int code = getResultCode();
+            if (code == Activity.RESULT_OK) {
+                queue.onPartSent(id, attempt, true, false, null);
+            } else {
+                Log.w(TAG, "SMS " + id + " part " + intent.getIntExtra(EXTRA_PART, 0) + " not sent, code " + code);
+                queue.onPartSent(id, attempt, false, retryable(code), sendError(code));
+            }
+        } else if (ACTION_DELIVERED.equals(intent.getAction())) {
+            byte[] pdu = intent.getByteArrayExtra("pdu");
+            if (pdu == null) return;
+            SmsMessage report = SmsMessage.createFromPdu(pdu, intent.getStringExtra("format"));
+            if (report == null) return;
+            int status = report.getStatus();
+            if (status >= STATUS_FAILED) queue.onPartDelivered(id, attempt, false);
+            else if (status < STATUS_PENDING) queue.onPartDelivered(id, attempt, true);
+            // pending: the network is still trying, a final report follows
+        }
+    }
+
+    /** Transient radio conditions are retried; a malformed PDU will fail the same way again. */
+    static boolean retryable(int resultCode) {
+        return resultCode != SmsManager.RESULT_ERROR_NULL_PDU;
+    }
+
+    static String sendError(int resultCode) {
+        switch (resultCode) {
+            case SmsManager.RESULT_ERROR_GENERIC_FAILURE: return "generic failure";
+            case SmsManager.RESULT_ERROR_RADIO_OFF: return "radio off";
+            case SmsManager.RESULT_ERROR_NULL_PDU: return "null PDU";
+            case SmsManager.RESULT_ERROR_NO_SERVICE: return "no service";
+            case SmsManager.RESULT_ERROR_LIMIT_EXCEEDED: return "limit exceeded";
+            default: return "error " + resultCode;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.sis;
+
+import android.content.BroadcastReceiver;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared background executor for SMS_RECEIVED work, so receivers only decode on the main thread.
+ * - a fixed set of single-threaded lanes; a sender always maps to the same lane (SmsLanes), so
+ *   messages from one sender are handled in arrival order while different senders run in parallel
+ * - each lane has a bounded queue; when it is full further tasks for the lane wait in its
+ *   overflow list and move into the queue as it drains, in order, so nothing is dropped, the
+ *   broadcast (main) thread never blocks or runs a handler, and memory grows only for the
+ *   length of an extreme burst
+ * - the receiver's PendingResult (from goAsync) is finished once the task is done
+ * - idle listeners run when the last in-flight task of a burst completes (before its
+ *   PendingResult is finished), e.g. to flush coalesced writes
+ */
+public final class SmsWorkQueue {
+    private static final String TAG = "SmsWorkQueue";
+    private static final int LANE_COUNT = SmsLanes.COUNT;
+    private static final int LANE_CAPACITY = 64;
+    private static final int SUMMARY_EVERY = 50;
+
+    private static final ThreadPoolExecutor[] LANES = new ThreadPoolExecutor[LANE_COUNT];
+    private static final ArrayDeque<Runnable>[] OVERFLOW = newOverflow(); // each guarded by itself
+    private static final AtomicInteger HANDLED = new AtomicInteger();
+    private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+    private static final List<Runnable> IDLE_LISTENERS = new CopyOnWriteArrayList<>();
+
+    static {
+        for (int i = 0; i < LANE_COUNT; i++) {
+            final String name = "sms-worker-" + i;
+            LANES[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(LANE_CAPACITY),
+                    r -> {
+                        Thread t = new Thread(() -> {
+                            android.os.Process.setThreadPriority(android.os.Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }, name);
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+    }
+
+    private SmsWorkQueue() {}
+
+    /**
+     * Run {@code work} on the sender's lane and finish {@code pending} afterwards.
+     *
+     * @param receivedAtNanos SmsMetrics.start() taken at the start of onReceive
+     */
+    public static void execute(BroadcastReceiver.PendingResult pending, String sender,
+                               long receivedAtNanos, Runnable work) {
+        final long enqueuedAt = SmsMetrics.start();
+        IN_FLIGHT.incrementAndGet();
+        final int lane = SmsLanes.of(sender);
+        Runnable task = () -> {
+            SmsMetrics.since(SmsMetrics.Stage.QUEUE_WAIT, enqueuedAt);
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, "SMS task failed", e);
+            } finally {
+                if (IN_FLIGHT.decrementAndGet() == 0) runIdleListeners();
+                SmsMetrics.since(SmsMetrics.Stage.HANDLED, receivedAtNanos);
+                if (pending != null) pending.finish();
+                if (BuildConfig.DEBUG && HANDLED.incrementAndGet() % SUMMARY_EVERY == 0) {
+                    Log.d(TAG, SmsMetrics.summary());
+                }
+                drainOverflow(lane);
+            }
+        };
+        submit(lane, task);
+    }
+
+    // a lane with tasks in overflow takes new ones there too, so none overtakes an earlier one
+    private static void submit(int lane, Runnable task) {
+        ArrayDeque<Runnable> overflow = OVERFLOW[lane];
+        synchronized (overflow) {
+            if (overflow.isEmpty()) {
+                try {
+                    LANES[lane].execute(task);
+                    return;
+                } catch (RejectedExecutionException full) {
+                    Log.w(TAG, "Lane " + lane + " full, queueing in overflow");
+                    SmsMetrics.increment(SmsMetrics.Counter.QUEUE_OVERFLOW);
+                }
+            }
+            overflow.addLast(task);
+        }
+        drainOverflow(lane); // the lane may have emptied meanwhile
+    }
+
+    // moves overflow into the lane queue while it has room; the lane's worker exists (it rejected)
+    private static void drainOverflow(int lane) {
+        ArrayDeque<Runnable> overflow = OVERFLOW[lane];
+        synchronized (overflow) {
+            while (!overflow.isEmpty() && LANES[lane].getQueue().offer(overflow.peekFirst())) {
+                overflow.pollFirst();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<Runnable>[] newOverflow() {
+        ArrayDeque<Runnable>[] out = new ArrayDeque[LANE_COUNT];
+        for (int i = 0; i < LANE_COUNT; i++) out[i] = new ArrayDeque<>();
+        return out;
+    }
+
+    /** Run {@code listener} on the worker thread whenever all lanes have drained. */
+    public static void addIdleListener(Runnable listener) {
+        if (listener != null) IDLE_LISTENERS.add(listener);
+    }
+
+    private static void runIdleListeners() {
+        for (Runnable listener : IDLE_LISTENERS) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Idle listener failed", e);
+            }
+        }
+    }
+}
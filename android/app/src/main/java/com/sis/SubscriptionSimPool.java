@@ -0,0 +1,65 @@
+package com.sis;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.SystemClock;
+import android.telephony.SubscriptionInfo;
+import android.telephony.SubscriptionManager;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+
+import java.util.List;
+
+/**
+ * SimPool over SubscriptionManager: the active SIMs, the default SMS one first, re-read at most
+ * once a minute. Needs READ_PHONE_STATE; without it (or with one SIM) the pool is the platform
+ * default subscription only, so sending behaves as on a single-SIM phone.
+ */
+final class SubscriptionSimPool implements SimPool {
+    private static final String TAG = "SubscriptionSimPool";
+    private static final long REFRESH_MS = 60_000;
+    private static final int[] DEFAULT_ONLY = {DEFAULT_SUBSCRIPTION};
+
+    private final Context context;
+    private volatile int[] active = DEFAULT_ONLY;
+    private volatile long readAt = Long.MIN_VALUE / 2;
+
+    SubscriptionSimPool(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    @Override
+    public int[] activeSubscriptions() {
+        long now = SystemClock.elapsedRealtime();
+        if (now - readAt >= REFRESH_MS) {
+            readAt = now;
+            active = read();
+        }
+        return active;
+    }
+
+    private int[] read() {
+        if (ActivityCompat.checkSelfPermission(context, Manifest.permission.READ_PHONE_STATE) != PackageManager.PERMISSION_GRANTED) {
+            return DEFAULT_ONLY;
+        }
+        try {
+            SubscriptionManager manager = context.getSystemService(SubscriptionManager.class);
+            List<SubscriptionInfo> infos = manager != null ? manager.getActiveSubscriptionInfoList() : null;
+            if (infos == null || infos.size() < 2) return DEFAULT_ONLY;
+            int preferred = SubscriptionManager.getDefaultSmsSubscriptionId();
+            int[] ids = new int[infos.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = infos.get(i).getSubscriptionId();
+                if (ids[i] == preferred && i > 0) { // default SMS SIM first
+                    ids[i] = ids[0];
+                    ids[0] = preferred;
+                }
+            }
+            return ids;
+        } catch (SecurityException e) {
+            Log.w(TAG, "Subscriptions not readable, using the default SIM", e);
+            return DEFAULT_ONLY;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.sis;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.IBinder;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Foreground location tracking started by a trusted "TRACK [minutes]" message, ended by "STOP"
+ * or its timeout. One sampling loop on a handler thread serves every running session (one per
+ * recipient): each sample is offered to all sessions, the next one is taken at the shortest
+ * interval any session asks for. Policy lives in TrackingSession; updates leave through SmsOutbox.
+ * Samples also go to Geofences, so safe-zone alerts keep up while tracking.
+ */
+public class TrackingService extends Service {
+    private static final String TAG = "TrackingService";
+    static final String ACTION_START = "com.sis.TRACK_START";
+    static final String ACTION_STOP = "com.sis.TRACK_STOP";
+    static final String EXTRA_RECIPIENT = "recipient";
+    static final String EXTRA_DURATION_MS = "durationMs";
+    static final String EXTRA_COMPACT = "compact";
+    private static final String CHANNEL_ID = "tracking";
+    private static final int NOTIFICATION_ID = 4201;
+    private static final long FIX_TIMEOUT_MS = 30_000;
+
+    private HandlerThread thread;
+    private Handler handler;
+    private LocationProvider provider;
+    private final Map<String, TrackingSession> sessions = new LinkedHashMap<>(); // handler thread only
+    private boolean sampling;                                                  // handler thread only
+    private final Runnable sampleTask = this::sample;
+
+    /** Start tracking for {@code recipient}, or extend the session already running for them. */
+    public static void start(Context context, String recipient, long durationMillis, boolean compact) {
+        Intent intent = new Intent(context, TrackingService.class)
+                .setAction(ACTION_START)
+                .putExtra(EXTRA_RECIPIENT, recipient)
+                .putExtra(EXTRA_DURATION_MS, durationMillis)
+                .putExtra(EXTRA_COMPACT, compact);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    public static void stop(Context context, String recipient) {
+        Intent intent = new Intent(context, TrackingService.class)
+                .setAction(ACTION_STOP)
+                .putExtra(EXTRA_RECIPIENT, recipient);
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        thread = new HandlerThread("tracking", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        handler = new Handler(thread.getLooper());
+        provider = new FusedLocationProvider(this);
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        // must be in the foreground promptly after startForegroundService, even for a STOP
+        goForeground();
+        if (intent == null) {
+            // restarted after the process died: sessions were in memory only
+            stopSelf();
+            return START_NOT_STICKY;
+        }
+        String action = intent.getAction();
+        String recipient = intent.getStringExtra(EXTRA_RECIPIENT);
+        if (recipient == null) return START_NOT_STICKY;
+        if (ACTION_START.equals(action)) {
+            long duration = intent.getLongExtra(EXTRA_DURATION_MS, TrackingSession.DEFAULT_DURATION_MS);
+            boolean compact = intent.getBooleanExtra(EXTRA_COMPACT, false);
+            handler.post(() -> startSession(recipient, duration, compact));
+        } else if (ACTION_STOP.equals(action)) {
+            handler.post(() -> stopSession(recipient, "Tracking stopped."));
+        }
+        return START_NOT_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(sampleTask);
+        thread.quitSafely();
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    // ---- handler thread ----
+
+    private void startSession(String recipient, long durationMillis, boolean compact) {
+        long now = System.currentTimeMillis();
+        TrackingSession running = sessions.get(PhoneNumbers.normalize(recipient));
+        if (running != null && !running.isExpired(now)) {
+            // a repeated TRACK: no second "Tracking started" SMS, the sampling loop keeps its pace
+            running.extend(now, durationMillis);
+            return;
+        }
+        TrackingSession session = new TrackingSession(recipient, compact, now, durationMillis);
+        sessions.put(PhoneNumbers.normalize(recipient), session);
+        if (BuildConfig.DEBUG) Log.d(TAG, "Tracking " + recipient + " until " + session.getEndsAtMillis());
+        send(recipient, "Tracking started for " + Math.max(1, (session.getEndsAtMillis() - now) / 60_000)
+                + " min. Send STOP to end.");
+        handler.removeCallbacks(sampleTask);
+        if (!sampling) handler.post(sampleTask);
+    }
+
+    private void stopSession(String recipient, String message) {
+        TrackingSession session = sessions.remove(PhoneNumbers.normalize(recipient));
+        if (session != null) finish(session, message);
+        if (sessions.isEmpty()) shutDown();
+    }
+
+    private void sample() {
+        long now = System.currentTimeMillis();
+        for (Iterator<TrackingSession> it = sessions.values().iterator(); it.hasNext(); ) {
+            TrackingSession session = it.next();
+            if (session.isExpired(now)) {
+                it.remove();
+                finish(session, "Tracking ended.");
+            }
+        }
+        if (sessions.isEmpty()) {
+            shutDown();
+            return;
+        }
+        LocationProvider.Accuracy accuracy = LocationProvider.Accuracy.BALANCED;
+        for (TrackingSession session : sessions.values()) {
+            if (session.nextAccuracy() == LocationProvider.Accuracy.HIGH) accuracy = LocationProvider.Accuracy.HIGH;
+        }
+        sampling = true;
+        provider.current(accuracy, FIX_TIMEOUT_MS, fix -> handler.post(() -> onFix(fix)));
+    }
+
+    private void onFix(LocationFix fix) {
+        sampling = false;
+        if (fix != null) Geofences.onFixes(this, Collections.singletonList(fix), null);
+        if (sessions.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        long next = TrackingSession.MAX_INTERVAL_MS;
+        for (TrackingSession session : sessions.values()) {
+            session.onFix(fix);
+            if (session.isBatchDue(now)) sendAll(session, session.drain(now));
+            next = Math.min(next, session.nextIntervalMillis());
+            next = Math.min(next, Math.max(0, session.getEndsAtMillis() - now));
+        }
+        handler.postDelayed(sampleTask, next);
+    }
+
+    private void finish(TrackingSession session, String message) {
+        sendAll(session, session.drain(System.currentTimeMillis()));
+        send(session.getRecipient(), message);
+        if (BuildConfig.DEBUG) {
+            Log.d(TAG, "Tracking of " + session.getRecipient() + " done, " + session.getBundlesSent() + " updates");
+        }
+    }
+
+    private void shutDown() {
+        handler.removeCallbacks(sampleTask);
+        stopForeground(STOP_FOREGROUND_REMOVE);
+        stopSelf();
+    }
+
+    private void sendAll(TrackingSession session, List<String> messages) {
+        for (String message : messages) send(session.getRecipient(), message);
+    }
+
+    private void send(String to, String message) {
+        try {
+            SmsOutbox.queue(this).enqueue(to, message, null);
+        } catch (Exception e) {
+            Log.e(TAG, "Queueing tracking SMS failed", e);
+        }
+    }
+
+    private void goForeground() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationManager nm = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+            nm.createNotificationChannel(new NotificationChannel(CHANNEL_ID, "Location sharing",
+                    NotificationManager.IMPORTANCE_LOW));
+        }
+        android.app.Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setContentTitle("Sharing your location")
+                .setContentText("A trusted contact is tracking your location. They can send STOP to end it.")
+                .setSmallIcon(android.R.drawable.ic_menu_mylocation)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setOngoing(true)
+                .build();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_LOCATION);
+        } else {
+            startForeground(NOTIFICATION_ID, notification);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+// TrustedKeywordResponder.java
+package com.sis;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replies with the current location when a trusted number sends its keyword; a message of just
+ * the keyword and "TRACK [minutes]" starts continuous tracking (TrackingService), the keyword and
+ * "STOP" ends it.
+ * Trusted list lives in "ResponderSettings" / trusted_list (written by SettingsModule) and is
+ * matched through a TrustedListIndex that is built once per list change, not per message.
+ * The decision and the reply limit are core's TrustedResponder; this class carries them out.
+ * A deferred request is scheduled in this process only and is lost if the process dies first;
+ * a deferred TRACK the platform no longer lets start the foreground service becomes a one-shot
+ * reply. STOP is never limited and cancels a deferred request from that contact.
+ */
+public class TrustedKeywordResponder implements SmsHandler {
+    private static final String TAG = "TrustedKeywordResponder";
+    private static final String PREFS_NAME = "ResponderSettings";
+    private static final String KEY_TRUSTED_LIST = "trusted_list";
+
+    private static final Object INDEX_LOCK = new Object();
+    private static volatile TrustedListIndex index; // null until first use or after invalidate
+
+    static final ReplyLimiter LIMITER = new ReplyLimiter();
+    private static final ScheduledExecutorService DEFERRED = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "reply-limiter");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static volatile TrustedResponder responder;
+
+    @Override
+    public void onSms(Context context, InboundSms sms) {
+        if (BuildConfig.DEBUG) Log.d(TAG, "SMS received from: " + sms.getSender() + " chars: " + sms.getBody().length());
+
+        ReplyLimiter.Result limit = responder(context).onSms(sms);
+        if (BuildConfig.DEBUG) {
+            if (limit == null) Log.d(TAG, "No trusted sender with a matching keyword for this message.");
+            else Log.d(TAG, "Request from " + sms.getSender() + ": " + limit.decision);
+        }
+    }
+
+    static TrustedResponder responder(Context context) {
+        TrustedResponder current = responder;
+        if (current == null) {
+            synchronized (INDEX_LOCK) {
+                current = responder;
+                if (current == null) {
+                    Context app = context.getApplicationContext();
+                    current = new TrustedResponder(() -> index(app), LIMITER, new DeviceActions(app),
+                            (task, delayMillis) -> DEFERRED.schedule(() -> {
+                                try {
+                                    task.run();
+                                } catch (Exception e) {
+                                    Log.e(TAG, "Deferred reply failed", e);
+                                }
+                            }, delayMillis, TimeUnit.MILLISECONDS),
+                            System::currentTimeMillis);
+                    responder = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // TrackingService and LocationHelper (a recent enough cached fix is reused)
+    private static final class DeviceActions implements TrustedResponder.Actions {
+        private final Context context;
+
+        DeviceActions(Context context) {
+            this.context = context;
+        }
+
+        @Override
+        public void sendLocation(TrustedRequest request, InboundSms sms) {
+            LocationHelper.sendCurrentLocation(context, request.sender, request.maxLocationAgeMillis,
+                    request.compact, sms);
+        }
+
+        @Override
+        public boolean startTracking(TrustedRequest request) {
+            try {
+                TrackingService.start(context, request.sender, request.command.durationMillis, request.compact);
+                return true;
+            } catch (Exception e) {
+                Log.e(TAG, "Starting tracking service failed", e);
+                return false;
+            }
+        }
+
+        @Override
+        public boolean stopTracking(TrustedRequest request) {
+            try {
+                TrackingService.stop(context, request.sender);
+                return true;
+            } catch (Exception e) {
+                Log.e(TAG, "Stopping tracking service failed", e);
+                return false;
+            }
+        }
+
+        @Override
+        public void sendText(TrustedRequest request, String body) {
+            try {
+                SmsOutbox.queue(context).enqueue(request.sender, body, null);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to queue reply SMS", e);
+            }
+        }
+    }
+
+    /** Rebuild the index from the list SettingsModule just saved (null clears it). */
+    public static void onTrustedListChanged(String jsonList) {
+        index = buildIndex(jsonList);
+    }
+
+    /** Current trusted list index, loaded from prefs on first use in this process. */
+    static TrustedListIndex index(Context context) {
+        TrustedListIndex current = index;
+        if (current == null) {
+            synchronized (INDEX_LOCK) {
+                current = index;
+                if (current == null) {
+                    SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+                    current = buildIndex(prefs.getString(KEY_TRUSTED_LIST, null));
+                    index = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // `jsonList` is the trusted list JSON array string (format: TrustedListIndex.fromJson)
+    static TrustedListIndex buildIndex(String jsonList) {
+        try {
+            return TrustedListIndex.fromJson(jsonList);
+        } catch (JSONException e) {
+            Log.e(TAG, "Invalid trusted list JSON", e);
+            return TrustedListIndex.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ReactMapsTest {
+    private static final long T0 = 1_700_000_000_000L;
+
+    private static final ReactMaps.Factory JAVA_ONLY = new ReactMaps.Factory() {
+        @Override
+        public WritableMap createMap() {
+            return new JavaOnlyMap();
+        }
+
+        @Override
+        public WritableArray createArray() {
+            return new JavaOnlyArray();
+        }
+    };
+
+    private static String record(long timestamp) throws Exception {
+        return new JSONObject()
+                .put("rawMessage", "Here is my current location: https://maps.google.com/?q=12.97,77.59")
+                .put("timestamp", timestamp)
+                .put("parsed", true)
+                .put("mapUrl", "https://maps.google.com/?q=12.97,77.59")
+                .put("latitude", 12.97)
+                .put("longitude", 77.59)
+                .toString();
+    }
+
+    @Test
+    public void jsonBecomesTypedMapsAndArrays() throws Exception {
+        JSONObject json = new JSONObject("{\"s\":\"x\",\"n\":42,\"d\":1.5,\"b\":false,\"z\":null,"
+                + "\"inner\":{\"t\":1700000000000},\"list\":[3,null,{\"k\":\"v\"},[true]]}");
+        ReadableMap map = ReactMaps.fromJson(json, JAVA_ONLY);
+        assertEquals("x", map.getString("s"));
+        assertEquals(42.0, map.getDouble("n"), 0);
+        assertEquals(1.5, map.getDouble("d"), 0);
+        assertFalse(map.getBoolean("b"));
+        assertTrue(map.hasKey("z"));
+        assertTrue(map.isNull("z"));
+        assertEquals(1.7e12, map.getMap("inner").getDouble("t"), 0);
+
+        ReadableArray list = map.getArray("list");
+        assertEquals(4, list.size());
+        assertEquals(3.0, list.getDouble(0), 0);
+        assertTrue(list.isNull(1));
+        assertEquals("v", list.getMap(2).getString("k"));
+        assertTrue(list.getArray(3).getBoolean(0));
+    }
+
+    @Test
+    public void lastLocationTakesTheNewerOfRecordAndJournal() throws Exception {
+        ReadableMap fromRecord = SisterSettingsModule.lastLocation(record(T0),
+                new LocationJournal.Point("919876543210", T0 - 1000, 1.0, 2.0, Float.NaN), JAVA_ONLY);
+        assertEquals(T0, fromRecord.getDouble("timestamp"), 0);
+        assertEquals(12.97, fromRecord.getDouble("latitude"), 0);
+        assertTrue(fromRecord.getBoolean("parsed"));
+        assertTrue(fromRecord.getString("rawMessage").startsWith("Here is my current location"));
+
+        ReadableMap fromJournal = SisterSettingsModule.lastLocation(record(T0),
+                new LocationJournal.Point("919876543210", T0 + 1000, 13.5, 77.25, 8f), JAVA_ONLY);
+        assertEquals(T0 + 1000, fromJournal.getDouble("timestamp"), 0);
+        assertEquals(13.5, fromJournal.getDouble("latitude"), 0);
+        assertEquals(77.25, fromJournal.getDouble("longitude"), 0);
+        assertEquals(8.0, fromJournal.getDouble("accuracy"), 0);
+        assertEquals("", fromJournal.getString("rawMessage"));
+        assertTrue(fromJournal.getBoolean("parsed"));
+        assertTrue(fromJournal.getString("mapUrl").contains("13.5"));
+
+        ReadableMap journalOnly = SisterSettingsModule.lastLocation(null,
+                new LocationJournal.Point("919876543210", T0, 13.5, 77.25, Float.NaN), JAVA_ONLY);
+        assertFalse(journalOnly.hasKey("accuracy"));
+        assertNull(SisterSettingsModule.lastLocation(null, null, JAVA_ONLY));
+    }
+}
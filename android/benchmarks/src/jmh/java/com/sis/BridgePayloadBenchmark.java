@@ -0,0 +1,140 @@
+package com.sis;
+
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Bridge cost of one dashboard refresh for {@code sisters} sisters (one op = one refresh),
+ * modelled on the bridge's JSON message queue: every call and every promise resolution is one
+ * serialised message, written on the native side and parsed on the JS side (org.json stands in
+ * for both ends).
+ * - legacyJsonStrings: a getLastLocation call per sister resolving the stored JSON string,
+ *   which JS then JSON.parse()s again
+ * - typedMapPerSister: a getLastLocation call per sister resolving a map built from the record
+ * - bulkGetLastLocations: one getLastLocations call resolving { [phone]: location }
+ * Bytes per refresh are printed at the end of each trial (they do not vary between runs).
+ */
+@State(Scope.Thread)
+public class BridgePayloadBenchmark {
+    private static final int MODULE = 7;
+    private static final int GET_LAST_LOCATION = 3;
+    private static final int GET_LAST_LOCATIONS = 4;
+
+    @Param({"5", "20", "100"})
+    public int sisters;
+
+    private String[] phones;
+    private String[] records; // lastLocation_<phone> prefs values
+
+    @Setup
+    public void setUp() throws JSONException {
+        phones = SmsCorpus.phones(sisters, 9);
+        records = new String[sisters];
+        String[] bodies = SmsCorpus.bodies("maps_url");
+        for (int i = 0; i < sisters; i++) {
+            ParsedLocation loc = LocationExtractor.extract(bodies[i & SmsCorpus.MASK]);
+            records[i] = new JSONObject()
+                    .put("rawMessage", bodies[i & SmsCorpus.MASK])
+                    .put("timestamp", 1_700_000_000_000L + i * 60_000L)
+                    .put("parsed", true)
+                    .put("mapUrl", loc.getMapUrl())
+                    .put("latitude", loc.getLatitude())
+                    .put("longitude", loc.getLongitude())
+                    .toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void printBytes() throws JSONException {
+        System.out.println("bytes per refresh of " + sisters + " sisters: legacy " + bytes(legacyMessages())
+                + ", typed " + bytes(typedMessages()) + ", bulk " + bytes(bulkMessages()));
+    }
+
+    @Benchmark
+    public int legacyJsonStrings() throws JSONException {
+        int fields = 0;
+        String[] messages = legacyMessages();
+        for (int i = 0; i < messages.length; i += 2) {
+            new JSONArray(messages[i]);
+            fields += new JSONObject(new JSONArray(messages[i + 1]).getString(1)).length();
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int typedMapPerSister() throws JSONException {
+        int fields = 0;
+        String[] messages = typedMessages();
+        for (int i = 0; i < messages.length; i += 2) {
+            new JSONArray(messages[i]);
+            fields += new JSONArray(messages[i + 1]).getJSONObject(1).length();
+        }
+        return fields;
+    }
+
+    @Benchmark
+    public int bulkGetLastLocations() throws JSONException {
+        String[] messages = bulkMessages();
+        new JSONArray(messages[0]);
+        JSONObject byPhone = new JSONArray(messages[1]).getJSONObject(1);
+        int fields = 0;
+        for (String phone : phones) fields += byPhone.getJSONObject(phone).length();
+        return fields;
+    }
+
+    // N calls out, N string resolutions back
+    private String[] legacyMessages() {
+        String[] out = new String[2 * sisters];
+        for (int i = 0; i < sisters; i++) {
+            out[2 * i] = call(GET_LAST_LOCATION, phones[i], i);
+            out[2 * i + 1] = new JSONArray().put(2 * i).put(records[i]).toString();
+        }
+        return out;
+    }
+
+    // N calls out, N map resolutions back; the native side parses the record to build the map
+    private String[] typedMessages() throws JSONException {
+        String[] out = new String[2 * sisters];
+        for (int i = 0; i < sisters; i++) {
+            out[2 * i] = call(GET_LAST_LOCATION, phones[i], i);
+            out[2 * i + 1] = new JSONArray().put(2 * i).put(new JSONObject(records[i])).toString();
+        }
+        return out;
+    }
+
+    // one call out, one map resolution back
+    private String[] bulkMessages() throws JSONException {
+        JSONArray phoneArray = new JSONArray();
+        JSONObject byPhone = new JSONObject();
+        for (int i = 0; i < sisters; i++) {
+            phoneArray.put(phones[i]);
+            byPhone.put(phones[i], new JSONObject(records[i]));
+        }
+        return new String[] {
+                new JSONArray().put(MODULE).put(GET_LAST_LOCATIONS)
+                        .put(new JSONArray().put(phoneArray).put(0).put(1)).toString(),
+                new JSONArray().put(0).put(byPhone).toString(),
+        };
+    }
+
+    private static String call(int method, Object arg, int i) {
+        return new JSONArray().put(MODULE).put(method)
+                .put(new JSONArray().put(arg).put(2 * i).put(2 * i + 1)).toString();
+    }
+
+    private static long bytes(String[] messages) {
+        long n = 0;
+        for (String m : messages) n += m.getBytes(StandardCharsets.UTF_8).length;
+        return n;
+    }
+}
@@ -0,0 +1,51 @@
+package com.sis;
+
+import java.util.List;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** One location fix against N safe zones spread over a city: index lookup and full monitor step. */
+@State(Scope.Thread)
+public class GeofenceIndexBenchmark {
+    @Param({"10", "100", "1000"})
+    public int zones;
+
+    private GeofenceIndex index;
+    private GeofenceMonitor monitor;
+    private LocationFix[] fixes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(6);
+        GeofenceIndex.Builder builder = new GeofenceIndex.Builder();
+        for (int i = 0; i < zones; i++) {
+            builder.add(new Geofence("z" + i, "98765432" + (i % 100), "Zone " + i, 12.8 + random.nextDouble() * 0.4,
+                    77.4 + random.nextDouble() * 0.4, 100 + random.nextInt(400), 0));
+        }
+        index = builder.build();
+        monitor = new GeofenceMonitor();
+        monitor.setIndex(index);
+        fixes = new LocationFix[SmsCorpus.MASK + 1];
+        for (int i = 0; i < fixes.length; i++) {
+            fixes[i] = new LocationFix(12.8 + random.nextDouble() * 0.4, 77.4 + random.nextDouble() * 0.4,
+                    20f, 1_700_000_000_000L + i * 60_000L, LocationFix.Source.BALANCED);
+        }
+    }
+
+    @Benchmark
+    public int[] candidates() {
+        LocationFix fix = fixes[next++ & SmsCorpus.MASK];
+        return index.candidates(fix.getLatitude(), fix.getLongitude());
+    }
+
+    @Benchmark
+    public List<GeofenceMonitor.Transition> monitor() {
+        return monitor.onFix(fixes[next++ & SmsCorpus.MASK]);
+    }
+}
@@ -0,0 +1,32 @@
+package com.sis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Location parsing of one inbound body, as SisterLocationRecorder does it per message. */
+@State(Scope.Thread)
+public class LocationExtractorBenchmark {
+    @Param({"maps_url", "short_link", "embed", "token", "garbage", "multipart"})
+    public String kind;
+
+    private String[] bodies;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        bodies = SmsCorpus.bodies(kind);
+    }
+
+    @Benchmark
+    public ParsedLocation extract() {
+        return LocationExtractor.extract(bodies[next++ & SmsCorpus.MASK]);
+    }
+
+    @Benchmark
+    public ParsedLocation extractOrAnyUrl() {
+        return LocationExtractor.extractOrAnyUrl(bodies[next++ & SmsCorpus.MASK]);
+    }
+}
@@ -0,0 +1,52 @@
+package com.sis;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * One LocationJournal append on top of an existing history of {@code history} points; the cost
+ * should not depend on it. Long runs reach COMPACT_AT_RECORDS, so the score includes the
+ * occasional automatic compaction, as on a device.
+ */
+@State(Scope.Thread)
+public class LocationJournalBenchmark {
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Param({"0", "100000"})
+    public int history;
+
+    private File file;
+    private LocationJournal journal;
+    private String[] phones;
+    private long time;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        phones = SmsCorpus.phones(5, 5);
+        file = File.createTempFile("journal", ".bin");
+        journal = new LocationJournal(file);
+        for (time = 0; time < history; time++) {
+            journal.append(phones[(int) (time % phones.length)], T0 + time * 1000, 12.97, 77.59, Float.NaN);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        file.delete();
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        long t = time++;
+        journal.append(phones[(int) (t % phones.length)], T0 + t * 1000, 12.97, 77.59, Float.NaN);
+    }
+}
@@ -0,0 +1,23 @@
+package com.sis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Sender normalization, once per message and once per stored key written. */
+@State(Scope.Thread)
+public class PhoneNumbersBenchmark {
+    private String[] senders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        senders = SmsCorpus.senders(SmsCorpus.phones(100, 1));
+    }
+
+    @Benchmark
+    public String normalize() {
+        return PhoneNumbers.normalize(senders[next++ & SmsCorpus.MASK]);
+    }
+}
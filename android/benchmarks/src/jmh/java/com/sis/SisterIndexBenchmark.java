@@ -0,0 +1,39 @@
+package com.sis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/** Sender-to-sister resolution of one inbound message, for a sister and for a stranger. */
+@State(Scope.Thread)
+public class SisterIndexBenchmark {
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private SisterIndex index;
+    private String[] sisters;
+    private String[] strangers;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] phones = SmsCorpus.phones(entries, 4);
+        SisterIndex.Builder builder = new SisterIndex.Builder();
+        for (int i = 0; i < phones.length; i++) builder.add(phones[i], "Sister " + i);
+        index = builder.build();
+        sisters = SmsCorpus.senders(phones);
+        strangers = SmsCorpus.senders(SmsCorpus.phones(100, 5));
+    }
+
+    @Benchmark
+    public String sister() {
+        return index.resolve(sisters[next++ & SmsCorpus.MASK]);
+    }
+
+    @Benchmark
+    public String stranger() {
+        return index.resolve(strangers[next++ & SmsCorpus.MASK]);
+    }
+}
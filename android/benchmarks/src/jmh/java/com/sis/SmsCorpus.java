@@ -0,0 +1,104 @@
+package com.sis;
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic, realistic SMS bodies and phone numbers for the benchmarks. Every set holds
+ * {@link #SIZE} distinct variants, cycled through by the benchmarks so that no single input
+ * stays hot in the branch predictor.
+ */
+final class SmsCorpus {
+    static final int SIZE = 256;
+    static final int MASK = SIZE - 1;
+
+    private static final String[] KEYWORDS = {"WHERE", "LOC", "HELP", "SOS", "TRACK", "FIND ME", "KAHAN HO"};
+
+    private SmsCorpus() {}
+
+    /** Message bodies of one kind: maps_url, short_link, embed, token, garbage or multipart. */
+    static String[] bodies(String kind) {
+        Random r = new Random(kind.hashCode());
+        String[] out = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) out[i] = body(kind, r, i);
+        return out;
+    }
+
+    private static String body(String kind, Random r, int i) {
+        double lat = 8 + r.nextDouble() * 27;
+        double lon = 68 + r.nextDouble() * 29;
+        switch (kind) {
+            case "maps_url":
+                switch (i % 3) {
+                    case 0: return "Here is my current location: https://maps.google.com/?q=" + coord(lat) + "," + coord(lon);
+                    case 1: return "I'm here https://www.google.com/maps/@" + coord(lat) + "," + coord(lon) + ",17z";
+                    default: return "https://www.google.com/maps/search/?api=1&q=" + coord(lat) + "," + coord(lon);
+                }
+            case "short_link":
+                return (i % 2 == 0 ? "Reached. https://maps.app.goo.gl/" : "see https://goo.gl/maps/") + id(r, 17);
+            case "embed":
+                return "https://www.google.com/maps/place/MG+Road/@" + coord(lat) + "," + coord(lon)
+                        + ",17z/data=!3m1!4b1!4m6!3m5!1s0x3bae1670c9b44e6d:0xf8dfc3e8517e4fe0!8m2!3d"
+                        + coord(lat) + "!4d" + coord(lon) + "!16s%2Fg%2F" + id(r, 9);
+            case "token":
+                return "Location " + LocationToken.encode(lat, lon, 5 + r.nextInt(50), 1_700_000_000_000L + i * 60_000L);
+            case "garbage":
+                switch (i % 4) {
+                    case 0: return "Your OTP is " + (100000 + r.nextInt(900000)) + ". Do not share it with anyone.";
+                    case 1: return "Rs." + r.nextInt(5000) + ".00 debited from A/c XX" + r.nextInt(10000)
+                            + " on 12-03-24. Avl bal Rs." + r.nextInt(90000) + ". Not you? Call 1800-123-4567";
+                    case 2: return "Reached home, will call you at 7:30. Get milk on the way? :)";
+                    default: return "Recharge now at https://example.com/offers/" + id(r, 8) + " and get 2GB free!";
+                }
+            case "multipart":
+                StringBuilder sb = new StringBuilder(1200);
+                while (sb.length() < 1000) {
+                    sb.append("Trip update ").append(r.nextInt(100)).append(": traffic near exit ")
+                            .append(r.nextInt(40)).append(", ETA ").append(r.nextInt(60)).append(" min. ");
+                }
+                return sb.append("Live location https://maps.google.com/?q=").append(coord(lat)).append(',')
+                        .append(coord(lon)).toString();
+            default:
+                throw new IllegalArgumentException(kind);
+        }
+    }
+
+    /** Senders as they arrive: with country code, spaces, dashes or bare digits. */
+    static String[] senders(String[] phones) {
+        Random r = new Random(7);
+        String[] out = new String[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            String digits = phones[r.nextInt(phones.length)];
+            switch (i % 4) {
+                case 0: out[i] = "+91" + digits; break;
+                case 1: out[i] = "+91 " + digits.substring(0, 5) + " " + digits.substring(5); break;
+                case 2: out[i] = "0" + digits.substring(0, 3) + "-" + digits.substring(3); break;
+                default: out[i] = digits; break;
+            }
+        }
+        return out;
+    }
+
+    /** {@code count} distinct ten-digit mobile numbers. */
+    static String[] phones(int count, long seed) {
+        Random r = new Random(seed);
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) out[i] = (6 + r.nextInt(4)) + String.format(Locale.ROOT, "%09d", r.nextInt(1_000_000_000));
+        return out;
+    }
+
+    static String keyword(int i) {
+        return KEYWORDS[i % KEYWORDS.length];
+    }
+
+    private static String coord(double v) {
+        return String.format(Locale.ROOT, "%.7f", v);
+    }
+
+    private static String id(Random r, int length) {
+        String chars = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) sb.append(chars.charAt(r.nextInt(chars.length())));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.sis;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The whole receive pipeline (SmsLoadHarness) over synthetic traffic replayed as fast as
+ * possible: one op is one delivery, so gc.alloc.rate.norm is bytes per broadcast. Each
+ * invocation starts from an empty harness, so stored state and the outbox do not pile up.
+ */
+@State(Scope.Thread)
+public class SmsLoadBenchmark {
+    private static final int DELIVERIES = 2_000;
+
+    private TrafficProfile.Synthetic traffic;
+    private TrafficProfile profile;
+    private SmsLoadHarness harness;
+
+    @Setup
+    public void setUp() {
+        traffic = new TrafficProfile.Synthetic(50, 1);
+        profile = traffic.generate(DELIVERIES, 50);
+    }
+
+    @Setup(Level.Invocation)
+    public void newHarness() throws JSONException {
+        harness = new SmsLoadHarness(traffic.trustedListJson(), traffic.sisterListJson());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DELIVERIES)
+    public SmsLoadHarness.Report replay() throws JSONException {
+        return harness.replay(profile, 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.sis;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The responder's trusted-list check of one inbound message. "hit": a trusted sender with its
+ * keyword; "wrongKeyword": a trusted sender without it; "stranger": an unknown sender, the
+ * common case for every other SMS the phone receives.
+ */
+@State(Scope.Thread)
+public class TrustedListIndexBenchmark {
+    @Param({"10", "100", "1000"})
+    public int entries;
+
+    private TrustedListIndex index;
+    private String[] trustedSenders;
+    private String[] keywordBodies;
+    private String[] strangers;
+    private String[] plainBodies;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        String[] phones = SmsCorpus.phones(entries, 2);
+        TrustedListIndex.Builder builder = new TrustedListIndex.Builder();
+        for (int i = 0; i < phones.length; i++) builder.add(phones[i], SmsCorpus.keyword(i));
+        index = builder.build();
+
+        trustedSenders = new String[SmsCorpus.SIZE];
+        keywordBodies = new String[SmsCorpus.SIZE];
+        for (int i = 0; i < SmsCorpus.SIZE; i++) {
+            int entry = (i * 31) % phones.length;
+            trustedSenders[i] = "+91" + phones[entry];
+            keywordBodies[i] = "hey, " + SmsCorpus.keyword(entry).toLowerCase() + " are you?";
+        }
+        strangers = SmsCorpus.senders(SmsCorpus.phones(100, 3));
+        plainBodies = SmsCorpus.bodies("garbage");
+    }
+
+    @Benchmark
+    public String hit() {
+        int i = next++ & SmsCorpus.MASK;
+        return index.match(trustedSenders[i], keywordBodies[i]);
+    }
+
+    @Benchmark
+    public String wrongKeyword() {
+        int i = next++ & SmsCorpus.MASK;
+        return index.match(trustedSenders[i], plainBodies[i]);
+    }
+
+    @Benchmark
+    public String stranger() {
+        int i = next++ & SmsCorpus.MASK;
+        return index.match(strangers[i], keywordBodies[i]);
+    }
+}
@@ -0,0 +1,211 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One broadcast check-in: a check code sent to several sisters, replies matched as they arrive.
+ * - entries are keyed by the digits of the canonical sister phone (the key LocationUpdates uses)
+ * - every entry moves QUEUED -> SENT -> LOCATED / NO_FIX, or ends as NO_CODE / SEND_FAILED /
+ *   TIMED_OUT; a reply counts even when it beats the queue's sent report
+ * - the batch completes when every entry is final or at the deadline, whichever comes first, so
+ *   time-to-all-located is bounded by the slowest reply, not the sum of them
+ * Pure Java; listeners are invoked outside the lock.
+ */
+public final class CheckInBatch {
+
+    public enum Status {
+        QUEUED, SENT, LOCATED, NO_FIX, NO_CODE, SEND_FAILED, TIMED_OUT;
+
+        boolean isFinal() {
+            return this != QUEUED && this != SENT;
+        }
+    }
+
+    public interface Listener {
+        void onProgress(CheckInBatch batch, Entry entry);
+
+        void onComplete(CheckInBatch batch);
+    }
+
+    /** State of one sister in the batch. Coordinates are NaN unless LOCATED with coordinates. */
+    public static final class Entry {
+        private final String phone;
+        private final String key;
+        private final String code;
+        private Status status = Status.QUEUED;
+        private long sentAtMillis;
+        private long repliedAtMillis;
+        private double latitude = Double.NaN;
+        private double longitude = Double.NaN;
+        private String mapUrl;
+        private String error;
+
+        Entry(String phone, String key, String code) {
+            this.phone = phone;
+            this.key = key;
+            this.code = code;
+        }
+
+        public String getPhone() { return phone; }
+        public String getKey() { return key; }
+        public String getCode() { return code; }
+        public Status getStatus() { return status; }
+        public long getSentAtMillis() { return sentAtMillis; }
+        public long getRepliedAtMillis() { return repliedAtMillis; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public String getMapUrl() { return mapUrl; }
+        public String getError() { return error; }
+    }
+
+    private final String id;
+    private final long startedAtMillis;
+    private final long deadlineMillis;
+    private final Listener listener;
+    private final Map<String, Entry> byKey = new LinkedHashMap<>(); // guarded by this
+    private int open;                                               // non-final entries, guarded by this
+    private boolean started;                                        // guarded by this
+    private boolean complete;                                       // guarded by this
+    private long completedAtMillis;                                 // guarded by this
+
+    public CheckInBatch(String id, long startedAtMillis, long timeoutMillis, Listener listener) {
+        this.id = id;
+        this.startedAtMillis = startedAtMillis;
+        this.deadlineMillis = startedAtMillis + timeoutMillis;
+        this.listener = listener;
+    }
+
+    public String getId() { return id; }
+    public long getStartedAtMillis() { return startedAtMillis; }
+    public long getDeadlineMillis() { return deadlineMillis; }
+
+    /**
+     * Add a sister before {@link #start}. A phone whose key is already in the batch is ignored;
+     * without a code the entry is final (NO_CODE) at once. Returns the entry, or null if ignored.
+     */
+    public synchronized Entry add(String phone, String key, String code) {
+        if (started) throw new IllegalStateException("batch already started");
+        if (key == null || key.length() == 0 || byKey.containsKey(key)) return null;
+        Entry entry = new Entry(phone, key, code);
+        if (code == null || code.length() == 0) entry.status = Status.NO_CODE;
+        else open++;
+        byKey.put(key, entry);
+        return entry;
+    }
+
+    /** Entries that still need their code sent. Completes the batch at once if there are none. */
+    public List<Entry> start() {
+        List<Entry> toSend = new ArrayList<>();
+        boolean done;
+        synchronized (this) {
+            started = true;
+            for (Entry e : byKey.values()) if (e.status == Status.QUEUED) toSend.add(e);
+            done = maybeComplete(startedAtMillis);
+        }
+        if (done) listener.onComplete(this);
+        return toSend;
+    }
+
+    public void onSent(String key, long nowMillis) {
+        Entry entry;
+        synchronized (this) {
+            entry = byKey.get(key);
+            if (complete || entry == null || entry.status != Status.QUEUED) return;
+            entry.status = Status.SENT;
+            entry.sentAtMillis = nowMillis;
+        }
+        listener.onProgress(this, entry);
+    }
+
+    public void onSendFailed(String key, long nowMillis, String reason) {
+        finish(key, Status.SEND_FAILED, nowMillis, 0, Double.NaN, Double.NaN, null, reason);
+    }
+
+    /**
+     * A reply from {@code key} arrived. Returns true when it settled an entry of this batch.
+     * Replies older than the batch (e.g. replayed ones) are ignored.
+     */
+    public boolean onReply(String key, long timestampMillis, boolean parsed, double latitude, double longitude, String mapUrl) {
+        if (timestampMillis < startedAtMillis) return false;
+        return finish(key, parsed ? Status.LOCATED : Status.NO_FIX, timestampMillis, timestampMillis,
+                latitude, longitude, mapUrl, null);
+    }
+
+    /** Time out every open entry if the deadline has passed. Returns true if the batch is complete. */
+    public boolean expire(long nowMillis) {
+        List<Entry> timedOut = new ArrayList<>();
+        boolean done;
+        synchronized (this) {
+            if (complete) return true;
+            if (nowMillis < deadlineMillis) return false;
+            for (Entry e : byKey.values()) {
+                if (e.status.isFinal()) continue;
+                e.status = Status.TIMED_OUT;
+                open--;
+                timedOut.add(e);
+            }
+            done = maybeComplete(nowMillis);
+        }
+        for (Entry e : timedOut) listener.onProgress(this, e);
+        if (done) listener.onComplete(this);
+        return true;
+    }
+
+    public synchronized boolean isComplete() {
+        return complete;
+    }
+
+    /** Milliseconds from start to completion (to now while still running). */
+    public synchronized long elapsedMillis(long nowMillis) {
+        return (complete ? completedAtMillis : nowMillis) - startedAtMillis;
+    }
+
+    /** Entries not yet final. */
+    public synchronized int remaining() {
+        return open;
+    }
+
+    public synchronized int count(Status status) {
+        int n = 0;
+        for (Entry e : byKey.values()) if (e.status == status) n++;
+        return n;
+    }
+
+    /** Snapshot of all entries, in the order they were added. */
+    public synchronized List<Entry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(byKey.values()));
+    }
+
+    private boolean finish(String key, Status status, long nowMillis, long repliedAtMillis,
+                           double lat, double lon, String mapUrl, String error) {
+        Entry entry;
+        boolean done;
+        synchronized (this) {
+            entry = byKey.get(key);
+            if (complete || entry == null || entry.status.isFinal()) return false;
+            entry.status = status;
+            entry.repliedAtMillis = repliedAtMillis;
+            entry.latitude = lat;
+            entry.longitude = lon;
+            entry.mapUrl = mapUrl;
+            entry.error = error;
+            open--;
+            done = maybeComplete(nowMillis);
+        }
+        listener.onProgress(this, entry);
+        if (done) listener.onComplete(this);
+        return true;
+    }
+
+    // guarded by this
+    private boolean maybeComplete(long nowMillis) {
+        if (complete || !started || open > 0) return false;
+        complete = true;
+        completedAtMillis = Math.max(nowMillis, startedAtMillis);
+        return true;
+    }
+}
@@ -0,0 +1,316 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodic automatic check-ins (see ScheduledCheckIns): when each sister's check code is due,
+ * which checks still wait for a reply, and when missed replies are escalated.
+ * - wakes sit on a {@link #WINDOW_MS} grid, each window shifted by a jitter of up to
+ *   {@link #MAX_JITTER_MS} (per install and window, so phones do not all wake on the hour);
+ *   a check may run up to half a window early and goes on the first wake after that, so every
+ *   check falling in the same window shares one wake instead of waking the device once each
+ * - a check with no reply from the sister within its reply timeout is missed; when the misses in
+ *   a row reach the sister's escalateAfter an Escalation is raised, and again on every further
+ *   miss; any message recorded from her since the latest check counts as its reply
+ * - {@link #toJson} / {@link #restore} keep the state across process deaths
+ * Pure Java, not thread-safe: the caller runs it on one thread.
+ */
+public final class CheckInSchedule {
+    public static final long WINDOW_MS = 15 * 60_000;
+    public static final long MAX_JITTER_MS = 3 * 60_000;
+    public static final long MIN_INTERVAL_MS = WINDOW_MS;
+    public static final long DEFAULT_REPLY_TIMEOUT_MS = 10 * 60_000;
+    public static final int DEFAULT_ESCALATE_AFTER = 2;
+    static final long EARLY_MS = WINDOW_MS / 2;
+    static final long CLOCK_SKEW_MS = 60_000; // reply timestamps come from the network's clock
+
+    /** A sister with automatic check-ins configured. */
+    public static final class Sister {
+        public final String phone;
+        public final String key;
+        public final String name;
+        public final String code;
+        public final long intervalMillis;
+        public final int escalateAfter;
+
+        public Sister(String phone, String name, String code, long intervalMillis, int escalateAfter) {
+            this.phone = phone;
+            this.key = PhoneNumbers.normalize(phone);
+            this.name = name != null && name.length() > 0 ? name : phone;
+            this.code = code;
+            this.intervalMillis = Math.max(MIN_INTERVAL_MS, intervalMillis);
+            this.escalateAfter = Math.max(1, escalateAfter);
+        }
+    }
+
+    /** A check code to send now. */
+    public static final class Check {
+        public final String phone;
+        public final String code;
+
+        Check(String phone, String code) {
+            this.phone = phone;
+            this.code = code;
+        }
+    }
+
+    /** {@code missed} check-ins in a row went unanswered. */
+    public static final class Escalation {
+        public final String phone;
+        public final String name;
+        public final int missed;
+        /** Last message from her (ms), 0 if none since the schedule started. */
+        public final long lastReplyAtMillis;
+
+        Escalation(String phone, String name, int missed, long lastReplyAtMillis) {
+            this.phone = phone;
+            this.name = name;
+            this.missed = missed;
+            this.lastReplyAtMillis = lastReplyAtMillis;
+        }
+
+        public String message() {
+            return name + " has not answered " + missed + " check-ins in a row";
+        }
+    }
+
+    /** What one wake produced. */
+    public static final class Tick {
+        public final List<Check> checks;
+        public final List<Escalation> escalations;
+        /** Next wake (ms), Long.MAX_VALUE when nothing is scheduled. */
+        public final long nextWakeAtMillis;
+
+        Tick(List<Check> checks, List<Escalation> escalations, long nextWakeAtMillis) {
+            this.checks = checks;
+            this.escalations = escalations;
+            this.nextWakeAtMillis = nextWakeAtMillis;
+        }
+    }
+
+    /** Schedule state of one sister. */
+    public static final class Status {
+        public final String phone;
+        public final String name;
+        public final long nextDueAtMillis;
+        /** Send time of the check awaiting a reply, 0 if none. */
+        public final long awaitingSinceMillis;
+        public final int missed;
+        public final long lastReplyAtMillis;
+
+        Status(State s) {
+            this.phone = s.sister.phone;
+            this.name = s.sister.name;
+            this.nextDueAtMillis = s.nextDueAt;
+            this.awaitingSinceMillis = s.awaiting ? s.lastCheckAt : 0;
+            this.missed = s.missed;
+            this.lastReplyAtMillis = s.lastReplyAt;
+        }
+    }
+
+    private static final class State {
+        Sister sister;      // null for restored state not (yet) configured
+        long nextDueAt;
+        long lastCheckAt;   // send time of the latest check, 0 = none yet
+        boolean awaiting;   // its reply has neither arrived nor timed out
+        long replyDeadline;
+        int missed;
+        long lastReplyAt;
+    }
+
+    private final long jitterSeed;
+    private final Map<String, State> byKey = new LinkedHashMap<>();
+
+    /** @param jitterSeed per-install value that places the wakes inside their windows */
+    public CheckInSchedule(long jitterSeed) {
+        this.jitterSeed = jitterSeed;
+    }
+
+    public long getJitterSeed() {
+        return jitterSeed;
+    }
+
+    public boolean isEmpty() {
+        for (State s : byKey.values()) if (s.sister != null) return false;
+        return true;
+    }
+
+    /**
+     * Replace the configured sisters. State of sisters still configured is kept; a new sister's
+     * first check is due one interval from now, a shortened interval applies from now.
+     */
+    public void configure(List<Sister> sisters, long nowMillis) {
+        Map<String, Sister> wanted = new LinkedHashMap<>();
+        for (Sister s : sisters) if (s.key.length() > 0) wanted.put(s.key, s);
+        for (Iterator<Map.Entry<String, State>> it = byKey.entrySet().iterator(); it.hasNext(); ) {
+            if (!wanted.containsKey(it.next().getKey())) it.remove();
+        }
+        for (Sister sister : wanted.values()) {
+            State state = byKey.get(sister.key);
+            if (state == null) {
+                state = new State();
+                byKey.put(sister.key, state);
+            }
+            if (state.nextDueAt == 0) state.nextDueAt = nowMillis + sister.intervalMillis;
+            else state.nextDueAt = Math.min(state.nextDueAt, nowMillis + sister.intervalMillis);
+            state.sister = sister;
+        }
+    }
+
+    /**
+     * Wake at {@code nowMillis}: settle expired reply waits (escalating where due) and start the
+     * checks due before the next wake.
+     */
+    public Tick tick(long nowMillis) {
+        List<Check> checks = new ArrayList<>();
+        List<Escalation> escalations = new ArrayList<>();
+        for (State s : byKey.values()) {
+            Sister sister = s.sister;
+            if (sister == null) continue;
+            if (s.awaiting && nowMillis >= s.replyDeadline) {
+                s.awaiting = false;
+                s.missed++;
+                if (s.missed >= sister.escalateAfter) {
+                    escalations.add(new Escalation(sister.phone, sister.name, s.missed, s.lastReplyAt));
+                }
+            }
+            // due on this wake (or an earlier one, when the alarm came late): same grid as nextWakeAt
+            if (!s.awaiting && wakeAtOrAfter(s.nextDueAt - EARLY_MS) <= nowMillis) {
+                checks.add(new Check(sister.phone, sister.code));
+                s.awaiting = true;
+                s.lastCheckAt = nowMillis;
+                s.nextDueAt = nowMillis + sister.intervalMillis;
+                s.replyDeadline = nowMillis + Math.min(DEFAULT_REPLY_TIMEOUT_MS, sister.intervalMillis);
+            }
+        }
+        return new Tick(checks, escalations, nextWakeAt());
+    }
+
+    /**
+     * A message from the sister with {@code key} (phone digits) was recorded at
+     * {@code timestampMillis}. Returns true when it answered the latest check (clearing the
+     * misses); a message older than that check only updates the last-heard time.
+     */
+    public boolean onReply(String key, long timestampMillis) {
+        State s = byKey.get(key);
+        if (s == null || s.sister == null) return false;
+        s.lastReplyAt = Math.max(s.lastReplyAt, timestampMillis);
+        if (timestampMillis < s.lastCheckAt - CLOCK_SKEW_MS || (!s.awaiting && s.missed == 0)) return false;
+        s.awaiting = false;
+        s.missed = 0;
+        return true;
+    }
+
+    /** Next wake needed (ms), Long.MAX_VALUE when nothing is scheduled. */
+    public long nextWakeAt() {
+        long wake = Long.MAX_VALUE;
+        for (State s : byKey.values()) {
+            if (s.sister == null) continue;
+            // a check can run early, a missed-reply decision must wait for its deadline
+            long at = s.awaiting ? wakeAtOrAfter(s.replyDeadline) : wakeAtOrAfter(s.nextDueAt - EARLY_MS);
+            wake = Math.min(wake, at);
+        }
+        return wake;
+    }
+
+    public List<Status> status() {
+        List<Status> out = new ArrayList<>(byKey.size());
+        for (State s : byKey.values()) if (s.sister != null) out.add(new Status(s));
+        return Collections.unmodifiableList(out);
+    }
+
+    // first grid wake (window start + that window's jitter) at or after `t`
+    long wakeAtOrAfter(long t) {
+        long window = Math.floorDiv(t, WINDOW_MS);
+        long at = window * WINDOW_MS + jitter(window);
+        if (at < t) at = (window + 1) * WINDOW_MS + jitter(window + 1);
+        return at;
+    }
+
+    private long jitter(long window) {
+        long h = (window ^ jitterSeed) * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 31;
+        return Math.floorMod(h, MAX_JITTER_MS);
+    }
+
+    /**
+     * Sisters with check-ins from a sister_list JSON array (format: SisterSettingsModule):
+     * [{"phone":"+9198765","name":"Asha","code":"SIS","checkInMinutes":60,"escalateAfter":2}, ...]
+     * Entries without a code or checkInMinutes are not scheduled.
+     */
+    public static List<Sister> sistersFromJson(String sisterList) throws JSONException {
+        List<Sister> out = new ArrayList<>();
+        if (sisterList == null || sisterList.length() == 0) return out;
+        JSONArray arr = new JSONArray(sisterList);
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject obj = arr.optJSONObject(i);
+            if (obj == null) continue;
+            String code = obj.optString("code", "").trim();
+            long minutes = obj.optLong("checkInMinutes", 0);
+            String phone = obj.optString("phone", "");
+            if (code.length() == 0 || minutes <= 0 || PhoneNumbers.normalize(phone).length() == 0) continue;
+            out.add(new Sister(phone, obj.optString("name", ""), code, minutes * 60_000,
+                    obj.optInt("escalateAfter", DEFAULT_ESCALATE_AFTER)));
+        }
+        return out;
+    }
+
+    /** {"seed":..,"sisters":{"<digits>":{"next":..,"lastCheck":..,"awaiting":..,"deadline":..,"missed":..,"lastReply":..}}} */
+    public String toJson() throws JSONException {
+        JSONObject sisters = new JSONObject();
+        for (Map.Entry<String, State> e : byKey.entrySet()) {
+            State s = e.getValue();
+            JSONObject o = new JSONObject();
+            o.put("next", s.nextDueAt);
+            o.put("lastCheck", s.lastCheckAt);
+            o.put("awaiting", s.awaiting);
+            o.put("deadline", s.replyDeadline);
+            o.put("missed", s.missed);
+            o.put("lastReply", s.lastReplyAt);
+            sisters.put(e.getKey(), o);
+        }
+        JSONObject out = new JSONObject();
+        out.put("seed", jitterSeed);
+        out.put("sisters", sisters);
+        return out.toString();
+    }
+
+    /**
+     * Schedule with the state saved by {@link #toJson} (a new one with {@code defaultSeed} when
+     * {@code json} is null or damaged); {@link #configure} it before use.
+     */
+    public static CheckInSchedule restore(String json, long defaultSeed) {
+        if (json == null) return new CheckInSchedule(defaultSeed);
+        try {
+            JSONObject obj = new JSONObject(json);
+            CheckInSchedule schedule = new CheckInSchedule(obj.optLong("seed", defaultSeed));
+            JSONObject sisters = obj.optJSONObject("sisters");
+            if (sisters == null) return schedule;
+            for (Iterator<String> it = sisters.keys(); it.hasNext(); ) {
+                String key = it.next();
+                JSONObject o = sisters.optJSONObject(key);
+                if (o == null) continue;
+                State s = new State();
+                s.nextDueAt = o.optLong("next", 0);
+                s.lastCheckAt = o.optLong("lastCheck", 0);
+                s.awaiting = o.optBoolean("awaiting", false);
+                s.replyDeadline = o.optLong("deadline", 0);
+                s.missed = o.optInt("missed", 0);
+                s.lastReplyAt = o.optLong("lastReply", 0);
+                schedule.byKey.put(key, s);
+            }
+            return schedule;
+        } catch (JSONException e) {
+            return new CheckInSchedule(defaultSeed);
+        }
+    }
+}
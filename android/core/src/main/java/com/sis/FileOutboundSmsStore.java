@@ -0,0 +1,88 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * OutboundSmsStore backed by one small JSON file in the app's files dir.
+ * The queue is short (messages leave it once delivered), so every save rewrites the whole file:
+ * written to a temp file, synced, then renamed over the old one.
+ */
+final class FileOutboundSmsStore implements OutboundSmsStore {
+    static final String FILE_NAME = "sms_outbox.json";
+
+    private final File file;
+
+    FileOutboundSmsStore(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public List<OutboundSms> load() throws Exception {
+        List<OutboundSms> out = new ArrayList<>();
+        if (!file.exists()) return out;
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int n = 0;
+            while (n < bytes.length) {
+                int r = in.read(bytes, n, bytes.length - n);
+                if (r < 0) break;
+                n += r;
+            }
+        }
+        JSONArray arr = new JSONArray(new String(bytes, StandardCharsets.UTF_8));
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject o = arr.getJSONObject(i);
+            OutboundSms sms = new OutboundSms(o.getLong("id"), o.getString("to"), o.getString("body"),
+                    o.getLong("enqueuedAt"));
+            sms.state = OutboundSms.State.valueOf(o.optString("state", OutboundSms.State.QUEUED.name()));
+            sms.attempts = o.optInt("attempts", 0);
+            sms.nextAttemptAtMillis = o.optLong("nextAttemptAt", sms.enqueuedAtMillis);
+            sms.sentAtMillis = o.optLong("sentAt", 0);
+            sms.deliveryDeadlineMillis = o.optLong("deliveryDeadline", 0);
+            sms.partsTotal = o.optInt("partsTotal", 0);
+            sms.partsSent = o.optInt("partsSent", 0);
+            sms.partsDelivered = o.optInt("partsDelivered", 0);
+            sms.lastError = o.has("lastError") ? o.getString("lastError") : null;
+            out.add(sms);
+        }
+        return out;
+    }
+
+    @Override
+    public void save(List<OutboundSms> pending) throws Exception {
+        JSONArray arr = new JSONArray();
+        for (OutboundSms sms : pending) {
+            JSONObject o = new JSONObject();
+            o.put("id", sms.id);
+            o.put("to", sms.to);
+            o.put("body", sms.body);
+            o.put("enqueuedAt", sms.enqueuedAtMillis);
+            o.put("state", sms.state.name());
+            o.put("attempts", sms.attempts);
+            o.put("nextAttemptAt", sms.nextAttemptAtMillis);
+            o.put("sentAt", sms.sentAtMillis);
+            o.put("deliveryDeadline", sms.deliveryDeadlineMillis);
+            o.put("partsTotal", sms.partsTotal);
+            o.put("partsSent", sms.partsSent);
+            o.put("partsDelivered", sms.partsDelivered);
+            if (sms.lastError != null) o.put("lastError", sms.lastError);
+            arr.put(o);
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(arr.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) throw new IOException("Renaming " + tmp + " failed");
+    }
+}
@@ -0,0 +1,50 @@
+package com.sis;
+
+/**
+ * A safe zone: circle of {@link #radiusMeters} around a point. Arrivals and departures are
+ * reported by SMS to {@link #phone}, the trusted contact the zone belongs to (see GeofenceMonitor).
+ */
+public final class Geofence {
+    public static final double MIN_RADIUS_M = 50;
+    public static final double MAX_RADIUS_M = 20_000;
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    /** Stable id (state is kept by id across list changes). */
+    public final String id;
+    public final String phone;
+    public final String name;
+    public final double latitude;
+    public final double longitude;
+    public final double radiusMeters;
+    /** Time a new state must hold before it is reported, or -1 for the monitor's default. */
+    public final long dwellMillis;
+
+    /** @param radiusMeters clamped to [{@link #MIN_RADIUS_M}, {@link #MAX_RADIUS_M}] */
+    public Geofence(String id, String phone, String name, double latitude, double longitude,
+                    double radiusMeters, long dwellMillis) {
+        this.id = id;
+        this.phone = phone;
+        this.name = name != null ? name : "";
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.radiusMeters = Math.max(MIN_RADIUS_M, Math.min(MAX_RADIUS_M, radiusMeters));
+        this.dwellMillis = dwellMillis;
+    }
+
+    /** Great-circle distance from the centre, in metres. */
+    public double distanceMeters(double lat, double lon) {
+        double lat1 = Math.toRadians(latitude);
+        double lat2 = Math.toRadians(lat);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(lon - longitude);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    @Override
+    public String toString() {
+        return "Geofence{" + id + " " + latitude + "," + longitude + " r=" + radiusMeters + "m}";
+    }
+}
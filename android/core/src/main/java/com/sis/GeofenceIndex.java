@@ -0,0 +1,186 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable uniform-grid index over the configured safe zones.
+ * - the globe is cut into {@link #CELL_DEG} x {@link #CELL_DEG} degree cells; every zone is listed
+ *   in each cell its circle, grown by {@link #MAX_MARGIN_M}, touches
+ * - {@link #candidates} is one hash probe: a fix is farther than radius + MAX_MARGIN_M from every
+ *   zone not listed in its cell, so only a handful of distances are computed per fix however
+ *   many zones there are
+ * Lookups do not allocate; build once per list change.
+ */
+public final class GeofenceIndex {
+    public static final GeofenceIndex EMPTY = new Builder().build();
+    static final double CELL_DEG = 0.05;
+    /** Widest hysteresis margin the monitor may use; also the index's reach beyond each radius. */
+    public static final double MAX_MARGIN_M = 1_000;
+
+    private static final int LAT_CELLS = (int) Math.round(180 / CELL_DEG);
+    private static final int LON_CELLS = (int) Math.round(360 / CELL_DEG);
+    private static final double METERS_PER_DEG = 111_320;
+    private static final int[] NONE = new int[0];
+
+    private final Geofence[] fences;
+    // open addressing: cell key -> indexes of the zones listed in the cell
+    private final int[] keys;
+    private final int[][] cells;
+    private final int mask;
+
+    private GeofenceIndex(Geofence[] fences, int[] keys, int[][] cells) {
+        this.fences = fences;
+        this.keys = keys;
+        this.cells = cells;
+        this.mask = keys.length - 1;
+    }
+
+    public int size() {
+        return fences.length;
+    }
+
+    public boolean isEmpty() {
+        return fences.length == 0;
+    }
+
+    public Geofence get(int index) {
+        return fences[index];
+    }
+
+    /** Index of the zone with {@code id}, or -1. */
+    public int indexOf(String id) {
+        for (int i = 0; i < fences.length; i++) {
+            if (fences[i].id.equals(id)) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Indexes of the zones that may be within radius + {@link #MAX_MARGIN_M} of the point. The
+     * array is shared: do not modify it.
+     */
+    public int[] candidates(double lat, double lon) {
+        if (fences.length == 0 || Double.isNaN(lat) || Double.isNaN(lon)) return NONE;
+        int key = cellKey(cellY(lat), cellX(lon));
+        for (int slot = mix(key) & mask; ; slot = (slot + 1) & mask) {
+            int k = keys[slot];
+            if (k == key) return cells[slot];
+            if (k == -1) return NONE;
+        }
+    }
+
+    /**
+     * Index of a stored zone list: JSON array string of
+     * { id, phone, name, latitude, longitude, radius (m), dwellSeconds } (null or empty: none).
+     * Entries without a phone or coordinates are skipped; a missing id becomes phone digits + "/" + name.
+     */
+    public static GeofenceIndex fromJson(String jsonList) throws JSONException {
+        if (jsonList == null || jsonList.length() == 0) return EMPTY;
+        JSONArray arr = new JSONArray(jsonList);
+        Builder builder = new Builder();
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject o = arr.optJSONObject(i);
+            if (o == null) continue;
+            String phone = o.optString("phone", "").trim();
+            double lat = o.optDouble("latitude", Double.NaN);
+            double lon = o.optDouble("longitude", Double.NaN);
+            if (PhoneNumbers.normalize(phone).length() == 0 || !(Math.abs(lat) <= 90) || !(Math.abs(lon) <= 180)) {
+                continue;
+            }
+            String name = o.optString("name", "").trim();
+            String id = o.optString("id", "").trim();
+            if (id.length() == 0) id = PhoneNumbers.normalize(phone) + "/" + name;
+            long dwellSeconds = o.optLong("dwellSeconds", -1);
+            builder.add(new Geofence(id, phone, name, lat, lon, o.optDouble("radius", 200),
+                    dwellSeconds >= 0 ? dwellSeconds * 1000 : -1));
+        }
+        return builder.build();
+    }
+
+    static int cellY(double lat) {
+        return Math.max(0, Math.min(LAT_CELLS - 1, (int) Math.floor((lat + 90) / CELL_DEG)));
+    }
+
+    static int cellX(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180) / CELL_DEG), LON_CELLS);
+    }
+
+    private static int cellKey(int y, int x) {
+        return y * LON_CELLS + x;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Collects zones in list order; a zone whose id is already listed is ignored. */
+    public static final class Builder {
+        private final List<Geofence> fences = new ArrayList<>();
+        private final Set<String> ids = new HashSet<>();
+
+        public Builder add(Geofence fence) {
+            if (fence == null || fence.id == null || !ids.add(fence.id)) return this;
+            fences.add(fence);
+            return this;
+        }
+
+        public GeofenceIndex build() {
+            Map<Integer, List<Integer>> byCell = new LinkedHashMap<>();
+            for (int i = 0; i < fences.size(); i++) cover(fences.get(i), i, byCell);
+
+            int capacity = Integer.highestOneBit(Math.max(1, byCell.size()) * 2) << 1;
+            int[] keys = new int[capacity];
+            int[][] cells = new int[capacity][];
+            Arrays.fill(keys, -1);
+            int mask = capacity - 1;
+            for (Map.Entry<Integer, List<Integer>> e : byCell.entrySet()) {
+                int key = e.getKey();
+                int slot = mix(key) & mask;
+                while (keys[slot] != -1) slot = (slot + 1) & mask;
+                keys[slot] = key;
+                List<Integer> list = e.getValue();
+                int[] ids = new int[list.size()];
+                for (int j = 0; j < ids.length; j++) ids[j] = list.get(j);
+                cells[slot] = ids;
+            }
+            return new GeofenceIndex(fences.toArray(new Geofence[0]), keys, cells);
+        }
+
+        // every cell the zone's bounding box (radius + MAX_MARGIN_M) overlaps
+        private static void cover(Geofence fence, int index, Map<Integer, List<Integer>> byCell) {
+            double reachDeg = (fence.radiusMeters + MAX_MARGIN_M) / METERS_PER_DEG;
+            int y0 = cellY(fence.latitude - reachDeg);
+            int y1 = cellY(fence.latitude + reachDeg);
+            // longitude degrees are shortest at the box edge nearest the pole
+            double poleward = Math.min(90, Math.abs(fence.latitude) + reachDeg);
+            double cos = Math.cos(Math.toRadians(poleward));
+            double lonReachDeg = cos > 0.01 ? reachDeg / cos : 180;
+            int xCount = lonReachDeg >= 180 ? LON_CELLS
+                    : Math.min(LON_CELLS, (int) Math.floor((fence.longitude + lonReachDeg + 180) / CELL_DEG)
+                    - (int) Math.floor((fence.longitude - lonReachDeg + 180) / CELL_DEG) + 1);
+            int x0 = lonReachDeg >= 180 ? 0 : cellX(fence.longitude - lonReachDeg);
+            for (int y = y0; y <= y1; y++) {
+                for (int dx = 0; dx < xCount; dx++) {
+                    int key = cellKey(y, (x0 + dx) % LON_CELLS);
+                    List<Integer> list = byCell.get(key);
+                    if (list == null) {
+                        list = new ArrayList<>(2);
+                        byCell.put(key, list);
+                    }
+                    list.add(index);
+                }
+            }
+        }
+    }
+}
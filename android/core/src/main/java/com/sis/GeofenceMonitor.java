@@ -0,0 +1,209 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Arrival / departure detection over a GeofenceIndex, one fix at a time.
+ * - a fix is inside a zone within its radius and outside beyond radius + margin, where the
+ *   margin is the fix accuracy (at least {@link #MIN_HYSTERESIS_M}); in between it says nothing,
+ *   so a position jittering on the boundary does not flap
+ * - a changed state is reported only once it has held for the zone's dwell time
+ *   ({@link #DEFAULT_DWELL_MS} unless the zone sets one), measured in fix time
+ * - the first fix for a zone (the first fix at all, or a zone added later) sets its state
+ *   silently: no alert for where the phone already is
+ * - fixes less accurate than GeofenceIndex.MAX_MARGIN_M are ignored
+ * - {@link #insideIds} / {@link #outsideIds} / {@link #restore} carry the settled states across
+ *   process restarts; {@link #stateChanges} tells the caller when they need saving, silent
+ *   first-fix settles included
+ * Per fix only the index candidates and the zones currently inside or pending are looked at.
+ * Pure Java, not thread-safe.
+ */
+public final class GeofenceMonitor {
+    static final double MIN_HYSTERESIS_M = 50;
+    public static final long DEFAULT_DWELL_MS = 2 * 60_000;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte INSIDE = 1;
+    private static final byte OUTSIDE = 2;
+    private static final byte NO_EVIDENCE = 3;
+
+    /** One reported state change. */
+    public static final class Transition {
+        public final Geofence fence;
+        public final boolean arrived;
+        public final LocationFix fix;
+
+        Transition(Geofence fence, boolean arrived, LocationFix fix) {
+            this.fence = fence;
+            this.arrived = arrived;
+            this.fix = fix;
+        }
+
+        /** SMS text for the zone's contact. */
+        public String message() {
+            String zone = fence.name.length() > 0 ? fence.name : "safe zone";
+            return (arrived ? "Arrived at " : "Left ") + zone + ": "
+                    + ParsedLocation.mapUrlOf(fix.getLatitude(), fix.getLongitude());
+        }
+    }
+
+    private GeofenceIndex index = GeofenceIndex.EMPTY;
+    private byte[] state = new byte[0];
+    private byte[] pending = new byte[0];     // state waiting out its dwell, or UNKNOWN
+    private long[] pendingSince = new long[0];
+    private int[] seen = new int[0];          // epoch of the last fix that looked at the zone
+    private int epoch;
+    private int[] active = new int[0];        // zones inside, pending or unknown
+    private int activeCount;
+    private int[] spare = new int[0];         // next fix's active list
+    private long changes;
+
+    public GeofenceIndex getIndex() {
+        return index;
+    }
+
+    /** Switch to a new zone list; zones kept (same id) keep their state, new ones start unknown. */
+    public void setIndex(GeofenceIndex next) {
+        byte[] nextState = new byte[next.size()];
+        byte[] nextPending = new byte[next.size()];
+        long[] nextSince = new long[next.size()];
+        int[] nextActive = new int[next.size()];
+        int nextCount = 0;
+        for (int i = 0; i < next.size(); i++) {
+            int old = index.indexOf(next.get(i).id);
+            if (old >= 0) {
+                nextState[i] = state[old];
+                nextPending[i] = pending[old];
+                nextSince[i] = pendingSince[old];
+            }
+            if (isActive(nextState[i], nextPending[i])) nextActive[nextCount++] = i;
+        }
+        index = next;
+        state = nextState;
+        pending = nextPending;
+        pendingSince = nextSince;
+        seen = new int[next.size()];
+        active = nextActive;
+        activeCount = nextCount;
+        spare = new int[next.size()];
+    }
+
+    /** Ids of the zones the phone is in (for persisting across process restarts). */
+    public List<String> insideIds() {
+        List<String> ids = new ArrayList<>();
+        for (int k = 0; k < activeCount; k++) {
+            if (state[active[k]] == INSIDE) ids.add(index.get(active[k]).id);
+        }
+        return ids;
+    }
+
+    /** Ids of the zones the phone is known to be out of. */
+    public List<String> outsideIds() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < state.length; i++) {
+            if (state[i] == OUTSIDE) ids.add(index.get(i).id);
+        }
+        return ids;
+    }
+
+    /**
+     * Resume from {@link #insideIds} and {@link #outsideIds} of an earlier run. Zones in neither
+     * (never settled, or added since) stay unknown, so their first fix is silent again.
+     */
+    public void restore(Collection<String> insideIds, Collection<String> outsideIds) {
+        Arrays.fill(state, UNKNOWN);
+        Arrays.fill(pending, UNKNOWN);
+        for (String id : outsideIds) {
+            int i = index.indexOf(id);
+            if (i >= 0) state[i] = OUTSIDE;
+        }
+        for (String id : insideIds) {
+            int i = index.indexOf(id);
+            if (i >= 0) state[i] = INSIDE;
+        }
+        activeCount = 0;
+        for (int i = 0; i < state.length; i++) {
+            if (isActive(state[i], pending[i])) active[activeCount++] = i;
+        }
+    }
+
+    /** Count of settled state changes so far (reported or silent); a caller saves when it moved. */
+    public long stateChanges() {
+        return changes;
+    }
+
+    /** Evaluate one fix; the state changes it completes (usually none). */
+    public List<Transition> onFix(LocationFix fix) {
+        if (fix == null || index.isEmpty()) return Collections.emptyList();
+        float accuracy = fix.getAccuracyMeters();
+        if (accuracy > GeofenceIndex.MAX_MARGIN_M) return Collections.emptyList();
+        double margin = Float.isNaN(accuracy) ? MIN_HYSTERESIS_M : Math.max(MIN_HYSTERESIS_M, accuracy);
+        long start = SmsMetrics.start();
+
+        if (++epoch == 0) {
+            Arrays.fill(seen, 0);
+            epoch = 1;
+        }
+        List<Transition> out = null;
+        int[] previous = active;
+        int previousCount = activeCount;
+        int[] next = spare;
+        int nextCount = 0;
+        for (int i : index.candidates(fix.getLatitude(), fix.getLongitude())) {
+            seen[i] = epoch;
+            out = update(i, evidence(i, fix, margin), fix, out);
+            if (isActive(state[i], pending[i])) next[nextCount++] = i;
+        }
+        for (int k = 0; k < previousCount; k++) {
+            int i = previous[k];
+            if (seen[i] == epoch) continue;
+            // not a candidate: farther than radius + MAX_MARGIN_M
+            out = update(i, OUTSIDE, fix, out);
+            if (isActive(state[i], pending[i])) next[nextCount++] = i;
+        }
+        spare = previous;
+        active = next;
+        activeCount = nextCount;
+        SmsMetrics.since(SmsMetrics.Stage.GEOFENCE, start);
+        return out != null ? out : Collections.<Transition>emptyList();
+    }
+
+    private byte evidence(int i, LocationFix fix, double margin) {
+        Geofence fence = index.get(i);
+        double d = fence.distanceMeters(fix.getLatitude(), fix.getLongitude());
+        if (d <= fence.radiusMeters) return INSIDE;
+        if (d > fence.radiusMeters + margin) return OUTSIDE;
+        return NO_EVIDENCE;
+    }
+
+    private List<Transition> update(int i, byte evidence, LocationFix fix, List<Transition> out) {
+        if (evidence == NO_EVIDENCE) return out;
+        if (state[i] == UNKNOWN || evidence == state[i]) {
+            if (state[i] != evidence) changes++;
+            state[i] = evidence;
+            pending[i] = UNKNOWN;
+            return out;
+        }
+        if (pending[i] != evidence) {
+            pending[i] = evidence;
+            pendingSince[i] = fix.getTimeMillis();
+        }
+        Geofence fence = index.get(i);
+        long dwell = fence.dwellMillis >= 0 ? fence.dwellMillis : DEFAULT_DWELL_MS;
+        if (fix.getTimeMillis() - pendingSince[i] < dwell) return out;
+        state[i] = evidence;
+        pending[i] = UNKNOWN;
+        changes++;
+        if (out == null) out = new ArrayList<>(2);
+        out.add(new Transition(fence, evidence == INSIDE, fix));
+        return out;
+    }
+
+    private static boolean isActive(byte state, byte pending) {
+        return state != OUTSIDE || pending != UNKNOWN;
+    }
+}
@@ -0,0 +1,179 @@
+package com.sis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recently handled inbound messages, so a carrier retransmission or a repeated broadcast of the
+ * same SMS is handled once (one GPS fix and reply, one prefs write, one JS emit).
+ * - a message is its fingerprint: 64-bit FNV-1a of the sender's digits, the body and the
+ *   service-centre timestamp (a repeated PDU keeps its timestamp; a contact sending the same
+ *   keyword again gets a new one and is answered again)
+ * - fixed memory: {@code capacity} slots in 4-way sets, so a lookup probes at most four slots;
+ *   a full set drops its oldest entry, entries older than the window are treated as empty
+ * - persisted as a small binary file (magic, window, then fingerprint/time pairs) by
+ *   {@link #save}, reloaded by {@link #load}; a missing or damaged file starts empty
+ * Thread-safe.
+ */
+public final class InboundDedup {
+    static final String FILE_NAME = "inbound_dedup.bin";
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long DEFAULT_WINDOW_MS = 15 * 60_000;
+    private static final int WAYS = 4;
+    private static final int MAGIC = 0x53444431; // "SDD1"
+
+    private final long windowMillis;
+    private final long[] fingerprints; // 0 = empty
+    private final long[] seenAt;
+    private final int setMask;
+    private final AtomicLong suppressed = new AtomicLong();
+    private boolean dirty;             // guarded by this
+
+    /** @param capacity slots, rounded up to a power of two (at least {@value #WAYS}) */
+    public InboundDedup(int capacity, long windowMillis) {
+        int slots = Integer.highestOneBit(Math.max(WAYS, capacity - 1) << 1);
+        this.windowMillis = windowMillis;
+        this.fingerprints = new long[slots];
+        this.seenAt = new long[slots];
+        this.setMask = slots / WAYS - 1;
+    }
+
+    /**
+     * True when {@code sms} was not seen within the window (it is recorded now), false for a
+     * duplicate (counted, see {@link #suppressedCount}).
+     */
+    public boolean firstSeen(InboundSms sms, long nowMillis) {
+        long fp = fingerprint(sms);
+        int base = (int) (mix(fp) & setMask) * WAYS;
+        synchronized (this) {
+            int victim = base;
+            for (int i = base; i < base + WAYS; i++) {
+                if (fingerprints[i] == fp && nowMillis - seenAt[i] < windowMillis) {
+                    suppressed.incrementAndGet();
+                    return false;
+                }
+                if (seenAt[i] < seenAt[victim]) victim = i;
+            }
+            fingerprints[victim] = fp;
+            seenAt[victim] = nowMillis;
+            dirty = true;
+        }
+        return true;
+    }
+
+    /** Duplicates rejected since this instance was created (loaded). */
+    public long suppressedCount() {
+        return suppressed.get();
+    }
+
+    /** Fingerprint of one logical message (never 0). */
+    static long fingerprint(InboundSms sms) {
+        long h = 0xcbf29ce484222325L;
+        String sender = sms.getSender();
+        if (sender != null) {
+            for (int i = 0, n = sender.length(); i < n; i++) {
+                char c = sender.charAt(i);
+                if (PhoneNumbers.isDigit(c)) h = (h ^ c) * 0x100000001b3L;
+            }
+        }
+        h = (h ^ 0xff) * 0x100000001b3L; // separator
+        String body = sms.getBody();
+        for (int i = 0, n = body.length(); i < n; i++) {
+            char c = body.charAt(i);
+            h = (h ^ (c & 0xff)) * 0x100000001b3L;
+            h = (h ^ (c >>> 8)) * 0x100000001b3L;
+        }
+        long ts = sms.getTimestampMillis();
+        for (int shift = 0; shift < 64; shift += 8) h = (h ^ ((ts >>> shift) & 0xff)) * 0x100000001b3L;
+        return h != 0 ? h : 1;
+    }
+
+    private static long mix(long fp) {
+        return fp ^ (fp >>> 29) ^ (fp >>> 47);
+    }
+
+    /**
+     * Write entries still inside the window at {@code nowMillis} to {@code file} (temp file +
+     * rename) if anything changed since the last save or load.
+     */
+    public void save(File file, long nowMillis) throws IOException {
+        long[] fps;
+        long[] times;
+        synchronized (this) {
+            if (!dirty) return;
+            fps = fingerprints.clone();
+            times = seenAt.clone();
+            dirty = false;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(MAGIC);
+            out.writeLong(windowMillis);
+            int live = 0;
+            for (int i = 0; i < fps.length; i++) {
+                if (fps[i] != 0 && nowMillis - times[i] < windowMillis) live++;
+            }
+            out.writeInt(live);
+            for (int i = 0; i < fps.length; i++) {
+                if (fps[i] == 0 || nowMillis - times[i] >= windowMillis) continue;
+                out.writeLong(fps[i]);
+                out.writeLong(times[i]);
+            }
+            out.flush();
+            fos.getFD().sync();
+        } catch (IOException e) {
+            markDirty();
+            throw e;
+        }
+        if (!tmp.renameTo(file)) {
+            markDirty();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    private synchronized void markDirty() {
+        dirty = true;
+    }
+
+    /** Dedup state saved in {@code file}, or an empty one when it is missing or unreadable. */
+    public static InboundDedup load(File file, int capacity, long windowMillis, long nowMillis) {
+        InboundDedup dedup = new InboundDedup(capacity, windowMillis);
+        if (!file.exists()) return dedup;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) return dedup;
+            in.readLong(); // window the file was written with; entries are re-checked against ours
+            int count = in.readInt();
+            for (int k = 0; k < count; k++) {
+                long fp = in.readLong();
+                long at = in.readLong();
+                if (fp == 0 || nowMillis - at >= windowMillis) continue;
+                dedup.put(fp, at);
+            }
+        } catch (IOException e) {
+            // torn or foreign file: whatever was read so far is kept
+        }
+        return dedup;
+    }
+
+    private synchronized void put(long fp, long at) {
+        int base = (int) (mix(fp) & setMask) * WAYS;
+        int victim = base;
+        for (int i = base; i < base + WAYS; i++) {
+            if (fingerprints[i] == fp) {
+                seenAt[i] = Math.max(seenAt[i], at);
+                return;
+            }
+            if (seenAt[i] < seenAt[victim]) victim = i;
+        }
+        fingerprints[victim] = fp;
+        seenAt[victim] = at;
+    }
+}
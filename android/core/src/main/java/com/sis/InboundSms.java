@@ -0,0 +1,89 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One logical incoming SMS: all PDUs of a (multipart) message from one sender,
+ * decoded and reassembled once by {@link SmsDispatchReceiver}.
+ */
+public final class InboundSms {
+    private final String sender;
+    private final String body;
+    private final long timestampMillis;
+    private final long receivedAtNanos;
+    private final boolean coldStart;
+
+    public InboundSms(String sender, String body, long timestampMillis) {
+        this(sender, body, timestampMillis, 0, false);
+    }
+
+    /**
+     * @param receivedAtNanos SmsMetrics.start() taken when the broadcast arrived (0: not timed)
+     * @param coldStart the process was started to deliver this message
+     */
+    public InboundSms(String sender, String body, long timestampMillis, long receivedAtNanos, boolean coldStart) {
+        this.sender = sender;
+        this.body = body != null ? body : "";
+        this.timestampMillis = timestampMillis;
+        this.receivedAtNanos = receivedAtNanos;
+        this.coldStart = coldStart;
+    }
+
+    /** Originating address as delivered by the network; may be null. */
+    public String getSender() {
+        return sender;
+    }
+
+    /** Full reassembled body, never null. */
+    public String getBody() {
+        return body;
+    }
+
+    /** Service-centre timestamp of the first part. */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getReceivedAtNanos() {
+        return receivedAtNanos;
+    }
+
+    public boolean isColdStart() {
+        return coldStart;
+    }
+
+    /**
+     * Logical messages of one SMS_RECEIVED broadcast from its first {@code count} decoded parts:
+     * parts from the same sender are concatenated in arrival order and keep the first part's
+     * timestamp; senders in order of their first part.
+     */
+    public static List<InboundSms> fromParts(String[] senders, String[] bodies, long[] timestamps, int count,
+                                             long receivedAtNanos, boolean coldStart) {
+        if (count == 0) return Collections.emptyList();
+        if (count == 1) {
+            return Collections.singletonList(new InboundSms(senders[0], bodies[0], timestamps[0],
+                    receivedAtNanos, coldStart));
+        }
+        Map<String, StringBuilder> grouped = new LinkedHashMap<>();
+        Map<String, Long> firstTimestamps = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = grouped.get(senders[i]);
+            if (sb == null) {
+                sb = new StringBuilder();
+                grouped.put(senders[i], sb);
+                firstTimestamps.put(senders[i], timestamps[i]);
+            }
+            if (bodies[i] != null) sb.append(bodies[i]);
+        }
+        List<InboundSms> out = new ArrayList<>(grouped.size());
+        for (Map.Entry<String, StringBuilder> e : grouped.entrySet()) {
+            out.add(new InboundSms(e.getKey(), e.getValue().toString(), firstTimestamps.get(e.getKey()),
+                    receivedAtNanos, coldStart));
+        }
+        return out;
+    }
+}
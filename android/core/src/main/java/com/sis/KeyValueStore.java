@@ -0,0 +1,18 @@
+package com.sis;
+
+import java.util.Map;
+
+/**
+ * Small string key-value storage (SharedPreferences on the device, a map in tests).
+ * Implementations must be thread-safe.
+ */
+public interface KeyValueStore {
+    /** Value stored under {@code key}, or null. */
+    String get(String key);
+
+    /**
+     * Write all {@code entries} in one transaction (for SharedPreferences: one file rewrite).
+     * The map is only read during the call.
+     */
+    void putAll(Map<String, String> entries);
+}
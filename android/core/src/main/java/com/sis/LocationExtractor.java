@@ -0,0 +1,333 @@
+package com.sis;
+
+/**
+ * Single-pass, regex-free location extractor for SMS bodies.
+ *
+ * Recognised formats, in priority order (first format found anywhere in the text wins):
+ * - compact token: SL1:... (see LocationToken), checked before everything else
+ * - query param:  ...?q=lat,lon  /  &q=lat,lon
+ * - at-sign:      ...@lat,lon
+ * - bare pair:    lat,lon  /  lat;lon
+ * - maps embed:   ...!2d<lon>!3d<lat>
+ * - maps link:    maps.google.com, google.com/maps, maps.app.goo.gl, goo.gl/maps
+ *
+ * Results are identical to the old Pattern-based SisterSmsReceiver.tryParseLocation,
+ * including its quirks (a malformed ?q= value or an out-of-range embed yields null
+ * instead of falling through to the next format). Stateless and thread-safe.
+ */
+public final class LocationExtractor {
+
+    private LocationExtractor() {}
+
+    /**
+     * Parse coordinates or a maps link out of {@code text}.
+     * Returns null when nothing location-like is found.
+     */
+    public static ParsedLocation extract(CharSequence text) {
+        if (text == null) return null;
+        ParsedLocation token = LocationToken.find(text);
+        if (token != null) return token;
+        Scan scan = new Scan();
+        scan(text, scan);
+        return resolve(text, scan);
+    }
+
+    /**
+     * Same as {@link #extract}, but when nothing is recognised falls back to the first
+     * http(s) URL in the text, whatever it points to (the receiver's historic behaviour).
+     */
+    public static ParsedLocation extractOrAnyUrl(CharSequence text) {
+        if (text == null) return null;
+        ParsedLocation token = LocationToken.find(text);
+        if (token != null) return token;
+        Scan scan = new Scan();
+        scan(text, scan);
+        ParsedLocation loc = resolve(text, scan);
+        if (loc == null && scan.urlStart >= 0) {
+            loc = ParsedLocation.ofMapUrl(trimUrl(text, scan.urlStart, scan.urlEnd));
+        }
+        return loc;
+    }
+
+    // ---- scanning ----
+
+    /** First hit of each format; group bounds are [start, end) offsets into the text. */
+    private static final class Scan {
+        boolean queryFound;
+        boolean queryValid;
+        double queryLat;
+        double queryLon;
+        int atLat = -1, atLatEnd, atLon, atLonEnd;
+        int pairLat = -1, pairLatEnd, pairLon, pairLonEnd;
+        int embedLon = -1, embedLonEnd, embedLat, embedLatEnd;
+        int urlStart = -1, urlEnd;
+    }
+
+    private static void scan(CharSequence t, Scan s) {
+        final int n = t.length();
+        for (int i = 0; i < n; i++) {
+            char c = t.charAt(i);
+            if (s.queryFound) {
+                // only the URL fallback is still of interest (query value was malformed)
+                if (s.urlStart >= 0) return;
+                if (c == 'h' || c == 'H') matchUrl(t, i, n, s);
+                continue;
+            }
+            switch (c) {
+                case '?':
+                case '&':
+                    if (matchQuery(t, i, n, s) && s.queryValid) return;
+                    break;
+                case '@':
+                    if (s.atLat < 0) matchAt(t, i, n, s);
+                    break;
+                case '!':
+                    if (s.embedLon < 0) matchEmbed(t, i, n, s);
+                    break;
+                case 'h':
+                case 'H':
+                    if (s.urlStart < 0) matchUrl(t, i, n, s);
+                    break;
+                default:
+                    break;
+            }
+            if (s.pairLat < 0 && (c == '-' || isDigit(c))) matchPair(t, i, n, s);
+        }
+    }
+
+    // [?&]q=\s*([-0-9.]+)\s*,\s*([-0-9.]+)   (case-insensitive q)
+    private static boolean matchQuery(CharSequence t, int i, int n, Scan s) {
+        int j = i + 1;
+        if (j + 1 >= n) return false;
+        char q = t.charAt(j);
+        if ((q != 'q' && q != 'Q') || t.charAt(j + 1) != '=') return false;
+        j = skipSpace(t, j + 2, n);
+        int latStart = j;
+        j = skipQueryChars(t, j, n);
+        if (j == latStart) return false;
+        int latEnd = j;
+        j = skipSpace(t, j, n);
+        if (j >= n || t.charAt(j) != ',') return false;
+        j = skipSpace(t, j + 1, n);
+        int lonStart = j;
+        j = skipQueryChars(t, j, n);
+        if (j == lonStart) return false;
+
+        s.queryFound = true;
+        try {
+            s.queryLat = Double.parseDouble(t.subSequence(latStart, latEnd).toString());
+            s.queryLon = Double.parseDouble(t.subSequence(lonStart, j).toString());
+            s.queryValid = isFinite(s.queryLat) && isFinite(s.queryLon);
+        } catch (NumberFormatException e) {
+            s.queryValid = false;
+        }
+        return true;
+    }
+
+    // @\s*(-?\d{1,3}\.\d+)\s*,\s*(-?\d{1,3}\.\d+)
+    private static void matchAt(CharSequence t, int i, int n, Scan s) {
+        int latStart = skipSpace(t, i + 1, n);
+        int latEnd = matchShortDecimal(t, latStart, n);
+        if (latEnd < 0) return;
+        int j = skipSpace(t, latEnd, n);
+        if (j >= n || t.charAt(j) != ',') return;
+        int lonStart = skipSpace(t, j + 1, n);
+        int lonEnd = matchShortDecimal(t, lonStart, n);
+        if (lonEnd < 0) return;
+        s.atLat = latStart;
+        s.atLatEnd = latEnd;
+        s.atLon = lonStart;
+        s.atLonEnd = lonEnd;
+    }
+
+    // (-?\d{1,3}\.\d+)\s*[,;]\s*(-?\d{1,3}\.\d+)
+    private static void matchPair(CharSequence t, int i, int n, Scan s) {
+        int latEnd = matchShortDecimal(t, i, n);
+        if (latEnd < 0) return;
+        int j = skipSpace(t, latEnd, n);
+        if (j >= n) return;
+        char sep = t.charAt(j);
+        if (sep != ',' && sep != ';') return;
+        int lonStart = skipSpace(t, j + 1, n);
+        int lonEnd = matchShortDecimal(t, lonStart, n);
+        if (lonEnd < 0) return;
+        s.pairLat = i;
+        s.pairLatEnd = latEnd;
+        s.pairLon = lonStart;
+        s.pairLonEnd = lonEnd;
+    }
+
+    // !2d(-?\d+\.\d+)!3d(-?\d+\.\d+)
+    private static void matchEmbed(CharSequence t, int i, int n, Scan s) {
+        if (!startsWith(t, i, n, "!2d")) return;
+        int lonStart = i + 3;
+        int lonEnd = matchDecimal(t, lonStart, n);
+        if (lonEnd < 0 || !startsWith(t, lonEnd, n, "!3d")) return;
+        int latStart = lonEnd + 3;
+        int latEnd = matchDecimal(t, latStart, n);
+        if (latEnd < 0) return;
+        s.embedLon = lonStart;
+        s.embedLonEnd = lonEnd;
+        s.embedLat = latStart;
+        s.embedLatEnd = latEnd;
+    }
+
+    // https?://\S+   (case-insensitive scheme)
+    private static void matchUrl(CharSequence t, int i, int n, Scan s) {
+        if (!startsWithIgnoreCase(t, i, n, "http")) return;
+        int j = i + 4;
+        if (j < n && (t.charAt(j) == 's' || t.charAt(j) == 'S')) j++;
+        if (!startsWith(t, j, n, "://")) return;
+        j += 3;
+        int bodyStart = j;
+        while (j < n && !isSpace(t.charAt(j))) j++;
+        if (j == bodyStart) return;
+        s.urlStart = i;
+        s.urlEnd = j;
+    }
+
+    // ---- resolution ----
+
+    private static ParsedLocation resolve(CharSequence t, Scan s) {
+        if (s.queryFound) {
+            return s.queryValid ? ParsedLocation.ofCoordinates(s.queryLat, s.queryLon) : null;
+        }
+        if (s.atLat >= 0) {
+            return ParsedLocation.ofCoordinates(parse(t, s.atLat, s.atLatEnd), parse(t, s.atLon, s.atLonEnd));
+        }
+        if (s.pairLat >= 0) {
+            return ParsedLocation.ofCoordinates(parse(t, s.pairLat, s.pairLatEnd), parse(t, s.pairLon, s.pairLonEnd));
+        }
+        if (s.embedLon >= 0) {
+            double lon = parse(t, s.embedLon, s.embedLonEnd);
+            double lat = parse(t, s.embedLat, s.embedLatEnd);
+            // unbounded digit runs can overflow to Infinity, which the old JSON path rejected
+            return isFinite(lat) && isFinite(lon) ? ParsedLocation.ofCoordinates(lat, lon) : null;
+        }
+        if (s.urlStart >= 0) {
+            String url = trimUrl(t, s.urlStart, s.urlEnd);
+            if (containsIgnoreCase(url, "maps.google.com") || containsIgnoreCase(url, "google.com/maps")
+                    || containsIgnoreCase(url, "maps.app.goo.gl") || containsIgnoreCase(url, "goo.gl/maps")) {
+                return ParsedLocation.ofMapUrl(url);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Drop trailing '.', ',' and ')' (sentence punctuation glued to the link).
+     * Mirrors replaceAll("[.,)]+$", ""), where '$' may also sit before a final line terminator.
+     */
+    private static String trimUrl(CharSequence t, int start, int end) {
+        int stop = end;
+        char last = t.charAt(end - 1);
+        if (last == '\u0085' || last == '\u2028' || last == '\u2029') stop = end - 1;
+        int cut = stop;
+        while (cut > start) {
+            char c = t.charAt(cut - 1);
+            if (c != '.' && c != ',' && c != ')') break;
+            cut--;
+        }
+        if (cut == stop) return t.subSequence(start, end).toString();
+        StringBuilder sb = new StringBuilder(end - start - (stop - cut));
+        sb.append(t, start, cut).append(t, stop, end);
+        return sb.toString();
+    }
+
+    // ---- character helpers ----
+
+    // -?\d{1,3}\.\d+ anchored at i; returns end offset or -1
+    private static int matchShortDecimal(CharSequence t, int i, int n) {
+        int j = i;
+        if (j < n && t.charAt(j) == '-') j++;
+        int digits = j;
+        while (j < n && isDigit(t.charAt(j))) {
+            if (++j - digits > 3) return -1;
+        }
+        if (j == digits) return -1;
+        return matchFraction(t, j, n);
+    }
+
+    // -?\d+\.\d+ anchored at i; returns end offset or -1
+    private static int matchDecimal(CharSequence t, int i, int n) {
+        int j = i;
+        if (j < n && t.charAt(j) == '-') j++;
+        int digits = j;
+        while (j < n && isDigit(t.charAt(j))) j++;
+        if (j == digits) return -1;
+        return matchFraction(t, j, n);
+    }
+
+    // \.\d+ anchored at i; returns end offset or -1
+    private static int matchFraction(CharSequence t, int i, int n) {
+        if (i >= n || t.charAt(i) != '.') return -1;
+        int j = i + 1;
+        int digits = j;
+        while (j < n && isDigit(t.charAt(j))) j++;
+        return j == digits ? -1 : j;
+    }
+
+    private static int skipQueryChars(CharSequence t, int i, int n) {
+        while (i < n) {
+            char c = t.charAt(i);
+            if (c != '-' && c != '.' && !isDigit(c)) break;
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipSpace(CharSequence t, int i, int n) {
+        while (i < n && isSpace(t.charAt(i))) i++;
+        return i;
+    }
+
+    // java.util.regex \s without UNICODE_CHARACTER_CLASS
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isFinite(double d) {
+        return !Double.isNaN(d) && !Double.isInfinite(d);
+    }
+
+    private static double parse(CharSequence t, int start, int end) {
+        return Double.parseDouble(t.subSequence(start, end).toString());
+    }
+
+    private static boolean startsWith(CharSequence t, int i, int n, String prefix) {
+        int len = prefix.length();
+        if (i < 0 || i + len > n) return false;
+        for (int k = 0; k < len; k++) {
+            if (t.charAt(i + k) != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /** ASCII-only case folding; {@code prefix} must be lower case. */
+    private static boolean startsWithIgnoreCase(CharSequence t, int i, int n, String prefix) {
+        int len = prefix.length();
+        if (i < 0 || i + len > n) return false;
+        for (int k = 0; k < len; k++) {
+            if (toLowerAscii(t.charAt(i + k)) != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    /** ASCII-only case folding; {@code needle} must be lower case. */
+    private static boolean containsIgnoreCase(String hay, String needle) {
+        int n = hay.length();
+        int last = n - needle.length();
+        for (int i = 0; i <= last; i++) {
+            if (startsWithIgnoreCase(hay, i, n, needle)) return true;
+        }
+        return false;
+    }
+
+    private static char toLowerAscii(char c) {
+        return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,39 @@
+package com.sis;
+
+/**
+ * One location fix from a {@link LocationProvider}.
+ * Time is wall-clock millis of the fix; accuracy is in metres (NaN when unknown).
+ */
+public final class LocationFix {
+
+    public enum Source { LAST_KNOWN, BALANCED, HIGH_ACCURACY }
+
+    private final double latitude;
+    private final double longitude;
+    private final float accuracyMeters;
+    private final long timeMillis;
+    private final Source source;
+
+    public LocationFix(double latitude, double longitude, float accuracyMeters, long timeMillis, Source source) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.timeMillis = timeMillis;
+        this.source = source;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public float getAccuracyMeters() { return accuracyMeters; }
+    public long getTimeMillis() { return timeMillis; }
+    public Source getSource() { return source; }
+
+    public long ageMillis(long nowMillis) {
+        return nowMillis - timeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationFix{" + latitude + "," + longitude + " ±" + accuracyMeters + "m " + source + " @" + timeMillis + "}";
+    }
+}
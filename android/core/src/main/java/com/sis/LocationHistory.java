@@ -0,0 +1,13 @@
+package com.sis;
+
+import java.io.IOException;
+
+/**
+ * Where received location points are recorded (LocationJournal on the device, an in-memory
+ * list in tests).
+ */
+public interface LocationHistory {
+    /** Append one point for {@code phone} (any format). Accuracy is NaN when unknown. */
+    void append(String phone, long timestampMillis, double latitude, double longitude, float accuracy)
+            throws IOException;
+}
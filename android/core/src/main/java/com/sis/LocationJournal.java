@@ -0,0 +1,334 @@
+package com.sis;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary history of received location points (files/location_journal.bin).
+ * - 16-byte header ("SLJ1", version, record size) followed by fixed 48-byte records:
+ *   timestamp, phone digits (packed long + digit count), reserved flags, lat, lon, accuracy, CRC32
+ * - an append writes one record at the end of the file; nothing is ever rewritten, so the
+ *   cost of an append does not grow with the history
+ * - per-phone in-memory index (sorted timestamps + record numbers), rebuilt by one scan on open
+ * - recovery on open: a partial record or a CRC mismatch ends the journal and the file is
+ *   truncated there (torn write after a crash)
+ * - compaction copies the kept records to a temp file, syncs it and renames it over the journal
+ * Phones are keyed by digits only; numbers longer than 18 digits keep their last 18.
+ * The app keeps one journal per process (SisterStorage.journal).
+ */
+public final class LocationJournal implements LocationHistory {
+    static final String FILE_NAME = "location_journal.bin";
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 48;
+    private static final int MAGIC = 0x534C4A31; // "SLJ1"
+    private static final int VERSION = 1;
+    private static final int MAX_KEY_DIGITS = 18;
+    private static final int CRC_OFFSET = RECORD_SIZE - 4;
+    private static final int SCAN_RECORDS = 1024;
+
+    // record layout (little endian)
+    private static final int OFF_TIMESTAMP = 0;
+    private static final int OFF_PHONE = 8;
+    private static final int OFF_DIGITS = 16;
+    private static final int OFF_FLAGS = 17;
+    private static final int OFF_LAT = 20;
+    private static final int OFF_LON = 28;
+    private static final int OFF_ACCURACY = 36;
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    /** Automatic compaction: at this many records keep {@link #KEEP_DAYS} and at most half of them. */
+    static final int COMPACT_AT_RECORDS = 250_000;
+    static final long KEEP_DAYS = 180;
+
+    private final File file;
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private int records;
+    private final Map<String, PhoneHistory> byPhone = new HashMap<>();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    /** Opens (and recovers) the journal at {@code file}, creating it when missing. */
+    public LocationJournal(File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /** One point of the history. Accuracy is NaN when unknown (SMS replies carry none). */
+    public static final class Point {
+        private final String phone;
+        private final long timestampMillis;
+        private final double latitude;
+        private final double longitude;
+        private final float accuracy;
+
+        Point(String phone, long timestampMillis, double latitude, double longitude, float accuracy) {
+            this.phone = phone;
+            this.timestampMillis = timestampMillis;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+        }
+
+        /** Digits the point is keyed by. */
+        public String getPhone() { return phone; }
+        public long getTimestampMillis() { return timestampMillis; }
+        public double getLatitude() { return latitude; }
+        public double getLongitude() { return longitude; }
+        public float getAccuracy() { return accuracy; }
+    }
+
+    /** Append one point for {@code phone} (any format; ignored when it has no digits). */
+    @Override
+    public synchronized void append(String phone, long timestampMillis, double latitude, double longitude,
+                                    float accuracy) throws IOException {
+        String key = keyFor(phone);
+        if (key.length() == 0) return;
+        record.clear();
+        record.putLong(OFF_TIMESTAMP, timestampMillis);
+        record.putLong(OFF_PHONE, Long.parseLong(key));
+        record.put(OFF_DIGITS, (byte) key.length());
+        record.put(OFF_FLAGS, (byte) 0);
+        record.putShort(OFF_FLAGS + 1, (short) 0);
+        record.putDouble(OFF_LAT, latitude);
+        record.putDouble(OFF_LON, longitude);
+        record.putFloat(OFF_ACCURACY, accuracy);
+        record.putInt(OFF_ACCURACY + 4, 0);
+        crc.reset();
+        crc.update(record.array(), 0, CRC_OFFSET);
+        record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+        writeFully(channel, record, offsetOf(records));
+        history(key).add(timestampMillis, records);
+        records++;
+
+        if (records >= COMPACT_AT_RECORDS) {
+            compact(timestampMillis - KEEP_DAYS * DAY_MILLIS, COMPACT_AT_RECORDS / 2);
+        }
+    }
+
+    /** Newest point for {@code phone}, or null. */
+    public synchronized Point latest(String phone) throws IOException {
+        String key = keyFor(phone);
+        PhoneHistory h = byPhone.get(key);
+        if (h == null || h.size == 0) return null;
+        return read(h.records[h.size - 1], key);
+    }
+
+    /**
+     * Points for {@code phone} with fromMillis <= timestamp <= toMillis, oldest first.
+     * With {@code limit > 0} only the newest {@code limit} points of the range are returned.
+     */
+    public synchronized List<Point> history(String phone, long fromMillis, long toMillis, int limit)
+            throws IOException {
+        String key = keyFor(phone);
+        PhoneHistory h = byPhone.get(key);
+        if (h == null || fromMillis > toMillis) return Collections.emptyList();
+        int from = h.lowerBound(fromMillis);
+        int to = h.lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1);
+        if (limit > 0 && to - from > limit) from = to - limit;
+        List<Point> out = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) out.add(read(h.records[i], key));
+        return out;
+    }
+
+    /** Number of records in the journal. */
+    public synchronized int size() {
+        return records;
+    }
+
+    /**
+     * Drop records older than {@code keepSinceMillis} and all but the newest {@code maxRecords};
+     * the newest point of every phone is always kept. Returns the number of records left.
+     */
+    public synchronized int compact(long keepSinceMillis, int maxRecords) throws IOException {
+        boolean[] newest = new boolean[records];
+        for (PhoneHistory h : byPhone.values()) {
+            if (h.size > 0) newest[h.records[h.size - 1]] = true;
+        }
+        int firstByCount = Math.max(0, records - maxRecords);
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(tmp, "rw")) {
+            FileChannel oc = out.getChannel();
+            oc.truncate(0);
+            writeHeader(oc);
+            ByteBuffer scan = ByteBuffer.allocate(RECORD_SIZE * SCAN_RECORDS).order(ByteOrder.LITTLE_ENDIAN);
+            long outPos = HEADER_SIZE;
+            for (int first = 0; first < records; first += SCAN_RECORDS) {
+                int n = Math.min(SCAN_RECORDS, records - first);
+                scan.clear();
+                scan.limit(n * RECORD_SIZE);
+                readFully(channel, scan, offsetOf(first));
+                for (int i = 0; i < n; i++) {
+                    int rec = first + i;
+                    int at = i * RECORD_SIZE;
+                    boolean keep = newest[rec]
+                            || (rec >= firstByCount && scan.getLong(at + OFF_TIMESTAMP) >= keepSinceMillis);
+                    if (!keep) continue;
+                    ByteBuffer one = ByteBuffer.wrap(scan.array(), at, RECORD_SIZE);
+                    writeFully(oc, one, outPos);
+                    outPos += RECORD_SIZE;
+                }
+            }
+            oc.force(true);
+        }
+        close();
+        boolean renamed = tmp.renameTo(file);
+        open();
+        if (!renamed) throw new IOException("Renaming compacted journal failed");
+        return records;
+    }
+
+    public synchronized void close() throws IOException {
+        if (raf != null) {
+            raf.close();
+            raf = null;
+            channel = null;
+        }
+    }
+
+    // ---- open / recovery ----
+
+    private void open() throws IOException {
+        new File(file.getPath() + ".tmp").delete(); // leftover of an interrupted compaction
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        records = 0;
+        byPhone.clear();
+
+        long size = channel.size();
+        if (size < HEADER_SIZE || !headerValid()) {
+            // new or unrecognised file: start an empty journal
+            channel.truncate(0);
+            writeHeader(channel);
+            return;
+        }
+
+        long complete = (size - HEADER_SIZE) / RECORD_SIZE;
+        ByteBuffer scan = ByteBuffer.allocate(RECORD_SIZE * SCAN_RECORDS).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] a = scan.array();
+        scan:
+        while (records < complete) {
+            int n = (int) Math.min(SCAN_RECORDS, complete - records);
+            scan.clear();
+            scan.limit(n * RECORD_SIZE);
+            readFully(channel, scan, offsetOf(records));
+            for (int i = 0; i < n; i++) {
+                int at = i * RECORD_SIZE;
+                crc.reset();
+                crc.update(a, at, CRC_OFFSET);
+                if ((int) crc.getValue() != scan.getInt(at + CRC_OFFSET)) break scan;
+                String key = keyOf(scan.getLong(at + OFF_PHONE), scan.get(at + OFF_DIGITS));
+                history(key).add(scan.getLong(at + OFF_TIMESTAMP), records);
+                records++;
+            }
+        }
+        long valid = offsetOf(records);
+        if (size != valid) channel.truncate(valid);
+    }
+
+    private boolean headerValid() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        return header.getInt(0) == MAGIC && header.getInt(4) == VERSION && header.getInt(8) == RECORD_SIZE;
+    }
+
+    private static void writeHeader(FileChannel ch) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, RECORD_SIZE).putInt(12, 0);
+        writeFully(ch, header, 0);
+    }
+
+    // ---- helpers ----
+
+    private Point read(int rec, String key) throws IOException {
+        record.clear();
+        readFully(channel, record, offsetOf(rec));
+        return new Point(key, record.getLong(OFF_TIMESTAMP), record.getDouble(OFF_LAT),
+                record.getDouble(OFF_LON), record.getFloat(OFF_ACCURACY));
+    }
+
+    private PhoneHistory history(String key) {
+        PhoneHistory h = byPhone.get(key);
+        if (h == null) {
+            h = new PhoneHistory();
+            byPhone.put(key, h);
+        }
+        return h;
+    }
+
+    private static long offsetOf(int rec) {
+        return HEADER_SIZE + (long) rec * RECORD_SIZE;
+    }
+
+    /** Journal key of a phone: its digits, at most the last 18. */
+    static String keyFor(String phone) {
+        String digits = PhoneNumbers.normalize(phone);
+        return digits.length() > MAX_KEY_DIGITS ? digits.substring(digits.length() - MAX_KEY_DIGITS) : digits;
+    }
+
+    private static String keyOf(long value, int digits) {
+        char[] out = new char[digits];
+        for (int i = digits - 1; i >= 0; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return new String(out);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer dst, long position) throws IOException {
+        int start = dst.position();
+        while (dst.hasRemaining()) {
+            if (ch.read(dst, position + dst.position() - start) < 0) throw new IOException("Unexpected end of journal");
+        }
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer src, long position) throws IOException {
+        int start = src.position();
+        while (src.hasRemaining()) ch.write(src, position + src.position() - start);
+    }
+
+    /** Record numbers of one phone, sorted by timestamp (appends are almost always in order). */
+    private static final class PhoneHistory {
+        long[] times = new long[4];
+        int[] records = new int[4];
+        int size;
+
+        void add(long time, int rec) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                records = Arrays.copyOf(records, size * 2);
+            }
+            int i = size++;
+            while (i > 0 && times[i - 1] > time) {
+                times[i] = times[i - 1];
+                records[i] = records[i - 1];
+                i--;
+            }
+            times[i] = time;
+            records[i] = rec;
+        }
+
+        /** First index with times[index] >= time. */
+        int lowerBound(long time) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (times[mid] < time) lo = mid + 1; else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.sis;
+
+/**
+ * Source of location fixes used by {@link LocationService}. Implementations report failures
+ * (no permission, provider off, timeout) as a null fix; callbacks may come on any thread.
+ */
+public interface LocationProvider {
+
+    enum Accuracy { BALANCED, HIGH }
+
+    interface Callback {
+        void onResult(LocationFix fix);
+    }
+
+    /** Cached fix of the platform, without turning on any radio. */
+    void lastKnown(Callback callback);
+
+    /** Fresh fix at {@code accuracy}, giving up (null) after {@code timeoutMillis}. */
+    void current(Accuracy accuracy, long timeoutMillis, Callback callback);
+}
@@ -0,0 +1,136 @@
+package com.sis;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Per-message work of SisterLocationRecorder, without the platform:
+ * - parses the body: a TrackBundle first (several fixes, the newest is "the" location), then
+ *   LocationExtractor with its fall back to any URL
+ * - resolves the sender to the canonical (configured) sister phone through the current SisterIndex
+ * - serialises the record once and stores it under every sender/canonical key variant
+ * - appends parsed coordinates to the history, keyed by the sister (or the sender digits)
+ * A failing store or history does not stop the rest; the failure is handed back in the result.
+ * Thread-safe when the store, history and index source are.
+ */
+public final class LocationRecorder {
+
+    /** What one message produced. */
+    public static final class Recorded {
+        public final String sender;
+        /** Configured phone of the sister the sender resolved to, or null. */
+        public final String canonical;
+        public final long timestampMillis;
+        /** Newest parsed location, or null. */
+        public final ParsedLocation location;
+        /** All fixes when the body was a track bundle, else null. */
+        public final List<ParsedLocation> track;
+        /** The stored JSON record. */
+        public final String record;
+        public final Exception storeFailure;
+        public final Exception historyFailure;
+
+        Recorded(String sender, String canonical, long timestampMillis, ParsedLocation location,
+                 List<ParsedLocation> track, String record, Exception storeFailure, Exception historyFailure) {
+            this.sender = sender;
+            this.canonical = canonical;
+            this.timestampMillis = timestampMillis;
+            this.location = location;
+            this.track = track;
+            this.record = record;
+            this.storeFailure = storeFailure;
+            this.historyFailure = historyFailure;
+        }
+
+        public boolean isParsed() {
+            return location != null;
+        }
+
+        /** Phone the message is filed under: the canonical sister phone, else the sender. */
+        public String key() {
+            return canonical != null ? canonical : sender;
+        }
+    }
+
+    private final LocationStore store;
+    private final LocationHistory history;
+    private final Supplier<SisterIndex> sisters;
+
+    public LocationRecorder(LocationStore store, LocationHistory history, Supplier<SisterIndex> sisters) {
+        this.store = store;
+        this.history = history;
+        this.sisters = sisters;
+    }
+
+    /** Record {@code sms}, received at {@code nowMillis}. */
+    public Recorded record(InboundSms sms, long nowMillis) throws JSONException {
+        String sender = sms.getSender();
+        String body = sms.getBody();
+
+        long parseStart = SmsMetrics.start();
+        List<ParsedLocation> track = TrackBundle.find(body);
+        ParsedLocation location = track != null ? track.get(track.size() - 1) : LocationExtractor.extractOrAnyUrl(body);
+        SmsMetrics.since(SmsMetrics.Stage.PARSE, parseStart);
+        if (location != null) SmsMetrics.increment(SmsMetrics.Counter.LOCATION_PARSED);
+
+        String record = toJson(body, nowMillis, location);
+
+        long matchStart = SmsMetrics.start();
+        String canonical = sisters.get().resolve(sender);
+        SmsMetrics.since(SmsMetrics.Stage.MATCH, matchStart);
+        if (canonical != null) SmsMetrics.increment(SmsMetrics.Counter.SISTER_MATCHED);
+
+        // one record under all sender/canonical variants (so JS finds it by any of them); the
+        // store coalesces the keys (and the rest of the burst) into one commit
+        Exception storeFailure = null;
+        try {
+            store.putLastLocation(record, sender, PhoneNumbers.normalize(sender),
+                    canonical, canonical != null ? PhoneNumbers.normalize(canonical) : null);
+        } catch (Exception e) {
+            storeFailure = e;
+        }
+
+        Exception historyFailure = null;
+        if (location != null && location.hasCoordinates()) {
+            long journalStart = SmsMetrics.start();
+            String phone = canonical != null ? canonical : sender;
+            try {
+                if (track != null) {
+                    for (ParsedLocation point : track) {
+                        history.append(phone, point.getFixTimeMillis(), point.getLatitude(),
+                                point.getLongitude(), point.getAccuracyMeters());
+                    }
+                } else {
+                    history.append(phone, nowMillis, location.getLatitude(), location.getLongitude(),
+                            location.getAccuracyMeters());
+                }
+            } catch (Exception e) {
+                historyFailure = e;
+            }
+            SmsMetrics.since(SmsMetrics.Stage.JOURNAL, journalStart);
+        }
+        return new Recorded(sender, canonical, nowMillis, location, track, record, storeFailure, historyFailure);
+    }
+
+    // the lastLocation_<phone> record read by SisterSettingsModule and the JS side
+    static String toJson(String body, long timestampMillis, ParsedLocation location) throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("rawMessage", body != null ? body : "");
+        obj.put("timestamp", timestampMillis);
+        obj.put("parsed", location != null);
+        if (location != null) {
+            obj.put("mapUrl", location.getMapUrl());
+            if (location.hasCoordinates()) {
+                obj.put("latitude", location.getLatitude());
+                obj.put("longitude", location.getLongitude());
+            }
+            // compact tokens also carry the sender's accuracy and fix time
+            if (!Float.isNaN(location.getAccuracyMeters())) obj.put("accuracy", location.getAccuracyMeters());
+            if (location.getFixTimeMillis() > 0) obj.put("fixTimestamp", location.getFixTimeMillis());
+        }
+        return obj.toString();
+    }
+}
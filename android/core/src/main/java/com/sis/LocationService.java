@@ -0,0 +1,151 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Location acquisition shared by everything that replies with a location.
+ * - cache: the last delivered fix answers any request whose max age it satisfies, without
+ *   touching the provider
+ * - coalescing: while a fix is being acquired, further requests wait for it instead of starting
+ *   their own; the result is fanned out to every waiter
+ * - fallback ladder under a latency budget: last-known (if fresh and accurate enough), then a
+ *   balanced-power fix, then a high-accuracy fix with whatever budget is left; if none arrives
+ *   the newest fix seen on the way (possibly a stale last-known one) is delivered, else null
+ * Pure Java; the platform provider and the clock are injected.
+ */
+public final class LocationService {
+
+    public interface Clock {
+        long nowMillis();
+    }
+
+    public interface Listener {
+        /** @param fix null when no location could be obtained at all */
+        void onLocation(LocationFix fix);
+    }
+
+    public static final long DEFAULT_MAX_AGE_MS = 60_000;
+    static final long DEFAULT_BUDGET_MS = 30_000;
+    static final long BALANCED_TIMEOUT_MS = 10_000;
+    static final float ACCEPTABLE_ACCURACY_M = 100f;
+
+    private final LocationProvider provider;
+    private final Clock clock;
+    private final long budgetMillis;
+
+    private LocationFix cached;               // guarded by this
+    private List<Listener> waiters;           // non-null while a fix is in flight, guarded by this
+    private long strictestMaxAge;             // guarded by this
+    private long startedAtMillis;             // guarded by this
+    private long startedAtNanos;              // guarded by this
+    private LocationFix best;                 // newest fix of the current ladder, guarded by this
+
+    public LocationService(LocationProvider provider, Clock clock, long budgetMillis) {
+        this.provider = provider;
+        this.clock = clock;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * Deliver a fix no older than {@code maxAgeMillis} to {@code listener} (possibly synchronously,
+     * on a cache hit). When the ladder cannot produce a fresh fix, an older one may be delivered;
+     * check {@link LocationFix#ageMillis}.
+     */
+    public void request(long maxAgeMillis, Listener listener) {
+        LocationFix hit = null;
+        synchronized (this) {
+            if (cached != null && cached.ageMillis(clock.nowMillis()) <= maxAgeMillis) {
+                hit = cached;
+            } else if (waiters != null) {
+                waiters.add(listener);
+                strictestMaxAge = Math.min(strictestMaxAge, maxAgeMillis);
+                return;
+            } else {
+                waiters = new ArrayList<>(2);
+                waiters.add(listener);
+                strictestMaxAge = maxAgeMillis;
+                startedAtMillis = clock.nowMillis();
+                startedAtNanos = SmsMetrics.start();
+                best = null;
+            }
+        }
+        if (hit != null) {
+            listener.onLocation(hit);
+            return;
+        }
+        provider.lastKnown(this::onLastKnown);
+    }
+
+    /** Last fix delivered by this service, or null. */
+    public synchronized LocationFix cached() {
+        return cached;
+    }
+
+    private void onLastKnown(LocationFix fix) {
+        boolean good;
+        synchronized (this) {
+            consider(fix);
+            good = fix != null && fix.ageMillis(clock.nowMillis()) <= strictestMaxAge && accurate(fix);
+        }
+        if (good) finish(fix);
+        else step(LocationProvider.Accuracy.BALANCED);
+    }
+
+    private void step(LocationProvider.Accuracy accuracy) {
+        long remaining;
+        synchronized (this) {
+            remaining = budgetMillis - (clock.nowMillis() - startedAtMillis);
+        }
+        if (remaining <= 0) {
+            finishWithBest();
+            return;
+        }
+        long timeout = accuracy == LocationProvider.Accuracy.BALANCED ? Math.min(BALANCED_TIMEOUT_MS, remaining) : remaining;
+        provider.current(accuracy, timeout, fix -> onCurrent(accuracy, fix));
+    }
+
+    private void onCurrent(LocationProvider.Accuracy accuracy, LocationFix fix) {
+        synchronized (this) {
+            consider(fix);
+        }
+        if (fix != null && (accuracy == LocationProvider.Accuracy.HIGH || accurate(fix))) {
+            finish(fix);
+        } else if (accuracy == LocationProvider.Accuracy.BALANCED) {
+            step(LocationProvider.Accuracy.HIGH);
+        } else {
+            finishWithBest();
+        }
+    }
+
+    private void finishWithBest() {
+        LocationFix fix;
+        synchronized (this) {
+            fix = best;
+        }
+        finish(fix);
+    }
+
+    private void finish(LocationFix fix) {
+        List<Listener> toNotify;
+        synchronized (this) {
+            toNotify = waiters;
+            waiters = null;
+            best = null;
+            if (fix != null && (cached == null || fix.getTimeMillis() >= cached.getTimeMillis())) cached = fix;
+            SmsMetrics.since(SmsMetrics.Stage.LOCATION, startedAtNanos);
+        }
+        if (toNotify == null) return;
+        for (Listener listener : toNotify) listener.onLocation(fix);
+    }
+
+    // guarded by this
+    private void consider(LocationFix fix) {
+        if (fix != null && (best == null || fix.getTimeMillis() > best.getTimeMillis())) best = fix;
+    }
+
+    private static boolean accurate(LocationFix fix) {
+        float acc = fix.getAccuracyMeters();
+        return !Float.isNaN(acc) && acc <= ACCEPTABLE_ACCURACY_M;
+    }
+}
@@ -0,0 +1,78 @@
+package com.sis;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-coalescing store for the lastLocation_<phone> records ("SisterPrefs" on the device).
+ * - a record is serialised once by the caller and queued under all of its phone keys
+ * - pending keys are committed together in one {@link KeyValueStore#putAll} (= one XML rewrite)
+ * - flushes happen when the SMS worker lanes go idle, so a burst of messages collapses into a
+ *   single disk write; a long burst still flushes at least every {@link #MAX_COALESCE_MS}
+ * - reads see pending (not yet flushed) records
+ * The app keeps one store per process (SisterStorage.locations).
+ */
+public final class LocationStore {
+    static final String KEY_PREFIX_LAST_LOCATION = "lastLocation_";
+    static final long MAX_COALESCE_MS = 500;
+
+    private final KeyValueStore prefs;
+    private final Map<String, String> pending = new LinkedHashMap<>(); // guarded by this
+    private long firstPendingAt;                                       // guarded by this
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong recordsWritten = new AtomicLong();
+
+    public LocationStore(KeyValueStore prefs) {
+        this.prefs = prefs;
+    }
+
+    /**
+     * Queue {@code json} as the last location of every phone in {@code phones}
+     * (null/empty entries and duplicates are ignored).
+     */
+    public void putLastLocation(String json, String... phones) {
+        boolean flushNow;
+        synchronized (this) {
+            if (pending.isEmpty()) firstPendingAt = System.nanoTime();
+            for (String phone : phones) {
+                if (phone != null && phone.length() > 0) pending.put(KEY_PREFIX_LAST_LOCATION + phone, json);
+            }
+            flushNow = System.nanoTime() - firstPendingAt >= MAX_COALESCE_MS * 1_000_000L;
+        }
+        if (flushNow) flush();
+    }
+
+    /** Last location JSON stored for exactly {@code phone}, including unflushed writes. */
+    public String getLastLocation(String phone) {
+        String key = KEY_PREFIX_LAST_LOCATION + phone;
+        synchronized (this) {
+            String v = pending.get(key);
+            if (v != null) return v;
+        }
+        return prefs.get(key);
+    }
+
+    /** Commit all pending records in a single transaction. */
+    public void flush() {
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            long start = SmsMetrics.start();
+            prefs.putAll(pending);
+            recordsWritten.addAndGet(pending.size());
+            flushes.incrementAndGet();
+            pending.clear();
+            SmsMetrics.since(SmsMetrics.Stage.PREFS_WRITE, start);
+        }
+    }
+
+    /** Number of commits (each one rewrites and syncs the prefs file). */
+    public long flushCount() {
+        return flushes.get();
+    }
+
+    /** Number of key writes that reached the backing store. */
+    public long recordsWritten() {
+        return recordsWritten.get();
+    }
+}
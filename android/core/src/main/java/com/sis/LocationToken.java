@@ -0,0 +1,102 @@
+package com.sis;
+
+import java.util.zip.CRC32;
+
+/**
+ * Compact location reply: "SL1:" followed by 16 characters of the Sms64 alphabet (all in the
+ * GSM 7-bit default set), 20 characters in total, so a reply always fits in a single SMS segment.
+ * - 51 bits of coordinates: latitude and longitude in fixed point at 1e-5 degrees (~1.1 m)
+ * - 28 bits of fix time in minutes since 2020-01-01 UTC (good for ~500 years)
+ * - 5 bits of accuracy on a half-octave scale (0 = unknown, else about 2^((b-1)/2) m)
+ * - 6 check bits (CRC32 of the payload), so a corrupted or look-alike token is rejected
+ * Stateless and thread-safe.
+ */
+public final class LocationToken {
+    public static final String PREFIX = "SL1:";
+    static final int SYMBOLS = 16;
+    public static final int LENGTH = 4 + SYMBOLS;
+
+    private static final double SCALE = 1e5;
+    private static final long EPOCH_MILLIS = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long MAX_MINUTES = (1L << 28) - 1;
+    private static final int MAX_ACCURACY_BUCKET = 31;
+
+    private LocationToken() {}
+
+    /**
+     * Token for a fix, or null when it cannot be represented (coordinates out of range or not
+     * finite). accuracyMeters may be NaN; fixTimeMillis is clamped to the representable range.
+     */
+    public static String encode(double latitude, double longitude, float accuracyMeters, long fixTimeMillis) {
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) return null;
+        long lat = Math.round((latitude + 90) * SCALE);   // 0..18,000,000 < 2^25
+        long lon = Math.round((longitude + 180) * SCALE); // 0..36,000,000 < 2^26
+        long minutes = Math.max(0, Math.min(MAX_MINUTES, (fixTimeMillis - EPOCH_MILLIS) / MINUTE_MILLIS));
+        long a = lat << 26 | lon;
+        long b = (minutes << 5 | accuracyBucket(accuracyMeters)) << 6;
+        b |= check(a, b);
+
+        char[] out = new char[LENGTH];
+        PREFIX.getChars(0, PREFIX.length(), out, 0);
+        int at = PREFIX.length();
+        for (int shift = 48; shift >= 0; shift -= 6) out[at++] = Sms64.ALPHABET.charAt((int) (a >>> shift) & 63);   // 9
+        for (int shift = 36; shift >= 0; shift -= 6) out[at++] = Sms64.ALPHABET.charAt((int) (b >>> shift) & 63);   // 7
+        return new String(out);
+    }
+
+    /** First valid token in {@code text}, decoded; null when there is none. */
+    public static ParsedLocation find(CharSequence text) {
+        if (text == null) return null;
+        int n = text.length();
+        for (int i = 0; i + LENGTH <= n; i++) {
+            if (text.charAt(i) != 'S' || !startsWith(text, i)) continue;
+            // a token glued to more token characters is something else
+            if (i + LENGTH < n && Sms64.value(text.charAt(i + LENGTH)) >= 0) continue;
+            ParsedLocation loc = decode(text, i + PREFIX.length());
+            if (loc != null) return loc;
+        }
+        return null;
+    }
+
+    private static ParsedLocation decode(CharSequence t, int at) {
+        long a = 0;
+        long b = 0;
+        for (int k = 0; k < SYMBOLS; k++) {
+            int v = Sms64.value(t.charAt(at + k));
+            if (v < 0) return null;
+            if (k < 9) a = a << 6 | v;
+            else b = b << 6 | v;
+        }
+        if (a >>> 51 != 0 || (b & 63) != check(a, b & ~63L)) return null;
+        long lat = a >>> 26;
+        long lon = a & ((1L << 26) - 1);
+        if (lat > 180 * (long) SCALE || lon > 360 * (long) SCALE) return null;
+        int bucket = (int) (b >>> 6) & MAX_ACCURACY_BUCKET;
+        long minutes = b >>> 11;
+        // integer offset first, then one division: the nearest double to the 5-decimal value
+        return ParsedLocation.ofFix((lat - 90 * (long) SCALE) / SCALE, (lon - 180 * (long) SCALE) / SCALE,
+                bucket == 0 ? Float.NaN : (float) Math.pow(2, (bucket - 1) / 2.0),
+                EPOCH_MILLIS + minutes * MINUTE_MILLIS);
+    }
+
+    static int accuracyBucket(float accuracyMeters) {
+        if (Float.isNaN(accuracyMeters) || accuracyMeters < 0) return 0;
+        long b = 1 + Math.round(2 * Math.log(Math.max(1f, accuracyMeters)) / Math.log(2));
+        return (int) Math.min(MAX_ACCURACY_BUCKET, b);
+    }
+
+    private static long check(long a, long bWithoutCheck) {
+        CRC32 crc = new CRC32();
+        for (int shift = 56; shift >= 0; shift -= 8) crc.update((int) (a >>> shift));
+        for (int shift = 56; shift >= 0; shift -= 8) crc.update((int) (bWithoutCheck >>> shift));
+        return crc.getValue() & 63;
+    }
+
+    private static boolean startsWith(CharSequence t, int i) {
+        for (int k = 0; k < PREFIX.length(); k++) {
+            if (t.charAt(i + k) != PREFIX.charAt(k)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,46 @@
+package com.sis;
+
+/**
+ * One message of the outbound queue. Mutable; owned and synchronised by OutboundSmsQueue.
+ */
+public final class OutboundSms {
+
+    public enum State {
+        QUEUED,   // waiting for its attempt time / a rate-limit slot
+        SENDING,  // handed to the transport, waiting for the sent results of all parts
+        SENT,     // accepted by the network, waiting for delivery reports
+    }
+
+    final long id;
+    final String to;
+    final String body;
+    final long enqueuedAtMillis;
+    State state = State.QUEUED;
+    int attempts;
+    long nextAttemptAtMillis;
+    long sentAtMillis;
+    long deliveryDeadlineMillis;
+    int partsTotal;
+    int partsSent;
+    int partsDelivered;
+    String lastError;
+    int subscriptionId = SimPool.DEFAULT_SUBSCRIPTION; // SIM of the current attempt (not persisted)
+
+    OutboundSms(long id, String to, String body, long enqueuedAtMillis) {
+        this.id = id;
+        this.to = to;
+        this.body = body;
+        this.enqueuedAtMillis = enqueuedAtMillis;
+        this.nextAttemptAtMillis = enqueuedAtMillis;
+    }
+
+    public long getId() { return id; }
+    public String getTo() { return to; }
+    public String getBody() { return body; }
+    public State getState() { return state; }
+    public int getAttempts() { return attempts; }
+    public long getEnqueuedAtMillis() { return enqueuedAtMillis; }
+    public long getNextAttemptAtMillis() { return nextAttemptAtMillis; }
+    public long getDeliveryDeadlineMillis() { return deliveryDeadlineMillis; }
+    public int getSubscriptionId() { return subscriptionId; }
+}
@@ -0,0 +1,437 @@
+package com.sis;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent outbound SMS queue, drained by one worker thread.
+ * - one send lane per SIM of the SimPool: a recipient sticks to one SIM (so a conversation keeps
+ *   its sender number), new recipients go to the least busy SIM, and a SIM whose sends keep
+ *   failing (carrier rate limit, no service) cools down while the other SIM takes over
+ * - rate limiting: at least {@link #MIN_INTERVAL_MS} between sends per SIM and at most
+ *   {@link #WINDOW_MAX} sends per {@link #WINDOW_MS} in total (the platform asks the user beyond
+ *   ~30/30 min, counted per app, not per SIM)
+ * - retryable failures (no service, radio off, generic failure...) are retried with exponential
+ *   backoff, up to {@link #MAX_ATTEMPTS} attempts
+ * - a message is sent once every part reports success and delivered once every part's delivery
+ *   report arrives; without reports it is completed as "unconfirmed" after {@link #DELIVERY_TIMEOUT_MS}
+ * - queued/unconfirmed messages are persisted on every state change and reloaded on start
+ *   (a message that was mid-send is sent again: a duplicate reply beats a lost one)
+ * Pure Java; transport, store and clock are injected. {@link #runOnce} is the worker's step.
+ */
+public final class OutboundSmsQueue {
+
+    public interface Clock {
+        long nowMillis();
+    }
+
+    /** Progress of one message; callbacks come on the worker or the transport's result thread. */
+    public interface Listener {
+        void onSent(long id);
+
+        /** @param confirmed false when no delivery report arrived in time */
+        void onDelivered(long id, boolean confirmed);
+
+        void onFailed(long id, String reason);
+    }
+
+    /** Counters of one SIM lane. */
+    public static final class SimStats {
+        public final int subscriptionId;
+        public final boolean active;
+        public final long sent;
+        public final long failed;
+        /** Sends in the last {@link #WINDOW_MS}. */
+        public final int recentSends;
+        public final boolean coolingDown;
+
+        SimStats(int subscriptionId, boolean active, long sent, long failed, int recentSends, boolean coolingDown) {
+            this.subscriptionId = subscriptionId;
+            this.active = active;
+            this.sent = sent;
+            this.failed = failed;
+            this.recentSends = recentSends;
+            this.coolingDown = coolingDown;
+        }
+    }
+
+    /** Reason used when the transport could not take the message at all. */
+    public static final String ERROR_NOT_HANDED_OFF = "send failed";
+
+    static final long MIN_INTERVAL_MS = 1_000;
+    static final long WINDOW_MS = 30 * 60_000;
+    static final int WINDOW_MAX = 30;
+    static final int MAX_ATTEMPTS = 5;
+    static final long BACKOFF_BASE_MS = 5_000;
+    static final long BACKOFF_MAX_MS = 5 * 60_000;
+    static final long DELIVERY_TIMEOUT_MS = 2 * 60_000;
+    static final long SIM_COOLDOWN_MS = 60_000; // doubled per consecutive failure, longer than a retry backoff
+    static final int MAX_STICKY = 256;
+
+    private final SmsTransport transport;
+    private final OutboundSmsStore store;
+    private final Clock clock;
+    private final SimPool sims;
+
+    private final Map<Long, OutboundSms> pending = new LinkedHashMap<>();   // guarded by this
+    private final Map<Long, Listener> listeners = new HashMap<>();          // guarded by this
+    private final ArrayDeque<Long> windowSends = new ArrayDeque<>();        // send times, guarded by this
+    private final Map<Integer, Lane> lanes = new LinkedHashMap<>();         // by subscription, guarded by this
+    private final Map<String, Integer> stickySim =                          // recipient digits -> subscription
+            new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                    return size() > MAX_STICKY;
+                }
+            };
+    private long nextId = 1;                                                // guarded by this
+    private Thread worker;                                                  // guarded by this
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong storeErrors = new AtomicLong();
+
+    public OutboundSmsQueue(SmsTransport transport, OutboundSmsStore store, Clock clock) {
+        this(transport, store, clock, SimPool.DEFAULT);
+    }
+
+    public OutboundSmsQueue(SmsTransport transport, OutboundSmsStore store, Clock clock, SimPool sims) {
+        this.transport = transport;
+        this.store = store;
+        this.clock = clock;
+        this.sims = sims;
+        try {
+            for (OutboundSms sms : store.load()) {
+                if (sms.state == OutboundSms.State.SENDING) sms.state = OutboundSms.State.QUEUED;
+                pending.put(sms.id, sms);
+                nextId = Math.max(nextId, sms.id + 1);
+            }
+        } catch (Exception e) {
+            storeErrors.incrementAndGet(); // start empty rather than not at all
+        }
+    }
+
+    /** Start the worker thread (idempotent). */
+    public synchronized void start() {
+        if (worker != null) return;
+        worker = new Thread(this::workLoop, "sms-outbox");
+        worker.setDaemon(true);
+        worker.setPriority(Thread.NORM_PRIORITY - 1);
+        worker.start();
+    }
+
+    /** Queue {@code body} for {@code to}; returns the message id. {@code listener} may be null. */
+    public synchronized long enqueue(String to, String body, Listener listener) {
+        OutboundSms sms = new OutboundSms(nextId++, to, body, clock.nowMillis());
+        pending.put(sms.id, sms);
+        if (listener != null) listeners.put(sms.id, listener);
+        persist();
+        notifyAll();
+        return sms.id;
+    }
+
+    /** Messages not yet delivered (or failed). */
+    public synchronized int depth() {
+        return pending.size();
+    }
+
+    public long sentCount() { return sent.get(); }
+    public long deliveredCount() { return delivered.get(); }
+    public long failedCount() { return failed.get(); }
+    public long retryCount() { return retries.get(); }
+    public long storeErrorCount() { return storeErrors.get(); }
+
+    /** Per-SIM counters, in the order the SIMs were first seen. */
+    public synchronized List<SimStats> simStats() {
+        long now = clock.nowMillis();
+        List<SimStats> out = new ArrayList<>(lanes.size());
+        for (Lane lane : lanes.values()) {
+            lane.trim(now);
+            out.add(new SimStats(lane.subscriptionId, lane.active, lane.sent, lane.failed, lane.recent.size(),
+                    lane.coolUntil > now));
+        }
+        return out;
+    }
+
+    /**
+     * One worker step at the current time: expire delivery waits, then send the due messages,
+     * at most one per SIM, as the rate limits allow. Returns the time (millis) at which it should
+     * run again.
+     */
+    public long runOnce() {
+        List<Runnable> callbacks = new ArrayList<>(1);
+        List<OutboundSms> toSend = new ArrayList<>(1);
+        long wakeAt;
+        synchronized (this) {
+            long now = clock.nowMillis();
+            wakeAt = Long.MAX_VALUE;
+            syncLanes();
+            for (OutboundSms sms : new ArrayList<>(pending.values())) { // enqueue order
+                if (sms.state == OutboundSms.State.SENT) {
+                    if (now >= sms.deliveryDeadlineMillis) complete(sms, false, callbacks);
+                    else wakeAt = Math.min(wakeAt, sms.deliveryDeadlineMillis);
+                } else if (sms.state == OutboundSms.State.QUEUED) {
+                    if (sms.nextAttemptAtMillis > now) {
+                        wakeAt = Math.min(wakeAt, sms.nextAttemptAtMillis);
+                        continue;
+                    }
+                    long windowSlot = windowSlot(now);
+                    if (windowSlot > now) {
+                        wakeAt = Math.min(wakeAt, windowSlot);
+                        continue;
+                    }
+                    Lane lane = laneFor(sms, now);
+                    long slot = lane.lastSendAt + MIN_INTERVAL_MS;
+                    if (slot > now) {
+                        wakeAt = Math.min(wakeAt, slot); // a later message may still go out on another SIM
+                        continue;
+                    }
+                    sms.state = OutboundSms.State.SENDING;
+                    sms.attempts++;
+                    sms.partsTotal = 0;
+                    sms.partsSent = 0;
+                    sms.partsDelivered = 0;
+                    sms.subscriptionId = lane.subscriptionId;
+                    lane.lastSendAt = now;
+                    lane.trim(now);
+                    lane.recent.addLast(now);
+                    windowSends.addLast(now);
+                    toSend.add(sms);
+                    wakeAt = now; // more may be due right after the interval
+                }
+            }
+            if (!toSend.isEmpty()) persist();
+        }
+        for (Runnable r : callbacks) r.run();
+        for (OutboundSms sms : toSend) handOff(sms);
+        return wakeAt;
+    }
+
+    /** Sent result of one part of attempt {@code attempt}. */
+    public void onPartSent(long id, int attempt, boolean ok, boolean retryable, String error) {
+        List<Runnable> callbacks = new ArrayList<>(1);
+        synchronized (this) {
+            OutboundSms sms = pending.get(id);
+            if (sms == null || sms.attempts != attempt || sms.state != OutboundSms.State.SENDING) return;
+            if (!ok) {
+                failAttempt(sms, retryable, error, callbacks);
+            } else {
+                sms.partsSent++;
+                checkSent(sms, callbacks);
+            }
+            notifyAll();
+        }
+        for (Runnable r : callbacks) r.run();
+    }
+
+    /** Delivery report of one part of attempt {@code attempt}. */
+    public void onPartDelivered(long id, int attempt, boolean ok) {
+        List<Runnable> callbacks = new ArrayList<>(1);
+        synchronized (this) {
+            OutboundSms sms = pending.get(id);
+            if (sms == null || sms.attempts != attempt) return;
+            if (!ok) {
+                fail(sms, "delivery failed", callbacks);
+            } else {
+                sms.partsDelivered++;
+                if (sms.state == OutboundSms.State.SENT && sms.partsDelivered >= sms.partsTotal) {
+                    complete(sms, true, callbacks);
+                }
+            }
+            notifyAll();
+        }
+        for (Runnable r : callbacks) r.run();
+    }
+
+    // ---- internals ----
+
+    private void workLoop() {
+        while (true) {
+            long wakeAt = runOnce();
+            synchronized (this) {
+                long wait = wakeAt - clock.nowMillis();
+                if (wait <= 0) continue;
+                try {
+                    wait(Math.min(wait, WINDOW_MS));
+                } catch (InterruptedException e) {
+                    worker = null;
+                    return;
+                }
+            }
+        }
+    }
+
+    private void handOff(OutboundSms sms) {
+        int parts;
+        try {
+            parts = transport.send(sms);
+        } catch (Exception e) {
+            onPartSent(sms.id, sms.attempts, false, true, ERROR_NOT_HANDED_OFF);
+            return;
+        }
+        List<Runnable> callbacks = new ArrayList<>(1);
+        synchronized (this) {
+            if (pending.get(sms.id) != sms || sms.state != OutboundSms.State.SENDING) return;
+            sms.partsTotal = Math.max(1, parts);
+            checkSent(sms, callbacks); // part results may have arrived before send() returned
+        }
+        for (Runnable r : callbacks) r.run();
+    }
+
+    // guarded by this
+    private long windowSlot(long now) {
+        while (!windowSends.isEmpty() && windowSends.peekFirst() <= now - WINDOW_MS) windowSends.removeFirst();
+        return windowSends.size() >= WINDOW_MAX ? windowSends.peekFirst() + WINDOW_MS : now;
+    }
+
+    // guarded by this; marks the pool's current SIMs active (lanes of removed SIMs keep their counters)
+    private void syncLanes() {
+        int[] active = sims.activeSubscriptions();
+        if (active == null || active.length == 0) active = SimPool.DEFAULT.activeSubscriptions();
+        for (Lane lane : lanes.values()) lane.active = false;
+        for (int id : active) {
+            Lane lane = lanes.get(id);
+            if (lane == null) {
+                lane = new Lane(id);
+                lanes.put(id, lane);
+            }
+            lane.active = true;
+        }
+    }
+
+    // guarded by this; the recipient's SIM, unless it is gone or cooling down while another is not
+    private Lane laneFor(OutboundSms sms, long now) {
+        String recipient = PhoneNumbers.normalize(sms.to);
+        Integer pinned = stickySim.get(recipient);
+        Lane lane = pinned != null ? lanes.get(pinned) : null;
+        if (lane != null && lane.active && lane.coolUntil <= now) return lane;
+        Lane best = null;
+        for (Lane candidate : lanes.values()) {
+            if (candidate.active && (best == null || candidate.preferredOver(best, now))) best = candidate;
+        }
+        if (lane != null && lane.active && lane.coolUntil <= best.coolUntil) return lane; // all cooling
+        stickySim.put(recipient, best.subscriptionId);
+        return best;
+    }
+
+    // guarded by this
+    private void laneSucceeded(OutboundSms sms) {
+        Lane lane = lanes.get(sms.subscriptionId);
+        if (lane == null) return;
+        lane.sent++;
+        lane.consecutiveFailures = 0;
+        lane.coolUntil = 0;
+    }
+
+    // guarded by this
+    private void laneFailed(OutboundSms sms) {
+        Lane lane = lanes.get(sms.subscriptionId);
+        if (lane == null) return;
+        lane.failed++;
+        lane.consecutiveFailures++;
+        lane.coolUntil = clock.nowMillis()
+                + Math.min(BACKOFF_MAX_MS, SIM_COOLDOWN_MS << Math.min(16, lane.consecutiveFailures - 1));
+    }
+
+    // guarded by this
+    private void checkSent(OutboundSms sms, List<Runnable> callbacks) {
+        if (sms.partsTotal == 0 || sms.partsSent < sms.partsTotal) return;
+        long now = clock.nowMillis();
+        sms.state = OutboundSms.State.SENT;
+        sms.sentAtMillis = now;
+        sms.deliveryDeadlineMillis = now + DELIVERY_TIMEOUT_MS;
+        sent.incrementAndGet();
+        laneSucceeded(sms);
+        SmsMetrics.record(SmsMetrics.Stage.OUTBOUND_SENT, (now - sms.enqueuedAtMillis) * 1_000_000L);
+        persist();
+        Listener l = listeners.get(sms.id);
+        if (l != null) callbacks.add(() -> l.onSent(sms.id));
+        if (sms.partsDelivered >= sms.partsTotal) complete(sms, true, callbacks);
+    }
+
+    // guarded by this
+    private void failAttempt(OutboundSms sms, boolean retryable, String error, List<Runnable> callbacks) {
+        sms.lastError = error;
+        laneFailed(sms);
+        if (!retryable || sms.attempts >= MAX_ATTEMPTS) {
+            fail(sms, error, callbacks);
+            return;
+        }
+        long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(16, sms.attempts - 1));
+        sms.state = OutboundSms.State.QUEUED;
+        sms.nextAttemptAtMillis = clock.nowMillis() + backoff;
+        retries.incrementAndGet();
+        persist();
+    }
+
+    // guarded by this
+    private void fail(OutboundSms sms, String reason, List<Runnable> callbacks) {
+        pending.remove(sms.id);
+        failed.incrementAndGet();
+        persist();
+        Listener l = listeners.remove(sms.id);
+        if (l != null) callbacks.add(() -> l.onFailed(sms.id, reason));
+    }
+
+    // guarded by this
+    private void complete(OutboundSms sms, boolean confirmed, List<Runnable> callbacks) {
+        pending.remove(sms.id);
+        if (confirmed) {
+            delivered.incrementAndGet();
+            SmsMetrics.record(SmsMetrics.Stage.OUTBOUND_DELIVERED,
+                    (clock.nowMillis() - sms.enqueuedAtMillis) * 1_000_000L);
+        }
+        persist();
+        Listener l = listeners.remove(sms.id);
+        if (l != null) callbacks.add(() -> l.onDelivered(sms.id, confirmed));
+    }
+
+    // guarded by this
+    private void persist() {
+        try {
+            store.save(new ArrayList<>(pending.values()));
+        } catch (Exception e) {
+            storeErrors.incrementAndGet(); // the in-memory queue stays authoritative
+        }
+    }
+
+    /** Send state of one SIM; guarded by the queue. */
+    private static final class Lane {
+        final int subscriptionId;
+        final ArrayDeque<Long> recent = new ArrayDeque<>(); // send times within WINDOW_MS
+        boolean active;
+        long lastSendAt = Long.MIN_VALUE / 2;
+        long coolUntil;
+        int consecutiveFailures;
+        long sent;
+        long failed;
+
+        Lane(int subscriptionId) {
+            this.subscriptionId = subscriptionId;
+        }
+
+        void trim(long now) {
+            while (!recent.isEmpty() && recent.peekFirst() <= now - WINDOW_MS) recent.removeFirst();
+        }
+
+        // not cooling down first, then free to send now, then the one that sent least lately
+        boolean preferredOver(Lane other, long now) {
+            boolean cool = coolUntil > now;
+            if (cool != other.coolUntil > now) return !cool;
+            if (cool) return coolUntil < other.coolUntil;
+            boolean free = lastSendAt + MIN_INTERVAL_MS <= now;
+            if (free != other.lastSendAt + MIN_INTERVAL_MS <= now) return free;
+            trim(now);
+            other.trim(now);
+            if (recent.size() != other.recent.size()) return recent.size() < other.recent.size();
+            return lastSendAt < other.lastSendAt;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.sis;
+
+import java.util.List;
+
+/** Persistence of the outbound queue, so queued and unconfirmed messages survive a restart. */
+public interface OutboundSmsStore {
+
+    List<OutboundSms> load() throws Exception;
+
+    /** Replace the stored queue with {@code pending} (all non-terminal messages). */
+    void save(List<OutboundSms> pending) throws Exception;
+}
@@ -0,0 +1,106 @@
+package com.sis;
+
+/**
+ * Immutable result of {@link LocationExtractor}.
+ * - coordinates: latitude/longitude were found, mapUrl is derived from them
+ * - link only: a maps link (e.g. a short link) without coordinates
+ * Accuracy and fix time are only known for compact tokens (LocationToken); NaN / 0 otherwise.
+ */
+public final class ParsedLocation {
+    private static final String MAP_URL_PREFIX = "https://maps.google.com/?q=";
+
+    private final boolean hasCoordinates;
+    private final double latitude;
+    private final double longitude;
+    private final float accuracyMeters;
+    private final long fixTimeMillis;
+    // derived lazily for coordinate results; racy single-check is fine, the value is deterministic
+    private String mapUrl;
+
+    private ParsedLocation(boolean hasCoordinates, double latitude, double longitude,
+                           float accuracyMeters, long fixTimeMillis, String mapUrl) {
+        this.hasCoordinates = hasCoordinates;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.fixTimeMillis = fixTimeMillis;
+        this.mapUrl = mapUrl;
+    }
+
+    public static ParsedLocation ofCoordinates(double latitude, double longitude) {
+        return new ParsedLocation(true, latitude, longitude, Float.NaN, 0, null);
+    }
+
+    /** Coordinates with the sender's accuracy (NaN if unknown) and fix time. */
+    public static ParsedLocation ofFix(double latitude, double longitude, float accuracyMeters, long fixTimeMillis) {
+        return new ParsedLocation(true, latitude, longitude, accuracyMeters, fixTimeMillis, null);
+    }
+
+    public static ParsedLocation ofMapUrl(String mapUrl) {
+        return new ParsedLocation(false, Double.NaN, Double.NaN, Float.NaN, 0, mapUrl);
+    }
+
+    public boolean hasCoordinates() {
+        return hasCoordinates;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    public float getAccuracyMeters() {
+        return accuracyMeters;
+    }
+
+    /** When the sender's fix was taken, or 0 when the message did not say. */
+    public long getFixTimeMillis() {
+        return fixTimeMillis;
+    }
+
+    /**
+     * Maps URL for outgoing messages: coordinates rounded to 6 decimals (~0.1 m), since full
+     * double precision can push a reply past one SMS segment.
+     */
+    public static String mapUrlOf(double latitude, double longitude) {
+        return MAP_URL_PREFIX + Math.round(latitude * 1e6) / 1e6 + "," + Math.round(longitude * 1e6) / 1e6;
+    }
+
+    public String getMapUrl() {
+        String url = mapUrl;
+        if (url == null) {
+            url = MAP_URL_PREFIX + latitude + "," + longitude;
+            mapUrl = url;
+        }
+        return url;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ParsedLocation)) return false;
+        ParsedLocation other = (ParsedLocation) o;
+        if (hasCoordinates != other.hasCoordinates) return false;
+        if (hasCoordinates) {
+            return Double.compare(latitude, other.latitude) == 0
+                    && Double.compare(longitude, other.longitude) == 0;
+        }
+        return getMapUrl().equals(other.getMapUrl());
+    }
+
+    @Override
+    public int hashCode() {
+        if (!hasCoordinates) return getMapUrl().hashCode();
+        return 31 * Double.hashCode(latitude) + Double.hashCode(longitude);
+    }
+
+    @Override
+    public String toString() {
+        return hasCoordinates
+                ? "ParsedLocation{" + latitude + "," + longitude + "}"
+                : "ParsedLocation{" + getMapUrl() + "}";
+    }
+}
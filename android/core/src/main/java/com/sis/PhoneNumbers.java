@@ -0,0 +1,35 @@
+package com.sis;
+
+/**
+ * Phone number helpers shared by the receive path. Numbers are compared by their digits only,
+ * so "+91 98765-43210", "919876543210" and "(91) 9876543210" are the same key.
+ */
+public final class PhoneNumbers {
+
+    private PhoneNumbers() {}
+
+    /**
+     * Digits of {@code number}, in order ("" for null). Returns the same String instance
+     * when it already is digits-only, so the common case does not allocate.
+     */
+    public static String normalize(CharSequence number) {
+        if (number == null) return "";
+        int n = number.length();
+        int digits = 0;
+        for (int i = 0; i < n; i++) {
+            if (isDigit(number.charAt(i))) digits++;
+        }
+        if (digits == n && number instanceof String) return (String) number;
+        char[] out = new char[digits];
+        int k = 0;
+        for (int i = 0; i < n; i++) {
+            char c = number.charAt(i);
+            if (isDigit(c)) out[k++] = c;
+        }
+        return new String(out);
+    }
+
+    public static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -0,0 +1,154 @@
+package com.sis;
+
+import java.util.Arrays;
+
+/**
+ * Reverse-digit trie over phone numbers: numbers are inserted last digit first, so walking a
+ * sender's digits from the end visits every stored number that is a suffix of it.
+ * Non-digit characters are skipped on insert and lookup (no normalisation pass needed).
+ * Each stored number carries an int value (typically an index into the caller's arrays); each
+ * node also keeps the lowest value in its subtree, maintained by {@link #put}, so
+ * {@link #minValueEndingWith} is a single walk too.
+ *
+ * Not thread-safe while being built; read-only use after construction is safe to share.
+ */
+public final class PhoneSuffixTrie {
+    private static final int NONE = -1;
+
+    private int[] children = new int[10 * 16];
+    private int[] values = new int[16];
+    private int[] subtreeMin = new int[16]; // lowest value at or below each node, -1 = none
+    private int nodeCount = 1; // node 0 is the root
+
+    public PhoneSuffixTrie() {
+        Arrays.fill(children, NONE);
+        Arrays.fill(values, NONE);
+        Arrays.fill(subtreeMin, NONE);
+    }
+
+    /**
+     * Store {@code value} for {@code number}.
+     * Returns the previous value for the same digits, or -1. Numbers without digits are ignored.
+     */
+    public int put(CharSequence number, int value) {
+        int node = 0;
+        boolean any = false;
+        int[] path = new int[number.length() + 1];
+        int depth = 0;
+        path[depth++] = 0;
+        for (int i = number.length() - 1; i >= 0; i--) {
+            char c = number.charAt(i);
+            if (!PhoneNumbers.isDigit(c)) continue;
+            any = true;
+            int slot = node * 10 + (c - '0');
+            int next = children[slot];
+            if (next == NONE) {
+                next = newNode();
+                children[slot] = next;
+            }
+            node = next;
+            path[depth++] = node;
+        }
+        if (!any) return NONE;
+        int previous = values[node];
+        values[node] = value;
+        // bottom-up, so a replaced value can raise the minimum as well as lower it
+        while (depth > 0) {
+            int n = path[--depth];
+            int min = values[n];
+            for (int d = 0; d < 10; d++) {
+                int child = children[n * 10 + d];
+                if (child != NONE) min = lower(min, subtreeMin[child]);
+            }
+            subtreeMin[n] = min;
+        }
+        return previous;
+    }
+
+    /** Value stored for exactly these digits, or -1. */
+    public int get(CharSequence number) {
+        int node = 0;
+        boolean any = false;
+        for (int i = number.length() - 1; i >= 0 && node != NONE; i--) {
+            char c = number.charAt(i);
+            if (!PhoneNumbers.isDigit(c)) continue;
+            any = true;
+            node = children[node * 10 + (c - '0')];
+        }
+        return any && node != NONE ? values[node] : NONE;
+    }
+
+    /**
+     * Values of all stored numbers that are a suffix of {@code number}, shortest first.
+     * Writes at most {@code out.length} values and returns how many were written.
+     */
+    public int suffixValues(CharSequence number, int[] out) {
+        int count = 0;
+        int node = 0;
+        for (int i = number.length() - 1; i >= 0 && count < out.length; i--) {
+            char c = number.charAt(i);
+            if (!PhoneNumbers.isDigit(c)) continue;
+            node = children[node * 10 + (c - '0')];
+            if (node == NONE) break;
+            if (values[node] != NONE) out[count++] = values[node];
+        }
+        return count;
+    }
+
+    /** Value of the longest stored number that is a suffix of {@code number}, or -1. */
+    public int longestSuffixValue(CharSequence number) {
+        int best = NONE;
+        int node = 0;
+        for (int i = number.length() - 1; i >= 0; i--) {
+            char c = number.charAt(i);
+            if (!PhoneNumbers.isDigit(c)) continue;
+            node = children[node * 10 + (c - '0')];
+            if (node == NONE) break;
+            if (values[node] != NONE) best = values[node];
+        }
+        return best;
+    }
+
+    /**
+     * Lowest value among stored numbers that end with all of {@code number}'s digits
+     * (i.e. {@code number} is a suffix of them, e.g. a local number vs a stored +CC number), or -1.
+     * O(digits), no allocation.
+     */
+    public int minValueEndingWith(CharSequence number) {
+        int node = 0;
+        boolean any = false;
+        for (int i = number.length() - 1; i >= 0 && node != NONE; i--) {
+            char c = number.charAt(i);
+            if (!PhoneNumbers.isDigit(c)) continue;
+            any = true;
+            node = children[node * 10 + (c - '0')];
+        }
+        return any && node != NONE ? subtreeMin[node] : NONE;
+    }
+
+    /** True when no number has been stored. */
+    public boolean isEmpty() {
+        return nodeCount == 1 && values[0] == NONE;
+    }
+
+    private static int lower(int a, int b) {
+        if (a == NONE) return b;
+        return b == NONE ? a : Math.min(a, b);
+    }
+
+    private int newNode() {
+        if (nodeCount == values.length) {
+            int capacity = values.length * 2;
+            int[] grownValues = Arrays.copyOf(values, capacity);
+            Arrays.fill(grownValues, values.length, capacity, NONE);
+            int[] grownMin = Arrays.copyOf(subtreeMin, capacity);
+            Arrays.fill(grownMin, subtreeMin.length, capacity, NONE);
+            int[] grownChildren = Arrays.copyOf(children, capacity * 10);
+            Arrays.fill(grownChildren, children.length, capacity * 10, NONE);
+            values = grownValues;
+            subtreeMin = grownMin;
+            children = grownChildren;
+        }
+        return nodeCount++;
+    }
+}
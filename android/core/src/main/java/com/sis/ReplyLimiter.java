@@ -0,0 +1,194 @@
+package com.sis;
+
+/**
+ * Rate limit for location replies to trusted contacts: a token bucket per contact plus one for
+ * the whole phone, so a contact resending the keyword (or several contacts at once) cannot run
+ * up SMS cost or keep the GPS on.
+ * - each bucket is GCRA: one "theoretical arrival time" per bucket instead of a token count and
+ *   a refill timestamp; a bucket of {@code burst} replies earns one back every {@code interval}
+ * - a request over the limit is deferred to when both buckets allow it (at most
+ *   {@link #MAX_DEFER_MS} ahead, else dropped); requests from that contact while a deferred reply
+ *   is pending are coalesced into it, and the caller takes the fix when it finally sends, so the
+ *   single reply carries the freshest location
+ * - per-contact state is three parallel arrays (key hash, arrival time, pending flag) with open
+ *   addressing; idle entries are discarded when the table grows
+ * Thread-safe. State lives in memory only: a process restart forgets the buckets.
+ */
+public final class ReplyLimiter {
+    public static final int DEFAULT_BURST = 3;
+    public static final long DEFAULT_INTERVAL_MS = 5 * 60_000;
+    public static final int GLOBAL_BURST = 10;
+    public static final long GLOBAL_INTERVAL_MS = 2 * 60_000;
+    public static final long MAX_DEFER_MS = 15 * 60_000;
+
+    public enum Decision {
+        SEND,      // reply now
+        DEFER,     // reply at Result.atMillis (the caller schedules it and calls onDeferredSent)
+        COALESCED, // a deferred reply to this contact is pending and will answer this request too
+        DROPPED    // over the limit for longer than MAX_DEFER_MS
+    }
+
+    public static final class Result {
+        static final Result SEND = new Result(Decision.SEND, 0);
+        static final Result COALESCED = new Result(Decision.COALESCED, 0);
+        static final Result DROPPED = new Result(Decision.DROPPED, 0);
+
+        public final Decision decision;
+        /** When to send a DEFER reply (wall clock ms). */
+        public final long atMillis;
+
+        Result(Decision decision, long atMillis) {
+            this.decision = decision;
+            this.atMillis = atMillis;
+        }
+    }
+
+    private final int globalBurst;
+    private final long globalInterval;
+    private final long maxDeferMillis;
+
+    // guarded by this
+    private long[] keys = new long[16];    // 0 = empty
+    private long[] arrival = new long[16];
+    private boolean[] pending = new boolean[16];
+    private int size;
+    private long globalArrival;
+    private long sent;
+    private long deferred;
+    private long coalesced;
+    private long dropped;
+
+    public ReplyLimiter() {
+        this(GLOBAL_BURST, GLOBAL_INTERVAL_MS, MAX_DEFER_MS);
+    }
+
+    public ReplyLimiter(int globalBurst, long globalIntervalMillis, long maxDeferMillis) {
+        this.globalBurst = Math.max(1, globalBurst);
+        this.globalInterval = Math.max(0, globalIntervalMillis);
+        this.maxDeferMillis = maxDeferMillis;
+    }
+
+    /**
+     * Decide a reply to {@code phone} (any format, compared by digits).
+     * @param burst replies allowed back to back (at least 1)
+     * @param intervalMillis time to earn one more reply (0: this contact is not limited, only the
+     *                       global bucket applies)
+     */
+    public synchronized Result request(String phone, int burst, long intervalMillis, long nowMillis) {
+        int slot = slot(key(phone), nowMillis);
+        if (pending[slot]) {
+            coalesced++;
+            SmsMetrics.increment(SmsMetrics.Counter.REPLY_COALESCED);
+            return Result.COALESCED;
+        }
+        long interval = Math.max(0, intervalMillis);
+        long own = Math.max(arrival[slot], nowMillis);
+        long all = Math.max(globalArrival, nowMillis);
+        long readyAt = nowMillis;
+        // a bucket with no interval is unlimited (and must not hold replies back to a reserved time)
+        if (interval > 0) readyAt = Math.max(readyAt, own - (Math.max(1, burst) - 1) * interval);
+        if (globalInterval > 0) readyAt = Math.max(readyAt, all - (globalBurst - 1) * globalInterval);
+        if (readyAt - nowMillis > maxDeferMillis) {
+            dropped++;
+            SmsMetrics.increment(SmsMetrics.Counter.REPLY_DROPPED);
+            return Result.DROPPED;
+        }
+        // the reply takes its tokens now, so later requests queue behind it
+        if (interval > 0) arrival[slot] = Math.max(own, readyAt) + interval;
+        if (globalInterval > 0) globalArrival = Math.max(all, readyAt) + globalInterval;
+        if (readyAt == nowMillis) {
+            sent++;
+            return Result.SEND;
+        }
+        pending[slot] = true;
+        deferred++;
+        return new Result(Decision.DEFER, readyAt);
+    }
+
+    /** The deferred reply to {@code phone} went out (or was given up): new requests are decided again. */
+    public synchronized void onDeferredSent(String phone) {
+        long key = key(phone);
+        for (int i = (int) mix(key) & (keys.length - 1); keys[i] != 0; i = (i + 1) & (keys.length - 1)) {
+            if (keys[i] == key) {
+                pending[i] = false;
+                return;
+            }
+        }
+    }
+
+    public synchronized long sentCount() {
+        return sent;
+    }
+
+    public synchronized long deferredCount() {
+        return deferred;
+    }
+
+    public synchronized long coalescedCount() {
+        return coalesced;
+    }
+
+    public synchronized long droppedCount() {
+        return dropped;
+    }
+
+    // slot of `key`, inserted if absent
+    private int slot(long key, long nowMillis) {
+        int mask = keys.length - 1;
+        int i = (int) mix(key) & mask;
+        for (; keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return i;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(nowMillis);
+            return slot(key, nowMillis);
+        }
+        keys[i] = key;
+        arrival[i] = 0;
+        pending[i] = false;
+        size++;
+        return i;
+    }
+
+    // keeps entries that still carry state (bucket not full again, or a reply pending)
+    private void rehash(long nowMillis) {
+        long[] oldKeys = keys;
+        long[] oldArrival = arrival;
+        boolean[] oldPending = pending;
+        int live = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0 && (oldArrival[i] > nowMillis || oldPending[i])) live++;
+        }
+        int capacity = 16;
+        while (capacity < (live + 1) * 4) capacity <<= 1;
+        keys = new long[capacity];
+        arrival = new long[capacity];
+        pending = new boolean[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0 || (oldArrival[i] <= nowMillis && !oldPending[i])) continue;
+            int j = (int) mix(oldKeys[i]) & (capacity - 1);
+            while (keys[j] != 0) j = (j + 1) & (capacity - 1);
+            keys[j] = oldKeys[i];
+            arrival[j] = oldArrival[i];
+            pending[j] = oldPending[i];
+            size++;
+        }
+    }
+
+    // 64-bit FNV-1a of the digits (never 0)
+    static long key(String phone) {
+        long h = 0xcbf29ce484222325L;
+        if (phone != null) {
+            for (int i = 0, n = phone.length(); i < n; i++) {
+                char c = phone.charAt(i);
+                if (PhoneNumbers.isDigit(c)) h = (h ^ c) * 0x100000001b3L;
+            }
+        }
+        return h != 0 ? h : 1;
+    }
+
+    private static long mix(long key) {
+        return key ^ (key >>> 29) ^ (key >>> 47);
+    }
+}
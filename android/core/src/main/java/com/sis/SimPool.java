@@ -0,0 +1,20 @@
+package com.sis;
+
+/**
+ * The SIMs (subscriptions) outbound SMS can go out through; OutboundSmsQueue keeps one send lane
+ * per subscription and the transport sends each message through the subscription it was given
+ * ({@link OutboundSms#getSubscriptionId}).
+ */
+public interface SimPool {
+    /** The platform's default SMS subscription (single-SIM phones, or when the SIMs are unknown). */
+    int DEFAULT_SUBSCRIPTION = -1;
+
+    /** Only the default subscription: one lane, as without a pool. */
+    SimPool DEFAULT = () -> new int[] {DEFAULT_SUBSCRIPTION};
+
+    /**
+     * Subscription ids that can send now, the preferred (default SMS) one first. Called on every
+     * queue step, so it should be cached; an empty result is treated as {@link #DEFAULT}.
+     */
+    int[] activeSubscriptions();
+}
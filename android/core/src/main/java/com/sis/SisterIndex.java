@@ -0,0 +1,103 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable sender -> sister resolution over the configured sister list.
+ * Resolution is deterministic and independent of list order:
+ * 1. the sister with the longest number that is a suffix of the sender's digits
+ *    ("+91 98765 43210" sender vs "9876543210" configured)
+ * 2. otherwise, when the sender has at least {@link #MIN_PARTIAL_DIGITS} digits, the first-listed
+ *    sister whose number ends with the sender's digits (sender arrived without country code)
+ * Lookups walk the sender's digits at most twice (O(digits): the trie keeps per-subtree
+ * minimums for step 2) and do not allocate.
+ */
+public final class SisterIndex {
+    public static final SisterIndex EMPTY = new Builder().build();
+    static final int MIN_PARTIAL_DIGITS = 6;
+
+    private final PhoneSuffixTrie trie;
+    private final String[] phones; // as configured (canonical key)
+    private final String[] names;
+
+    private SisterIndex(PhoneSuffixTrie trie, String[] phones, String[] names) {
+        this.trie = trie;
+        this.phones = phones;
+        this.names = names;
+    }
+
+    public int size() {
+        return phones.length;
+    }
+
+    /** Index of the sister {@code number} belongs to, or -1. */
+    public int indexOf(CharSequence number) {
+        if (number == null || phones.length == 0) return -1;
+        int i = trie.longestSuffixValue(number);
+        if (i >= 0) return i;
+        if (countDigits(number) < MIN_PARTIAL_DIGITS) return -1;
+        return trie.minValueEndingWith(number);
+    }
+
+    /** Canonical (configured) phone for {@code number}, or null when it is not a sister. */
+    public String resolve(CharSequence number) {
+        int i = indexOf(number);
+        return i >= 0 ? phones[i] : null;
+    }
+
+    public String phoneAt(int index) {
+        return phones[index];
+    }
+
+    public String nameAt(int index) {
+        return names[index];
+    }
+
+    /** Index of a stored sister_list: JSON array string of { phone, name, ... } (null or empty: none). */
+    public static SisterIndex fromJson(String jsonList) throws JSONException {
+        if (jsonList == null || jsonList.length() == 0) return EMPTY;
+        JSONArray arr = new JSONArray(jsonList);
+        Builder builder = new Builder();
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject s = arr.optJSONObject(i);
+            if (s == null) continue;
+            builder.add(s.optString("phone", ""), s.optString("name", ""));
+        }
+        return builder.build();
+    }
+
+    private static int countDigits(CharSequence number) {
+        int digits = 0;
+        for (int i = 0, n = number.length(); i < n; i++) {
+            if (PhoneNumbers.isDigit(number.charAt(i))) digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Collects sisters in list order; the first entry wins when two share the same digits.
+     * Single use: the built index shares the builder's trie.
+     */
+    public static final class Builder {
+        private final PhoneSuffixTrie trie = new PhoneSuffixTrie();
+        private final List<String> phones = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+
+        public Builder add(String phone, String name) {
+            if (phone == null || countDigits(phone) == 0 || trie.get(phone) >= 0) return this;
+            trie.put(phone, phones.size());
+            phones.add(phone);
+            names.add(name);
+            return this;
+        }
+
+        public SisterIndex build() {
+            return new SisterIndex(trie, phones.toArray(new String[0]), names.toArray(new String[0]));
+        }
+    }
+}
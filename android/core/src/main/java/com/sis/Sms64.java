@@ -0,0 +1,62 @@
+package com.sis;
+
+import java.util.Arrays;
+
+/**
+ * URL-safe base-64 alphabet restricted to characters of the GSM 7-bit default set (one septet
+ * each), shared by the compact SMS payloads (LocationToken, TrackBundle). No padding.
+ */
+final class Sms64 {
+    static final String ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+    private static final int[] VALUE = new int[128];
+
+    static {
+        Arrays.fill(VALUE, -1);
+        for (int i = 0; i < ALPHABET.length(); i++) VALUE[ALPHABET.charAt(i)] = i;
+    }
+
+    private Sms64() {}
+
+    /** 0..63 for an alphabet character, -1 otherwise. */
+    static int value(char c) {
+        return c < 128 ? VALUE[c] : -1;
+    }
+
+    /** Characters needed for {@code bytes} bytes. */
+    static int encodedLength(int bytes) {
+        return (bytes * 8 + 5) / 6;
+    }
+
+    static void encode(byte[] in, int length, StringBuilder out) {
+        int acc = 0;
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            acc = acc << 8 | (in[i] & 0xff);
+            bits += 8;
+            while (bits >= 6) {
+                bits -= 6;
+                out.append(ALPHABET.charAt((acc >>> bits) & 63));
+            }
+        }
+        if (bits > 0) out.append(ALPHABET.charAt((acc << (6 - bits)) & 63));
+    }
+
+    /** Bytes of t[start, end), or null when a character is outside the alphabet. */
+    static byte[] decode(CharSequence t, int start, int end) {
+        byte[] out = new byte[(end - start) * 6 / 8];
+        int acc = 0;
+        int bits = 0;
+        int n = 0;
+        for (int i = start; i < end; i++) {
+            int v = value(t.charAt(i));
+            if (v < 0) return null;
+            acc = acc << 6 | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                out[n++] = (byte) (acc >>> bits);
+            }
+        }
+        return out;
+    }
+}
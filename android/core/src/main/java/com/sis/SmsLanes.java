@@ -0,0 +1,22 @@
+package com.sis;
+
+/**
+ * How SmsWorkQueue spreads received messages over its single-threaded lanes (SmsLoadHarness
+ * replays the same way): a sender always maps to the same lane, by the digits of its address
+ * only, so "+91 98..." and "9198..." share a lane.
+ */
+public final class SmsLanes {
+    public static final int COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private SmsLanes() {}
+
+    public static int of(String sender) {
+        if (sender == null) return 0;
+        int h = 0;
+        for (int i = 0, n = sender.length(); i < n; i++) {
+            char c = sender.charAt(i);
+            if (c >= '0' && c <= '9') h = 31 * h + c;
+        }
+        return (h & 0x7fffffff) % COUNT;
+    }
+}
@@ -0,0 +1,254 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Per-stage latency histograms and event counters for the SMS receive and send pipelines.
+ * - off until {@link #setEnabled} (debug builds turn it on at startup, release builds from JS
+ *   through MetricsModule): a disabled record is one volatile read, and {@link #start} does not
+ *   even read the clock
+ * - every stage keeps count, total and max, plus a log2 histogram in microseconds (bucket k
+ *   holds [2^(k-1), 2^k) us) from which {@link #snapshot} reads percentiles as bucket upper bounds
+ * - lock-free; a snapshot is not atomic across stages
+ */
+public final class SmsMetrics {
+
+    public enum Stage {
+        DECODE,      // PDU -> SmsMessage
+        QUEUE_WAIT,  // onReceive -> worker picks the task up
+        PARSE,       // location extraction
+        MATCH,       // trusted / sister list lookup
+        PREFS_WRITE, // SharedPreferences edits
+        JOURNAL,     // LocationJournal append
+        EMIT,        // React event emit
+        LOCATION,    // LocationService request -> fix delivered (provider ladder only, not cache hits)
+        OUTBOUND_SENT,      // OutboundSmsQueue enqueue -> all parts sent
+        OUTBOUND_DELIVERED, // OutboundSmsQueue enqueue -> all parts delivered
+        HANDLED,     // onReceive -> task finished (receive-to-handled latency)
+        STARTUP,     // process start -> Application.onCreate done
+        PREWARM,     // background warm-up of prefs, indexes and stores after process start
+        REPLY_COLD,  // onReceive -> location reply queued, message that started the process
+        REPLY_WARM,  // onReceive -> location reply queued, process already running
+        GEOFENCE     // GeofenceMonitor evaluation of one fix
+    }
+
+    public enum Counter {
+        RECEIVED,        // logical messages handed to the handlers
+        DUPLICATE,       // repeated delivery of a message already handled (InboundDedup)
+        QUEUE_OVERFLOW,  // SmsWorkQueue lane full, message waited in its overflow list
+        HANDLER_FAILED,  // a handler threw
+        LOCATION_PARSED, // received message carried a location
+        SISTER_MATCHED,  // sender resolved to a configured sister
+        TRUSTED_MATCHED, // trusted sender with its keyword
+        EMITTED,         // event delivered to JS
+        EMIT_SKIPPED,    // no React context, stored only
+        REPLY_COALESCED, // location request answered by an already pending deferred reply (ReplyLimiter)
+        REPLY_DROPPED    // location request over the reply limit, not answered
+    }
+
+    static final int BUCKETS = 32;
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Counter[] COUNTERS = Counter.values();
+    private static final AtomicLong[] COUNT = newCounters(STAGES.length);
+    private static final AtomicLong[] TOTAL_NANOS = newCounters(STAGES.length);
+    private static final AtomicLong[] MAX_NANOS = newCounters(STAGES.length);
+    private static final AtomicLongArray HISTOGRAM = new AtomicLongArray(STAGES.length * BUCKETS);
+    private static final AtomicLongArray EVENTS = new AtomicLongArray(COUNTERS.length);
+
+    private static volatile boolean enabled;
+
+    private SmsMetrics() {}
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Turn recording on or off; values recorded so far are kept. */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Start of a timed section: System.nanoTime(), or 0 while disabled (skipped by {@link #since}). */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void record(Stage stage, long nanos) {
+        if (!enabled) return;
+        int i = stage.ordinal();
+        COUNT[i].incrementAndGet();
+        TOTAL_NANOS[i].addAndGet(nanos);
+        AtomicLong max = MAX_NANOS[i];
+        long prev;
+        while (nanos > (prev = max.get()) && !max.compareAndSet(prev, nanos)) {
+            // retry
+        }
+        HISTOGRAM.incrementAndGet(i * BUCKETS + bucket(nanos / 1000));
+    }
+
+    /** Convenience for {@code record(stage, System.nanoTime() - startNanos)}, startNanos from {@link #start}. */
+    public static void since(Stage stage, long startNanos) {
+        if (!enabled || startNanos == 0) return;
+        record(stage, System.nanoTime() - startNanos);
+    }
+
+    public static void increment(Counter counter) {
+        if (enabled) EVENTS.incrementAndGet(counter.ordinal());
+    }
+
+    public static long count(Stage stage) {
+        return COUNT[stage.ordinal()].get();
+    }
+
+    public static long count(Counter counter) {
+        return EVENTS.get(counter.ordinal());
+    }
+
+    /** One line per stage: count, mean and max in microseconds. */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder(256);
+        for (Stage stage : STAGES) {
+            int i = stage.ordinal();
+            long n = COUNT[i].get();
+            if (n == 0) continue;
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(stage.name().toLowerCase())
+                    .append(" n=").append(n)
+                    .append(" avg=").append(TOTAL_NANOS[i].get() / n / 1000).append("us")
+                    .append(" max=").append(MAX_NANOS[i].get() / 1000).append("us");
+        }
+        return sb.toString();
+    }
+
+    /** Current values of every stage and counter. */
+    public static Snapshot snapshot() {
+        List<StageStats> stages = new ArrayList<>(STAGES.length);
+        long[] buckets = new long[BUCKETS];
+        for (Stage stage : STAGES) {
+            int i = stage.ordinal();
+            long n = 0;
+            for (int k = 0; k < BUCKETS; k++) {
+                buckets[k] = HISTOGRAM.get(i * BUCKETS + k);
+                n += buckets[k];
+            }
+            long maxMicros = MAX_NANOS[i].get() / 1000;
+            stages.add(new StageStats(stage, COUNT[i].get(), TOTAL_NANOS[i].get(), MAX_NANOS[i].get(),
+                    percentile(buckets, n, 0.50, maxMicros), percentile(buckets, n, 0.90, maxMicros),
+                    percentile(buckets, n, 0.99, maxMicros)));
+        }
+        Map<Counter, Long> counters = new LinkedHashMap<>();
+        for (Counter counter : COUNTERS) counters.put(counter, EVENTS.get(counter.ordinal()));
+        return new Snapshot(enabled, Collections.unmodifiableList(stages), Collections.unmodifiableMap(counters));
+    }
+
+    public static void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            COUNT[i].set(0);
+            TOTAL_NANOS[i].set(0);
+            MAX_NANOS[i].set(0);
+        }
+        for (int i = 0; i < HISTOGRAM.length(); i++) HISTOGRAM.set(i, 0);
+        for (int i = 0; i < EVENTS.length(); i++) EVENTS.set(i, 0);
+    }
+
+    /** Latencies of one stage. Percentiles are upper bounds (log2 buckets, capped at the max). */
+    public static final class StageStats {
+        public final Stage stage;
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        public final long p50Micros;
+        public final long p90Micros;
+        public final long p99Micros;
+
+        StageStats(Stage stage, long count, long totalNanos, long maxNanos,
+                   long p50Micros, long p90Micros, long p99Micros) {
+            this.stage = stage;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Micros = p50Micros;
+            this.p90Micros = p90Micros;
+            this.p99Micros = p99Micros;
+        }
+
+        public long meanMicros() {
+            return count == 0 ? 0 : totalNanos / count / 1000;
+        }
+    }
+
+    public static final class Snapshot {
+        public final boolean enabled;
+        public final List<StageStats> stages;
+        public final Map<Counter, Long> counters;
+
+        Snapshot(boolean enabled, List<StageStats> stages, Map<Counter, Long> counters) {
+            this.enabled = enabled;
+            this.stages = stages;
+            this.counters = counters;
+        }
+
+        public StageStats stage(Stage stage) {
+            return stages.get(stage.ordinal());
+        }
+
+        /** {"enabled":..,"stages":[{"stage":"parse","count":..,"meanUs":..,...}],"counters":{"received":..}} */
+        public String toJson() throws JSONException {
+            JSONArray arr = new JSONArray();
+            for (StageStats s : stages) {
+                if (s.count == 0) continue;
+                JSONObject o = new JSONObject();
+                o.put("stage", s.stage.name().toLowerCase());
+                o.put("count", s.count);
+                o.put("meanUs", s.meanMicros());
+                o.put("p50Us", s.p50Micros);
+                o.put("p90Us", s.p90Micros);
+                o.put("p99Us", s.p99Micros);
+                o.put("maxUs", s.maxNanos / 1000);
+                arr.put(o);
+            }
+            JSONObject events = new JSONObject();
+            for (Map.Entry<Counter, Long> e : counters.entrySet()) {
+                events.put(e.getKey().name().toLowerCase(), e.getValue().longValue());
+            }
+            JSONObject out = new JSONObject();
+            out.put("enabled", enabled);
+            out.put("stages", arr);
+            out.put("counters", events);
+            return out.toString();
+        }
+    }
+
+    static int bucket(long micros) {
+        if (micros <= 0) return 0;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    private static long percentile(long[] buckets, long n, double q, long maxMicros) {
+        if (n == 0) return 0;
+        long rank = (long) Math.ceil(q * n);
+        long seen = 0;
+        for (int k = 0; k < BUCKETS; k++) {
+            seen += buckets[k];
+            if (seen >= rank) return Math.min(1L << k, Math.max(1, maxMicros));
+        }
+        return maxMicros;
+    }
+
+    private static AtomicLong[] newCounters(int n) {
+        AtomicLong[] counters = new AtomicLong[n];
+        for (int i = 0; i < counters.length; i++) counters[i] = new AtomicLong();
+        return counters;
+    }
+}
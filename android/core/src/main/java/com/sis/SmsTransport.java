@@ -0,0 +1,17 @@
+package com.sis;
+
+/**
+ * Sends one attempt of an OutboundSms. Per-part results are reported back asynchronously through
+ * {@link OutboundSmsQueue#onPartSent} / {@link OutboundSmsQueue#onPartDelivered}, tagged with
+ * the message id and attempt number.
+ */
+public interface SmsTransport {
+
+    /**
+     * Start sending {@code sms} (attempt {@code sms.getAttempts()}).
+     *
+     * @return number of parts that will report a sent (and delivered) result
+     * @throws Exception when the message could not be handed to the platform at all
+     */
+    int send(OutboundSms sms) throws Exception;
+}
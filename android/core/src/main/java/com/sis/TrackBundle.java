@@ -0,0 +1,176 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Batched track update: several fixes in one single-segment SMS, "ST1:" followed by the Sms64
+ * encoding of
+ * - anchor: fix time in seconds since 2020-01-01 UTC (4 bytes), latitude + 90 and longitude + 180
+ *   in fixed point at 1e-5 degrees (4 bytes each)
+ * - every further fix as deltas to the previous one: seconds (varint), latitude and longitude
+ *   (zig-zag varints in 1e-5 degrees); walking-speed samples take about 5 bytes
+ * - 2 check bytes (CRC32 of everything before)
+ * {@link #encode} splits a track into as many bundles as needed, each at most
+ * {@link #MAX_CHARS} characters. Stateless and thread-safe.
+ */
+public final class TrackBundle {
+    public static final String PREFIX = "ST1:";
+    /** One GSM 7-bit segment. */
+    public static final int MAX_CHARS = 160;
+
+    private static final double SCALE = 1e5;
+    private static final long EPOCH_MILLIS = 1_577_836_800_000L; // 2020-01-01T00:00:00Z
+    private static final int HEADER_BYTES = 12;
+    private static final int CHECK_BYTES = 2;
+    private static final int MAX_POINT_BYTES = 5 + 5 + 5;
+    private static final int MAX_BYTES = (MAX_CHARS - PREFIX.length()) * 6 / 8;
+
+    private TrackBundle() {}
+
+    /** Bundles for {@code fixes} (oldest first); fixes out of coordinate range are skipped. */
+    public static List<String> encode(List<LocationFix> fixes) {
+        List<String> bundles = new ArrayList<>();
+        byte[] buf = new byte[MAX_BYTES];
+        int len = 0;
+        long prevSec = 0, prevLat = 0, prevLon = 0;
+        for (LocationFix fix : fixes) {
+            if (!(fix.getLatitude() >= -90 && fix.getLatitude() <= 90)
+                    || !(fix.getLongitude() >= -180 && fix.getLongitude() <= 180)) continue;
+            long sec = Math.max(0, (fix.getTimeMillis() - EPOCH_MILLIS) / 1000);
+            long lat = Math.round((fix.getLatitude() + 90) * SCALE);
+            long lon = Math.round((fix.getLongitude() + 180) * SCALE);
+            // deltas need a time-ordered run; a point going back in time starts a new bundle
+            if (len > 0 && (len + MAX_POINT_BYTES + CHECK_BYTES > MAX_BYTES || sec < prevSec)) {
+                bundles.add(finish(buf, len));
+                len = 0;
+            }
+            if (len == 0) {
+                len = putFixed(buf, len, sec);
+                len = putFixed(buf, len, lat);
+                len = putFixed(buf, len, lon);
+            } else {
+                len = putVarint(buf, len, sec - prevSec);
+                len = putVarint(buf, len, zigZag(lat - prevLat));
+                len = putVarint(buf, len, zigZag(lon - prevLon));
+            }
+            prevSec = sec;
+            prevLat = lat;
+            prevLon = lon;
+        }
+        if (len > 0) bundles.add(finish(buf, len));
+        return bundles;
+    }
+
+    /**
+     * Fixes of the first valid bundle in {@code text}, oldest first (accuracy unknown), or null
+     * when there is none.
+     */
+    public static List<ParsedLocation> find(CharSequence text) {
+        if (text == null) return null;
+        int n = text.length();
+        for (int i = 0; i + PREFIX.length() < n; i++) {
+            if (text.charAt(i) != 'S' || !startsWith(text, i)) continue;
+            int start = i + PREFIX.length();
+            int end = start;
+            while (end < n && Sms64.value(text.charAt(end)) >= 0) end++;
+            List<ParsedLocation> points = decode(text, start, end);
+            if (points != null) return points;
+        }
+        return null;
+    }
+
+    private static List<ParsedLocation> decode(CharSequence t, int start, int end) {
+        byte[] bytes = Sms64.decode(t, start, end);
+        if (bytes == null || bytes.length < HEADER_BYTES + CHECK_BYTES) return null;
+        int len = bytes.length - CHECK_BYTES;
+        long check = crc(bytes, len);
+        if ((bytes[len] & 0xff) != (check >>> 8 & 0xff) || (bytes[len + 1] & 0xff) != (check & 0xff)) return null;
+
+        List<ParsedLocation> points = new ArrayList<>();
+        long[] at = {0};
+        long sec = getFixed(bytes, 0);
+        long lat = getFixed(bytes, 4);
+        long lon = getFixed(bytes, 8);
+        at[0] = HEADER_BYTES;
+        while (true) {
+            if (lat > 180 * (long) SCALE || lon > 360 * (long) SCALE || lat < 0 || lon < 0) return null;
+            points.add(ParsedLocation.ofFix((lat - 90 * (long) SCALE) / SCALE, (lon - 180 * (long) SCALE) / SCALE,
+                    Float.NaN, EPOCH_MILLIS + sec * 1000));
+            if (at[0] >= len) break;
+            long dt = getVarint(bytes, len, at);
+            long dLat = getVarint(bytes, len, at);
+            long dLon = getVarint(bytes, len, at);
+            if (dt < 0 || dLat < 0 || dLon < 0) return null;
+            sec += dt;
+            lat += unZigZag(dLat);
+            lon += unZigZag(dLon);
+        }
+        return points;
+    }
+
+    private static String finish(byte[] buf, int len) {
+        long check = crc(buf, len);
+        buf[len] = (byte) (check >>> 8);
+        buf[len + 1] = (byte) check;
+        StringBuilder sb = new StringBuilder(PREFIX.length() + Sms64.encodedLength(len + CHECK_BYTES));
+        sb.append(PREFIX);
+        Sms64.encode(buf, len + CHECK_BYTES, sb);
+        return sb.toString();
+    }
+
+    private static long crc(byte[] b, int len) {
+        CRC32 crc = new CRC32();
+        crc.update(b, 0, len);
+        return crc.getValue() & 0xffff;
+    }
+
+    private static int putFixed(byte[] b, int at, long v) {
+        b[at] = (byte) (v >>> 24);
+        b[at + 1] = (byte) (v >>> 16);
+        b[at + 2] = (byte) (v >>> 8);
+        b[at + 3] = (byte) v;
+        return at + 4;
+    }
+
+    private static long getFixed(byte[] b, int at) {
+        return (b[at] & 0xffL) << 24 | (b[at + 1] & 0xffL) << 16 | (b[at + 2] & 0xffL) << 8 | (b[at + 3] & 0xffL);
+    }
+
+    private static int putVarint(byte[] b, int at, long v) {
+        while ((v & ~0x7fL) != 0) {
+            b[at++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        b[at++] = (byte) v;
+        return at;
+    }
+
+    // -1 when truncated or longer than 5 bytes
+    private static long getVarint(byte[] b, int len, long[] at) {
+        long v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (at[0] >= len) return -1;
+            int x = b[(int) at[0]++] & 0xff;
+            v |= (long) (x & 0x7f) << shift;
+            if ((x & 0x80) == 0) return v;
+        }
+        return -1;
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static boolean startsWith(CharSequence t, int i) {
+        for (int k = 0; k < PREFIX.length(); k++) {
+            if (t.charAt(i + k) != PREFIX.charAt(k)) return false;
+        }
+        return true;
+    }
+}
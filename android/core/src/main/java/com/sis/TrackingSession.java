@@ -0,0 +1,183 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sampling and batching policy of one tracking session (see TrackingService).
+ * - adaptive interval: back to {@link #MIN_INTERVAL_MS} whenever the last sample moved at least
+ *   {@link #MOVE_THRESHOLD_M}, otherwise doubled up to {@link #MAX_INTERVAL_MS}; stationary
+ *   sessions also drop to balanced-power fixes
+ * - buffering: stationary samples are not buffered (a held position is implied), except one per
+ *   send window as a heartbeat
+ * - a batch is due every {@link #SEND_EVERY_MS} or after {@link #SEND_EVERY_M} of movement,
+ *   whichever comes first; it leaves as TrackBundle SMS when the recipient takes compact
+ *   messages, otherwise as one maps URL of the newest sample
+ * Pure Java, not thread-safe (owned by the service's handler thread).
+ */
+public final class TrackingSession {
+    static final long MIN_INTERVAL_MS = 15_000;
+    static final long MAX_INTERVAL_MS = 5 * 60_000;
+    static final double MOVE_THRESHOLD_M = 25;
+    static final long SEND_EVERY_MS = 5 * 60_000;
+    static final double SEND_EVERY_M = 500;
+    static final int MAX_BUFFERED = 256;
+    public static final long DEFAULT_DURATION_MS = 60 * 60_000;
+    public static final long MAX_DURATION_MS = 12 * 60 * 60_000;
+
+    private static final double EARTH_RADIUS_M = 6_371_000;
+
+    private final String recipient;
+    private final boolean compact;
+    private long endsAtMillis;
+    private final List<LocationFix> buffer = new ArrayList<>();
+    private LocationFix anchor;          // last sample that counted as movement (slow drift adds up)
+    private long intervalMillis = MIN_INTERVAL_MS;
+    private long lastSentAtMillis;
+    private double metersSinceSend;
+    private int bundlesSent;
+
+    public TrackingSession(String recipient, boolean compact, long startedAtMillis, long durationMillis) {
+        this.recipient = recipient;
+        this.compact = compact;
+        this.endsAtMillis = startedAtMillis + Math.max(1, Math.min(MAX_DURATION_MS, durationMillis));
+        this.lastSentAtMillis = startedAtMillis;
+    }
+
+    public String getRecipient() { return recipient; }
+    public long getEndsAtMillis() { return endsAtMillis; }
+    public int getBundlesSent() { return bundlesSent; }
+
+    /** Wait before the next sample. */
+    public long nextIntervalMillis() {
+        return intervalMillis;
+    }
+
+    /** Accuracy for the next sample: high while moving, balanced once the interval has backed off. */
+    public LocationProvider.Accuracy nextAccuracy() {
+        return intervalMillis > 2 * MIN_INTERVAL_MS ? LocationProvider.Accuracy.BALANCED : LocationProvider.Accuracy.HIGH;
+    }
+
+    /** A repeated TRACK for this running session: moves the end out (never in); true when it moved. */
+    public boolean extend(long nowMillis, long durationMillis) {
+        long endsAt = nowMillis + Math.max(1, Math.min(MAX_DURATION_MS, durationMillis));
+        if (endsAt <= endsAtMillis) return false;
+        endsAtMillis = endsAt;
+        return true;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis >= endsAtMillis;
+    }
+
+    /** Take a sample (null when no fix could be obtained); adapts the interval. */
+    public void onFix(LocationFix fix) {
+        if (fix == null) {
+            intervalMillis = Math.min(MAX_INTERVAL_MS, intervalMillis * 2);
+            return;
+        }
+        double moved = anchor != null ? distanceMeters(anchor, fix) : Double.MAX_VALUE;
+        if (moved >= MOVE_THRESHOLD_M) {
+            anchor = fix;
+            intervalMillis = MIN_INTERVAL_MS;
+            if (moved != Double.MAX_VALUE) metersSinceSend += moved;
+            buffer(fix);
+        } else {
+            intervalMillis = Math.min(MAX_INTERVAL_MS, intervalMillis * 2);
+            if (buffer.isEmpty()) buffer(fix); // heartbeat for this send window
+        }
+    }
+
+    /** Whether the buffered samples should be sent now. */
+    public boolean isBatchDue(long nowMillis) {
+        if (buffer.isEmpty()) return false;
+        return metersSinceSend >= SEND_EVERY_M || nowMillis - lastSentAtMillis >= SEND_EVERY_MS;
+    }
+
+    /** Encode and clear the buffer; the returned messages are to be sent in order. */
+    public List<String> drain(long nowMillis) {
+        List<String> bundles;
+        if (compact) {
+            bundles = TrackBundle.encode(buffer);
+        } else {
+            bundles = new ArrayList<>(1);
+            if (!buffer.isEmpty()) {
+                LocationFix newest = buffer.get(buffer.size() - 1);
+                bundles.add("Tracking update: " + ParsedLocation.mapUrlOf(newest.getLatitude(), newest.getLongitude()));
+            }
+        }
+        buffer.clear();
+        metersSinceSend = 0;
+        lastSentAtMillis = nowMillis;
+        bundlesSent += bundles.size();
+        return bundles;
+    }
+
+    public int buffered() {
+        return buffer.size();
+    }
+
+    private void buffer(LocationFix fix) {
+        if (buffer.size() == MAX_BUFFERED) buffer.remove(0);
+        buffer.add(fix);
+    }
+
+    /** Great-circle distance (haversine). */
+    static double distanceMeters(LocationFix a, LocationFix b) {
+        double lat1 = Math.toRadians(a.getLatitude());
+        double lat2 = Math.toRadians(b.getLatitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b.getLongitude() - a.getLongitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /** Command of a trusted message: TRACK [minutes], STOP, or null for a one-shot reply. */
+    public static final class Command {
+        public final boolean start;
+        public final long durationMillis;
+
+        private Command(boolean start, long durationMillis) {
+            this.start = start;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * Command of a body that holds nothing but one of the entry's (upper-cased) {@code keywords}
+         * and the command, either way round: "KW TRACK [minutes]", "KW STOP", "TRACK 30 KW";
+         * case-insensitive. Any other text ("KW please stop ignoring me", "KW can you track this")
+         * is a plain location request: null.
+         */
+        public static Command parse(CharSequence body, List<String> keywords) {
+            if (body == null || keywords == null) return null;
+            String text = TrustedListIndex.KeywordAutomaton.upper(body.toString());
+            for (String keyword : keywords) {
+                if (keyword.length() == 0) continue;
+                for (int at = text.indexOf(keyword); at >= 0; at = text.indexOf(keyword, at + 1)) {
+                    String before = text.substring(0, at).trim();
+                    String after = text.substring(at + keyword.length()).trim();
+                    Command command = null;
+                    if (before.length() == 0) command = exactly(after);
+                    else if (after.length() == 0) command = exactly(before);
+                    if (command != null) return command;
+                }
+            }
+            return null;
+        }
+
+        // "TRACK", "TRACK <minutes>" or "STOP" and nothing else
+        private static Command exactly(String text) {
+            String[] words = text.split("\\s+");
+            if (words.length == 1 && words[0].equals("STOP")) return new Command(false, 0);
+            if (words.length > 2 || !words[0].equals("TRACK")) return null;
+            if (words.length == 1) return new Command(true, DEFAULT_DURATION_MS);
+            try {
+                long minutes = Long.parseLong(words[1]);
+                return minutes > 0 ? new Command(true, minutes * 60_000) : null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
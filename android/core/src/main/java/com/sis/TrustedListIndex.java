@@ -0,0 +1,344 @@
+package com.sis;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, pre-indexed form of the responder's trusted list.
+ * - phone side: reverse-digit trie, an entry matches when its digits are a suffix of the sender's
+ * - keyword side: one Aho-Corasick automaton over all keywords (case-insensitive), so the body is
+ *   scanned once no matter how many entries there are
+ * Matching does no JSON parsing and allocates nothing; build once per trusted list change.
+ */
+public final class TrustedListIndex {
+    public static final TrustedListIndex EMPTY = new Builder().build();
+
+    // longest run of stored numbers that can all be suffixes of one sender
+    private static final int MAX_SUFFIX_MATCHES = 32;
+    // per-thread candidate buffer, so a match (or a stranger's miss) allocates nothing
+    private static final ThreadLocal<int[]> CANDIDATES = ThreadLocal.withInitial(() -> new int[MAX_SUFFIX_MATCHES]);
+
+    private final PhoneSuffixTrie phones;
+    private final String[] entryPhones;   // phone as configured, per entry
+    private final int[][] entryKeywords;  // sorted keyword ids, per entry
+    private final long[] entryMaxAge;     // max location age in ms per entry, -1 = default
+    private final boolean[] entryCompact; // reply with a LocationToken instead of a maps URL
+    private final int[] entryReplyBurst;  // replies allowed back to back, -1 = default
+    private final long[] entryReplyEvery; // ms to earn one more reply, -1 = default
+    private final String[] keywordText;   // upper-cased keyword, per keyword id
+    private final KeywordAutomaton keywords;
+
+    private TrustedListIndex(PhoneSuffixTrie phones, String[] entryPhones, int[][] entryKeywords,
+                             long[] entryMaxAge, boolean[] entryCompact, int[] entryReplyBurst,
+                             long[] entryReplyEvery, String[] keywordText, KeywordAutomaton keywords) {
+        this.phones = phones;
+        this.entryPhones = entryPhones;
+        this.entryKeywords = entryKeywords;
+        this.entryMaxAge = entryMaxAge;
+        this.entryCompact = entryCompact;
+        this.entryReplyBurst = entryReplyBurst;
+        this.entryReplyEvery = entryReplyEvery;
+        this.keywordText = keywordText;
+        this.keywords = keywords;
+    }
+
+    public boolean isEmpty() {
+        return entryPhones.length == 0;
+    }
+
+    /** Number of distinct trusted phone numbers. */
+    public int size() {
+        return entryPhones.length;
+    }
+
+    /**
+     * Trusted phone (as configured) whose keyword appears in {@code body} and whose digits are a
+     * suffix of {@code sender}'s; null when the message should be ignored.
+     */
+    public String match(CharSequence sender, CharSequence body) {
+        if (sender == null || body == null || entryPhones.length == 0) return null;
+        int[] candidates = CANDIDATES.get();
+        int count = phones.suffixValues(sender, candidates);
+        if (count == 0) return null;
+        return keywords.scan(body, candidates, count, entryKeywords, entryPhones);
+    }
+
+    /** Keywords (upper-cased) of the trusted {@code phone} (as returned by {@link #match}); empty if unknown. */
+    public List<String> keywords(String phone) {
+        int e = phones.get(phone);
+        if (e < 0) return Collections.emptyList();
+        String[] out = new String[entryKeywords[e].length];
+        for (int k = 0; k < out.length; k++) out[k] = keywordText[entryKeywords[e][k]];
+        return Arrays.asList(out);
+    }
+
+    /**
+     * Oldest cached location (ms) that may be sent to the trusted {@code phone} (as returned by
+     * {@link #match}), or {@code defaultMillis} when the entry does not set one.
+     */
+    public long maxLocationAgeMillis(String phone, long defaultMillis) {
+        int e = phones.get(phone);
+        return e < 0 || entryMaxAge[e] < 0 ? defaultMillis : entryMaxAge[e];
+    }
+
+    /** Whether the trusted {@code phone} (as returned by {@link #match}) takes compact location tokens. */
+    public boolean compactReplies(String phone) {
+        int e = phones.get(phone);
+        return e >= 0 && entryCompact[e];
+    }
+
+    /** Replies the trusted {@code phone} may get back to back (ReplyLimiter burst), or {@code defaultBurst}. */
+    public int replyBurst(String phone, int defaultBurst) {
+        int e = phones.get(phone);
+        return e < 0 || entryReplyBurst[e] < 0 ? defaultBurst : entryReplyBurst[e];
+    }
+
+    /** Time (ms) in which the trusted {@code phone} earns one more reply, or {@code defaultMillis}. */
+    public long replyIntervalMillis(String phone, long defaultMillis) {
+        int e = phones.get(phone);
+        return e < 0 || entryReplyEvery[e] < 0 ? defaultMillis : entryReplyEvery[e];
+    }
+
+    /**
+     * Index of a stored trusted_list, a JSON array string (null or empty: none):
+     * [{"phone":"+9112345","keyword":"CODE1","maxAgeSec":120,"compact":true,"replyBurst":3,"replyEverySec":300}, ...]
+     * (everything but phone and keyword optional)
+     */
+    public static TrustedListIndex fromJson(String jsonList) throws JSONException {
+        if (jsonList == null || jsonList.length() == 0) return EMPTY;
+        JSONArray arr = new JSONArray(jsonList);
+        Builder builder = new Builder();
+        for (int i = 0; i < arr.length(); i++) {
+            JSONObject obj = arr.optJSONObject(i);
+            if (obj == null) continue;
+            long maxAgeSec = obj.optLong("maxAgeSec", -1);
+            String phone = obj.optString("phone", "");
+            builder.add(phone, obj.optString("keyword", ""),
+                    maxAgeSec >= 0 ? maxAgeSec * 1000 : -1, obj.optBoolean("compact", false));
+            long everySec = obj.optLong("replyEverySec", -1);
+            builder.limitReplies(phone, obj.optInt("replyBurst", -1), everySec >= 0 ? everySec * 1000 : -1);
+        }
+        return builder.build();
+    }
+
+    /** Collects (phone, keyword) pairs; entries with an empty phone or keyword are skipped. */
+    public static final class Builder {
+        private final Map<String, List<String>> keywordsByPhone = new LinkedHashMap<>();
+        private final Map<String, String> displayPhone = new HashMap<>();
+        private final Map<String, Long> maxAgeByPhone = new HashMap<>();
+        private final Map<String, Boolean> compactByPhone = new HashMap<>();
+        private final Map<String, Integer> burstByPhone = new HashMap<>();
+        private final Map<String, Long> replyEveryByPhone = new HashMap<>();
+
+        public Builder add(String phone, String keyword) {
+            return add(phone, keyword, -1);
+        }
+
+        /** @param maxLocationAgeMillis per-phone location freshness bound, negative for the default */
+        public Builder add(String phone, String keyword, long maxLocationAgeMillis) {
+            return add(phone, keyword, maxLocationAgeMillis, false);
+        }
+
+        /** @param compact the phone's app decodes LocationToken replies (negotiated per entry) */
+        public Builder add(String phone, String keyword, long maxLocationAgeMillis, boolean compact) {
+            if (phone == null || keyword == null || keyword.length() == 0) return this;
+            String digits = PhoneNumbers.normalize(phone);
+            if (digits.length() == 0) return this;
+            List<String> list = keywordsByPhone.get(digits);
+            if (list == null) {
+                list = new ArrayList<>(1);
+                keywordsByPhone.put(digits, list);
+                displayPhone.put(digits, phone);
+            }
+            list.add(KeywordAutomaton.upper(keyword));
+            if (maxLocationAgeMillis >= 0) maxAgeByPhone.put(digits, maxLocationAgeMillis);
+            if (compact) compactByPhone.put(digits, Boolean.TRUE);
+            return this;
+        }
+
+        /**
+         * Reply limits of an added phone (see ReplyLimiter); negative values keep the defaults.
+         * @param burst replies allowed back to back
+         * @param intervalMillis time to earn one more reply
+         */
+        public Builder limitReplies(String phone, int burst, long intervalMillis) {
+            String digits = phone != null ? PhoneNumbers.normalize(phone) : "";
+            if (!keywordsByPhone.containsKey(digits)) return this;
+            if (burst >= 0) burstByPhone.put(digits, burst);
+            if (intervalMillis >= 0) replyEveryByPhone.put(digits, intervalMillis);
+            return this;
+        }
+
+        public TrustedListIndex build() {
+            int n = keywordsByPhone.size();
+            PhoneSuffixTrie trie = new PhoneSuffixTrie();
+            String[] phones = new String[n];
+            int[][] entryKeywords = new int[n][];
+            long[] entryMaxAge = new long[n];
+            boolean[] entryCompact = new boolean[n];
+            int[] entryReplyBurst = new int[n];
+            long[] entryReplyEvery = new long[n];
+            Map<String, Integer> keywordIds = new LinkedHashMap<>();
+
+            int e = 0;
+            for (Map.Entry<String, List<String>> entry : keywordsByPhone.entrySet()) {
+                trie.put(entry.getKey(), e);
+                phones[e] = displayPhone.get(entry.getKey());
+                Long maxAge = maxAgeByPhone.get(entry.getKey());
+                entryMaxAge[e] = maxAge != null ? maxAge : -1;
+                entryCompact[e] = compactByPhone.containsKey(entry.getKey());
+                Integer burst = burstByPhone.get(entry.getKey());
+                entryReplyBurst[e] = burst != null ? burst : -1;
+                Long every = replyEveryByPhone.get(entry.getKey());
+                entryReplyEvery[e] = every != null ? every : -1;
+                List<String> kws = entry.getValue();
+                int[] ids = new int[kws.size()];
+                for (int k = 0; k < ids.length; k++) {
+                    Integer id = keywordIds.get(kws.get(k));
+                    if (id == null) {
+                        id = keywordIds.size();
+                        keywordIds.put(kws.get(k), id);
+                    }
+                    ids[k] = id;
+                }
+                Arrays.sort(ids);
+                entryKeywords[e++] = ids;
+            }
+            String[] keywordText = keywordIds.keySet().toArray(new String[0]);
+            return new TrustedListIndex(trie, phones, entryKeywords, entryMaxAge, entryCompact, entryReplyBurst,
+                    entryReplyEvery, keywordText, new KeywordAutomaton(keywordText));
+        }
+    }
+
+    /**
+     * Aho-Corasick automaton compiled to a dense DFA over the keywords' own characters
+     * (column 0 stands for "any other character"). Input is upper-cased char by char.
+     */
+    static final class KeywordAutomaton {
+        private final char[] alphabet;      // sorted distinct keyword chars
+        private final int[] asciiColumn;    // column for chars < 128, 0 if unused
+        private final int width;
+        private final int[] delta;          // state * width + column -> next state
+        private final int[][] outputs;      // keyword ids ending at a state (incl. via suffix links)
+
+        KeywordAutomaton(String[] keywords) {
+            // alphabet
+            StringBuilder chars = new StringBuilder();
+            for (String k : keywords) chars.append(k);
+            char[] sorted = chars.toString().toCharArray();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || sorted[i] != sorted[i - 1]) sorted[distinct++] = sorted[i];
+            }
+            alphabet = Arrays.copyOf(sorted, distinct);
+            asciiColumn = new int[128];
+            for (int i = 0; i < alphabet.length; i++) {
+                if (alphabet[i] < 128) asciiColumn[alphabet[i]] = i + 1;
+            }
+            width = alphabet.length + 1;
+
+            // goto function
+            int maxStates = 1;
+            for (String k : keywords) maxStates += k.length();
+            int[] go = new int[maxStates * width];
+            Arrays.fill(go, -1);
+            List<List<Integer>> own = new ArrayList<>();
+            own.add(null);
+            int states = 1;
+            for (int id = 0; id < keywords.length; id++) {
+                int s = 0;
+                String k = keywords[id];
+                for (int i = 0; i < k.length(); i++) {
+                    int slot = s * width + column(k.charAt(i));
+                    if (go[slot] < 0) {
+                        go[slot] = states++;
+                        own.add(null);
+                    }
+                    s = go[slot];
+                }
+                if (own.get(s) == null) own.set(s, new ArrayList<>(1));
+                own.get(s).add(id);
+            }
+
+            // failure links (BFS) folded into a full DFA, outputs merged along suffix links
+            delta = new int[states * width];
+            outputs = new int[states][];
+            int[] fail = new int[states];
+            int[] queue = new int[states];
+            int head = 0, tail = 0;
+            for (int c = 0; c < width; c++) {
+                int t = go[c];
+                if (t > 0) {
+                    fail[t] = 0;
+                    delta[c] = t;
+                    queue[tail++] = t;
+                } else {
+                    delta[c] = 0;
+                }
+            }
+            while (head < tail) {
+                int s = queue[head++];
+                outputs[s] = merge(own.get(s), outputs[fail[s]]);
+                for (int c = 0; c < width; c++) {
+                    int t = go[s * width + c];
+                    if (t > 0) {
+                        fail[t] = delta[fail[s] * width + c];
+                        delta[s * width + c] = t;
+                        queue[tail++] = t;
+                    } else {
+                        delta[s * width + c] = delta[fail[s] * width + c];
+                    }
+                }
+            }
+        }
+
+        /** First configured phone among {@code candidates} whose keyword occurs in {@code body}. */
+        String scan(CharSequence body, int[] candidates, int count, int[][] entryKeywords, String[] entryPhones) {
+            if (alphabet.length == 0) return null;
+            int state = 0;
+            for (int i = 0, n = body.length(); i < n; i++) {
+                state = delta[state * width + column(Character.toUpperCase(body.charAt(i)))];
+                int[] out = outputs[state];
+                if (out == null) continue;
+                for (int id : out) {
+                    for (int k = 0; k < count; k++) {
+                        int entry = candidates[k];
+                        if (Arrays.binarySearch(entryKeywords[entry], id) >= 0) return entryPhones[entry];
+                    }
+                }
+            }
+            return null;
+        }
+
+        private int column(char c) {
+            if (c < 128) return asciiColumn[c];
+            int i = Arrays.binarySearch(alphabet, c);
+            return i >= 0 ? i + 1 : 0;
+        }
+
+        private static int[] merge(List<Integer> own, int[] inherited) {
+            if (own == null) return inherited;
+            int extra = inherited == null ? 0 : inherited.length;
+            int[] out = new int[own.size() + extra];
+            for (int i = 0; i < own.size(); i++) out[i] = own.get(i);
+            if (extra > 0) System.arraycopy(inherited, 0, out, own.size(), extra);
+            return out;
+        }
+
+        static String upper(String s) {
+            char[] chars = s.toCharArray();
+            for (int i = 0; i < chars.length; i++) chars[i] = Character.toUpperCase(chars[i]);
+            return new String(chars);
+        }
+    }
+}
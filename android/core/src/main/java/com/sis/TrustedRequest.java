@@ -0,0 +1,48 @@
+package com.sis;
+
+/**
+ * What a trusted sender asked for (see TrustedKeywordResponder): the current location, or with
+ * a body of just the keyword and "TRACK [minutes]" / "STOP" continuous tracking. Decided by
+ * {@link #match} without the platform.
+ */
+public final class TrustedRequest {
+    /** Trusted entry's phone as configured. */
+    public final String phone;
+    /** Where the reply goes (the sender as delivered). */
+    public final String sender;
+    /** TRACK / STOP, or null for a one-shot location reply. */
+    public final TrackingSession.Command command;
+    /** Oldest cached location that may be sent. */
+    public final long maxLocationAgeMillis;
+    /** Reply with LocationToken / TrackBundle messages instead of maps URLs. */
+    public final boolean compact;
+    /** ReplyLimiter bucket of this contact: replies back to back, time to earn one more. */
+    public final int replyBurst;
+    public final long replyIntervalMillis;
+
+    private TrustedRequest(String phone, String sender, TrackingSession.Command command,
+                           long maxLocationAgeMillis, boolean compact, int replyBurst, long replyIntervalMillis) {
+        this.phone = phone;
+        this.sender = sender;
+        this.command = command;
+        this.maxLocationAgeMillis = maxLocationAgeMillis;
+        this.compact = compact;
+        this.replyBurst = replyBurst;
+        this.replyIntervalMillis = replyIntervalMillis;
+    }
+
+    /** Request of {@code sms}, or null when it is not from a trusted number with its keyword. */
+    public static TrustedRequest match(TrustedListIndex trusted, InboundSms sms) {
+        long matchStart = SmsMetrics.start();
+        String phone = trusted.match(sms.getSender(), sms.getBody());
+        SmsMetrics.since(SmsMetrics.Stage.MATCH, matchStart);
+        if (phone == null) return null;
+        SmsMetrics.increment(SmsMetrics.Counter.TRUSTED_MATCHED);
+        TrackingSession.Command command = TrackingSession.Command.parse(sms.getBody(), trusted.keywords(phone));
+        return new TrustedRequest(phone, sms.getSender(), command,
+                trusted.maxLocationAgeMillis(phone, LocationService.DEFAULT_MAX_AGE_MS),
+                trusted.compactReplies(phone),
+                trusted.replyBurst(phone, ReplyLimiter.DEFAULT_BURST),
+                trusted.replyIntervalMillis(phone, ReplyLimiter.DEFAULT_INTERVAL_MS));
+    }
+}
@@ -0,0 +1,153 @@
+package com.sis;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Per-message work of TrustedKeywordResponder, without the platform:
+ * - TrustedRequest decides what a trusted sender asked for (location, TRACK or STOP)
+ * - location and TRACK requests go through the ReplyLimiter (per contact, configurable per
+ *   trusted_list entry, plus a global bucket): over the limit one is deferred through the
+ *   {@link Scheduler} and later requests from that contact are folded into it
+ * - STOP is never limited or counted: it is carried out at once and cancels the contact's
+ *   deferred request, so a TRACK still waiting for the limit cannot start tracking after it
+ * - {@link Actions} carries the request out; a TRACK the platform refuses (background start
+ *   limits) becomes a one-shot location reply, a refused STOP is answered with
+ *   {@link #STOP_FAILED_REPLY}
+ * Thread-safe when the actions, scheduler and index source are.
+ */
+public final class TrustedResponder {
+
+    /** What the device does for a request (TrackingService / LocationHelper in the app). */
+    public interface Actions {
+        /** Send the current location to the sender; {@code sms} is null for a deferred reply. */
+        void sendLocation(TrustedRequest request, InboundSms sms);
+
+        /** False when the platform refused the tracking service. */
+        boolean startTracking(TrustedRequest request);
+
+        /** False when the platform refused the tracking service. */
+        boolean stopTracking(TrustedRequest request);
+
+        void sendText(TrustedRequest request, String body);
+    }
+
+    /** Runs deferred replies. */
+    public interface Scheduler {
+        Future<?> schedule(Runnable task, long delayMillis);
+    }
+
+    public interface Clock {
+        long nowMillis();
+    }
+
+    public static final String STOP_FAILED_REPLY = "Could not stop tracking. Please send STOP again.";
+
+    private final Supplier<TrustedListIndex> trusted;
+    private final ReplyLimiter limiter;
+    private final Actions actions;
+    private final Scheduler scheduler;
+    private final Clock clock;
+    // deferred request per contact (TrustedRequest.phone) until it runs or a STOP cancels it
+    private final ConcurrentHashMap<String, Deferred> deferred = new ConcurrentHashMap<>();
+    private final Object stopLock = new Object(); // a STOP and a deferred request never overlap
+
+    public TrustedResponder(Supplier<TrustedListIndex> trusted, ReplyLimiter limiter, Actions actions,
+                            Scheduler scheduler, Clock clock) {
+        this.trusted = trusted;
+        this.limiter = limiter;
+        this.actions = actions;
+        this.scheduler = scheduler;
+        this.clock = clock;
+    }
+
+    public ReplyLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Handle {@code sms}: the limiter's decision for the request it carries (SEND for a STOP), or
+     * null when it is not from a trusted number with its keyword.
+     */
+    public ReplyLimiter.Result onSms(InboundSms sms) {
+        TrustedListIndex index = trusted.get();
+        if (index.isEmpty()) return null;
+        TrustedRequest request = TrustedRequest.match(index, sms);
+        if (request == null) return null;
+        if (request.command != null && !request.command.start) {
+            stop(request);
+            return ReplyLimiter.Result.SEND;
+        }
+
+        long now = clock.nowMillis();
+        ReplyLimiter.Result limit = limiter.request(request.phone, request.replyBurst,
+                request.replyIntervalMillis, now);
+        switch (limit.decision) {
+            case SEND:
+                carryOut(request, sms);
+                break;
+            case DEFER:
+                Deferred later = new Deferred(request);
+                deferred.put(request.phone, later);
+                later.future = scheduler.schedule(later, limit.atMillis - now);
+                break;
+            default: // COALESCED, DROPPED
+        }
+        return limit;
+    }
+
+    private void stop(TrustedRequest request) {
+        synchronized (stopLock) {
+            Deferred pending = deferred.remove(request.phone);
+            if (pending != null) {
+                if (pending.future != null) pending.future.cancel(false);
+                limiter.onDeferredSent(request.phone);
+            }
+            if (!actions.stopTracking(request)) actions.sendText(request, STOP_FAILED_REPLY);
+        }
+    }
+
+    private void carryOut(TrustedRequest request, InboundSms sms) {
+        if (request.command != null && actions.startTracking(request)) return;
+        actions.sendLocation(request, sms);
+    }
+
+    private final class Deferred implements Runnable {
+        final TrustedRequest request;
+        volatile Future<?> future;
+
+        Deferred(TrustedRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            synchronized (stopLock) {
+                if (!deferred.remove(request.phone, this)) return; // cancelled by a STOP
+                // the fix is taken now, so the one reply answers every request folded into it
+                try {
+                    carryOut(request, null);
+                } finally {
+                    limiter.onDeferredSent(request.phone);
+                }
+            }
+        }
+    }
+
+    /**
+     * Body of a location reply: a LocationToken when {@code compact} (fix time and accuracy travel
+     * in it), else a maps URL, flagged with its age when only an older last-known fix was found.
+     */
+    public static String locationReply(LocationFix fix, long maxAgeMillis, boolean compact, long nowMillis) {
+        String token = compact ? LocationToken.encode(fix.getLatitude(), fix.getLongitude(),
+                fix.getAccuracyMeters(), fix.getTimeMillis()) : null;
+        if (token != null) return token;
+        String mapUrl = ParsedLocation.mapUrlOf(fix.getLatitude(), fix.getLongitude());
+        long ageMillis = fix.ageMillis(nowMillis);
+        boolean stale = fix.getSource() == LocationFix.Source.LAST_KNOWN && ageMillis > maxAgeMillis;
+        return stale
+                ? "Here is my last known location (" + Math.max(1, ageMillis / 60_000) + " min old): " + mapUrl
+                : "Here is my current location: " + mapUrl;
+    }
+}
@@ -0,0 +1,88 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CheckInBatchTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long TIMEOUT = 60_000;
+
+    private final List<String> progress = new ArrayList<>();
+    private int completions;
+
+    private final CheckInBatch batch = new CheckInBatch("b1", T0, TIMEOUT, new CheckInBatch.Listener() {
+        @Override
+        public void onProgress(CheckInBatch b, CheckInBatch.Entry entry) {
+            progress.add(entry.getKey() + " " + entry.getStatus());
+        }
+
+        @Override
+        public void onComplete(CheckInBatch b) {
+            completions++;
+        }
+    });
+
+    @Test
+    public void completesWithTheSlowestReply() {
+        batch.add("+91 98765 43210", "919876543210", "SAFE");
+        batch.add("98765 00001", "9876500001", "SAFE");
+        batch.add("919876543210", "919876543210", "SAFE"); // same sister twice
+        assertEquals(2, batch.start().size());
+
+        batch.onSent("919876543210", T0 + 1_000);
+        batch.onSent("9876500001", T0 + 2_000);
+        assertTrue(batch.onReply("9876500001", T0 + 9_000, true, 12.9, 77.5, "https://maps.google.com/?q=12.9,77.5"));
+        assertFalse(batch.isComplete());
+        assertTrue(batch.onReply("919876543210", T0 + 15_000, true, 1, 2, null));
+
+        assertEquals(1, completions);
+        assertEquals(15_000, batch.elapsedMillis(T0 + 50_000));
+        assertEquals(2, batch.count(CheckInBatch.Status.LOCATED));
+        assertEquals(12.9, batch.entries().get(1).getLatitude(), 0);
+        // a second reply changes nothing
+        assertFalse(batch.onReply("9876500001", T0 + 20_000, true, 0, 0, null));
+    }
+
+    @Test
+    public void replyBeforeSentReportStillCounts() {
+        batch.add("111111", "111111", "C");
+        batch.start();
+        assertTrue(batch.onReply("111111", T0 + 500, false, Double.NaN, Double.NaN, null));
+        batch.onSent("111111", T0 + 600);
+        assertEquals(CheckInBatch.Status.NO_FIX, batch.entries().get(0).getStatus());
+        assertEquals(1, completions);
+    }
+
+    @Test
+    public void deadlineTimesOutOpenEntriesOnce() {
+        batch.add("111111", "111111", "C");
+        batch.add("222222", "222222", "C");
+        batch.add("333333", "333333", null);
+        batch.start();
+        batch.onSendFailed("222222", T0 + 3_000, "radio off");
+        assertFalse(batch.onReply("111111", T0 - 1, true, 0, 0, null)); // older than the batch
+
+        assertFalse(batch.expire(T0 + TIMEOUT - 1));
+        assertTrue(batch.expire(T0 + TIMEOUT));
+        assertTrue(batch.expire(T0 + TIMEOUT + 1));
+
+        assertEquals(1, completions);
+        assertEquals(CheckInBatch.Status.TIMED_OUT, batch.entries().get(0).getStatus());
+        assertEquals("radio off", batch.entries().get(1).getError());
+        assertEquals(CheckInBatch.Status.NO_CODE, batch.entries().get(2).getStatus());
+        assertEquals(0, batch.remaining());
+    }
+
+    @Test
+    public void batchWithNothingToSendCompletesAtStart() {
+        batch.add("111111", "111111", "");
+        assertTrue(batch.start().isEmpty());
+        assertEquals(1, completions);
+        assertTrue(progress.isEmpty());
+    }
+}
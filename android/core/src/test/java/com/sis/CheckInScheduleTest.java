@@ -0,0 +1,104 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONException;
+import org.junit.Test;
+
+public class CheckInScheduleTest {
+    private static final long T0 = 1_700_001_000_000L; // a window start
+    private static final long MIN = 60_000;
+
+    private static CheckInSchedule.Sister sister(String phone, long intervalMinutes) {
+        return new CheckInSchedule.Sister(phone, "S" + phone, "SIS", intervalMinutes * MIN, 2);
+    }
+
+    @Test
+    public void checksDueCloseTogetherShareOneWake() {
+        CheckInSchedule schedule = new CheckInSchedule(42);
+        schedule.configure(Arrays.asList(sister("9000000001", 60), sister("9000000002", 65),
+                sister("9000000003", 240)), T0);
+
+        // both early-run times (52.5 and 57.5 min) fall in the window before the hour
+        long wake = schedule.nextWakeAt();
+        assertTrue(wake >= T0 + 60 * MIN);
+        assertTrue(wake < T0 + 60 * MIN + CheckInSchedule.MAX_JITTER_MS);
+        assertTrue(schedule.tick(wake - 1).checks.isEmpty());
+        CheckInSchedule.Tick tick = schedule.tick(wake);
+        assertEquals(2, tick.checks.size()); // the 60 and 65 min sisters, not the 4 h one
+        assertEquals("9000000001", tick.checks.get(0).phone);
+        assertEquals("SIS", tick.checks.get(0).code);
+
+        // every wake is on the jittered window grid, never before what it is for
+        for (long t = T0; t < T0 + 24 * 60 * MIN; t += 7 * MIN) {
+            long at = schedule.wakeAtOrAfter(t);
+            assertTrue(at >= t);
+            assertTrue(at < t + CheckInSchedule.WINDOW_MS + CheckInSchedule.MAX_JITTER_MS);
+            assertEquals(at, schedule.wakeAtOrAfter(at));
+        }
+    }
+
+    @Test
+    public void missedRepliesEscalateAndAReplyClearsThem() {
+        CheckInSchedule schedule = new CheckInSchedule(7);
+        schedule.configure(Arrays.asList(sister("+91 90000 00001", 30)), T0);
+
+        long now = schedule.nextWakeAt();
+        assertEquals(1, schedule.tick(now).checks.size());
+        // no reply: the reply deadline wake records one miss (below escalateAfter) ...
+        now = schedule.nextWakeAt();
+        CheckInSchedule.Tick tick = schedule.tick(now);
+        assertTrue(tick.escalations.isEmpty());
+        assertEquals(1, schedule.status().get(0).missed);
+        // ... the next check goes out, and its miss escalates
+        while (schedule.status().get(0).awaitingSinceMillis == 0) tick = schedule.tick(now = schedule.nextWakeAt());
+        tick = schedule.tick(now = schedule.nextWakeAt());
+        assertEquals(1, tick.escalations.size());
+        assertEquals(2, tick.escalations.get(0).missed);
+        assertEquals("S+91 90000 00001", tick.escalations.get(0).name);
+
+        // a reply to the next check clears the misses
+        while (schedule.status().get(0).awaitingSinceMillis == 0) schedule.tick(now = schedule.nextWakeAt());
+        assertFalse(schedule.onReply("919000000001", now - 10 * MIN)); // older than the check
+        assertTrue(schedule.onReply("919000000001", now + MIN));
+        assertEquals(0, schedule.status().get(0).missed);
+        assertEquals(0, schedule.status().get(0).awaitingSinceMillis);
+        assertTrue(schedule.tick(schedule.nextWakeAt()).escalations.isEmpty());
+    }
+
+    @Test
+    public void stateSurvivesRestoreAndReconfigure() throws JSONException {
+        CheckInSchedule schedule = new CheckInSchedule(99);
+        schedule.configure(Arrays.asList(sister("9000000001", 60), sister("9000000002", 60)), T0);
+        long wake = schedule.nextWakeAt();
+        schedule.tick(wake);
+
+        CheckInSchedule restored = CheckInSchedule.restore(schedule.toJson(), 1);
+        assertEquals(99, restored.getJitterSeed());
+        restored.configure(Arrays.asList(sister("9000000001", 60)), wake + MIN); // second sister removed
+        List<CheckInSchedule.Status> status = restored.status();
+        assertEquals(1, status.size());
+        assertEquals(wake, status.get(0).awaitingSinceMillis);
+        assertEquals(wake + 60 * MIN, status.get(0).nextDueAtMillis);
+
+        assertTrue(CheckInSchedule.restore("{broken", 5).isEmpty());
+        restored.configure(Arrays.asList(), wake);
+        assertEquals(Long.MAX_VALUE, restored.nextWakeAt());
+    }
+
+    @Test
+    public void sisterListEntriesWithoutCodeOrIntervalAreNotScheduled() throws JSONException {
+        List<CheckInSchedule.Sister> sisters = CheckInSchedule.sistersFromJson("["
+                + "{\"phone\":\"+919000000001\",\"name\":\"Asha\",\"code\":\"SIS\",\"checkInMinutes\":5,\"escalateAfter\":3},"
+                + "{\"phone\":\"+919000000002\",\"name\":\"Bina\",\"code\":\"SIS\"},"
+                + "{\"phone\":\"+919000000003\",\"name\":\"Chitra\",\"checkInMinutes\":60}]");
+        assertEquals(1, sisters.size());
+        assertEquals("919000000001", sisters.get(0).key);
+        assertEquals(CheckInSchedule.MIN_INTERVAL_MS, sisters.get(0).intervalMillis);
+        assertEquals(3, sisters.get(0).escalateAfter);
+    }
+}
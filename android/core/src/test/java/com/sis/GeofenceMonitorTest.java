@@ -0,0 +1,177 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class GeofenceMonitorTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final double METER = 1 / 111_195.0; // degrees of latitude
+    private static final double HOME_LAT = 12.97;
+    private static final double HOME_LON = 77.59;
+
+    private long now = T0;
+
+    private LocationFix at(double northMeters, float accuracy) {
+        return new LocationFix(HOME_LAT + northMeters * METER, HOME_LON, accuracy, now, LocationFix.Source.BALANCED);
+    }
+
+    private static GeofenceIndex home(long dwellMillis) {
+        return new GeofenceIndex.Builder()
+                .add(new Geofence("home", "9876543210", "Home", HOME_LAT, HOME_LON, 200, dwellMillis))
+                .build();
+    }
+
+    private static GeofenceMonitor monitor(GeofenceIndex index) {
+        GeofenceMonitor monitor = new GeofenceMonitor();
+        monitor.setIndex(index);
+        return monitor;
+    }
+
+    @Test
+    public void firstFixSetsStateSilentlyThenDepartureAndArrivalAfterDwell() {
+        GeofenceMonitor monitor = monitor(home(60_000));
+        assertTrue(monitor.onFix(at(0, 20)).isEmpty());
+        assertEquals(Collections.singletonList("home"), monitor.insideIds());
+
+        now += 30_000;
+        assertTrue(monitor.onFix(at(400, 20)).isEmpty()); // outside, dwell not over
+        now += 60_000; // dwell counts from the first fix outside
+        List<GeofenceMonitor.Transition> left = monitor.onFix(at(450, 20));
+        assertEquals(1, left.size());
+        assertFalse(left.get(0).arrived);
+        assertTrue(left.get(0).message().startsWith("Left Home: "));
+        assertTrue(monitor.insideIds().isEmpty());
+
+        now += 60_000;
+        assertTrue(monitor.onFix(at(10, 20)).isEmpty());
+        now += 60_000;
+        List<GeofenceMonitor.Transition> arrived = monitor.onFix(at(0, 20));
+        assertEquals(1, arrived.size());
+        assertTrue(arrived.get(0).arrived);
+    }
+
+    @Test
+    public void boundaryJitterAndShortExcursionsDoNotAlert() {
+        GeofenceMonitor monitor = monitor(home(60_000));
+        monitor.onFix(at(190, 10));
+        for (int i = 0; i < 50; i++) {
+            now += 15_000;
+            // 190..240 m: inside or within the 50 m hysteresis band, never clearly outside
+            assertTrue(monitor.onFix(at(190 + (i % 6) * 10, 10)).isEmpty());
+        }
+        now += 15_000;
+        assertTrue(monitor.onFix(at(300, 10)).isEmpty()); // out ...
+        now += 15_000;
+        assertTrue(monitor.onFix(at(100, 10)).isEmpty()); // ... and back before the dwell
+        now += 120_000;
+        assertTrue(monitor.onFix(at(300, 10)).isEmpty()); // dwell starts over
+        // a coarse fix 300 m out is not evidence either way (accuracy widens the margin)
+        now += 120_000;
+        assertTrue(monitor.onFix(at(300, 400)).isEmpty());
+        assertEquals(Collections.singletonList("home"), monitor.insideIds());
+    }
+
+    @Test
+    public void stateSurvivesListChangesAndRestore() {
+        GeofenceMonitor monitor = monitor(home(0));
+        monitor.onFix(at(0, 20));
+
+        // same id kept, a new zone next door starts unknown and is settled silently
+        GeofenceIndex two = new GeofenceIndex.Builder()
+                .add(new Geofence("home", "9876543210", "Home", HOME_LAT, HOME_LON, 200, 0))
+                .add(new Geofence("school", "9876543210", "School", HOME_LAT + 1_000 * METER, HOME_LON, 300, 0))
+                .build();
+        monitor.setIndex(two);
+        now += 60_000;
+        assertTrue(monitor.onFix(at(0, 20)).isEmpty());
+
+        GeofenceMonitor restarted = monitor(two);
+        restarted.restore(monitor.insideIds(), monitor.outsideIds());
+        now += 60_000;
+        List<GeofenceMonitor.Transition> moved = restarted.onFix(at(1_000, 20));
+        assertEquals(2, moved.size());
+        for (GeofenceMonitor.Transition t : moved) assertEquals(t.fence.id.equals("school"), t.arrived);
+    }
+
+    @Test
+    public void silentFirstFixIsSavedAndNeverSettledZonesStayUnknownAfterRestart() {
+        GeofenceMonitor monitor = monitor(home(0));
+        long changes = monitor.stateChanges();
+        assertTrue(monitor.onFix(at(0, 20)).isEmpty());
+        assertTrue(monitor.stateChanges() != changes); // no alert, but there is state to save
+        assertEquals(Collections.singletonList("home"), monitor.insideIds());
+        changes = monitor.stateChanges();
+        now += 60_000;
+        monitor.onFix(at(10, 20));
+        assertEquals(changes, monitor.stateChanges());
+
+        GeofenceMonitor restarted = monitor(home(0));
+        restarted.restore(monitor.insideIds(), monitor.outsideIds());
+        now += 60_000;
+        assertTrue(restarted.onFix(at(0, 20)).isEmpty()); // no "Arrived at Home"
+
+        // a zone saved before its first fix is still unknown after a restart: first fix silent
+        GeofenceMonitor fresh = monitor(home(0));
+        GeofenceMonitor resumed = monitor(home(0));
+        resumed.restore(fresh.insideIds(), fresh.outsideIds());
+        assertTrue(resumed.onFix(at(0, 20)).isEmpty());
+        assertTrue(resumed.insideIds().contains("home"));
+    }
+
+    @Test
+    public void farZoneIsLeftWithoutBeingACandidate() {
+        GeofenceMonitor monitor = monitor(home(0));
+        monitor.onFix(at(0, 20));
+        now += 60_000;
+        // 50 km away: no candidates in that cell, but the active zone is still settled
+        List<GeofenceMonitor.Transition> left = monitor.onFix(at(50_000, 20));
+        assertEquals(1, left.size());
+        assertFalse(left.get(0).arrived);
+        assertEquals(0, GeofenceIndex.EMPTY.candidates(HOME_LAT, HOME_LON).length);
+    }
+
+    @Test
+    public void indexFindsEveryZoneInReachAndNoFarOnes() throws Exception {
+        GeofenceIndex.Builder builder = new GeofenceIndex.Builder();
+        java.util.Random random = new java.util.Random(7);
+        for (int i = 0; i < 500; i++) {
+            builder.add(new Geofence("z" + i, "9876543210", "", 12 + random.nextDouble(),
+                    77 + random.nextDouble(), 50 + random.nextInt(2_000), -1));
+        }
+        GeofenceIndex index = builder.build();
+        for (int q = 0; q < 2_000; q++) {
+            double lat = 12 + random.nextDouble();
+            double lon = 77 + random.nextDouble();
+            int[] candidates = index.candidates(lat, lon);
+            boolean[] listed = new boolean[index.size()];
+            for (int i : candidates) listed[i] = true;
+            for (int i = 0; i < index.size(); i++) {
+                Geofence g = index.get(i);
+                if (g.distanceMeters(lat, lon) <= g.radiusMeters + GeofenceIndex.MAX_MARGIN_M) {
+                    assertTrue(g + " missing for " + lat + "," + lon, listed[i]);
+                }
+            }
+            assertTrue(candidates.length < 40);
+        }
+
+        GeofenceIndex parsed = GeofenceIndex.fromJson("[{\"phone\":\"+91 98765 43210\",\"name\":\"Home\","
+                + "\"latitude\":12.97,\"longitude\":77.59,\"radius\":150,\"dwellSeconds\":30},"
+                + "{\"phone\":\"\",\"latitude\":1,\"longitude\":2},{\"phone\":\"123\",\"name\":\"x\"}]");
+        assertEquals(1, parsed.size());
+        assertEquals("919876543210/Home", parsed.get(0).id);
+        assertEquals(30_000, parsed.get(0).dwellMillis);
+        assertEquals(Arrays.asList(0), toList(parsed.candidates(12.971, 77.59)));
+    }
+
+    private static List<Integer> toList(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) boxed[i] = values[i];
+        return Arrays.asList(boxed);
+    }
+}
@@ -0,0 +1,69 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class InboundDedupTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long WINDOW = InboundDedup.DEFAULT_WINDOW_MS;
+
+    private static InboundSms sms(String sender, String body, long timestamp) {
+        return new InboundSms(sender, body, timestamp);
+    }
+
+    @Test
+    public void repeatedDeliveryIsSuppressedWithinTheWindow() {
+        InboundDedup dedup = new InboundDedup(64, WINDOW);
+        assertTrue(dedup.firstSeen(sms("+91 98765 43210", "SIS", T0), T0));
+        // retransmission: same PDU, sender formatted differently by the network
+        assertFalse(dedup.firstSeen(sms("919876543210", "SIS", T0), T0 + 5_000));
+        // the contact asks again: new service-centre timestamp
+        assertTrue(dedup.firstSeen(sms("+91 98765 43210", "SIS", T0 + 60_000), T0 + 60_000));
+        assertTrue(dedup.firstSeen(sms("+91 98765 43210", "SIS!", T0), T0 + 60_000));
+        assertTrue(dedup.firstSeen(sms("+91 98765 43211", "SIS", T0), T0 + 60_000));
+        assertEquals(1, dedup.suppressedCount());
+
+        // past the window the same message counts as new
+        assertTrue(dedup.firstSeen(sms("919876543210", "SIS", T0), T0 + WINDOW));
+    }
+
+    @Test
+    public void memoryIsFixedAndOldestEntriesGoFirst() {
+        InboundDedup dedup = new InboundDedup(64, WINDOW);
+        for (int i = 0; i < 10_000; i++) assertTrue(dedup.firstSeen(sms("98765", "m" + i, T0), T0 + i));
+        int remembered = 0;
+        for (int i = 9_990; i < 10_000; i++) if (!dedup.firstSeen(sms("98765", "m" + i, T0), T0 + 10_000)) remembered++;
+        assertTrue(remembered >= 8); // the newest are still there (4-way sets)
+        int old = 0;
+        for (int i = 0; i < 100; i++) if (!dedup.firstSeen(sms("98765", "m" + i, T0), T0 + 10_000)) old++;
+        assertEquals(0, old);
+    }
+
+    @Test
+    public void stateSurvivesSaveAndLoad() throws Exception {
+        File file = File.createTempFile("dedup", ".bin");
+        try {
+            InboundDedup dedup = new InboundDedup(InboundDedup.DEFAULT_CAPACITY, WINDOW);
+            dedup.firstSeen(sms("98765", "old", T0), T0);
+            dedup.firstSeen(sms("98765", "recent", T0), T0 + WINDOW / 2);
+            dedup.save(file, T0 + WINDOW / 2);
+            assertEquals(4 + 8 + 4 + 2 * 16, file.length());
+
+            InboundDedup reloaded = InboundDedup.load(file, InboundDedup.DEFAULT_CAPACITY, WINDOW, T0 + WINDOW);
+            assertFalse(reloaded.firstSeen(sms("98765", "recent", T0), T0 + WINDOW));
+            assertTrue(reloaded.firstSeen(sms("98765", "old", T0), T0 + WINDOW)); // expired meanwhile
+
+            Files.write(file.toPath(), new byte[] {1, 2, 3});
+            assertTrue(InboundDedup.load(file, 64, WINDOW, T0).firstSeen(sms("98765", "recent", T0), T0));
+            assertTrue(InboundDedup.load(new File(file.getPath() + ".missing"), 64, WINDOW, T0)
+                    .firstSeen(sms("98765", "recent", T0), T0));
+        } finally {
+            file.delete();
+        }
+    }
+}
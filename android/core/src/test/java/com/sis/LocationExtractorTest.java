@@ -0,0 +1,178 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+/**
+ * LocationExtractor must give exactly what the old regex parser in SisterSmsReceiver gave.
+ * The legacy implementation is kept below as the oracle (JSONObject replaced by ParsedLocation,
+ * with JSONObject.put's rejection of non-finite doubles kept).
+ */
+public class LocationExtractorTest {
+
+    private static final String[] CORPUS = {
+            "",
+            "hello",
+            "Here is my current location: https://maps.google.com/?q=12.9715987,77.5945627",
+            "Here is my current location: https://maps.google.com/?q=-33.8688197,151.2092955",
+            "My current location: https://maps.google.com/?q=28.6139,77.209",
+            "https://www.google.com/maps/@12.9715987,77.5945627,15z",
+            "https://www.google.com/maps/place/Foo/@-1.2921, 36.8219,17z/data=!3m1",
+            "I'm at 12.9716, 77.5946 near the station",
+            "coords 12.9716;77.5946.",
+            "https://www.google.com/maps/embed?pb=!1m18!2d77.5945627!3d12.9715987!2m3",
+            "https://maps.app.goo.gl/AbCdEf123).",
+            "check this https://goo.gl/maps/xyz, thanks",
+            "HTTPS://MAPS.GOOGLE.COM/?Q=1.5,2.5",
+            "see https://example.com/page.",
+            "see http:// nothing",
+            "?q=1.2.3,4.5 fallback https://maps.google.com/x",
+            "?q=-,5 and https://example.org",
+            "&q= 10 , 20",
+            "@1234.5,6.7",
+            "1234.5,6.7",
+            "1.2.3,4.5",
+            "-12.5,-0.25",
+            "!2d1" + repeat('9', 400) + ".5!3d1.5 https://maps.google.com/abc",
+            "?q=1" + repeat('0', 400) + ",2",
+            "https://maps.google.com/foo). ",
+            "https://goo.gl/maps/abc\u0085",
+            "ftp://maps.google.com/?q=1,2",
+            "@ 12.5 ,\t77.25",
+            "12.5\n,\n77.25",
+            "text https://example.com/a?q=1.5,2.5",
+            "Q=1,2 ?Q=3,4",
+            "maps.google.com/?q=1,2",
+            "https://www.google.com/maps/dir/12.97,77.59/13.0,77.6",
+            "I am fine, 5.5 km away",
+            "-.5,1.5",
+            "12.,34.5",
+    };
+
+    @Test
+    public void corpusMatchesLegacyParser() {
+        for (String text : CORPUS) {
+            assertEquals(text, legacyParse(text), LocationExtractor.extract(text));
+            assertEquals(text, legacyReceive(text), LocationExtractor.extractOrAnyUrl(text));
+        }
+    }
+
+    @Test
+    public void randomBodiesMatchLegacyParser() {
+        String[] tokens = {
+                "?q=", "&Q=", "?", "&", "q=", "@", "!2d", "!3d", "!", "http://", "https://", "HTTP://",
+                "maps.google.com", "google.com/maps", "maps.app.goo.gl", "goo.gl/maps", "example.com",
+                "0", "1", "12", "123", "1234", "98765", ".", ",", ";", "-", " ", "\t", "\n", ")", "x",
+                "h", "s", "\u2028", "\u0085", "\u00e9",
+        };
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        for (int iter = 0; iter < 100_000; iter++) {
+            sb.setLength(0);
+            int count = random.nextInt(16);
+            for (int k = 0; k < count; k++) sb.append(tokens[random.nextInt(tokens.length)]);
+            String text = sb.toString();
+            assertEquals(text, legacyParse(text), LocationExtractor.extract(text));
+            assertEquals(text, legacyReceive(text), LocationExtractor.extractOrAnyUrl(text));
+        }
+    }
+
+    @Test
+    public void exposesCoordinatesAndDerivedUrl() {
+        ParsedLocation loc = LocationExtractor.extract("https://maps.google.com/?q=12.5,77.25");
+        assertTrue(loc.hasCoordinates());
+        assertEquals(12.5, loc.getLatitude(), 0);
+        assertEquals(77.25, loc.getLongitude(), 0);
+        assertEquals("https://maps.google.com/?q=12.5,77.25", loc.getMapUrl());
+
+        ParsedLocation embed = LocationExtractor.extract("x!2d77.25!3d12.5");
+        assertEquals(12.5, embed.getLatitude(), 0);
+        assertEquals(77.25, embed.getLongitude(), 0);
+
+        ParsedLocation link = LocationExtractor.extract("at https://maps.app.goo.gl/abc).");
+        assertFalse(link.hasCoordinates());
+        assertEquals("https://maps.app.goo.gl/abc", link.getMapUrl());
+
+        assertNull(LocationExtractor.extract(null));
+        assertNull(LocationExtractor.extract("see https://example.com"));
+        assertEquals("https://example.com", LocationExtractor.extractOrAnyUrl("see https://example.com").getMapUrl());
+    }
+
+    // ---- legacy oracle (SisterSmsReceiver before LocationExtractor) ----
+
+    private static ParsedLocation legacyParse(String text) {
+        if (text == null) return null;
+        try {
+            Pattern qPat = Pattern.compile("[?&]q=\\s*([-0-9\\.]+)\\s*,\\s*([-0-9\\.]+)", Pattern.CASE_INSENSITIVE);
+            Matcher qM = qPat.matcher(text);
+            if (qM.find()) {
+                return coordinates(Double.parseDouble(qM.group(1)), Double.parseDouble(qM.group(2)));
+            }
+
+            Pattern atPat = Pattern.compile("@\\s*(-?\\d{1,3}\\.\\d+)\\s*,\\s*(-?\\d{1,3}\\.\\d+)");
+            Matcher atM = atPat.matcher(text);
+            if (atM.find()) {
+                return coordinates(Double.parseDouble(atM.group(1)), Double.parseDouble(atM.group(2)));
+            }
+
+            Pattern decPat = Pattern.compile("(-?\\d{1,3}\\.\\d+)\\s*[,;]\\s*(-?\\d{1,3}\\.\\d+)");
+            Matcher decM = decPat.matcher(text);
+            if (decM.find()) {
+                return coordinates(Double.parseDouble(decM.group(1)), Double.parseDouble(decM.group(2)));
+            }
+
+            Pattern embedPat = Pattern.compile("!2d(-?\\d+\\.\\d+)!3d(-?\\d+\\.\\d+)");
+            Matcher embedM = embedPat.matcher(text);
+            if (embedM.find()) {
+                double lon = Double.parseDouble(embedM.group(1));
+                double lat = Double.parseDouble(embedM.group(2));
+                return coordinates(lat, lon);
+            }
+
+            Pattern urlPat = Pattern.compile("(https?://[^\\s]+)", Pattern.CASE_INSENSITIVE);
+            Matcher urlM = urlPat.matcher(text);
+            if (urlM.find()) {
+                String url = urlM.group(1).replaceAll("[\\.,\\)]+$", "");
+                String lo = url.toLowerCase();
+                if (lo.contains("maps.google.com") || lo.contains("google.com/maps") || lo.contains("maps.app.goo.gl") || lo.contains("goo.gl/maps")) {
+                    return ParsedLocation.ofMapUrl(url);
+                }
+            }
+        } catch (Exception e) {
+            // legacy parser logged and returned null
+        }
+        return null;
+    }
+
+    private static ParsedLocation legacyReceive(String body) {
+        ParsedLocation parsed = legacyParse(body);
+        if (parsed != null) return parsed;
+        Pattern urlPat = Pattern.compile("(https?://[^\\s]+)", Pattern.CASE_INSENSITIVE);
+        Matcher urlM = urlPat.matcher(body != null ? body : "");
+        if (urlM.find()) {
+            return ParsedLocation.ofMapUrl(urlM.group(1).replaceAll("[\\.,\\)]+$", ""));
+        }
+        return null;
+    }
+
+    // JSONObject.put(String, double) throws for NaN/Infinity
+    private static ParsedLocation coordinates(double lat, double lon) {
+        if (Double.isNaN(lat) || Double.isInfinite(lat) || Double.isNaN(lon) || Double.isInfinite(lon)) {
+            throw new IllegalArgumentException("Forbidden numeric value");
+        }
+        return ParsedLocation.ofCoordinates(lat, lon);
+    }
+
+    private static String repeat(char c, int n) {
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) sb.append(c);
+        return sb.toString();
+    }
+}
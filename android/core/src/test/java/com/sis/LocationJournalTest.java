@@ -0,0 +1,129 @@
+package com.sis;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LocationJournalTest {
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void historyByTimeRangeAcrossPhoneVariants() throws Exception {
+        File file = tmp.newFile("journal.bin");
+        LocationJournal journal = new LocationJournal(file);
+        for (int i = 0; i < 10; i++) {
+            journal.append("+91 98765 43210", T0 + i * 1000, 12.0 + i, 77.0, Float.NaN);
+            journal.append("0011 2233", T0 + i * 1000, -1.0, -2.0, 5f);
+        }
+        journal.append("919876543210", T0 - 5000, 11.0, 77.0, Float.NaN); // late, out of order
+
+        List<LocationJournal.Point> range = journal.history("91-98765-43210", T0 + 2000, T0 + 4000, 0);
+        assertEquals(3, range.size());
+        assertEquals(14.0, range.get(0).getLatitude(), 0);
+        assertEquals(T0 + 4000, range.get(2).getTimestampMillis());
+
+        List<LocationJournal.Point> all = journal.history("919876543210", Long.MIN_VALUE, Long.MAX_VALUE, 0);
+        assertEquals(11, all.size());
+        assertEquals(11.0, all.get(0).getLatitude(), 0);
+
+        List<LocationJournal.Point> newest = journal.history("919876543210", Long.MIN_VALUE, Long.MAX_VALUE, 2);
+        assertEquals(T0 + 8000, newest.get(0).getTimestampMillis());
+
+        LocationJournal.Point other = journal.latest("00112233");
+        assertEquals("00112233", other.getPhone());
+        assertEquals(5f, other.getAccuracy(), 0);
+        assertNull(journal.latest("12345"));
+        journal.close();
+
+        LocationJournal reopened = new LocationJournal(file);
+        assertEquals(21, reopened.size());
+        assertEquals(21.0, reopened.latest("919876543210").getLatitude(), 0);
+        reopened.close();
+    }
+
+    @Test
+    public void recoveryTruncatesTornTail() throws Exception {
+        File file = tmp.newFile("journal.bin");
+        LocationJournal journal = new LocationJournal(file);
+        for (int i = 0; i < 5; i++) journal.append("9876543210", T0 + i, 1, 2, Float.NaN);
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // half-written sixth record
+            raf.seek(raf.length());
+            raf.write(new byte[LocationJournal.RECORD_SIZE / 2]);
+        }
+        journal = new LocationJournal(file);
+        assertEquals(5, journal.size());
+        assertEquals(LocationJournal.HEADER_SIZE + 5L * LocationJournal.RECORD_SIZE, file.length());
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            // damage the last record's coordinates
+            raf.seek(LocationJournal.HEADER_SIZE + 4L * LocationJournal.RECORD_SIZE + 20);
+            raf.write(0x7f);
+        }
+        journal = new LocationJournal(file);
+        assertEquals(4, journal.size());
+        assertEquals(T0 + 3, journal.latest("9876543210").getTimestampMillis());
+        journal.append("9876543210", T0 + 9, 1, 2, Float.NaN);
+        assertEquals(5, journal.size());
+        journal.close();
+    }
+
+    @Test
+    public void compactionKeepsNewestPerPhone() throws Exception {
+        File file = tmp.newFile("journal.bin");
+        LocationJournal journal = new LocationJournal(file);
+        journal.append("111111", T0, 1, 1, Float.NaN);
+        for (int i = 0; i < 100; i++) journal.append("222222", T0 + 1000 + i, 2, i, Float.NaN);
+
+        assertEquals(6, journal.compact(T0 + 1095, 1000));
+        assertEquals(T0, journal.latest("111111").getTimestampMillis());
+        assertEquals(5, journal.history("222222", Long.MIN_VALUE, Long.MAX_VALUE, 0).size());
+        journal.close();
+
+        LocationJournal reopened = new LocationJournal(file);
+        assertEquals(6, reopened.size());
+        assertEquals(99.0, reopened.latest("222222").getLongitude(), 0);
+        reopened.close();
+        assertTrue(!new File(file.getPath() + ".tmp").exists());
+    }
+
+    /** Appends only add a record at the end: no rewrite of earlier records below the compaction threshold. */
+    @Test
+    public void appendsGrowTheFileLinearly() throws Exception {
+        File file = tmp.newFile("journal.bin");
+        LocationJournal journal = new LocationJournal(file);
+        byte[] head = null;
+        for (int n = 1; n <= 20_000; n++) {
+            journal.append("98765432" + (10 + n % 5), T0 + n * 1000L, 12.97, 77.59, Float.NaN);
+            if (n % 1000 != 0) continue;
+            assertEquals(n, journal.size());
+            assertEquals(LocationJournal.HEADER_SIZE + (long) n * LocationJournal.RECORD_SIZE, file.length());
+            byte[] now = firstBytes(file, LocationJournal.HEADER_SIZE + 1000 * LocationJournal.RECORD_SIZE);
+            if (head == null) head = now;
+            else assertArrayEquals(head, now);
+        }
+        journal.close();
+    }
+
+    private static byte[] firstBytes(File file, int length) throws Exception {
+        byte[] out = new byte[length];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.readFully(out);
+        }
+        return out;
+    }
+}
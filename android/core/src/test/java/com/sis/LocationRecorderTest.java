@@ -0,0 +1,104 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class LocationRecorderTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    private final InMemoryKeyValueStore prefs = new InMemoryKeyValueStore();
+    private final LocationStore store = new LocationStore(prefs);
+    private final InMemoryLocationHistory history = new InMemoryLocationHistory();
+    private final SisterIndex sisters = new SisterIndex.Builder().add("98765 43210", "Asha").build();
+    private final LocationRecorder recorder = new LocationRecorder(store, history, () -> sisters);
+
+    @Test
+    public void sisterLocationIsStoredUnderEveryKeyAndJournaled() throws Exception {
+        LocationRecorder.Recorded r = recorder.record(
+                new InboundSms("+919876543210", "Here is my current location: https://maps.google.com/?q=12.97,77.59", NOW), NOW);
+
+        assertEquals("98765 43210", r.canonical);
+        assertEquals("98765 43210", r.key());
+        assertTrue(r.isParsed());
+        assertNull(r.storeFailure);
+        for (String key : Arrays.asList("+919876543210", "919876543210", "98765 43210", "9876543210")) {
+            assertEquals(key, r.record, store.getLastLocation(key));
+        }
+        JSONObject record = new JSONObject(r.record);
+        assertEquals(12.97, record.getDouble("latitude"), 0);
+        assertEquals(NOW, record.getLong("timestamp"));
+
+        List<InMemoryLocationHistory.Point> points = history.points();
+        assertEquals(1, points.size());
+        assertEquals("98765 43210", points.get(0).phone);
+        assertEquals(NOW, points.get(0).timestampMillis);
+
+        store.flush();
+        assertEquals(1, prefs.commits());
+    }
+
+    @Test
+    public void unparsedMessageFromStrangerIsStoredButNotJournaled() throws Exception {
+        LocationRecorder.Recorded r = recorder.record(new InboundSms("12345", "call me", NOW), NOW);
+        assertNull(r.canonical);
+        assertFalse(r.isParsed());
+        assertEquals("12345", r.key());
+        assertFalse(new JSONObject(store.getLastLocation("12345")).getBoolean("parsed"));
+        assertTrue(history.points().isEmpty());
+    }
+
+    @Test
+    public void trackBundleJournalsEveryFixWithItsTime() throws Exception {
+        List<LocationFix> fixes = Arrays.asList(
+                new LocationFix(12.97, 77.59, 5f, NOW - 120_000, LocationFix.Source.HIGH_ACCURACY),
+                new LocationFix(12.98, 77.60, 5f, NOW - 60_000, LocationFix.Source.HIGH_ACCURACY));
+        String bundle = TrackBundle.encode(fixes).get(0);
+
+        LocationRecorder.Recorded r = recorder.record(new InboundSms("9876543210", bundle, NOW), NOW);
+        assertEquals(2, r.track.size());
+        assertEquals(12.98, r.location.getLatitude(), 0);
+        List<InMemoryLocationHistory.Point> points = history.points();
+        assertEquals(2, points.size());
+        assertEquals(NOW - 120_000, points.get(0).timestampMillis);
+    }
+
+    @Test
+    public void historyFailureDoesNotStopTheStore() throws Exception {
+        history.setFailing(true);
+        LocationRecorder.Recorded r = recorder.record(new InboundSms("555", "12.5,77.25", NOW), NOW);
+        assertNotNull(r.historyFailure);
+        assertEquals(r.record, store.getLastLocation("555"));
+    }
+
+    @Test
+    public void trustedRequestCarriesEntrySettingsAndCommand() throws Exception {
+        TrustedListIndex trusted = TrustedListIndex.fromJson(
+                "[{\"phone\":\"98765 43210\",\"keyword\":\"where\",\"maxAgeSec\":30,\"compact\":true},"
+                        + "{\"phone\":\"11111 22222\",\"keyword\":\"loc\"}]");
+
+        TrustedRequest oneShot = TrustedRequest.match(trusted, new InboundSms("+919876543210", "WHERE are you", NOW));
+        assertEquals("98765 43210", oneShot.phone);
+        assertEquals("+919876543210", oneShot.sender);
+        assertNull(oneShot.command);
+        assertEquals(30_000, oneShot.maxLocationAgeMillis);
+        assertTrue(oneShot.compact);
+
+        TrustedRequest track = TrustedRequest.match(trusted, new InboundSms("1111122222", "loc track 20", NOW));
+        assertTrue(track.command.start);
+        assertEquals(20 * 60_000, track.command.durationMillis);
+        assertEquals(LocationService.DEFAULT_MAX_AGE_MS, track.maxLocationAgeMillis);
+        assertFalse(track.compact);
+        assertNull(TrustedRequest.match(trusted, new InboundSms("1111122222", "loc please stop ignoring me", NOW)).command);
+
+        assertNull(TrustedRequest.match(trusted, new InboundSms("1111122222", "where", NOW)));
+        assertNull(TrustedRequest.match(trusted, new InboundSms("5555555555", "loc", NOW)));
+    }
+}
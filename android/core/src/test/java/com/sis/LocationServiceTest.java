@@ -0,0 +1,95 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class LocationServiceTest {
+    private static final long BUDGET = 30_000;
+
+    private long now = 1_700_000_000_000L;
+    private final FakeLocationProvider provider = new FakeLocationProvider();
+    private final LocationService service = new LocationService(provider, () -> now, BUDGET);
+    private final List<LocationFix> delivered = new ArrayList<>();
+
+    private LocationFix fix(long ageMillis, float accuracy, LocationFix.Source source) {
+        return new LocationFix(12.97, 77.59, accuracy, now - ageMillis, source);
+    }
+
+    @Test
+    public void concurrentRequestsShareOneAcquisition() {
+        for (int i = 0; i < 3; i++) service.request(60_000, delivered::add);
+        assertEquals(1, provider.lastKnownCalls);
+        assertEquals(1, provider.started.size());
+        assertEquals(LocationProvider.Accuracy.BALANCED, provider.started.get(0).accuracy);
+
+        LocationFix f = fix(0, 20, LocationFix.Source.BALANCED);
+        provider.complete(f);
+        assertEquals(3, delivered.size());
+        for (LocationFix d : delivered) assertSame(f, d);
+
+        // fresh enough for the next caller: served from cache, provider untouched
+        now += 30_000;
+        service.request(60_000, delivered::add);
+        assertEquals(4, delivered.size());
+        assertEquals(1, provider.lastKnownCalls);
+
+        // but not for a stricter one
+        service.request(10_000, delivered::add);
+        assertEquals(2, provider.lastKnownCalls);
+    }
+
+    @Test
+    public void freshAccurateLastKnownNeedsNoRadio() {
+        provider.lastKnown = fix(5_000, 15, LocationFix.Source.LAST_KNOWN);
+        service.request(60_000, delivered::add);
+        assertSame(provider.lastKnown, delivered.get(0));
+        assertEquals(0, provider.started.size());
+    }
+
+    @Test
+    public void ladderEscalatesToHighAccuracyWithRemainingBudget() {
+        provider.lastKnown = fix(10 * 60_000, 15, LocationFix.Source.LAST_KNOWN); // too old
+        service.request(60_000, delivered::add);
+        assertEquals(LocationService.BALANCED_TIMEOUT_MS, provider.started.get(0).timeoutMillis);
+
+        now += 4_000;
+        provider.complete(fix(0, 800, LocationFix.Source.BALANCED)); // cell-level accuracy
+        assertEquals(LocationProvider.Accuracy.HIGH, provider.started.get(1).accuracy);
+        assertEquals(BUDGET - 4_000, provider.started.get(1).timeoutMillis);
+        assertEquals(0, delivered.size());
+
+        LocationFix gps = fix(0, 5, LocationFix.Source.HIGH_ACCURACY);
+        provider.complete(gps);
+        assertSame(gps, delivered.get(0));
+        assertSame(gps, service.cached());
+    }
+
+    @Test
+    public void deliversBestSeenFixWhenEverythingFails() {
+        LocationFix stale = fix(10 * 60_000, 15, LocationFix.Source.LAST_KNOWN);
+        provider.lastKnown = stale;
+        service.request(60_000, delivered::add);
+        provider.complete(null);
+        provider.complete(null);
+        assertSame(stale, delivered.get(0));
+    }
+
+    @Test
+    public void budgetExhaustedSkipsHighAccuracy() {
+        service.request(60_000, delivered::add);
+        now += BUDGET;
+        provider.complete(null);
+        assertEquals(1, provider.started.size());
+        assertEquals(1, delivered.size());
+        assertNull(delivered.get(0));
+
+        // next request starts a new acquisition
+        service.request(60_000, delivered::add);
+        assertEquals(2, provider.started.size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Map;
+import org.junit.Test;
+
+/**
+ * Disk writes of saving received locations: legacy per-key apply() calls vs LocationStore.
+ * CountingPrefs models SharedPreferencesImpl behind SharedPreferencesStore: every commit
+ * rewrites the whole XML file and fsyncs it. (The framework can skip an apply() whose state is
+ * already superseded, so the legacy counts are an upper bound; the store never relies on that.)
+ */
+public class LocationStoreTest {
+    private static final int MESSAGES = 100;
+    private static final String[] CANONICAL = {
+            "98765 43210", "98765 43211", "98765 43212", "98765 43213", "98765 43214",
+    };
+
+    @Test
+    public void coalescedWritesKeepContentWithFewerFsyncs() {
+        CountingPrefs legacy = seeded();
+        for (int i = 0; i < MESSAGES; i++) {
+            String[] keys = keysFor(i);
+            String record = record(i);
+            for (String key : keys) {
+                legacy.putAll(Collections.singletonMap(LocationStore.KEY_PREFIX_LAST_LOCATION + key, record));
+            }
+        }
+
+        // worker goes idle after every message: one commit per message
+        CountingPrefs spacedPrefs = seeded();
+        LocationStore spaced = new LocationStore(spacedPrefs);
+        for (int i = 0; i < MESSAGES; i++) {
+            spaced.putLastLocation(record(i), keysFor(i));
+            spaced.flush();
+        }
+
+        // all 100 messages arrive in one burst: one commit when the lanes drain
+        CountingPrefs burstPrefs = seeded();
+        LocationStore burst = new LocationStore(burstPrefs);
+        for (int i = 0; i < MESSAGES; i++) {
+            burst.putLastLocation(record(i), keysFor(i));
+        }
+        burst.flush();
+
+        assertEquals(4 * MESSAGES, legacy.fsyncs);
+        assertEquals(MESSAGES, spacedPrefs.fsyncs);
+        assertTrue(burstPrefs.fsyncs <= 1 + (MESSAGES / 50)); // MAX_COALESCE_MS may split a slow run
+        assertTrue(spacedPrefs.bytes * 3 < legacy.bytes);
+        assertEquals(legacy.snapshot(), spacedPrefs.snapshot());
+        assertEquals(legacy.snapshot(), burstPrefs.snapshot());
+    }
+
+    @Test
+    public void readsSeeUnflushedRecords() {
+        CountingPrefs prefs = seeded();
+        LocationStore store = new LocationStore(prefs);
+        store.putLastLocation("{\"a\":1}", "+91 98765 43210", null, "", "919876543210", "+91 98765 43210");
+        assertEquals(0, prefs.fsyncs);
+        assertEquals("{\"a\":1}", store.getLastLocation("919876543210"));
+        assertNull(store.getLastLocation("98765 43210"));
+
+        store.flush();
+        store.flush();
+        assertEquals(1, prefs.fsyncs);
+        assertEquals(2, store.recordsWritten());
+        assertEquals("{\"a\":1}", prefs.get(LocationStore.KEY_PREFIX_LAST_LOCATION + "+91 98765 43210"));
+    }
+
+    private static String[] keysFor(int i) {
+        String canonical = CANONICAL[i % CANONICAL.length];
+        String sender = "+91 " + canonical;
+        return new String[] {
+                sender, PhoneNumbers.normalize(sender), canonical, PhoneNumbers.normalize(canonical),
+        };
+    }
+
+    private static String record(int i) {
+        return "{\"rawMessage\":\"Here is my current location: https:\\/\\/maps.google.com\\/?q=12.97" + i
+                + ",77.59" + i + "\",\"timestamp\":" + (1700000000000L + i * 1000L)
+                + ",\"parsed\":true,\"mapUrl\":\"https:\\/\\/maps.google.com\\/?q=12.97" + i + ",77.59" + i
+                + "\",\"latitude\":12.97" + i + ",\"longitude\":77.59" + i + "}";
+    }
+
+    private static CountingPrefs seeded() {
+        CountingPrefs prefs = new CountingPrefs();
+        prefs.put("sister_list", "[{\"phone\":\"98765 43210\",\"name\":\"A\"},{\"phone\":\"98765 43211\",\"name\":\"B\"}]");
+        return prefs;
+    }
+
+    /** In-memory prefs that count file rewrites and the XML bytes they would write. */
+    private static final class CountingPrefs extends InMemoryKeyValueStore {
+        int fsyncs;
+        long bytes;
+
+        @Override
+        public synchronized void putAll(Map<String, String> entries) {
+            super.putAll(entries);
+            // <?xml ...?><map> ... </map> with one <string name="k">v</string> line per entry
+            long size = 60;
+            for (Map.Entry<String, String> e : values.entrySet()) {
+                size += 30 + e.getKey().length() + e.getValue().length();
+            }
+            bytes += size;
+            fsyncs++;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LocationTokenTest {
+    private static final long FIX_TIME = 1_700_000_040_000L; // whole minute
+
+    @Test
+    public void roundTripsAtFiveDecimals() {
+        String token = LocationToken.encode(12.9715987, 77.5945627, 18f, FIX_TIME);
+        assertEquals(LocationToken.LENGTH, token.length());
+
+        ParsedLocation loc = LocationToken.find("Location " + token);
+        assertEquals(12.9716, loc.getLatitude(), 0);
+        assertEquals(77.59456, loc.getLongitude(), 0);
+        assertEquals(FIX_TIME, loc.getFixTimeMillis());
+        assertEquals(16f, loc.getAccuracyMeters(), 2.5f); // half-octave bucket
+        assertEquals("https://maps.google.com/?q=12.9716,77.59456", loc.getMapUrl());
+    }
+
+    @Test
+    public void extremesAndUnknownAccuracy() {
+        double[][] points = {{-90, -180}, {90, 180}, {0, 0}, {-33.86785, 151.20732}, {51.5, -0.12}};
+        for (double[] p : points) {
+            ParsedLocation loc = LocationToken.find(LocationToken.encode(p[0], p[1], Float.NaN, FIX_TIME));
+            assertEquals(p[0], loc.getLatitude(), 0);
+            assertEquals(p[1], loc.getLongitude(), 0);
+            assertTrue(Float.isNaN(loc.getAccuracyMeters()));
+        }
+        assertNull(LocationToken.encode(91, 0, 1f, FIX_TIME));
+        assertNull(LocationToken.encode(Double.NaN, 0, 1f, FIX_TIME));
+    }
+
+    @Test
+    public void corruptedTokenIsRejected() {
+        String token = LocationToken.encode(12.97, 77.59, 5f, FIX_TIME);
+        int rejected = 0;
+        for (int i = LocationToken.PREFIX.length(); i < token.length(); i++) {
+            char c = token.charAt(i);
+            String bad = token.substring(0, i) + (c == 'A' ? 'B' : 'A') + token.substring(i + 1);
+            if (LocationToken.find(bad) == null) rejected++;
+        }
+        // 6 check bits: a single substituted symbol slips through only by chance
+        assertTrue("rejected " + rejected, rejected >= 14);
+        assertNull(LocationToken.find(token.substring(0, token.length() - 1)));
+        assertNull(LocationToken.find(token + "x"));
+    }
+
+    @Test
+    public void replyFitsOneGsmSegment() {
+        String gsmBasic = "@£$¥èéùìòÇ\nØø\rÅåΔ_ΦΓΛΩΠΨΣΘΞÆæßÉ !\"#¤%&'()*+,-./0123456789:;<=>?"
+                + "¡ABCDEFGHIJKLMNOPQRSTUVWXYZÄÖÑÜ§¿abcdefghijklmnopqrstuvwxyzäöñüà";
+        String token = LocationToken.encode(-89.99999, -179.99999, 9999f, Long.MAX_VALUE);
+        assertTrue(token.length() <= 160);
+        for (char c : token.toCharArray()) assertTrue("not GSM-7: " + c, gsmBasic.indexOf(c) >= 0);
+    }
+
+    @Test
+    public void extractorPrefersTokenAndStillReadsUrls() {
+        String token = LocationToken.encode(1.5, 2.5, 10f, FIX_TIME);
+        ParsedLocation fromToken = LocationExtractor.extractOrAnyUrl("https://maps.google.com/?q=9,9 " + token);
+        assertEquals(1.5, fromToken.getLatitude(), 0);
+        assertEquals(FIX_TIME, fromToken.getFixTimeMillis());
+
+        ParsedLocation fromUrl = LocationExtractor.extract("Here is my current location: https://maps.google.com/?q=12.97,77.59");
+        assertNotNull(fromUrl);
+        assertEquals(12.97, fromUrl.getLatitude(), 0);
+        assertEquals(0, fromUrl.getFixTimeMillis());
+    }
+}
@@ -0,0 +1,228 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class OutboundSmsQueueTest {
+
+    private long now = 1_700_000_000_000L;
+    private final List<OutboundSms> handedOff = new ArrayList<>();
+    private int partsPerMessage = 1;
+    private final InMemoryOutboundSmsStore store = new InMemoryOutboundSmsStore();
+    private final List<String> events = new ArrayList<>();
+
+    private final SmsTransport transport = sms -> {
+        handedOff.add(sms);
+        return partsPerMessage;
+    };
+
+    private final OutboundSmsQueue.Listener listener = new OutboundSmsQueue.Listener() {
+        @Override public void onSent(long id) { events.add("sent " + id); }
+        @Override public void onDelivered(long id, boolean confirmed) { events.add((confirmed ? "delivered " : "unconfirmed ") + id); }
+        @Override public void onFailed(long id, String reason) { events.add("failed " + id + " " + reason); }
+    };
+
+    private OutboundSmsQueue newQueue() {
+        return new OutboundSmsQueue(transport, store, () -> now);
+    }
+
+    @Test
+    public void multipartMessageIsSentThenDelivered() {
+        OutboundSmsQueue queue = newQueue();
+        partsPerMessage = 3;
+        long id = queue.enqueue("9876543210", "long body", listener);
+        queue.runOnce();
+        assertEquals(1, handedOff.size());
+
+        queue.onPartSent(id, 1, true, false, null);
+        queue.onPartSent(id, 1, true, false, null);
+        assertTrue(events.isEmpty());
+        queue.onPartSent(id, 1, true, false, null);
+        assertEquals("sent " + id, events.get(0));
+
+        for (int i = 0; i < 3; i++) queue.onPartDelivered(id, 1, true);
+        assertEquals("delivered " + id, events.get(1));
+        assertEquals(0, queue.depth());
+        assertEquals(0, store.saved().size());
+    }
+
+    @Test
+    public void transientFailureIsRetriedWithBackoff() {
+        OutboundSmsQueue queue = newQueue();
+        long id = queue.enqueue("9876543210", "hi", listener);
+        queue.runOnce();
+        queue.onPartSent(id, 1, false, true, "no service");
+        assertEquals(1, queue.retryCount());
+
+        // not before the backoff has passed
+        long wakeAt = queue.runOnce();
+        assertEquals(now + OutboundSmsQueue.BACKOFF_BASE_MS, wakeAt);
+        assertEquals(1, handedOff.size());
+
+        now = wakeAt;
+        queue.runOnce();
+        assertEquals(2, handedOff.size());
+        assertEquals(2, handedOff.get(1).getAttempts());
+
+        // a late result of the first attempt is ignored
+        queue.onPartSent(id, 1, true, false, null);
+        assertTrue(events.isEmpty());
+        queue.onPartSent(id, 2, true, false, null);
+        assertEquals("sent " + id, events.get(0));
+    }
+
+    @Test
+    public void permanentFailureAndExhaustedRetriesFail() {
+        OutboundSmsQueue queue = newQueue();
+        long bad = queue.enqueue("1", "x", listener);
+        queue.runOnce();
+        queue.onPartSent(bad, 1, false, false, "null PDU");
+        assertEquals("failed " + bad + " null PDU", events.get(0));
+
+        long flaky = queue.enqueue("2", "y", listener);
+        for (int attempt = 1; attempt <= OutboundSmsQueue.MAX_ATTEMPTS; attempt++) {
+            now += OutboundSmsQueue.BACKOFF_MAX_MS;
+            queue.runOnce();
+            queue.onPartSent(flaky, attempt, false, true, "radio off");
+        }
+        assertEquals("failed " + flaky + " radio off", events.get(1));
+        assertEquals(OutboundSmsQueue.MAX_ATTEMPTS - 1, queue.retryCount());
+        assertEquals(2, queue.failedCount());
+    }
+
+    @Test
+    public void sendsArePacedAndWindowLimited() {
+        OutboundSmsQueue queue = newQueue();
+        for (int i = 0; i < OutboundSmsQueue.WINDOW_MAX + 1; i++) queue.enqueue("98765" + i, "m" + i, null);
+        long start = now;
+        queue.runOnce();
+        queue.runOnce(); // same instant: held back by the minimum interval
+        assertEquals(1, handedOff.size());
+
+        for (int i = 1; i < OutboundSmsQueue.WINDOW_MAX + 1; i++) {
+            now += OutboundSmsQueue.MIN_INTERVAL_MS;
+            queue.runOnce();
+        }
+        assertEquals(OutboundSmsQueue.WINDOW_MAX, handedOff.size());
+        assertEquals(start + OutboundSmsQueue.WINDOW_MS, queue.runOnce());
+
+        now = start + OutboundSmsQueue.WINDOW_MS;
+        queue.runOnce();
+        assertEquals(OutboundSmsQueue.WINDOW_MAX + 1, handedOff.size());
+    }
+
+    @Test
+    public void missingDeliveryReportCompletesUnconfirmed() {
+        OutboundSmsQueue queue = newQueue();
+        long id = queue.enqueue("9876543210", "hi", listener);
+        queue.runOnce();
+        queue.onPartSent(id, 1, true, false, null);
+        assertEquals(now + OutboundSmsQueue.DELIVERY_TIMEOUT_MS, queue.runOnce());
+
+        now += OutboundSmsQueue.DELIVERY_TIMEOUT_MS;
+        queue.runOnce();
+        assertEquals("unconfirmed " + id, events.get(1));
+        assertEquals(0, queue.depth());
+    }
+
+    @Test
+    public void queueSurvivesRestartAndResendsInterruptedMessage() {
+        OutboundSmsQueue first = newQueue();
+        long a = first.enqueue("111", "a", null);
+        long b = first.enqueue("222", "b", null);
+        first.runOnce(); // "a" is mid-send when the process dies
+        assertEquals(2, store.saved().size());
+
+        handedOff.clear();
+        OutboundSmsQueue second = newQueue();
+        assertEquals(2, second.depth());
+        second.runOnce();
+        assertEquals(a, handedOff.get(0).getId());
+        now += OutboundSmsQueue.MIN_INTERVAL_MS;
+        second.runOnce();
+        assertEquals(b, handedOff.get(1).getId());
+        assertTrue(second.enqueue("333", "c", null) > b);
+    }
+
+    @Test
+    public void transportThatThrowsIsRetried() {
+        OutboundSmsQueue queue = new OutboundSmsQueue(sms -> { throw new IllegalStateException("no SmsManager"); },
+                store, () -> now);
+        queue.enqueue("9876543210", "hi", listener);
+        queue.runOnce();
+        assertEquals(1, queue.retryCount());
+        assertEquals(1, queue.depth());
+    }
+
+    @Test
+    public void twoSimsSendInParallelAndRecipientsStickToTheirSim() {
+        OutboundSmsQueue queue = new OutboundSmsQueue(transport, store, () -> now, () -> new int[] {7, 9});
+        queue.enqueue("111", "a1", null);
+        queue.enqueue("222", "b1", null);
+        queue.enqueue("111", "a2", null);
+        queue.enqueue("222", "b2", null);
+        queue.runOnce();
+        assertEquals(2, handedOff.size());
+        int simA = handedOff.get(0).getSubscriptionId();
+        int simB = handedOff.get(1).getSubscriptionId();
+        assertEquals(7, simA);
+        assertEquals(9, simB);
+
+        now += OutboundSmsQueue.MIN_INTERVAL_MS;
+        queue.runOnce();
+        assertEquals(4, handedOff.size());
+        assertEquals("a2", handedOff.get(2).getBody());
+        assertEquals(simA, handedOff.get(2).getSubscriptionId());
+        assertEquals(simB, handedOff.get(3).getSubscriptionId());
+        for (OutboundSms sms : handedOff) queue.onPartSent(sms.getId(), 1, true, false, null);
+        assertEquals(2, queue.simStats().get(0).sent);
+        assertEquals(2, queue.simStats().get(1).sent);
+        assertEquals(2, queue.simStats().get(1).recentSends);
+    }
+
+    @Test
+    public void failingSimCoolsDownAndTheOtherTakesOver() {
+        int[] active = {7, 9};
+        OutboundSmsQueue queue = new OutboundSmsQueue(transport, store, () -> now, () -> active);
+        long id = queue.enqueue("111", "hi", listener);
+        queue.runOnce();
+        assertEquals(7, handedOff.get(0).getSubscriptionId());
+        queue.onPartSent(id, 1, false, true, "limit exceeded");
+
+        now += OutboundSmsQueue.BACKOFF_BASE_MS;
+        queue.runOnce();
+        assertEquals(9, handedOff.get(1).getSubscriptionId());
+        queue.onPartSent(id, 2, true, false, null);
+        assertEquals("sent " + id, events.get(0));
+        OutboundSmsQueue.SimStats first = queue.simStats().get(0);
+        assertEquals(1, first.failed);
+        assertTrue(first.coolingDown);
+
+        // the recipient now sticks to the SIM that worked, and a removed SIM gets no more sends
+        queue.enqueue("111", "again", null);
+        now += OutboundSmsQueue.MIN_INTERVAL_MS;
+        queue.runOnce();
+        assertEquals(9, handedOff.get(2).getSubscriptionId());
+        active[1] = 7;
+        queue.enqueue("111", "last", null);
+        now += OutboundSmsQueue.BACKOFF_MAX_MS;
+        queue.runOnce();
+        assertEquals(7, handedOff.get(3).getSubscriptionId());
+        assertEquals(false, queue.simStats().get(1).active);
+    }
+
+    @Test
+    public void defaultPoolIsOneLaneOnTheDefaultSubscription() {
+        OutboundSmsQueue queue = newQueue();
+        queue.enqueue("111", "a", null);
+        queue.enqueue("222", "b", null);
+        queue.runOnce();
+        assertEquals(1, handedOff.size());
+        assertEquals(SimPool.DEFAULT_SUBSCRIPTION, handedOff.get(0).getSubscriptionId());
+        assertEquals(1, queue.simStats().size());
+    }
+}
@@ -0,0 +1,85 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+public class ReplyLimiterTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final long MIN = 60_000;
+
+    @Test
+    public void burstIsSentThenRequestsAreDeferredAndCoalesced() {
+        ReplyLimiter limiter = new ReplyLimiter(100, 0, 15 * MIN);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(ReplyLimiter.Decision.SEND, limiter.request("+91 98765 43210", 3, 5 * MIN, T0).decision);
+        }
+        ReplyLimiter.Result deferred = limiter.request("919876543210", 3, 5 * MIN, T0 + MIN);
+        assertEquals(ReplyLimiter.Decision.DEFER, deferred.decision);
+        assertEquals(T0 + 5 * MIN, deferred.atMillis);
+        // asking again while the deferred reply is pending adds nothing
+        assertEquals(ReplyLimiter.Decision.COALESCED, limiter.request("+919876543210", 3, 5 * MIN, T0 + 2 * MIN).decision);
+        assertEquals(ReplyLimiter.Decision.COALESCED, limiter.request("+919876543210", 3, 5 * MIN, T0 + 3 * MIN).decision);
+        // another contact has its own bucket
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("+919876500000", 3, 5 * MIN, T0 + 3 * MIN).decision);
+
+        limiter.onDeferredSent("+919876543210");
+        assertEquals(ReplyLimiter.Decision.DEFER, limiter.request("+919876543210", 3, 5 * MIN, T0 + 5 * MIN).decision);
+        assertEquals(4, limiter.sentCount());
+        assertEquals(2, limiter.deferredCount());
+        assertEquals(2, limiter.coalescedCount());
+        assertEquals(0, limiter.droppedCount());
+    }
+
+    @Test
+    public void tokensComeBackOverTime() {
+        ReplyLimiter limiter = new ReplyLimiter(100, 0, 15 * MIN);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98765", 2, 5 * MIN, T0).decision);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98765", 2, 5 * MIN, T0).decision);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98765", 2, 5 * MIN, T0 + 5 * MIN).decision);
+        // a full idle period refills the whole burst
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98765", 2, 5 * MIN, T0 + 60 * MIN).decision);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98765", 2, 5 * MIN, T0 + 60 * MIN).decision);
+        // interval 0: no per-contact limit
+        for (int i = 0; i < 20; i++) {
+            assertEquals(ReplyLimiter.Decision.SEND, limiter.request("11111", 1, 0, T0).decision);
+        }
+    }
+
+    @Test
+    public void globalBucketLimitsAllContactsAndLongWaitsAreDropped() {
+        ReplyLimiter limiter = new ReplyLimiter(2, 10 * MIN, 15 * MIN);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("1001", 3, 5 * MIN, T0).decision);
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("1002", 3, 5 * MIN, T0).decision);
+        ReplyLimiter.Result third = limiter.request("1003", 3, 5 * MIN, T0);
+        assertEquals(ReplyLimiter.Decision.DEFER, third.decision);
+        assertEquals(T0 + 10 * MIN, third.atMillis);
+        // the global bucket is now reserved until T0 + 20 min: beyond the 15 min limit
+        assertEquals(ReplyLimiter.Decision.DROPPED, limiter.request("1004", 3, 5 * MIN, T0).decision);
+        assertEquals(1, limiter.droppedCount());
+    }
+
+    @Test
+    public void manyContactsKeepBoundedState() {
+        ReplyLimiter limiter = new ReplyLimiter(1_000_000, 0, 15 * MIN);
+        for (int i = 0; i < 10_000; i++) {
+            // each contact's bucket is full again a minute later, so old entries can go
+            assertEquals(ReplyLimiter.Decision.SEND, limiter.request("9845" + i, 3, MIN / 3, T0 + i * MIN).decision);
+        }
+        assertEquals(ReplyLimiter.Decision.SEND, limiter.request("98450", 1, 5 * MIN, T0 + 20_000 * MIN).decision);
+        assertEquals(ReplyLimiter.Decision.DEFER, limiter.request("98450", 1, 5 * MIN, T0 + 20_000 * MIN).decision);
+    }
+
+    @Test
+    public void limitsComeFromTheTrustedList() throws JSONException {
+        TrustedListIndex index = TrustedListIndex.fromJson("[{\"phone\":\"+91 98765 43210\",\"keyword\":\"SIS\","
+                + "\"replyBurst\":1,\"replyEverySec\":600},{\"phone\":\"+919999900000\",\"keyword\":\"SIS\"}]");
+        TrustedRequest limited = TrustedRequest.match(index, new InboundSms("+919876543210", "SIS", T0));
+        assertEquals(1, limited.replyBurst);
+        assertEquals(10 * MIN, limited.replyIntervalMillis);
+        TrustedRequest defaults = TrustedRequest.match(index, new InboundSms("+919999900000", "sis please", T0));
+        assertEquals(ReplyLimiter.DEFAULT_BURST, defaults.replyBurst);
+        assertEquals(ReplyLimiter.DEFAULT_INTERVAL_MS, defaults.replyIntervalMillis);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class SisterIndexTest {
+    @Test
+    public void senderWithoutCountryCodeResolvesToTheFirstListedSister() {
+        SisterIndex index = new SisterIndex.Builder()
+                .add("+44 7700 900123", "Bina")
+                .add("+91 98765 43210", "Asha")
+                .add("+1 98765 43210", "Chitra")
+                .build();
+        assertEquals("+91 98765 43210", index.resolve("98765 43210"));
+        assertEquals("+91 98765 43210", index.resolve("6543210"));
+        assertEquals("+44 7700 900123", index.resolve("+44 7700 900123"));
+        assertEquals("+1 98765 43210", index.resolve("0019876543210"));
+        assertNull(index.resolve("43210")); // too short to match without the rest of the number
+        assertNull(index.resolve("1234567"));
+    }
+
+    @Test
+    public void replacedTrieValueUpdatesTheSubtreeMinimum() {
+        PhoneSuffixTrie trie = new PhoneSuffixTrie();
+        trie.put("919876543210", 0);
+        trie.put("19876543210", 1);
+        assertEquals(0, trie.minValueEndingWith("9876543210"));
+        trie.put("919876543210", 5);
+        assertEquals(1, trie.minValueEndingWith("9876543210"));
+        assertEquals(5, trie.minValueEndingWith("919876543210"));
+        assertEquals(-1, trie.minValueEndingWith("5555"));
+    }
+}
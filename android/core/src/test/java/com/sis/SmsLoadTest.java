@@ -0,0 +1,98 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+
+/**
+ * Runs of the receive pipeline through SmsLoadHarness, checking what a load run handles and
+ * stores; throughput and allocation are measured by SmsLoadBenchmark in :benchmarks.
+ */
+public class SmsLoadTest {
+
+    @Test
+    public void syntheticBurstAsFastAsPossible() throws Exception {
+        TrafficProfile.Synthetic traffic = new TrafficProfile.Synthetic(50, 1);
+        SmsLoadHarness harness = new SmsLoadHarness(traffic.trustedListJson(), traffic.sisterListJson());
+        TrafficProfile profile = traffic.generate(20_000, 50);
+        SmsLoadHarness.Report report = harness.replay(profile, 0);
+
+        assertEquals(20_000, report.messages);
+        assertEquals(0, report.duplicates);
+        assertTrue(report.locationsParsed > report.messages / 2);
+        // every request is decided by the limiter; at most the global burst is answered at once
+        // (fewer when a deferred reply reserved a slot first, depending on how the lanes interleave)
+        ReplyLimiter limiter = harness.limiter();
+        assertEquals(traffic.requests,
+                limiter.sentCount() + limiter.deferredCount() + limiter.coalescedCount() + limiter.droppedCount());
+        assertTrue(limiter.sentCount() > 0 && limiter.sentCount() <= ReplyLimiter.GLOBAL_BURST);
+        assertEquals(limiter.sentCount(), report.repliesQueued);
+        assertTrue(limiter.droppedCount() > 0);
+        assertEquals(limiter.deferredCount(), harness.runDeferred());
+        assertEquals(limiter.sentCount() + limiter.deferredCount(), harness.outbox().depth());
+    }
+
+    @Test
+    public void recordedProfileReplaysInOrder() throws Exception {
+        TrafficProfile profile;
+        try (Reader in = new InputStreamReader(getClass().getResourceAsStream("evening-burst.tsv"),
+                StandardCharsets.UTF_8)) {
+            profile = TrafficProfile.parse(in);
+        }
+        TrafficProfile.Synthetic population = new TrafficProfile.Synthetic(10, 0);
+        SmsLoadHarness harness = new SmsLoadHarness(population.trustedListJson(), population.sisterListJson());
+        SmsLoadHarness.Report report = harness.replay(profile, 100);
+
+        assertEquals(profile.deliveries().size(), report.deliveries);
+        // 11 requests: the global burst is answered at once, the rest when their deferral ends
+        ReplyLimiter limiter = harness.limiter();
+        assertEquals(11, limiter.sentCount() + limiter.deferredCount() + limiter.coalescedCount());
+        assertEquals(limiter.sentCount(), report.repliesQueued);
+        assertTrue(report.repliesQueued <= ReplyLimiter.GLOBAL_BURST);
+        assertEquals(limiter.deferredCount(), harness.runDeferred());
+        assertEquals(limiter.sentCount() + limiter.deferredCount(), harness.outbox().depth());
+        assertTrue(report.messages > report.deliveries); // two-sender broadcasts
+        assertTrue(profile.durationMillis() / 100 <= report.elapsedNanos / 1_000_000);
+        // every sender's last message stored, multipart ones reassembled
+        Map<String, String> expected = new HashMap<>();
+        for (TrafficProfile.Delivery d : profile.deliveries()) {
+            Map<String, String> bodies = new LinkedHashMap<>();
+            for (int i = 0; i < d.parts(); i++) bodies.merge(d.senders[i], d.bodies[i], String::concat);
+            expected.putAll(bodies);
+        }
+        for (Map.Entry<String, String> e : expected.entrySet()) {
+            JSONObject last = new JSONObject(harness.store().getLastLocation(e.getKey()));
+            assertEquals(e.getValue(), last.getString("rawMessage"));
+        }
+    }
+
+    @Test
+    public void partsAreGroupedPerSenderInArrivalOrder() throws Exception {
+        TrafficProfile profile = TrafficProfile.parse(new StringReader(
+                "# comment\n"
+                        + "0\tA\tHello \n"
+                        + "0\tB\tone\n"
+                        + "0\tA\tworld\\tand\\nmore\n"
+                        + "5\tB\ttwo\n"));
+        assertEquals(2, profile.deliveries().size());
+        TrafficProfile.Delivery first = profile.deliveries().get(0);
+        List<InboundSms> batch = InboundSms.fromParts(first.senders, first.bodies, new long[] {1, 2, 3},
+                first.parts(), 0, false);
+        assertEquals(2, batch.size());
+        assertEquals("A", batch.get(0).getSender());
+        assertEquals("Hello world\tand\nmore", batch.get(0).getBody());
+        assertEquals(1, batch.get(0).getTimestampMillis());
+        assertEquals("one", batch.get(1).getBody());
+        assertEquals(2, batch.get(1).getTimestampMillis());
+    }
+}
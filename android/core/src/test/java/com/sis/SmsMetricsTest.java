@@ -0,0 +1,71 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SmsMetricsTest {
+
+    @Before
+    public void setUp() {
+        SmsMetrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        SmsMetrics.setEnabled(false);
+        SmsMetrics.reset();
+    }
+
+    @Test
+    public void disabledRecordsNothing() {
+        SmsMetrics.setEnabled(false);
+        assertEquals(0, SmsMetrics.start());
+        SmsMetrics.record(SmsMetrics.Stage.PARSE, 5_000);
+        SmsMetrics.increment(SmsMetrics.Counter.RECEIVED);
+        assertEquals(0, SmsMetrics.count(SmsMetrics.Stage.PARSE));
+        assertEquals(0, SmsMetrics.count(SmsMetrics.Counter.RECEIVED));
+
+        // a section started while disabled is not recorded when enabled midway
+        long start = SmsMetrics.start();
+        SmsMetrics.setEnabled(true);
+        SmsMetrics.since(SmsMetrics.Stage.PARSE, start);
+        assertEquals(0, SmsMetrics.count(SmsMetrics.Stage.PARSE));
+    }
+
+    @Test
+    public void percentilesComeFromTheHistogram() {
+        SmsMetrics.setEnabled(true);
+        for (int i = 0; i < 90; i++) SmsMetrics.record(SmsMetrics.Stage.MATCH, 3_000);   // 3 us
+        for (int i = 0; i < 9; i++) SmsMetrics.record(SmsMetrics.Stage.MATCH, 100_000);  // 100 us
+        SmsMetrics.record(SmsMetrics.Stage.MATCH, 5_000_000);                             // 5 ms
+
+        SmsMetrics.StageStats match = SmsMetrics.snapshot().stage(SmsMetrics.Stage.MATCH);
+        assertEquals(100, match.count);
+        assertEquals(4, match.p50Micros);      // bucket [2, 4)
+        assertEquals(4, match.p90Micros);
+        assertEquals(128, match.p99Micros);    // bucket [64, 128)
+        assertEquals(5_000_000, match.maxNanos);
+        assertTrue(match.meanMicros() >= 50 && match.meanMicros() <= 62);
+        assertEquals(0, SmsMetrics.bucket(0));
+        assertEquals(SmsMetrics.BUCKETS - 1, SmsMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshotExportsAsJson() throws Exception {
+        SmsMetrics.setEnabled(true);
+        SmsMetrics.record(SmsMetrics.Stage.PARSE, 2_000);
+        SmsMetrics.increment(SmsMetrics.Counter.LOCATION_PARSED);
+
+        JSONObject json = new JSONObject(SmsMetrics.snapshot().toJson());
+        assertTrue(json.getBoolean("enabled"));
+        assertEquals(1, json.getJSONArray("stages").length()); // stages without samples are left out
+        assertEquals("parse", json.getJSONArray("stages").getJSONObject(0).getString("stage"));
+        assertEquals(1, json.getJSONObject("counters").getLong("location_parsed"));
+        assertEquals(0, json.getJSONObject("counters").getLong("received"));
+    }
+}
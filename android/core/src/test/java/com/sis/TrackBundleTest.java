@@ -0,0 +1,63 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TrackBundleTest {
+    private static final long T0 = 1_700_000_000_000L;
+
+    // a walk north-east: ~20 m every 15 s
+    private static List<LocationFix> walk(int points) {
+        List<LocationFix> fixes = new ArrayList<>();
+        for (int i = 0; i < points; i++) {
+            fixes.add(new LocationFix(12.97123 + i * 0.00013, 77.59456 + i * 0.00011, 8f, T0 + i * 15_000L,
+                    LocationFix.Source.HIGH_ACCURACY));
+        }
+        return fixes;
+    }
+
+    @Test
+    public void roundTripsDeltaEncodedTrack() {
+        List<LocationFix> fixes = walk(12);
+        List<String> bundles = TrackBundle.encode(fixes);
+        assertEquals(1, bundles.size());
+        assertTrue(bundles.get(0).length() <= TrackBundle.MAX_CHARS);
+
+        List<ParsedLocation> points = TrackBundle.find("Track " + bundles.get(0));
+        assertEquals(12, points.size());
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(fixes.get(i).getLatitude(), points.get(i).getLatitude(), 0.000005);
+            assertEquals(fixes.get(i).getLongitude(), points.get(i).getLongitude(), 0.000005);
+            assertEquals(fixes.get(i).getTimeMillis(), points.get(i).getFixTimeMillis());
+        }
+    }
+
+    @Test
+    public void longTrackSplitsIntoSingleSegmentBundles() {
+        List<LocationFix> fixes = walk(100);
+        List<String> bundles = TrackBundle.encode(fixes);
+        assertTrue(bundles.size() > 1);
+        int total = 0;
+        for (String b : bundles) {
+            assertTrue(b.length() <= TrackBundle.MAX_CHARS);
+            total += TrackBundle.find(b).size();
+        }
+        assertEquals(100, total);
+        assertTrue(bundles.size() * 10 <= 100); // vs. one maps URL SMS per fix
+    }
+
+    @Test
+    public void corruptionAndGarbageAreRejected() {
+        String bundle = TrackBundle.encode(walk(5)).get(0);
+        char c = bundle.charAt(10);
+        assertNull(TrackBundle.find(bundle.substring(0, 10) + (c == 'A' ? 'B' : 'A') + bundle.substring(11)));
+        assertNull(TrackBundle.find(bundle.substring(0, bundle.length() - 3)));
+        assertNull(TrackBundle.find("ST1: hello"));
+        assertNull(TrackBundle.find("Here is my current location: https://maps.google.com/?q=1,2"));
+    }
+}
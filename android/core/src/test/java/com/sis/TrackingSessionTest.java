@@ -0,0 +1,114 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class TrackingSessionTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final double METER = 1 / 111_195.0; // degrees of latitude
+
+    private long now = T0;
+
+    private LocationFix at(double northMeters) {
+        return new LocationFix(12.97 + northMeters * METER, 77.59, 10f, now, LocationFix.Source.HIGH_ACCURACY);
+    }
+
+    @Test
+    public void intervalBacksOffWhileStillAndResetsOnMovement() {
+        TrackingSession session = new TrackingSession("9876543210", true, T0, 60 * 60_000);
+        session.onFix(at(0));
+        assertEquals(TrackingSession.MIN_INTERVAL_MS, session.nextIntervalMillis());
+        for (int i = 0; i < 10; i++) session.onFix(at(3)); // GPS jitter
+        assertEquals(TrackingSession.MAX_INTERVAL_MS, session.nextIntervalMillis());
+        assertEquals(LocationProvider.Accuracy.BALANCED, session.nextAccuracy());
+        assertEquals(1, session.buffered()); // stationary samples are not buffered
+
+        session.onFix(at(40));
+        assertEquals(TrackingSession.MIN_INTERVAL_MS, session.nextIntervalMillis());
+        assertEquals(LocationProvider.Accuracy.HIGH, session.nextAccuracy());
+        assertEquals(2, session.buffered());
+    }
+
+    @Test
+    public void batchIsDueByDistanceOrTime() {
+        TrackingSession session = new TrackingSession("9876543210", true, T0, 60 * 60_000);
+        // walking 30 m per 10 s sample: 500 m are reached before the 5 minute window ends
+        session.onFix(at(0));
+        int i = 1;
+        while (!session.isBatchDue(now)) {
+            now += 10_000;
+            session.onFix(at(i++ * 30));
+        }
+        assertEquals(18, i); // 17 steps of 30 m = 510 m
+        assertTrue(now - T0 < TrackingSession.SEND_EVERY_MS);
+        List<String> bundles = session.drain(now);
+        assertEquals(1, bundles.size());
+        assertEquals(18, TrackBundle.find(bundles.get(0)).size());
+
+        // standing still: only the heartbeat sample, sent when the window has passed
+        long sentAt = now;
+        double here = (i - 1) * 30;
+        while (now - sentAt < TrackingSession.SEND_EVERY_MS) {
+            assertFalse(session.isBatchDue(now));
+            now += session.nextIntervalMillis();
+            session.onFix(at(here));
+        }
+        assertTrue(session.isBatchDue(now));
+        assertEquals(1, session.buffered());
+    }
+
+    @Test
+    public void plainRecipientsGetTheNewestPointAsUrl() {
+        TrackingSession session = new TrackingSession("9876543210", false, T0, 60 * 60_000);
+        session.onFix(at(0));
+        session.onFix(at(100));
+        List<String> messages = session.drain(now);
+        assertEquals(1, messages.size());
+        assertTrue(messages.get(0), messages.get(0).startsWith("Tracking update: https://maps.google.com/?q="));
+        assertTrue(session.isExpired(T0 + 60 * 60_000));
+    }
+
+    @Test
+    public void repeatedTrackExtendsButNeverShortens() {
+        TrackingSession session = new TrackingSession("+919876543210", false, T0, 30 * 60_000);
+        assertFalse(session.extend(T0 + 60_000, 10 * 60_000));
+        assertEquals(T0 + 30 * 60_000, session.getEndsAtMillis());
+        assertTrue(session.extend(T0 + 60_000, 60 * 60_000));
+        assertEquals(T0 + 61 * 60_000, session.getEndsAtMillis());
+        assertTrue(session.extend(T0 + 2 * 60_000, Long.MAX_VALUE));
+        assertEquals(T0 + 2 * 60_000 + TrackingSession.MAX_DURATION_MS, session.getEndsAtMillis());
+    }
+
+    @Test
+    public void commandParsing() {
+        List<String> keywords = Arrays.asList("PETAL12", "HELP ME");
+        TrackingSession.Command track = TrackingSession.Command.parse("PETAL12 track 30", keywords);
+        assertTrue(track.start);
+        assertEquals(30 * 60_000, track.durationMillis);
+        assertEquals(TrackingSession.DEFAULT_DURATION_MS,
+                TrackingSession.Command.parse("TRACK PETAL12", keywords).durationMillis);
+        assertFalse(TrackingSession.Command.parse(" petal12 STOP ", keywords).start);
+        assertEquals(5 * 60_000, TrackingSession.Command.parse("track 5 Help me", keywords).durationMillis);
+        assertNull(TrackingSession.Command.parse("PETAL12", keywords));
+    }
+
+    @Test
+    public void bodiesThatOnlyMentionTrackOrStopAreLocationRequests() {
+        List<String> keywords = Collections.singletonList("SIS");
+        assertNull(TrackingSession.Command.parse("SIS please stop ignoring me", keywords));
+        assertNull(TrackingSession.Command.parse("SIS can you track this", keywords));
+        assertNull(TrackingSession.Command.parse("stop SIS now", keywords));
+        assertNull(TrackingSession.Command.parse("SIS stop it", keywords));
+        assertNull(TrackingSession.Command.parse("SIS track me", keywords));
+        assertNull(TrackingSession.Command.parse("SIS track 0", keywords));
+        assertNull(TrackingSession.Command.parse("SISTER STOP", keywords));
+        assertNull(TrackingSession.Command.parse("SIS STOP", Collections.emptyList()));
+    }
+}
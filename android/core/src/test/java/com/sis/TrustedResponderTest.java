@@ -0,0 +1,114 @@
+package com.sis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.FutureTask;
+import org.json.JSONException;
+import org.junit.Test;
+
+public class TrustedResponderTest {
+    private static final long T0 = 1_700_000_000_000L;
+    private static final String PHONE = "+919845000001";
+
+    private final List<String> done = new ArrayList<>();
+    private final List<FutureTask<?>> scheduled = new ArrayList<>();
+    private boolean stopRefused;
+    private long now = T0;
+
+    private TrustedResponder responder() throws JSONException {
+        TrustedListIndex trusted = TrustedListIndex.fromJson("[{\"phone\":\"" + PHONE
+                + "\",\"keyword\":\"SIS\",\"replyBurst\":1,\"replyEverySec\":300}]");
+        TrustedResponder.Actions actions = new TrustedResponder.Actions() {
+            @Override
+            public void sendLocation(TrustedRequest request, InboundSms sms) {
+                done.add("location");
+            }
+
+            @Override
+            public boolean startTracking(TrustedRequest request) {
+                done.add("track");
+                return true;
+            }
+
+            @Override
+            public boolean stopTracking(TrustedRequest request) {
+                done.add("stop");
+                return !stopRefused;
+            }
+
+            @Override
+            public void sendText(TrustedRequest request, String body) {
+                done.add(body);
+            }
+        };
+        return new TrustedResponder(() -> trusted, new ReplyLimiter(100, 0, 15 * 60_000), actions,
+                (task, delayMillis) -> {
+                    FutureTask<Void> future = new FutureTask<>(task, null);
+                    scheduled.add(future);
+                    return future;
+                }, () -> now);
+    }
+
+    private ReplyLimiter.Decision send(TrustedResponder responder, String body) {
+        ReplyLimiter.Result result = responder.onSms(new InboundSms(PHONE, body, now++));
+        return result != null ? result.decision : null;
+    }
+
+    private void runScheduled() {
+        for (FutureTask<?> task : scheduled) task.run();
+        scheduled.clear();
+    }
+
+    @Test
+    public void stopCancelsADeferredTrack() throws JSONException {
+        TrustedResponder responder = responder();
+        assertEquals(ReplyLimiter.Decision.SEND, send(responder, "SIS"));
+        assertEquals(ReplyLimiter.Decision.DEFER, send(responder, "SIS TRACK 30"));
+        assertEquals(ReplyLimiter.Decision.SEND, send(responder, "SIS STOP"));
+        runScheduled();
+        assertEquals(Arrays.asList("location", "stop"), done);
+
+        // STOP was not counted, and the contact's pending deferral is gone: a new request is
+        // decided again instead of being folded into the cancelled one
+        ReplyLimiter limiter = responder.limiter();
+        assertEquals(1, limiter.sentCount());
+        assertEquals(1, limiter.deferredCount());
+        assertEquals(ReplyLimiter.Decision.DEFER, send(responder, "SIS"));
+        runScheduled();
+        assertEquals(Arrays.asList("location", "stop", "location"), done);
+        assertEquals(0, limiter.coalescedCount());
+    }
+
+    @Test
+    public void stopIsNeverLimited() throws JSONException {
+        TrustedResponder responder = responder();
+        for (int i = 0; i < 20; i++) assertEquals(ReplyLimiter.Decision.SEND, send(responder, "STOP SIS"));
+        assertEquals(20, done.size());
+        assertEquals(0, responder.limiter().sentCount() + responder.limiter().droppedCount());
+        assertTrue(scheduled.isEmpty());
+        assertNull(send(responder, "STOP")); // no keyword
+    }
+
+    @Test
+    public void refusedStopIsAnswered() throws JSONException {
+        TrustedResponder responder = responder();
+        stopRefused = true;
+        send(responder, "SIS STOP");
+        assertEquals(Arrays.asList("stop", TrustedResponder.STOP_FAILED_REPLY), done);
+    }
+
+    @Test
+    public void deferredTrackStartsWhenItsTurnComes() throws JSONException {
+        TrustedResponder responder = responder();
+        send(responder, "SIS");
+        assertEquals(ReplyLimiter.Decision.DEFER, send(responder, "SIS TRACK 30"));
+        assertEquals(ReplyLimiter.Decision.COALESCED, send(responder, "SIS"));
+        runScheduled();
+        assertEquals(Arrays.asList("location", "track"), done);
+    }
+}
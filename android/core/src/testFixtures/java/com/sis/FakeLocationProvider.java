@@ -0,0 +1,46 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LocationProvider for JVM tests: last-known answers immediately with {@link #lastKnown},
+ * current() requests are recorded and completed by the test via {@link #complete}.
+ */
+final class FakeLocationProvider implements LocationProvider {
+
+    static final class Pending {
+        final Accuracy accuracy;
+        final long timeoutMillis;
+        final Callback callback;
+
+        Pending(Accuracy accuracy, long timeoutMillis, Callback callback) {
+            this.accuracy = accuracy;
+            this.timeoutMillis = timeoutMillis;
+            this.callback = callback;
+        }
+    }
+
+    LocationFix lastKnown;
+    int lastKnownCalls;
+    final List<Pending> pending = new ArrayList<>();
+    final List<Pending> started = new ArrayList<>();
+
+    @Override
+    public void lastKnown(Callback callback) {
+        lastKnownCalls++;
+        callback.onResult(lastKnown);
+    }
+
+    @Override
+    public void current(Accuracy accuracy, long timeoutMillis, Callback callback) {
+        Pending p = new Pending(accuracy, timeoutMillis, callback);
+        pending.add(p);
+        started.add(p);
+    }
+
+    /** Answer the oldest outstanding current() request. */
+    void complete(LocationFix fix) {
+        pending.remove(0).callback.onResult(fix);
+    }
+}
@@ -0,0 +1,33 @@
+package com.sis;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** KeyValueStore for JVM tests: a map, plus the number of putAll transactions. */
+public class InMemoryKeyValueStore implements KeyValueStore {
+    protected final Map<String, String> values = new HashMap<>();
+    private int commits;
+
+    @Override
+    public synchronized String get(String key) {
+        return values.get(key);
+    }
+
+    @Override
+    public synchronized void putAll(Map<String, String> entries) {
+        values.putAll(entries);
+        commits++;
+    }
+
+    public synchronized void put(String key, String value) {
+        values.put(key, value);
+    }
+
+    public synchronized Map<String, String> snapshot() {
+        return new HashMap<>(values);
+    }
+
+    public synchronized int commits() {
+        return commits;
+    }
+}
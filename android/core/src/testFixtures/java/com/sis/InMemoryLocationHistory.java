@@ -0,0 +1,43 @@
+package com.sis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** LocationHistory for JVM tests: keeps every appended point; can be told to fail. */
+public class InMemoryLocationHistory implements LocationHistory {
+
+    public static final class Point {
+        public final String phone;
+        public final long timestampMillis;
+        public final double latitude;
+        public final double longitude;
+        public final float accuracy;
+
+        Point(String phone, long timestampMillis, double latitude, double longitude, float accuracy) {
+            this.phone = phone;
+            this.timestampMillis = timestampMillis;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+        }
+    }
+
+    private final List<Point> points = new ArrayList<>();
+    private volatile boolean failing;
+
+    @Override
+    public synchronized void append(String phone, long timestampMillis, double latitude, double longitude,
+                                    float accuracy) throws IOException {
+        if (failing) throw new IOException("history unavailable");
+        points.add(new Point(phone, timestampMillis, latitude, longitude, accuracy));
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public synchronized List<Point> points() {
+        return new ArrayList<>(points);
+    }
+}
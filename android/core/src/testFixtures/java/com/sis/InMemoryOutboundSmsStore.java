@@ -0,0 +1,43 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** OutboundSmsStore for JVM tests; keeps copies, like a real store would after a save. */
+public class InMemoryOutboundSmsStore implements OutboundSmsStore {
+    private List<OutboundSms> saved = new ArrayList<>();
+    private int saves;
+
+    @Override
+    public synchronized List<OutboundSms> load() {
+        List<OutboundSms> out = new ArrayList<>();
+        for (OutboundSms s : saved) out.add(copy(s));
+        return out;
+    }
+
+    @Override
+    public synchronized void save(List<OutboundSms> pending) {
+        List<OutboundSms> copies = new ArrayList<>(pending.size());
+        for (OutboundSms s : pending) copies.add(copy(s));
+        saved = copies;
+        saves++;
+    }
+
+    /** Messages in the last save. */
+    public synchronized List<OutboundSms> saved() {
+        return new ArrayList<>(saved);
+    }
+
+    public synchronized int saves() {
+        return saves;
+    }
+
+    private static OutboundSms copy(OutboundSms s) {
+        OutboundSms copy = new OutboundSms(s.id, s.to, s.body, s.enqueuedAtMillis);
+        copy.state = s.state;
+        copy.attempts = s.attempts;
+        copy.nextAttemptAtMillis = s.nextAttemptAtMillis;
+        copy.deliveryDeadlineMillis = s.deliveryDeadlineMillis;
+        return copy;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SmsTransport for JVM tests: records every hand-off and reports {@link #partsPerMessage} parts.
+ * Part results are not reported by the transport; the test feeds them to the queue.
+ */
+public class RecordingSmsTransport implements SmsTransport {
+    private final List<OutboundSms> sent = new ArrayList<>();
+    public volatile int partsPerMessage = 1;
+
+    @Override
+    public synchronized int send(OutboundSms sms) {
+        sent.add(sms);
+        return partsPerMessage;
+    }
+
+    public synchronized List<OutboundSms> sent() {
+        return new ArrayList<>(sent);
+    }
+}
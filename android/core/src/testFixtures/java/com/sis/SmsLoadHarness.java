@@ -0,0 +1,301 @@
+package com.sis;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.json.JSONException;
+
+/**
+ * Replays a TrafficProfile through the receive pipeline on the JVM, without a device or network,
+ * the way SmsDispatchReceiver runs it: each delivery is reassembled by InboundSms.fromParts and
+ * handled on the SmsLanes lane of its first sender; repeated deliveries are dropped by an
+ * InboundDedup; every message then goes through core's TrustedResponder (ReplyLimiter included)
+ * and LocationRecorder into the in-memory store and history.
+ * - SmsManager is RecordingSmsTransport, the fused client a provider that always has a fresh fix;
+ *   location replies go LocationService -> OutboundSmsQueue, TRACK / STOP are only counted
+ * - deferred replies wait in the harness until {@link #runDeferred} (their timers firing)
+ * - message timestamps are the profile's offsets from the start of the replay
+ * - {@code speed} 1 replays in real time, 10 ten times faster, 0 as fast as possible
+ * - handle latency runs from a delivery's due time to the end of its handling, so it includes
+ *   any backlog when the pipeline falls behind the profile
+ */
+public final class SmsLoadHarness {
+
+    /** Outcome of one replay. */
+    public static final class Report {
+        public final int deliveries;
+        public final int messages;
+        public final long elapsedNanos;
+        public final long p50Micros;
+        public final long p99Micros;
+        public final long maxMicros;
+        /** Heap allocated by the replay and lane threads per message, -1 when the JVM cannot tell. */
+        public final long bytesPerMessage;
+        /** Location replies queued during the replay (not the deferred ones). */
+        public final int repliesQueued;
+        public final int locationsParsed;
+        public final int duplicates;
+
+        Report(int deliveries, int messages, long elapsedNanos, long[] latencyNanos, long allocatedBytes,
+               int repliesQueued, int locationsParsed, int duplicates) {
+            this.deliveries = deliveries;
+            this.messages = messages;
+            this.elapsedNanos = elapsedNanos;
+            long[] sorted = latencyNanos.clone();
+            Arrays.sort(sorted);
+            this.p50Micros = percentile(sorted, 0.50) / 1000;
+            this.p99Micros = percentile(sorted, 0.99) / 1000;
+            this.maxMicros = sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000;
+            this.bytesPerMessage = allocatedBytes < 0 || messages == 0 ? -1 : allocatedBytes / messages;
+            this.repliesQueued = repliesQueued;
+            this.locationsParsed = locationsParsed;
+            this.duplicates = duplicates;
+        }
+
+        public double messagesPerSecond() {
+            return elapsedNanos == 0 ? 0 : messages * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d messages (%d deliveries) in %d ms: %.0f msg/s, handle p50 %d us, p99 %d us, "
+                            + "max %d us, %s B/msg, %d replies, %d locations, %d duplicates",
+                    messages, deliveries, elapsedNanos / 1_000_000, messagesPerSecond(), p50Micros, p99Micros,
+                    maxMicros, bytesPerMessage < 0 ? "?" : String.valueOf(bytesPerMessage), repliesQueued,
+                    locationsParsed, duplicates);
+        }
+
+        private static long percentile(long[] sorted, double q) {
+            if (sorted.length == 0) return 0;
+            return sorted[Math.max(0, (int) Math.ceil(q * sorted.length) - 1)];
+        }
+    }
+
+    private final InMemoryKeyValueStore prefs = new InMemoryKeyValueStore();
+    private final LocationStore store = new LocationStore(prefs);
+    private final InMemoryLocationHistory history = new InMemoryLocationHistory();
+    private final LocationRecorder recorder;
+    private final RecordingSmsTransport transport = new RecordingSmsTransport();
+    private final OutboundSmsQueue outbox =
+            new OutboundSmsQueue(transport, new InMemoryOutboundSmsStore(), System::currentTimeMillis);
+    private final LocationService locations = new LocationService(new FreshLocationProvider(),
+            System::currentTimeMillis, LocationService.DEFAULT_BUDGET_MS);
+    private final InboundDedup dedup = new InboundDedup(InboundDedup.DEFAULT_CAPACITY, InboundDedup.DEFAULT_WINDOW_MS);
+    private final TrustedResponder responder;
+    private final List<FutureTask<?>> deferred = new ArrayList<>(); // guarded by itself
+    private final AtomicInteger trackingStarted = new AtomicInteger();
+    private final AtomicInteger trackingStopped = new AtomicInteger();
+
+    /** Lists in the formats of TrustedListIndex.fromJson and SisterIndex.fromJson. */
+    public SmsLoadHarness(String trustedListJson, String sisterListJson) throws JSONException {
+        TrustedListIndex trusted = TrustedListIndex.fromJson(trustedListJson);
+        SisterIndex sisters = SisterIndex.fromJson(sisterListJson);
+        recorder = new LocationRecorder(store, history, () -> sisters);
+        responder = new TrustedResponder(() -> trusted, new ReplyLimiter(), new Actions(), this::defer,
+                System::currentTimeMillis);
+    }
+
+    public LocationStore store() {
+        return store;
+    }
+
+    public InMemoryLocationHistory history() {
+        return history;
+    }
+
+    public OutboundSmsQueue outbox() {
+        return outbox;
+    }
+
+    public RecordingSmsTransport transport() {
+        return transport;
+    }
+
+    public ReplyLimiter limiter() {
+        return responder.limiter();
+    }
+
+    public int trackingStarted() {
+        return trackingStarted.get();
+    }
+
+    public int trackingStopped() {
+        return trackingStopped.get();
+    }
+
+    /** Run the deferred replies still waiting (not cancelled), as if their timers fired; returns how many. */
+    public int runDeferred() {
+        List<FutureTask<?>> due;
+        synchronized (deferred) {
+            due = new ArrayList<>(deferred);
+            deferred.clear();
+        }
+        int ran = 0;
+        for (FutureTask<?> task : due) {
+            if (task.isCancelled()) continue;
+            task.run();
+            ran++;
+        }
+        return ran;
+    }
+
+    public Report replay(TrafficProfile profile, double speed) throws JSONException {
+        List<TrafficProfile.Delivery> deliveries = profile.deliveries();
+        long[] latency = new long[deliveries.size()];
+        AtomicInteger messages = new AtomicInteger();
+        AtomicInteger parsed = new AtomicInteger();
+        AtomicInteger duplicates = new AtomicInteger();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        int repliesBefore = outbox.depth();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads, Thread.currentThread().getId());
+        List<Long> laneThreads = new CopyOnWriteArrayList<>();
+        ExecutorService[] lanes = new ExecutorService[SmsLanes.COUNT];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "sms-lane");
+                t.setDaemon(true);
+                laneThreads.add(t.getId());
+                return t;
+            });
+        }
+
+        long start = System.nanoTime();
+        long startMillis = System.currentTimeMillis();
+        long elapsed;
+        long allocated;
+        try {
+            for (int d = 0; d < deliveries.size(); d++) {
+                TrafficProfile.Delivery delivery = deliveries.get(d);
+                long due = speed > 0 ? start + (long) (delivery.offsetMillis * 1_000_000L / speed) : System.nanoTime();
+                for (long wait; (wait = due - System.nanoTime()) > 0; ) LockSupport.parkNanos(wait);
+
+                final int index = d;
+                lanes[SmsLanes.of(delivery.senders[0])].execute(() -> {
+                    try {
+                        List<InboundSms> batch = InboundSms.fromParts(delivery.senders, delivery.bodies,
+                                timestamps(delivery, startMillis), delivery.parts(), due, false);
+                        for (InboundSms sms : batch) {
+                            messages.incrementAndGet();
+                            if (!dedup.firstSeen(sms, System.currentTimeMillis())) {
+                                duplicates.incrementAndGet();
+                                continue;
+                            }
+                            responder.onSms(sms);
+                            if (recorder.record(sms, System.currentTimeMillis()).isParsed()) parsed.incrementAndGet();
+                        }
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                    latency[index] = System.nanoTime() - due;
+                });
+            }
+            drain(lanes);
+            store.flush(); // SmsWorkQueue flushes when it goes idle
+            elapsed = System.nanoTime() - start;
+            // lane threads are measured before shutdown: a finished thread no longer reports
+            allocated = allocatedBytes(threads, Thread.currentThread().getId());
+            for (long id : laneThreads) {
+                long lane = allocatedBytes(threads, id);
+                allocated = allocated < 0 || lane < 0 ? -1 : allocated + lane;
+            }
+        } finally {
+            for (ExecutorService lane : lanes) lane.shutdown();
+        }
+        if (failure.get() != null) throw failure.get();
+        if (allocatedBefore < 0 || allocated < 0) allocated = -1;
+        else allocated -= allocatedBefore;
+        return new Report(deliveries.size(), messages.get(), elapsed, latency, allocated,
+                outbox.depth() - repliesBefore, parsed.get(), duplicates.get());
+    }
+
+    // waits for every lane's queue to run empty
+    private static void drain(ExecutorService[] lanes) {
+        try {
+            for (ExecutorService lane : lanes) lane.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Future<?> defer(Runnable task, long delayMillis) {
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        synchronized (deferred) {
+            deferred.add(future);
+        }
+        return future;
+    }
+
+    // the device side of TrustedKeywordResponder, without the tracking service
+    private final class Actions implements TrustedResponder.Actions {
+        @Override
+        public void sendLocation(TrustedRequest request, InboundSms sms) {
+            locations.request(request.maxLocationAgeMillis, fix -> outbox.enqueue(request.sender,
+                    TrustedResponder.locationReply(fix, request.maxLocationAgeMillis, request.compact,
+                            System.currentTimeMillis()), null));
+        }
+
+        @Override
+        public boolean startTracking(TrustedRequest request) {
+            trackingStarted.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public boolean stopTracking(TrustedRequest request) {
+            trackingStopped.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void sendText(TrustedRequest request, String body) {
+            outbox.enqueue(request.sender, body, null);
+        }
+    }
+
+    // service-centre timestamps: the profile's offsets, so a repeated delivery keeps its timestamp
+    private static long[] timestamps(TrafficProfile.Delivery delivery, long startMillis) {
+        long[] out = new long[delivery.parts()];
+        Arrays.fill(out, startMillis + delivery.offsetMillis);
+        return out;
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads, long threadId) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+            if (sun.isThreadAllocatedMemorySupported() && sun.isThreadAllocatedMemoryEnabled()) {
+                return sun.getThreadAllocatedBytes(threadId);
+            }
+        }
+        return -1;
+    }
+    // the fused client with a fresh fix at hand: lastKnown always qualifies
+    private static final class FreshLocationProvider implements LocationProvider {
+        @Override
+        public void lastKnown(Callback callback) {
+            callback.onResult(new LocationFix(12.9716, 77.5946, 12f, System.currentTimeMillis(),
+                    LocationFix.Source.LAST_KNOWN));
+        }
+
+        @Override
+        public void current(Accuracy accuracy, long timeoutMillis, Callback callback) {
+            callback.onResult(new LocationFix(12.9716, 77.5946, 8f, System.currentTimeMillis(),
+                    accuracy == Accuracy.HIGH ? LocationFix.Source.HIGH_ACCURACY : LocationFix.Source.BALANCED));
+        }
+    }
+}
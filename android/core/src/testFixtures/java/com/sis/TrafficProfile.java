@@ -0,0 +1,207 @@
+package com.sis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Inbound SMS traffic to replay with SmsLoadHarness: deliveries (one SMS_RECEIVED broadcast each,
+ * one or more decoded parts) at offsets from the start of the run.
+ * Recorded format, UTF-8 text, one part per line ('#' starts a comment):
+ * <pre>offsetMillis TAB sender TAB body</pre>
+ * Consecutive lines with the same offset are one delivery, so a multipart message is several
+ * lines from one sender. Tabs, newlines and backslashes in bodies are written as \t, \n and \\.
+ */
+public final class TrafficProfile {
+
+    /** The parts of one broadcast, in PDU order. */
+    public static final class Delivery {
+        public final long offsetMillis;
+        final String[] senders;
+        final String[] bodies;
+
+        Delivery(long offsetMillis, String[] senders, String[] bodies) {
+            this.offsetMillis = offsetMillis;
+            this.senders = senders;
+            this.bodies = bodies;
+        }
+
+        public int parts() {
+            return senders.length;
+        }
+    }
+
+    private final List<Delivery> deliveries;
+
+    TrafficProfile(List<Delivery> deliveries) {
+        this.deliveries = Collections.unmodifiableList(deliveries);
+    }
+
+    public List<Delivery> deliveries() {
+        return deliveries;
+    }
+
+    /** Offset of the last delivery. */
+    public long durationMillis() {
+        return deliveries.isEmpty() ? 0 : deliveries.get(deliveries.size() - 1).offsetMillis;
+    }
+
+    public static TrafficProfile parse(Reader in) throws IOException {
+        BufferedReader reader = new BufferedReader(in);
+        List<Delivery> out = new ArrayList<>();
+        List<String> senders = new ArrayList<>();
+        List<String> bodies = new ArrayList<>();
+        long offset = -1;
+        int lineNo = 0;
+        for (String line; (line = reader.readLine()) != null; ) {
+            lineNo++;
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] f = line.split("\t", 3);
+            if (f.length < 3) throw new IOException("line " + lineNo + ": expected offset, sender and body");
+            long at;
+            try {
+                at = Long.parseLong(f[0].trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + lineNo + ": bad offset " + f[0]);
+            }
+            if (at < offset) throw new IOException("line " + lineNo + ": offsets must not decrease");
+            if (at != offset && !senders.isEmpty()) {
+                out.add(new Delivery(offset, senders.toArray(new String[0]), bodies.toArray(new String[0])));
+                senders.clear();
+                bodies.clear();
+            }
+            offset = at;
+            senders.add(f[1]);
+            bodies.add(unescape(f[2]));
+        }
+        if (!senders.isEmpty()) {
+            out.add(new Delivery(offset, senders.toArray(new String[0]), bodies.toArray(new String[0])));
+        }
+        return new TrafficProfile(out);
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Random traffic from a fixed population: {@code contacts} trusted contacts (keyword "SIS")
+     * and as many sisters, plus strangers. Arrivals are Poisson at {@code perSecond}; the mix is
+     * 10% location requests, 45% single-part sister locations (maps URL, compact token or short
+     * link), 15% multipart sister messages (2-3 parts) and 30% stranger chatter.
+     */
+    public static final class Synthetic {
+        public static final String KEYWORD = "SIS";
+
+        private final int contacts;
+        private final long seed;
+        public int requests;  // of the last generate()
+        public int messages;  // logical messages of the last generate()
+
+        public Synthetic(int contacts, long seed) {
+            this.contacts = contacts;
+            this.seed = seed;
+        }
+
+        /** Trusted list JSON of the population (format: TrustedListIndex.fromJson). */
+        public String trustedListJson() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < contacts; i++) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"phone\":\"").append(trusted(i)).append("\",\"keyword\":\"").append(KEYWORD).append("\"}");
+            }
+            return sb.append(']').toString();
+        }
+
+        /** Sister list JSON of the population (format: SisterIndex.fromJson). */
+        public String sisterListJson() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < contacts; i++) {
+                if (i > 0) sb.append(',');
+                sb.append("{\"phone\":\"").append(sister(i)).append("\",\"name\":\"Sister ").append(i).append("\"}");
+            }
+            return sb.append(']').toString();
+        }
+
+        public TrafficProfile generate(int deliveries, double perSecond) {
+            Random random = new Random(seed);
+            List<Delivery> out = new ArrayList<>(deliveries);
+            double t = 0;
+            requests = 0;
+            messages = 0;
+            for (int i = 0; i < deliveries; i++) {
+                t += -Math.log(1 - random.nextDouble()) * 1000 / perSecond;
+                int kind = random.nextInt(100);
+                int who = random.nextInt(Math.max(1, contacts));
+                String[] senders;
+                String[] bodies;
+                if (kind < 10) {
+                    senders = new String[] {"+91" + trusted(who)};
+                    bodies = new String[] {KEYWORD + (random.nextInt(4) == 0 ? " please" : "")};
+                    requests++;
+                } else if (kind < 55) {
+                    senders = new String[] {"+91" + sister(who)};
+                    bodies = new String[] {location(random)};
+                } else if (kind < 70) {
+                    int parts = 2 + random.nextInt(2);
+                    senders = new String[parts];
+                    bodies = split("I reached the station, the train is late by twenty minutes so I will take an auto "
+                            + "from there. Battery is low, will call when home. Here: " + location(random), parts);
+                    for (int p = 0; p < parts; p++) senders[p] = "+91" + sister(who);
+                } else {
+                    senders = new String[] {"+91 70" + (10_000_000 + random.nextInt(89_999_999))};
+                    bodies = new String[] {"Your OTP is " + (100_000 + random.nextInt(900_000))
+                            + ". Do not share it with anyone. Ref " + Long.toHexString(random.nextLong())};
+                }
+                messages++;
+                out.add(new Delivery((long) t, senders, bodies));
+            }
+            return new TrafficProfile(out);
+        }
+
+        private static String trusted(int i) {
+            return "98450" + String.format("%05d", i);
+        }
+
+        private static String sister(int i) {
+            return "99020" + String.format("%05d", i);
+        }
+
+        private static String location(Random random) {
+            double lat = 12.8 + random.nextDouble() * 0.4;
+            double lon = 77.4 + random.nextDouble() * 0.4;
+            switch (random.nextInt(3)) {
+                case 0:
+                    return "Here is my current location: " + ParsedLocation.mapUrlOf(lat, lon);
+                case 1:
+                    return LocationToken.encode(lat, lon, 5 + random.nextInt(50), 1_700_000_000_000L);
+                default:
+                    return "Reached, see https://maps.app.goo.gl/" + Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            }
+        }
+
+        private static String[] split(String body, int parts) {
+            String[] out = new String[parts];
+            int size = (body.length() + parts - 1) / parts;
+            for (int p = 0; p < parts; p++) {
+                out[p] = body.substring(Math.min(body.length(), p * size), Math.min(body.length(), (p + 1) * size));
+            }
+            return out;
+        }
+    }
+}
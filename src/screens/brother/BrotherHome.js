@@ -10,13 +10,28 @@ import {
   Alert,
   Modal,
   TextInput,
+  DeviceEventEmitter,
 } from 'react-native';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { NativeModules } from 'react-native';
+import { requestPermissions } from '../../utils/smsUtils';
+import { onCheckInEscalation } from '../../utils/checkIns';
 
 const { SisterSettingsModule } = NativeModules || {};
 
 const SISTERS_KEY = 'sisters';
+const CHECK_IN_EVENT = 'SisterCheckInProgress';
+const CHECK_ALL_TIMEOUT_MS = 60 * 1000;
+
+const CHECK_STATUS_LABELS = {
+  queued: 'Check queued',
+  sent: 'Check sent, waiting...',
+  located: 'Located',
+  no_fix: 'Replied without location',
+  no_code: 'No secret code',
+  send_failed: 'Check not sent',
+  timed_out: 'No reply',
+};
 
 const blueTheme = {
   primary: '#1E90FF', // Dodger Blue
@@ -31,7 +46,18 @@ const blueTheme = {
   modalOverlay: 'rgba(0,0,0,0.5)',
 };
 
-const SisterListItem = ({ name, phone, onPress, onDelete }) => (
+// "5 min ago" style label for the last received location
+const formatLastSeen = (loc) => {
+  if (!loc || !loc.timestamp) return 'No location yet';
+  const mins = Math.floor((Date.now() - loc.timestamp) / 60000);
+  if (mins < 1) return 'Location: just now';
+  if (mins < 60) return `Location: ${mins} min ago`;
+  const hours = Math.floor(mins / 60);
+  if (hours < 24) return `Location: ${hours} h ago`;
+  return `Location: ${Math.floor(hours / 24)} d ago`;
+};
+
+const SisterListItem = ({ name, phone, lastLocation, checkStatus, onPress, onDelete }) => (
   <TouchableOpacity style={styles.wardItem} onPress={onPress}>
     <View style={styles.wardInfo}>
       <View style={styles.wardAvatar}>
@@ -40,6 +66,10 @@ const SisterListItem = ({ name, phone, onPress, onDelete }) => (
       <View>
         <Text style={styles.wardName}>{name}</Text>
         <Text style={styles.wardPhone}>{phone}</Text>
+        <Text style={styles.wardLastSeen}>{formatLastSeen(lastLocation)}</Text>
+        {checkStatus ? (
+          <Text style={styles.wardCheckStatus}>{CHECK_STATUS_LABELS[checkStatus] || checkStatus}</Text>
+        ) : null}
       </View>
     </View>
     <TouchableOpacity onPress={onDelete} style={styles.deleteButton}>
@@ -50,10 +80,14 @@ const SisterListItem = ({ name, phone, onPress, onDelete }) => (
 
 export default function BrotherHome({ navigation }) {
   const [sisters, setSisters] = useState([]);
+  const [lastLocations, setLastLocations] = useState({});
+  const [checkStatus, setCheckStatus] = useState({});
+  const [checking, setChecking] = useState(false);
   const [adding, setAdding] = useState(false);
   const [name, setName] = useState('');
   const [phone, setPhone] = useState('');
   const [code, setCode] = useState('');
+  const [checkEvery, setCheckEvery] = useState('');
 
   useEffect(() => {
     const unsub = navigation.addListener('focus', load);
@@ -61,16 +95,37 @@ export default function BrotherHome({ navigation }) {
     return unsub;
   }, [navigation]);
 
+  // Missed automatic check-ins are escalated natively with a notification; shown here too while open
+  useEffect(() => {
+    requestPermissions(['android.permission.POST_NOTIFICATIONS']);
+    return onCheckInEscalation((e) =>
+      Alert.alert('No reply', `${e.name} has not answered ${e.missed} check-ins in a row.`)
+    );
+  }, []);
+
   async function load() {
     try {
       const raw = await AsyncStorage.getItem(SISTERS_KEY);
-      setSisters(raw ? JSON.parse(raw) : []);
+      const list = raw ? JSON.parse(raw) : [];
+      setSisters(list);
+      await loadLastLocations(list);
     } catch (e) {
       console.warn('Failed to load wards', e);
       setSisters([]);
     }
   }
 
+  // One native call for all wards: { [phone]: { timestamp, latitude, longitude, mapUrl, ... } | null }
+  async function loadLastLocations(list) {
+    try {
+      if (!SisterSettingsModule || !SisterSettingsModule.getLastLocations || list.length === 0) return;
+      const byPhone = await SisterSettingsModule.getLastLocations(list.map((s) => s.phone));
+      setLastLocations(byPhone || {});
+    } catch (e) {
+      console.warn('SisterSettingsModule.getLastLocations failed', e);
+    }
+  }
+
   const persistToNative = async (list) => {
     try {
       if (SisterSettingsModule && SisterSettingsModule.setSisterList) {
@@ -96,24 +151,72 @@ export default function BrotherHome({ navigation }) {
     const nm = name.trim();
     const ph = phone.trim();
     const cd = code.trim();
+    const minutes = checkEvery.trim() ? parseInt(checkEvery.trim(), 10) : null;
     if (!nm || !ph) {
       Alert.alert('Validation', 'Please enter both name and phone.');
       return;
     }
+    if (minutes != null && (!Number.isFinite(minutes) || minutes < 15 || !cd)) {
+      Alert.alert('Validation', 'Automatic check-ins need a secret code and at least 15 minutes.');
+      return;
+    }
 
     if (sisters.some((s) => s.phone === ph)) {
       Alert.alert('Duplicate', 'A ward with this phone number already exists.');
       return;
     }
 
-    const next = [...sisters, { name: nm, phone: ph, code: cd }];
+    const entry = { name: nm, phone: ph, code: cd };
+    if (minutes != null) entry.checkInMinutes = minutes; // checked natively, also while the app is closed
+    const next = [...sisters, entry];
     await saveList(next);
     setName('');
     setPhone('');
     setCode('');
+    setCheckEvery('');
     setAdding(false);
   };
 
+  // One native call checks every ward: codes go out through the paced SMS queue and replies are
+  // matched natively, so the whole round takes as long as the slowest reply
+  const handleCheckAll = async () => {
+    if (!SisterSettingsModule || !SisterSettingsModule.checkAll) {
+      Alert.alert('Not available', 'Check all is not supported on this device.');
+      return;
+    }
+    if (sisters.length === 0 || checking) return;
+    const ok = await requestPermissions(['android.permission.SEND_SMS']);
+    if (!ok) {
+      Alert.alert('Permission needed', 'SMS permission required.');
+      return;
+    }
+
+    const phones = sisters.map((s) => s.phone);
+    setCheckStatus(Object.fromEntries(phones.map((p) => [p, 'queued'])));
+    setChecking(true);
+    const sub = DeviceEventEmitter.addListener(CHECK_IN_EVENT, (e) => {
+      if (!e || !e.phone) return;
+      setCheckStatus((prev) => ({ ...prev, [e.phone]: e.status }));
+    });
+    try {
+      const result = await SisterSettingsModule.checkAll(phones, CHECK_ALL_TIMEOUT_MS);
+      const next = {};
+      (result.results || []).forEach((r) => { next[r.phone] = r.status; });
+      setCheckStatus(next);
+      await loadLastLocations(sisters);
+      Alert.alert(
+        'Check complete',
+        `${result.located} of ${phones.length} located in ${Math.round(result.elapsedMs / 1000)} s.`
+      );
+    } catch (e) {
+      console.warn('SisterSettingsModule.checkAll failed', e);
+      Alert.alert('Error', `Check failed: ${String(e)}`);
+    } finally {
+      sub.remove();
+      setChecking(false);
+    }
+  };
+
   const handleRemove = (index) => {
     Alert.alert('Remove Ward', `Remove ${sisters[index].name}?`, [
       { text: 'Cancel', style: 'cancel' },
@@ -132,6 +235,8 @@ export default function BrotherHome({ navigation }) {
     <SisterListItem
       name={item.name}
       phone={item.phone}
+      lastLocation={lastLocations[item.phone]}
+      checkStatus={checkStatus[item.phone]}
       onPress={() => navigation.navigate('SisterDetail', { sister: item })}
       onDelete={() => handleRemove(index)}
     />
@@ -141,6 +246,15 @@ export default function BrotherHome({ navigation }) {
     <SafeAreaView style={[styles.container, { backgroundColor: blueTheme.background }]}>
       <View style={styles.headerContainer}>
         <Text style={[styles.header, { color: blueTheme.primary }]}>Your Wards</Text>
+        {sisters.length > 0 ? (
+          <TouchableOpacity
+            style={[styles.checkAllButton, { opacity: checking ? 0.5 : 1 }]}
+            onPress={handleCheckAll}
+            disabled={checking}
+          >
+            <Text style={styles.checkAllButtonText}>{checking ? 'Checking...' : 'Check all'}</Text>
+          </TouchableOpacity>
+        ) : null}
       </View>
       <FlatList
         data={sisters}
@@ -199,6 +313,14 @@ export default function BrotherHome({ navigation }) {
               autoCapitalize="characters"
               placeholderTextColor={blueTheme.textSecondary}
             />
+            <TextInput
+              placeholder="Check automatically every ... minutes (optional)"
+              value={checkEvery}
+              onChangeText={setCheckEvery}
+              style={[styles.input, { borderColor: blueTheme.inputBorder }]}
+              keyboardType="number-pad"
+              placeholderTextColor={blueTheme.textSecondary}
+            />
             <TouchableOpacity
               style={[styles.modalAddButton, { backgroundColor: blueTheme.primary }]}
               onPress={handleAdd}
@@ -220,6 +342,19 @@ const styles = StyleSheet.create({
     padding: 20,
     borderBottomWidth: 1,
     borderBottomColor: '#E0E0E0',
+    flexDirection: 'row',
+    justifyContent: 'space-between',
+    alignItems: 'center',
+  },
+  checkAllButton: {
+    backgroundColor: blueTheme.primary,
+    paddingVertical: 8,
+    paddingHorizontal: 14,
+    borderRadius: 20,
+  },
+  checkAllButtonText: {
+    color: blueTheme.buttonText,
+    fontWeight: 'bold',
   },
   header: {
     fontSize: 28,
@@ -284,6 +419,16 @@ const styles = StyleSheet.create({
     color: blueTheme.textSecondary,
     marginTop: 2,
   },
+  wardLastSeen: {
+    fontSize: 12,
+    color: blueTheme.textSecondary,
+    marginTop: 2,
+  },
+  wardCheckStatus: {
+    fontSize: 12,
+    color: blueTheme.primary,
+    marginTop: 2,
+  },
   deleteButton: {
     padding: 8,
   },
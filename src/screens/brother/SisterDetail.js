@@ -18,19 +18,16 @@ import { sendSms, requestPermissions } from '../../utils/smsUtils';
 
 const SECRET_CODES_KEY = 'secretCodes';
 const SisterSettings = NativeModules.SisterSettingsModule || null;
-const EVENT_NAME = 'SisterLocationReceived';
-
-// sleep helper
-const sleep = (ms) => new Promise((res) => setTimeout(res, ms));
+const UPDATE_EVENT_NAME = 'SisterLocationUpdate';
 
 export default function SisterDetail({ route }) {
   const { sister } = route.params; // { name, phone, code? }
   const [status, setStatus] = useState('Idle');
   const [lastLocation, setLastLocation] = useState(null);
   const [lastUpdatedAt, setLastUpdatedAt] = useState(0);
-  const pollRef = useRef(null);
-  const POLL_INTERVAL_MS = 2000;
-  const POLL_TIMEOUT_MS = 60 * 1000;
+  const waitRef = useRef(null);
+  const lastLocationRef = useRef(null);
+  const WAIT_TIMEOUT_MS = 60 * 1000;
 
   const webKey =
     lastLocation && lastLocation.latitude && lastLocation.longitude
@@ -39,6 +36,10 @@ export default function SisterDetail({ route }) {
       ? `url-${(lastLocation.mapUrl || '').slice(0, 40)}-${lastLocation.timestamp || ''}`
       : 'no-loc';
 
+  useEffect(() => {
+    lastLocationRef.current = lastLocation;
+  }, [lastLocation]);
+
   useEffect(() => {
     (async () => {
       if (Platform.OS === 'android') {
@@ -47,58 +48,38 @@ export default function SisterDetail({ route }) {
       await loadLastLocationWithFallbacks();
     })();
 
-    const sub = DeviceEventEmitter.addListener(EVENT_NAME, async (payload) => {
+    // Native pushes updates for this sister (any phone variant); updates received while the app
+    // was not running are replayed on subscribe. No polling needed.
+    const subscriptionId = `${sister.phone}-${Date.now()}-${Math.random().toString(36).slice(2)}`;
+    const sub = DeviceEventEmitter.addListener(UPDATE_EVENT_NAME, async (obj) => {
+      if (!obj || obj.subscriptionId !== subscriptionId) return;
       try {
-        const obj = typeof payload === 'string' ? JSON.parse(payload) : payload;
-        console.log('SisterDetail: received event', obj);
-
-        const from = obj.from || '';
-        const canonicalPhone = obj.canonicalPhone || null;
+        console.log('SisterDetail: received update', obj);
         const rawMessage = obj.rawMessage || '';
         const incomingTs = obj.timestamp || Date.now();
-        const incomingParsed = obj.parsed || false;
         const incomingLat = obj.latitude ?? null;
         const incomingLon = obj.longitude ?? null;
         const incomingMapUrl = obj.mapUrl ?? null;
 
-        // decide if this event is for this sister
-        const matchesCanonical = canonicalPhone && phonesMatch(canonicalPhone, sister.phone);
-        const matchesFrom = phonesMatch(from, sister.phone);
-
-        if (!matchesCanonical && !matchesFrom) {
-          console.log('SisterDetail: event not for this sister - ignoring', { from, canonicalPhone, sisterPhone: sister.phone });
-          return;
-        }
-
         // If incoming timestamp older than currently displayed -> ignore
-        if (lastLocation && lastLocation.timestamp && incomingTs <= lastLocation.timestamp) {
-          console.log('SisterDetail: incoming is not newer - ignoring', { incomingTs, currentTs: lastLocation.timestamp });
-          // still refresh native prefs to be safe (but only if different) — wait 2s then call
-          await sleep(2000);
-          await handleRefreshFromNativeIfNewer(incomingTs);
+        const current = lastLocationRef.current;
+        if (current && current.timestamp && incomingTs <= current.timestamp) {
+          console.log('SisterDetail: incoming is not newer - ignoring', { incomingTs, currentTs: current.timestamp });
           return;
         }
+        clearWaitTimeout();
 
         // If incoming has parsed coords/mapUrl -> persist + show
         if ((incomingLat !== null && incomingLon !== null) || incomingMapUrl) {
-          const payloadToSave = {
+          await persistAndSet({
             latitude: incomingLat,
             longitude: incomingLon,
             mapUrl: incomingMapUrl,
             rawMessage,
             timestamp: incomingTs,
-          };
-          await persistAndSet(payloadToSave);
-          setStatus('Location received (native event).');
+          });
+          setStatus(obj.replayed ? 'Location received while app was closed.' : 'Location received (native event).');
           setLastUpdatedAt(Date.now());
-          if (pollRef.current) {
-            clearInterval(pollRef.current);
-            pollRef.current = null;
-          }
-
-          // ALSO refresh from native prefs to get canonical/native-saved version (auto, bypass button)
-          await sleep(2000);
-          await handleRefreshFromNative();
           return;
         }
 
@@ -106,42 +87,32 @@ export default function SisterDetail({ route }) {
         if (rawMessage) {
           const parsed = parseLocationFromText(rawMessage);
           if (parsed) {
-            const enriched = { ...parsed, rawMessage, timestamp: incomingTs };
-            await persistAndSet(enriched);
+            await persistAndSet({ ...parsed, rawMessage, timestamp: incomingTs });
             setStatus('Parsed location from message (JS).');
-            setLastUpdatedAt(Date.now());
-            if (pollRef.current) { clearInterval(pollRef.current); pollRef.current = null; }
-
-            // After JS parse & persist, refresh native prefs too (to keep them synced)
-            await sleep(2000);
-            await handleRefreshFromNative();
           } else {
             // JS couldn't parse: delete raw message from AsyncStorage (user requested behavior)
             await removeRawMessageStored();
             setStatus('Message received but no URL/coords — raw message removed.');
-            setLastUpdatedAt(Date.now());
-            if (pollRef.current) { clearInterval(pollRef.current); pollRef.current = null; }
-
-            // still try refresh native prefs (maybe native has stored something)
-            await sleep(2000);
-            await handleRefreshFromNative();
           }
-        } else {
-          // no raw message present in payload — still refresh native prefs to be safe
-          await sleep(2000);
-          await handleRefreshFromNative();
+          setLastUpdatedAt(Date.now());
         }
       } catch (e) {
-        console.warn('SisterDetail event handler error', e);
+        console.warn('SisterDetail update handler error', e);
       }
     });
+    if (SisterSettings && SisterSettings.subscribeLocation) {
+      SisterSettings.subscribeLocation(subscriptionId, sister.phone);
+    }
 
     return () => {
       if (sub && sub.remove) sub.remove();
-      if (pollRef.current) clearInterval(pollRef.current);
+      if (SisterSettings && SisterSettings.unsubscribeLocation) {
+        SisterSettings.unsubscribeLocation(subscriptionId);
+      }
+      clearWaitTimeout();
     };
     // eslint-disable-next-line react-hooks/exhaustive-deps
-  }, [lastLocation]); // include lastLocation so incomingTs comparison sees updates
+  }, [sister.phone]);
 
   /* ---------------- Helpers ---------------- */
   const requestRuntimeSmsPermissions = async () => {
@@ -250,27 +221,16 @@ export default function SisterDetail({ route }) {
         console.warn('AsyncStorage scan failed', e);
       }
 
-      // try native SisterSettingsModule (variants)
-      if (SisterSettings && SisterSettings.getLastLocation) {
-        const candidates = [
-          sister.phone,
-          normalizePhone(sister.phone),
-          (sister.phone || '').replace(/^\+/, ''),
-        ];
-        for (const candidate of candidates) {
-          if (!candidate) continue;
-          try {
-            const nativeVal = await SisterSettings.getLastLocation(candidate);
-            if (nativeVal) {
-              const parsed = typeof nativeVal === 'string' ? JSON.parse(nativeVal) : nativeVal;
-              await AsyncStorage.setItem(`lastLocation_${sister.phone}`, JSON.stringify(parsed));
-              setLastLocation(parsed);
-              setStatus('Loaded saved location from native prefs.');
-              return;
-            }
-          } catch (e) { /* ignore candidate error */ }
+      // try native SisterSettingsModule (resolves phone variants natively)
+      try {
+        const parsed = await readNativeLastLocation();
+        if (parsed) {
+          await AsyncStorage.setItem(`lastLocation_${sister.phone}`, JSON.stringify(parsed));
+          setLastLocation(parsed);
+          setStatus('Loaded saved location from native prefs.');
+          return;
         }
-      }
+      } catch (e) { /* ignore native read error */ }
 
       setStatus('No saved location found.');
     } catch (e) {
@@ -278,53 +238,21 @@ export default function SisterDetail({ route }) {
     }
   };
 
-  /* ---------------- Polling fallback ---------------- */
-  const pollForLocation = () => {
-    if (pollRef.current) clearInterval(pollRef.current);
-    const started = Date.now();
-    pollRef.current = setInterval(async () => {
-      try {
-        if (Date.now() - started > POLL_TIMEOUT_MS) {
-          clearInterval(pollRef.current);
-          pollRef.current = null;
-          setStatus('Timed out waiting for reply.');
-          return;
-        }
-
-        const direct = await AsyncStorage.getItem(`lastLocation_${sister.phone}`);
-        if (direct) {
-          const parsed = JSON.parse(direct);
-          // if it's raw and needs parsing, try; otherwise set
-          if (!hasCoordsOrUrl(parsed) && parsed.rawMessage) {
-            const p = parseLocationFromText(parsed.rawMessage);
-            if (p) {
-              const enriched = { ...p, rawMessage: parsed.rawMessage, timestamp: Date.now() };
-              await persistAndSet(enriched);
-              setStatus('Parsed location from message.');
-              clearInterval(pollRef.current);
-              pollRef.current = null;
-              return;
-            } else {
-              // remove raw message as per your request
-              await AsyncStorage.removeItem(`lastLocation_${sister.phone}`);
-              setLastLocation(null);
-              setStatus('Received raw message had no URL/coords — discarded.');
-              clearInterval(pollRef.current);
-              pollRef.current = null;
-              return;
-            }
-          }
-          setLastLocation(parsed);
-          setStatus('Location received!');
-          clearInterval(pollRef.current);
-          pollRef.current = null;
-          return;
-        }
+  /* ---------------- Waiting for reply ---------------- */
+  // The reply arrives as a pushed update; this only reports when none came in time
+  const clearWaitTimeout = () => {
+    if (waitRef.current) {
+      clearTimeout(waitRef.current);
+      waitRef.current = null;
+    }
+  };
 
-      } catch (e) {
-        console.warn('pollForLocation error', e);
-      }
-    }, POLL_INTERVAL_MS);
+  const startWaitTimeout = () => {
+    clearWaitTimeout();
+    waitRef.current = setTimeout(() => {
+      waitRef.current = null;
+      setStatus('Timed out waiting for reply.');
+    }, WAIT_TIMEOUT_MS);
   };
 
   /* ---------------- Send check ---------------- */
@@ -355,83 +283,45 @@ export default function SisterDetail({ route }) {
     try {
       await sendSms(sister.phone, `${code}`);
       setStatus('Check sent — waiting for location...');
-      pollForLocation();
+      startWaitTimeout();
     } catch (e) {
       setStatus('Send failed');
       Alert.alert('Error', `Failed to send check: ${String(e)}`);
     }
   };
 
-  /* ---------------- Refresh from native prefs (auto-invoked by event) ---------------- */
+  /* ---------------- Refresh from native prefs ---------------- */
+  // One native call: SisterSettingsModule maps sender variants to the canonical sister key
+  const readNativeLastLocation = async () => {
+    if (!SisterSettings || !SisterSettings.getLastLocation) return null;
+    const nativeVal = await SisterSettings.getLastLocation(sister.phone);
+    if (!nativeVal) return null;
+    return typeof nativeVal === 'string' ? JSON.parse(nativeVal) : nativeVal;
+  };
+
   const handleRefreshFromNative = async () => {
     try {
       if (!SisterSettings || !SisterSettings.getLastLocation) {
         console.warn('SisterSettingsModule.getLastLocation not available');
         return;
       }
-      const candidates = [
-        sister.phone,
-        normalizePhone(sister.phone),
-        (sister.phone || '').replace(/^\+/, ''),
-      ];
-      for (const candidate of candidates) {
-        if (!candidate) continue;
-        try {
-          const nativeVal = await SisterSettings.getLastLocation(candidate);
-          if (nativeVal) {
-            const parsed = typeof nativeVal === 'string' ? JSON.parse(nativeVal) : nativeVal;
-            console.log('handleRefreshFromNative: got nativeVal for candidate', candidate, parsed);
-            // only update if newer or different
-            const incomingTs = parsed.timestamp || Date.now();
-            if (!lastLocation || !lastLocation.timestamp || incomingTs > lastLocation.timestamp || !isSameCoord(parsed, lastLocation)) {
-              await AsyncStorage.setItem(`lastLocation_${sister.phone}`, JSON.stringify(parsed));
-              setLastLocation(parsed);
-              setStatus('Refreshed from native prefs.');
-            } else {
-              console.log('handleRefreshFromNative: native value not newer');
-            }
-            return;
-          }
-        } catch (e) {
-          console.warn('candidate native read failed', candidate, e);
-        }
+      const parsed = await readNativeLastLocation();
+      if (!parsed) {
+        console.log('handleRefreshFromNative: no native data found');
+        return;
       }
-      console.log('handleRefreshFromNative: no native data found for candidates');
-    } catch (e) {
-      console.warn('handleRefreshFromNative error', e);
-    }
-  };
-
-  // variant that refreshes only if incomingTs is newer than current lastLocation
-  const handleRefreshFromNativeIfNewer = async (incomingTs) => {
-    try {
-      if (!SisterSettings || !SisterSettings.getLastLocation) return;
-      const candidates = [
-        sister.phone,
-        normalizePhone(sister.phone),
-        (sister.phone || '').replace(/^\+/, ''),
-      ];
-      for (const candidate of candidates) {
-        if (!candidate) continue;
-        try {
-          const nativeVal = await SisterSettings.getLastLocation(candidate);
-          if (nativeVal) {
-            const parsed = typeof nativeVal === 'string' ? JSON.parse(nativeVal) : nativeVal;
-            const nativeTs = parsed.timestamp || 0;
-            if (nativeTs >= incomingTs) {
-              // native prefs have value as new or newer — update UI
-              await AsyncStorage.setItem(`lastLocation_${sister.phone}`, JSON.stringify(parsed));
-              setLastLocation(parsed);
-              setStatus('Refreshed from native prefs (newer).');
-            }
-            return;
-          }
-        } catch (e) {
-          /* ignore */
-        }
+      console.log('handleRefreshFromNative: got nativeVal', parsed);
+      // only update if newer or different
+      const incomingTs = parsed.timestamp || Date.now();
+      if (!lastLocation || !lastLocation.timestamp || incomingTs > lastLocation.timestamp || !isSameCoord(parsed, lastLocation)) {
+        await AsyncStorage.setItem(`lastLocation_${sister.phone}`, JSON.stringify(parsed));
+        setLastLocation(parsed);
+        setStatus('Refreshed from native prefs.');
+      } else {
+        console.log('handleRefreshFromNative: native value not newer');
       }
     } catch (e) {
-      console.warn('handleRefreshFromNativeIfNewer error', e);
+      console.warn('handleRefreshFromNative error', e);
     }
   };
 
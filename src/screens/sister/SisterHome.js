@@ -10,6 +10,7 @@ import {
   Alert,
   TouchableOpacity,
   StyleSheet,
+  Switch,
   Platform,
   NativeModules,
   ActivityIndicator,
@@ -49,6 +50,8 @@ export default function SisterHome({ resetMode }) {
   const [editingIndex, setEditingIndex] = useState(null);
   const [phoneInput, setPhoneInput] = useState('');
   const [keywordInput, setKeywordInput] = useState('');
+  const [maxAgeInput, setMaxAgeInput] = useState('');
+  const [compactInput, setCompactInput] = useState(false);
   const [isLoading, setIsLoading] = useState(true);
 
   useEffect(() => {
@@ -61,6 +64,8 @@ export default function SisterHome({ resetMode }) {
       ];
 
       const granted = await requestPermissions(perms);
+      // optional: lets the native outbox send through both SIMs of a dual-SIM phone
+      await requestPermissions([PermissionsAndroid.PERMISSIONS.READ_PHONE_STATE]);
       setLoadingStatus(granted ? 'Ready — listening in background.' : 'Permissions denied.');
 
       try {
@@ -99,6 +104,8 @@ export default function SisterHome({ resetMode }) {
     setEditingIndex(null);
     setPhoneInput('');
     setKeywordInput('');
+    setMaxAgeInput('');
+    setCompactInput(false);
     setModalVisible(true);
   };
 
@@ -107,6 +114,8 @@ export default function SisterHome({ resetMode }) {
     setEditingIndex(index);
     setPhoneInput(entry.phone);
     setKeywordInput(entry.keyword);
+    setMaxAgeInput(entry.maxAgeSec != null ? String(entry.maxAgeSec) : '');
+    setCompactInput(!!entry.compact);
     setModalVisible(true);
   };
 
@@ -116,18 +125,27 @@ export default function SisterHome({ resetMode }) {
     if (!phone || !keyword) {
       return Alert.alert('Error', 'Both phone and keyword are required.');
     }
+    // optional: how old (seconds) a cached location may be when replying to this sender
+    const maxAgeText = maxAgeInput.trim();
+    const maxAgeSec = maxAgeText ? parseInt(maxAgeText, 10) : null;
+    if (maxAgeText && (!Number.isFinite(maxAgeSec) || maxAgeSec < 0)) {
+      return Alert.alert('Error', 'Max location age must be a number of seconds.');
+    }
+    const entry = maxAgeSec != null ? { phone, keyword, maxAgeSec } : { phone, keyword };
+    // compact: reply with a short single-SMS location code; only when the sender's app decodes it
+    if (compactInput) entry.compact = true;
 
     if (editingIndex === null) {
       const exists = trustedList.some((e) => e.phone === phone);
       if (exists) {
         return Alert.alert('Error', 'This phone is already in your trusted list. Please edit the existing entry.');
       }
-      const next = [...trustedList, { phone, keyword }];
+      const next = [...trustedList, entry];
       await persistList(next);
       Alert.alert('Success', 'Trusted sender added successfully!');
     } else {
       const next = trustedList.slice();
-      next[editingIndex] = { phone, keyword };
+      next[editingIndex] = entry;
       await persistList(next);
       Alert.alert('Success', 'Trusted sender updated successfully!');
     }
@@ -260,6 +278,20 @@ export default function SisterHome({ resetMode }) {
               onChangeText={setKeywordInput}
               autoCapitalize="characters"
             />
+            <Text style={[styles.label, { color: blueTheme.textPrimary }]}>Max Location Age (seconds, optional)</Text>
+            <TextInput
+              style={[styles.input, { borderColor: blueTheme.inputBorder }]}
+              placeholder="default 60"
+              value={maxAgeInput}
+              onChangeText={setMaxAgeInput}
+              keyboardType="number-pad"
+            />
+            <View style={styles.switchRow}>
+              <Text style={[styles.label, { color: blueTheme.textPrimary, marginBottom: 0, flex: 1 }]}>
+                Compact location code (sender uses this app)
+              </Text>
+              <Switch value={compactInput} onValueChange={setCompactInput} />
+            </View>
 
             <TouchableOpacity
               style={[styles.modalSaveButton, { backgroundColor: blueTheme.primary }]}
@@ -278,6 +310,11 @@ export default function SisterHome({ resetMode }) {
 }
 
 const styles = StyleSheet.create({
+  switchRow: {
+    flexDirection: 'row',
+    alignItems: 'center',
+    marginBottom: 15,
+  },
   container: {
     flex: 1,
     padding: 20,
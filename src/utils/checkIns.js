@@ -0,0 +1,22 @@
+// utils/checkIns.js
+// Automatic check-ins run natively (ScheduledCheckIns): sisters in the native sister_list with a
+// code and checkInMinutes get their code on that schedule, batched into shared wake windows, even
+// while the app is closed. After escalateAfter (default 2) unanswered checks in a row the phone
+// shows a notification; while JS runs an event arrives too.
+import { NativeModules, DeviceEventEmitter } from 'react-native';
+
+const { SisterSettingsModule } = NativeModules;
+
+export const CHECK_IN_ESCALATION_EVENT = 'SisterCheckInEscalation';
+
+// [{ phone, name, nextDueAt, awaitingSince?, missed, lastReplyAt? }]
+export const getCheckInSchedule = () =>
+  SisterSettingsModule && SisterSettingsModule.getCheckInSchedule
+    ? SisterSettingsModule.getCheckInSchedule()
+    : Promise.resolve([]);
+
+// listener({ phone, name, missed, lastReplyAt? }); returns an unsubscribe function
+export const onCheckInEscalation = (listener) => {
+  const sub = DeviceEventEmitter.addListener(CHECK_IN_ESCALATION_EVENT, listener);
+  return () => sub.remove();
+};
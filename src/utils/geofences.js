@@ -0,0 +1,15 @@
+// utils/geofences.js
+// Safe zones evaluated on the phone (SettingsModule / Geofences): the zone's contact gets an SMS
+// when the phone arrives or leaves, no polling needed. Needs background location permission.
+import { NativeModules } from 'react-native';
+
+const { SettingsModule } = NativeModules;
+
+// zones: [{ id, phone, name, latitude, longitude, radius (m, default 200), dwellSeconds (default 120) }]
+export const setGeofences = (zones) => {
+  if (SettingsModule) SettingsModule.setGeofences(JSON.stringify(zones || []));
+};
+
+export const clearGeofences = () => {
+  if (SettingsModule) SettingsModule.clearGeofences();
+};
@@ -0,0 +1,37 @@
+// utils/metrics.js
+// Native SMS/location pipeline metrics (MetricsModule). Recording is on in debug builds;
+// call setMetricsEnabled(true) to collect in a release build.
+import { NativeModules } from 'react-native';
+
+const { MetricsModule } = NativeModules;
+
+export const setMetricsEnabled = (on) => {
+  if (MetricsModule) MetricsModule.setEnabled(!!on);
+};
+
+// { enabled, stages: [{ stage, count, meanUs, p50Us, p90Us, p99Us, maxUs }], counters: {...} }
+export const getMetrics = () =>
+  MetricsModule ? MetricsModule.getMetrics() : Promise.resolve(null);
+
+// The same snapshot as a JSON string
+export const exportMetrics = () =>
+  MetricsModule ? MetricsModule.exportMetrics() : Promise.resolve(null);
+
+export const resetMetrics = () => {
+  if (MetricsModule) MetricsModule.resetMetrics();
+};
+
+// Location replies and TRACK requests from trusted contacts since the app process started
+// (SettingsModule / ReplyLimiter; STOP is never limited):
+// { sent, deferred, coalesced, dropped }
+export const getReplyLimiterStats = () => {
+  const { SettingsModule } = NativeModules;
+  return SettingsModule ? SettingsModule.getReplyLimiterStats() : Promise.resolve(null);
+};
+
+// Repeated deliveries of an already handled SMS dropped since the app process started
+// (SettingsModule / InboundDedup): { suppressed }
+export const getInboundDedupStats = () => {
+  const { SettingsModule } = NativeModules;
+  return SettingsModule ? SettingsModule.getInboundDedupStats() : Promise.resolve(null);
+};
@@ -17,8 +17,15 @@ export const requestPermissions = async (permissions = []) => {
   }
 };
 
-export const sendSms = (phone, text) =>
+// Resolves once the network accepted the message (the native side queues, rate limits and
+// retries it). Pass { waitForDelivery: true } to resolve on the delivery report instead.
+export const sendSms = (phone, text, { waitForDelivery = false } = {}) =>
   new Promise((resolve, reject) => {
+    if (SmsSender && SmsSender.send) {
+      SmsSender.send(String(phone), String(text), waitForDelivery)
+        .then(resolve, (err) => reject(err && err.message ? err.message : err));
+      return;
+    }
     if (!SmsSender || !SmsSender.sendSMS) {
       return reject('SmsSender native module not available');
     }